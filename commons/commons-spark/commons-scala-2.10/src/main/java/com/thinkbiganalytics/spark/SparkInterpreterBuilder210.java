@@ -57,15 +57,19 @@ public class SparkInterpreterBuilder210 implements SparkInterpreterBuilder {
 
     @Override
     public IMain newInstance() {
-        return new IMain(settings, printWriter) {
+        // Capture the current values as this builder may be reused for other interpreters
+        final PrintWriter out = printWriter;
+        final ClassLoader parent = classLoader;
+
+        return new IMain(settings, out) {
             @Override
             public ClassLoader parentClassLoader() {
-                return classLoader;
+                return parent;
             }
 
             @Override
             public PrintWriter out() {
-                return printWriter;
+                return out;
             }
         };
     }
@@ -59,10 +59,14 @@ public class SparkInterpreterBuilder211 implements SparkInterpreterBuilder {
 
     @Override
     public IMain newInstance() {
-        return new IMain(settings, printWriter) {
+        // Capture the current values as this builder may be reused for other interpreters
+        final PrintWriter out = printWriter;
+        final ClassLoader parent = classLoader;
+
+        return new IMain(settings, out) {
             @Override
             public ClassLoader parentClassLoader() {
-                return classLoader;
+                return parent;
             }
 
             @Override
@@ -77,7 +81,7 @@ public class SparkInterpreterBuilder211 implements SparkInterpreterBuilder {
 
             @Override
             public PrintWriter out() {
-                return printWriter;
+                return out;
             }
         };
     }
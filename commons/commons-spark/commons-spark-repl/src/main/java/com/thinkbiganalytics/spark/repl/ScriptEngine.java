@@ -22,20 +22,24 @@ package com.thinkbiganalytics.spark.repl;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.thinkbiganalytics.spark.util.ArrayUtils;
 
-import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.spark.SparkContext;
 import org.apache.spark.sql.SQLContext;
 import org.apache.spark.sql.hive.HiveContext;
 
-import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -49,10 +53,22 @@ import scala.tools.nsc.interpreter.NamedParam;
  * <p>Scripts may access a {@link SparkContext} through the {@code sc} variable and a {@link SQLContext} through the
  * {@code sqlContext} variable.</p>
  *
- * <p>This class is <i>thread-safe</i> and ensures that only one script </p>
+ * <p>This class is <i>thread-safe</i>. Compiled scripts are cached by a hash of their normalized source so that
+ * evaluating the same script again does not invoke the compiler, and scripts are executed concurrently on the
+ * calling threads.</p>
  */
 public abstract class ScriptEngine {
 
+    /**
+     * Name of the value defined by a compiled script for running new instances of the script
+     */
+    protected static final String COMPILED_SCRIPT = "compiledScript";
+
+    /**
+     * Maximum number of compiled scripts to cache
+     */
+    private static final int COMPILED_SCRIPT_CACHE_SIZE = 1000;
+
     /**
      * End of line character
      */
@@ -63,38 +79,46 @@ public abstract class ScriptEngine {
      */
     private static final byte[] LABEL = "<console>".getBytes(Charsets.UTF_8);
 
+    /**
+     * Matches whitespace at the end of a line
+     */
+    private static final Pattern TRAILING_WHITESPACE = Pattern.compile("\\s+$");
+
     /**
      * Separator between label, line number, and error message
      */
     private static final byte[] SEPARATOR = new byte[]{':'};
 
     /**
-     * Exception thrown by the last script
+     * Compiled scripts keyed by the hash of their normalized source
      */
     @Nonnull
-    private final AtomicReference<Throwable> exception = new AtomicReference<>();
+    private final Cache<String, Runnable> compiledScripts = CacheBuilder.newBuilder().maximumSize(COMPILED_SCRIPT_CACHE_SIZE).build();
 
     /**
-     * Compiler output stream for capturing compile errors
+     * Exception thrown by the script running on the current thread
      */
     @Nonnull
-    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ThreadLocal<Throwable> exception = new ThreadLocal<>();
 
     /**
-     * Result of the last script
+     * Result of the script running on the current thread
      */
     @Nonnull
-    private final AtomicReference<Object> result = new AtomicReference<>();
+    private final ThreadLocal<Object> result = new ThreadLocal<>();
+
     /**
-     * Map of variable names to values for bindings
+     * Map of variable names to values for the bindings of the script running on the current thread
      */
     @Nonnull
-    private final Map<String, Object> values = Maps.newHashMap();
+    private final ThreadLocal<Map<String, Object>> values = new ThreadLocal<>();
+
     /**
      * Spark context
      */
     @Nullable
     private SparkContext sparkContext;
+
     /**
      * Spark SQL context
      */
@@ -109,7 +133,7 @@ public abstract class ScriptEngine {
      * @throws ScriptException if an error occurs in the script
      */
     @Nullable
-    public synchronized Object eval(@Nonnull final String script) throws ScriptException {
+    public Object eval(@Nonnull final String script) throws ScriptException {
         List<NamedParam> bindings = ImmutableList.of();
         return eval(script, bindings);
     }
@@ -123,7 +147,7 @@ public abstract class ScriptEngine {
      * @throws ScriptException if an error occurs in the script
      */
     @Nullable
-    public synchronized Object eval(@Nonnull final String script, @Nonnull final List<NamedParam> bindings)
+    public Object eval(@Nonnull final String script, @Nonnull final List<NamedParam> bindings)
         throws ScriptException {
         // Define class containing script
         final StringBuilder cls = new StringBuilder();
@@ -134,7 +158,7 @@ public abstract class ScriptEngine {
         cls.append("  }\n");
 
         // Add bindings to class
-        this.values.clear();
+        final Map<String, Object> scriptValues = Maps.newHashMap();
 
         for (NamedParam param : bindings) {
             cls.append("  def ");
@@ -144,24 +168,31 @@ public abstract class ScriptEngine {
             cls.append(" = getValue(\"");
             cls.append(param.name());
             cls.append("\")\n");
-            this.values.put(param.name(), param.value());
+            scriptValues.put(param.name(), param.value());
         }
 
         cls.append("}\n");
 
-        // Instantiate class
-        cls.append("new Script(engine).run()\n");
+        // Define a runner that instantiates the class
+        cls.append("val ").append(COMPILED_SCRIPT).append(": Runnable = new Runnable { override def run (): Unit = new Script(engine).run() }\n");
 
-        // Execute script
-        this.out.reset();
-
-        execute(cls.toString());
+        // Compile script, or reuse a previous compilation of the same script
+        final Runnable compiledScript = getCompiledScript(cls.toString());
 
-        // Check for exception and return result
-        checkCompileError();
-        checkRuntimeError();
+        // Execute script
+        this.values.set(scriptValues);
 
-        return this.result.get();
+        try {
+            compiledScript.run();
+
+            // Check for exception and return result
+            checkRuntimeError();
+            return this.result.get();
+        } finally {
+            this.exception.remove();
+            this.result.remove();
+            this.values.remove();
+        }
     }
 
     /**
@@ -178,7 +209,7 @@ public abstract class ScriptEngine {
      * @return the Spark context
      */
     @Nonnull
-    public SparkContext getSparkContext() {
+    public synchronized SparkContext getSparkContext() {
         if (this.sparkContext == null) {
             this.sparkContext = createSparkContext();
         }
@@ -191,7 +222,7 @@ public abstract class ScriptEngine {
      * @return the SQL context
      */
     @Nonnull
-    public SQLContext getSQLContext() {
+    public synchronized SQLContext getSQLContext() {
         if (this.sqlContext == null) {
             this.sqlContext = new HiveContext(getSparkContext());
         }
@@ -207,35 +238,27 @@ public abstract class ScriptEngine {
     protected abstract SparkContext createSparkContext();
 
     /**
-     * Executes the specified script.
+     * Compiles the specified script. The script defines a {@link Runnable} named {@link #COMPILED_SCRIPT} that
+     * evaluates the script each time it is run.
      *
-     * @param script the script to be executed
-     * @throws ScriptException if an error occurs in the script
+     * @param script the script to be compiled
+     * @return the value of {@link #COMPILED_SCRIPT}
+     * @throws ScriptException if the script cannot be compiled
      */
-    protected abstract void execute(@Nonnull final String script) throws ScriptException;
-
-    /**
-     * Gets the writer for capturing compile errors.
-     *
-     * @return the compiler output stream
-     */
-    protected PrintWriter getPrintWriter() {
-        return new PrintWriter(this.out);
-    }
+    @Nonnull
+    protected abstract Runnable compile(@Nonnull final String script) throws ScriptException;
 
     /**
      * Resets the engine state so the {@link SparkContext} can be recreated.
      */
-    protected void reset() {
+    protected synchronized void reset() {
         // Stop Spark
         if (sparkContext != null && !sparkContext.isStopped()) {
             sparkContext.stop();
         }
 
         // Clear instance variables
-        exception.set(null);
-        out.reset();
-        result.set(null);
+        compiledScripts.invalidateAll();
         sparkContext = null;
         sqlContext = null;
     }
@@ -248,7 +271,8 @@ public abstract class ScriptEngine {
      */
     @Nullable
     Object getValue(@Nonnull final String name) {
-        return this.values.get(name);
+        final Map<String, Object> scriptValues = this.values.get();
+        return (scriptValues != null) ? scriptValues.get(name) : null;
     }
 
     /**
@@ -266,18 +290,17 @@ public abstract class ScriptEngine {
      * @param result the result
      */
     void setResult(@Nullable final Object result) {
-        this.exception.set(null);
+        this.exception.remove();
         this.result.set(result);
     }
 
     /**
-     * Checks the output stream for a compile error.
+     * Checks the compiler output for a compile error.
      *
+     * @param outBytes the compiler output
      * @throws ScriptException if a compile error is found
      */
-    private void checkCompileError() throws ScriptException {
-        byte[] outBytes = this.out.toByteArray();
-
+    protected void checkCompileError(@Nonnull final byte[] outBytes) throws ScriptException {
         // Look for label
         int labelIndex = ArrayUtils.indexOf(outBytes, 0, outBytes.length, LABEL, 0, LABEL.length, 0);
         if (labelIndex == -1) {
@@ -303,6 +326,47 @@ public abstract class ScriptEngine {
         throw new ScriptException(message, "<console>", line);
     }
 
+    /**
+     * Gets the compiled version of the specified script, compiling it if it has not been compiled before.
+     *
+     * <p>Concurrent requests for the same script wait for a single compilation.</p>
+     *
+     * @param script the script to be compiled
+     * @return the compiled script
+     * @throws ScriptException if the script cannot be compiled
+     */
+    @Nonnull
+    private Runnable getCompiledScript(@Nonnull final String script) throws ScriptException {
+        try {
+            return compiledScripts.get(hash(script), new Callable<Runnable>() {
+                @Override
+                public Runnable call() throws Exception {
+                    return compile(script);
+                }
+            });
+        } catch (final ExecutionException | UncheckedExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause(), ScriptException.class);
+            throw new ScriptException(e);
+        }
+    }
+
+    /**
+     * Computes a hash of the specified script that ignores differences in line endings and trailing whitespace.
+     *
+     * @param script the script
+     * @return the hash
+     */
+    @Nonnull
+    private String hash(@Nonnull final String script) {
+        final StringBuilder normalized = new StringBuilder(script.length());
+
+        for (final String line : script.split("\\r?\\n")) {
+            normalized.append(TRAILING_WHITESPACE.matcher(line).replaceFirst("")).append('\n');
+        }
+
+        return Hashing.sha256().hashString(normalized, Charsets.UTF_8).toString();
+    }
+
     /**
      * Checks for a runtime exception.
      *
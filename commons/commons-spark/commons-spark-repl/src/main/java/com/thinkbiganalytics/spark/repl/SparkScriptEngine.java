@@ -25,27 +25,33 @@ import com.google.common.base.Throwables;
 import com.thinkbiganalytics.spark.SparkInterpreterBuilder;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.spark.SparkConf;
 import org.apache.spark.SparkContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintWriter;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.script.ScriptException;
 
+import scala.Option;
 import scala.collection.JavaConversions;
 import scala.tools.nsc.Settings;
 import scala.tools.nsc.interpreter.IMain;
@@ -53,6 +59,13 @@ import scala.tools.nsc.interpreter.Results;
 
 /**
  * Evaluates Scala scripts using the Spark REPL interface.
+ *
+ * <p>Scripts are compiled by a pool of interpreters that share the same {@link SparkContext}, so that compiling one
+ * script does not block the compilation of others. The size of the pool is set by the
+ * {@code spark.shell.interpreter.pool-size} property and defaults to 1. Only the classes compiled by the primary
+ * interpreter can be loaded by the Spark executors, so a script compiled by another interpreter fails if it ships a
+ * closure to the executors, such as {@code sc.parallelize(1 to 3).map(_ + 1)}. A larger pool should only be used if
+ * the scripts do not use closures.</p>
  */
 @Component
 @ComponentScan("com.thinkbiganalytics.spark")
@@ -60,6 +73,16 @@ public class SparkScriptEngine extends ScriptEngine {
 
     private static final Logger log = LoggerFactory.getLogger(SparkScriptEngine.class);
 
+    /**
+     * Default number of interpreters
+     */
+    private static final int DEFAULT_POOL_SIZE = 1;
+
+    /**
+     * Property for the number of interpreters
+     */
+    private static final String POOL_SIZE_PROPERTY = "spark.shell.interpreter.pool-size";
+
     /**
      * Matches a multi-line comment in Scala
      */
@@ -83,14 +106,31 @@ public class SparkScriptEngine extends ScriptEngine {
     private List<Pattern> denyPatterns;
 
     /**
-     * Spark REPL interface
+     * Interpreters that are not compiling a script
+     */
+    @Nonnull
+    private final BlockingQueue<PooledInterpreter> idleInterpreters = new LinkedBlockingQueue<>();
+
+    /**
+     * Number of interpreters in the pool
+     */
+    private int interpreterCount;
+
+    /**
+     * Interpreter providing the class loader for the Spark context
      */
     @Nullable
-    private IMain interpreter;
+    private PooledInterpreter primaryInterpreter;
 
     @Autowired
     private SparkInterpreterBuilder builder;
 
+    /**
+     * Spring environment
+     */
+    @Autowired(required = false)
+    private Environment environment;
+
     @Nonnull
     @Override
     public ClassLoader getClassLoader() {
@@ -99,7 +139,7 @@ public class SparkScriptEngine extends ScriptEngine {
         final ClassLoader contextClassLoader = currentThread.getContextClassLoader();
 
         // Get interpreter class loader from context
-        getInterpreter().setContextClassLoader();
+        getPrimaryInterpreter().interpreter.setContextClassLoader();
         final ClassLoader interpreterClassLoader = currentThread.getContextClassLoader();
 
         // Reset context
@@ -111,7 +151,7 @@ public class SparkScriptEngine extends ScriptEngine {
     @Override
     protected SparkContext createSparkContext() {
         // Allow interpreter to modify Thread context for Spark
-        getInterpreter().setContextClassLoader();
+        getPrimaryInterpreter().interpreter.setContextClassLoader();
 
         // The SparkContext ClassLoader is needed during initialization (only for YARN master)
         return executeWithSparkClassLoader(new Callable<SparkContext>() {
@@ -123,9 +163,10 @@ public class SparkScriptEngine extends ScriptEngine {
         });
     }
 
+    @Nonnull
     @Override
-    protected void execute(@Nonnull final String script) throws ScriptException {
-        log.debug("Executing script:\n{}", script);
+    protected Runnable compile(@Nonnull final String script) throws ScriptException {
+        log.debug("Compiling script:\n{}", script);
 
         // Convert script to single line (for checking security violations)
         final StringBuilder safeScriptBuilder = new StringBuilder(script.length());
@@ -147,24 +188,59 @@ public class SparkScriptEngine extends ScriptEngine {
             }
         }
 
-        // Execute script
+        // Compile script
+        PooledInterpreter interpreter = borrowInterpreter();
+
         try {
-            getInterpreter().interpret(safeScript);
-        } catch (final AssertionError e) {
-            log.warn("Caught assertion error when executing script. Retrying...", e);
-            reset();
-            getInterpreter().interpret(safeScript);
+            try {
+                return compile(interpreter, safeScript);
+            } catch (final AssertionError e) {
+                log.warn("Caught assertion error when compiling script. Retrying with a new interpreter...", e);
+                interpreter = replaceInterpreter(interpreter);
+                return compile(interpreter, safeScript);
+            }
+        } finally {
+            idleInterpreters.add(interpreter);
         }
     }
 
     @Override
-    protected void reset() {
+    protected synchronized void reset() {
         super.reset();
 
-        // Clear the interpreter
-        if (interpreter != null) {
-            interpreter.close();
-            interpreter = null;
+        // Clear the idle interpreters
+        PooledInterpreter interpreter;
+        while ((interpreter = idleInterpreters.poll()) != null) {
+            interpreter.interpreter.close();
+            --interpreterCount;
+        }
+        primaryInterpreter = null;
+    }
+
+    /**
+     * Compiles the specified script using the specified interpreter.
+     *
+     * @param interpreter the interpreter
+     * @param script      the script to be compiled
+     * @return the compiled script
+     * @throws ScriptException if the script cannot be compiled
+     */
+    @Nonnull
+    private Runnable compile(@Nonnull final PooledInterpreter interpreter, @Nonnull final String script) throws ScriptException {
+        interpreter.out.reset();
+        final Results.Result result = interpreter.interpreter.interpret(script);
+        interpreter.writer.flush();
+
+        checkCompileError(interpreter.out.toByteArray());
+        if (!(result instanceof Results.Success$)) {
+            throw new ScriptException("Script could not be compiled: " + result);
+        }
+
+        final Option<Object> compiledScript = interpreter.interpreter.valueOfTerm(COMPILED_SCRIPT);
+        if (compiledScript.isDefined() && compiledScript.get() instanceof Runnable) {
+            return (Runnable) compiledScript.get();
+        } else {
+            throw new IllegalStateException("Compiled script is not available: " + compiledScript);
         }
     }
 
@@ -242,36 +318,133 @@ public class SparkScriptEngine extends ScriptEngine {
     }
 
     /**
-     * Gets the Spark REPL interface to be used.
+     * Takes an idle interpreter from the pool, creating a new interpreter if the pool is not full, or waiting for
+     * an interpreter to become idle.
+     *
+     * @return the interpreter
+     * @throws ScriptException if interrupted while waiting for an interpreter
+     */
+    @Nonnull
+    private PooledInterpreter borrowInterpreter() throws ScriptException {
+        final PooledInterpreter idle = idleInterpreters.poll();
+        if (idle != null) {
+            return idle;
+        }
+
+        // Create a new interpreter if the pool is not full
+        final boolean create;
+        synchronized (this) {
+            create = (interpreterCount < getPoolSize());
+            if (create) {
+                ++interpreterCount;
+            }
+        }
+
+        if (create) {
+            try {
+                return newInterpreter();
+            } catch (final RuntimeException e) {
+                synchronized (this) {
+                    --interpreterCount;
+                }
+                throw e;
+            }
+        }
+
+        // Wait for an idle interpreter
+        try {
+            return idleInterpreters.take();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScriptException("Interrupted while waiting for an interpreter");
+        }
+    }
+
+    /**
+     * Gets the interpreter providing the class loader for the Spark context, creating it if necessary.
+     *
+     * @return the primary interpreter
+     */
+    @Nonnull
+    private synchronized PooledInterpreter getPrimaryInterpreter() {
+        if (primaryInterpreter == null) {
+            primaryInterpreter = newInterpreter();
+            ++interpreterCount;
+            idleInterpreters.add(primaryInterpreter);
+        }
+        return primaryInterpreter;
+    }
+
+    /**
+     * Gets the maximum number of interpreters.
+     *
+     * @return the pool size
+     */
+    private int getPoolSize() {
+        final Integer poolSize = (environment != null) ? environment.getProperty(POOL_SIZE_PROPERTY, Integer.class) : null;
+        return (poolSize != null) ? Math.max(poolSize, 1) : DEFAULT_POOL_SIZE;
+    }
+
+    /**
+     * Creates and initializes a new Spark REPL interface.
      *
      * @return the interpreter
      */
     @Nonnull
-    private IMain getInterpreter() {
-        if (this.interpreter == null) {
-            // Determine engine settings
-            final Settings settings = getSettings();
-
-            // Initialize engine
-            final ClassLoader parentClassLoader = getClass().getClassLoader();
-            final SparkInterpreterBuilder b = this.builder.withSettings(settings)
-                .withPrintWriter(getPrintWriter())
-                .withClassLoader(parentClassLoader);
-            final IMain interpreter = b.newInstance();
+    private PooledInterpreter newInterpreter() {
+        // Determine engine settings
+        final Settings settings = getSettings();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final PrintWriter writer = new PrintWriter(out);
+
+        // Initialize engine
+        final ClassLoader parentClassLoader = getClass().getClassLoader();
+        final IMain interpreter;
+
+        synchronized (this.builder) {
+            interpreter = this.builder.withSettings(settings)
+                .withPrintWriter(writer)
+                .withClassLoader(parentClassLoader)
+                .newInstance();
+        }
+
+        final Thread currentThread = Thread.currentThread();
+        final ClassLoader contextClassLoader = currentThread.getContextClassLoader();
 
+        try {
             interpreter.setContextClassLoader();
             interpreter.initializeSynchronous();
+        } finally {
+            currentThread.setContextClassLoader(contextClassLoader);
+        }
 
-            // Setup environment
-            final scala.collection.immutable.List<String> empty = JavaConversions.asScalaBuffer(new ArrayList<String>()).toList();
-            final Results.Result result = interpreter.bind("engine", SparkScriptEngine.class.getName(), this, empty);
-            if (result instanceof Results.Error$) {
-                throw new IllegalStateException("Failed to initialize interpreter");
-            }
+        // Setup environment
+        final scala.collection.immutable.List<String> empty = JavaConversions.asScalaBuffer(new ArrayList<String>()).toList();
+        final Results.Result result = interpreter.bind("engine", SparkScriptEngine.class.getName(), this, empty);
+        if (result instanceof Results.Error$) {
+            throw new IllegalStateException("Failed to initialize interpreter");
+        }
 
-            this.interpreter = interpreter;
+        return new PooledInterpreter(interpreter, out, writer);
+    }
+
+    /**
+     * Closes the specified interpreter and creates a new one in its place.
+     *
+     * @param interpreter the interpreter to be replaced
+     * @return the new interpreter
+     */
+    @Nonnull
+    private PooledInterpreter replaceInterpreter(@Nonnull final PooledInterpreter interpreter) {
+        final PooledInterpreter replacement = newInterpreter();
+        interpreter.interpreter.close();
+
+        synchronized (this) {
+            if (primaryInterpreter == interpreter) {
+                primaryInterpreter = replacement;
+            }
         }
-        return this.interpreter;
+        return replacement;
     }
 
     /**
@@ -289,4 +462,34 @@ public class SparkScriptEngine extends ScriptEngine {
         }
         return settings;
     }
+
+    /**
+     * A Spark REPL interface and the stream capturing its compile errors.
+     */
+    private static class PooledInterpreter {
+
+        /**
+         * Spark REPL interface
+         */
+        @Nonnull
+        final IMain interpreter;
+
+        /**
+         * Compiler output stream for capturing compile errors
+         */
+        @Nonnull
+        final ByteArrayOutputStream out;
+
+        /**
+         * Writer for the compiler output stream
+         */
+        @Nonnull
+        final PrintWriter writer;
+
+        PooledInterpreter(@Nonnull final IMain interpreter, @Nonnull final ByteArrayOutputStream out, @Nonnull final PrintWriter writer) {
+            this.interpreter = interpreter;
+            this.out = out;
+            this.writer = writer;
+        }
+    }
 }
@@ -35,11 +35,21 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.script.ScriptException;
 
 import scala.tools.nsc.Settings;
 import scala.tools.nsc.interpreter.IMain;
+import scala.tools.nsc.interpreter.NamedParam;
+import scala.tools.nsc.interpreter.NamedParamClass;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(classes = {SparkScriptEngine.class, SparkScriptEngineTest.class})
@@ -57,6 +67,8 @@ public class SparkScriptEngineTest {
     public SparkConf sparkConf() {
         SparkConf sparkConf = new SparkConf();
         sparkConf.set("spark.driver.allowMultipleContexts", "true");
+        sparkConf.setAppName("SparkScriptEngineTest");
+        sparkConf.setMaster("local[2]");
         return sparkConf;
     }
 
@@ -87,15 +99,18 @@ public class SparkScriptEngineTest {
 
             @Override
             public IMain newInstance() {
-                return new IMain(settings, printWriter) {
+                final PrintWriter out = printWriter;
+                final ClassLoader parent = classLoader;
+
+                return new IMain(settings, out) {
                     @Override
                     public ClassLoader parentClassLoader() {
-                        return classLoader;
+                        return parent;
                     }
 
                     @Override
                     public PrintWriter out() {
-                        return printWriter;
+                        return out;
                     }
                 };
             }
@@ -110,6 +125,99 @@ public class SparkScriptEngineTest {
         Assert.assertEquals(3, engine.eval("new Integer(1 + 2)"));
     }
 
+    /**
+     * Verify evaluating the same script concurrently with different bindings.
+     */
+    @Test
+    public void testConcurrent() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<Object>> results = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 16; ++i) {
+                final List<NamedParam> bindings = Collections.<NamedParam>singletonList(new NamedParamClass("x", "java.lang.Integer", i));
+                results.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() throws Exception {
+                        return engine.eval("new Integer(x * 2)", bindings);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < results.size(); ++i) {
+                Assert.assertEquals(i * 2, results.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Verify evaluating scripts that ship closures to the executors concurrently.
+     */
+    @Test
+    public void testConcurrentClosures() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<Object>> results = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 8; ++i) {
+                // Each script is compiled separately; a binding would be captured by the closure with its script
+                final String script = "sc.parallelize(1 to 3).map(_ + " + i + ").collect";
+                results.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() throws Exception {
+                        return engine.eval(script);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < results.size(); ++i) {
+                Assert.assertArrayEquals(new int[]{1 + i, 2 + i, 3 + i}, (int[]) results.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Verify compiling a valid and an invalid script concurrently reports the compile error only for the invalid script.
+     */
+    @Test
+    public void testConcurrentWithCompileError() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<Object>> results = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 8; ++i) {
+                final List<NamedParam> bindings = Collections.<NamedParam>singletonList(new NamedParamClass("x", "java.lang.Integer", i));
+                final String script = (i % 2 == 0) ? "new Integer(x * 3)" : "Method invalid";
+                results.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() throws Exception {
+                        return engine.eval(script, bindings);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < results.size(); ++i) {
+                if (i % 2 == 0) {
+                    Assert.assertEquals(i * 3, results.get(i).get());
+                } else {
+                    try {
+                        results.get(i).get();
+                        Assert.fail("Expected a compile error");
+                    } catch (final ExecutionException e) {
+                        Assert.assertThat(e.getCause(), CoreMatchers.instanceOf(ScriptException.class));
+                        Assert.assertThat(e.getCause().getMessage(), CoreMatchers.startsWith("error: not found: value Method"));
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * Verify security exception for rule violation.
      */
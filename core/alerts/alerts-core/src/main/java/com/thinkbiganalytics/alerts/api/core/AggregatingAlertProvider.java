@@ -26,6 +26,7 @@ package com.thinkbiganalytics.alerts.api.core;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.thinkbiganalytics.alerts.api.Alert;
 import com.thinkbiganalytics.alerts.api.Alert.ID;
+import com.thinkbiganalytics.alerts.api.AlertChangeEvent;
 import com.thinkbiganalytics.alerts.api.AlertCriteria;
 import com.thinkbiganalytics.alerts.api.AlertListener;
 import com.thinkbiganalytics.alerts.api.AlertProvider;
@@ -41,13 +42,11 @@ import com.thinkbiganalytics.alerts.spi.AlertSourceAggregator;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 
 import java.io.Serializable;
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
+import java.net.URI;
 import java.util.AbstractMap.SimpleEntry;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -55,56 +54,63 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
-import javax.inject.Inject;
-import javax.inject.Named;
-
-import reactor.bus.Event;
-import reactor.bus.EventBus;
-import reactor.bus.registry.Registration;
-import reactor.bus.selector.MatchAllSelector;
-import reactor.fn.Consumer;
 
 /**
  *
  */
-public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggregator, AlertNotifyReceiver, Consumer<Event<Alert>> {
+public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggregator, AlertNotifyReceiver {
 
     private static final Logger LOG = LoggerFactory.getLogger(AggregatingAlertProvider.class);
 
-    private List<AlertResponder> responders;
-    private Registration<?, ?> respondersRegistration;
-    private Map<AlertListener, Registration<?, ?>> listeners;
-    private Map<String, AlertSource> sources;
-    private Map<String, AlertManager> managers;
+    private final List<AlertResponder> responders;
+    private final List<AlertListener> listeners;
+    private final Map<String, AlertSource> sources;
+    private final Map<String, AlertManager> managers;
+    /** Immutable union of sources and managers; replaced whenever either registry changes */
+    private volatile Map<String, AlertSource> allSources = Collections.emptyMap();
     private Executor availableAlertsExecutor;
+    /** Single threaded dispatch lanes; every change to an alert is passed, in order, to the listeners and responders on the lane chosen by its ID */
+    private volatile ThreadPoolExecutor[] dispatchLanes;
+    private final AtomicBoolean alertsFetchPending = new AtomicBoolean(false);
+    private final DispatchStatistics dispatchStatistics = new DispatchStatistics();
     private volatile DateTime lastAlertsTime = DateTime.now();
 
-    @Inject
-    @Named("alertsEventBus")
-    private EventBus alertsBus;
+    /** Maximum number of alerts waiting to be published, shared between the lanes, before the fetching thread waits for the lanes to catch up */
+    @Value("${kylo.alerts.dispatch.queue-capacity:1000}")
+    private int dispatchQueueCapacity = 1000;
 
-    @Inject
-    @Named("respondableAlertsEventBus")
-    private EventBus respondableAlertsBus;
+    /** Number of lanes passing alerts to the listeners and responders */
+    @Value("${kylo.alerts.dispatch.consumers:4}")
+    private int dispatchConsumers = 4;
 
 
     /**
      *
      */
     public AggregatingAlertProvider() {
-        this.listeners = Collections.synchronizedMap(new HashMap<AlertListener, Registration<?, ?>>());
-        this.responders = Collections.synchronizedList(new ArrayList<AlertResponder>());
-        this.sources = Collections.synchronizedMap(new HashMap<String, AlertSource>());
-        this.managers = Collections.synchronizedMap(new HashMap<String, AlertManager>());
-        this.availableAlertsExecutor = Executors.newFixedThreadPool(1, new ThreadFactoryBuilder().setDaemon(true).build());
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.responders = new CopyOnWriteArrayList<>();
+        this.sources = new ConcurrentHashMap<>();
+        this.managers = new ConcurrentHashMap<>();
+        this.availableAlertsExecutor = Executors.newFixedThreadPool(1, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("alerts-available-%d").build());
     }
 
     /**
@@ -126,20 +132,25 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
         this.availableAlertsExecutor = availableAlertsExecutor;
     }
 
-    /* (non-Javadoc)
-     * @see reactor.fn.Consumer#accept(java.lang.Object)
+    /**
+     * @param capacity the maximum number of alerts queued for publishing
      */
-    @Override
-    public void accept(Event<Alert> event) {
-        final Alert alert = unwrapAlert(event.getData());
-        final AlertManager mgr = (AlertManager) alert.getSource();
-        final List<AlertResponder> responders = snapshotResponderts();
-
-        responders.forEach(responder -> {
-            AlertResponse resp = mgr.getResponse(alert);
-            AlertResponseWrapper wrapper = new AlertResponseWrapper(resp);
-            responder.alertChange(alert, wrapper);
-        });
+    public void setDispatchQueueCapacity(int capacity) {
+        this.dispatchQueueCapacity = capacity;
+    }
+
+    /**
+     * @param consumers the number of lanes publishing queued alerts
+     */
+    public void setDispatchConsumers(int consumers) {
+        this.dispatchConsumers = consumers;
+    }
+
+    /**
+     * @return the counters describing the load on the alert dispatch queue
+     */
+    public DispatchStatistics getDispatchStatistics() {
+        return this.dispatchStatistics;
     }
 
     /* (non-Javadoc)
@@ -177,8 +188,7 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
     @Override
     public void addListener(AlertListener listener) {
         // TODO matching all alerts for every listener.  Allow filtering at this level, such as by type?
-        Registration<?, ?> reg = this.alertsBus.on(new MatchAllSelector(), new ListenerConsumer(listener));
-        this.listeners.put(listener, reg);
+        this.listeners.add(listener);
     }
 
     /* (non-Javadoc)
@@ -194,7 +204,9 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
      */
     @Override
     public boolean addAlertSource(AlertSource src) {
-        return this.sources.put(createAlertSourceId(src), src) == null;
+        boolean added = this.sources.put(createAlertSourceId(src), src) == null;
+        refreshAllSources();
+        return added;
     }
 
     /* (non-Javadoc)
@@ -202,12 +214,15 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
      */
     @Override
     public boolean removeAlertSource(AlertSource src) {
-        return this.sources.remove(createAlertSourceId(src)) != null;
+        boolean removed = this.sources.remove(createAlertSourceId(src)) != null;
+        refreshAllSources();
+        return removed;
     }
 
     @Override
     public boolean addAlertManager(AlertManager mgr) {
         if (this.managers.put(createAlertSourceId(mgr), mgr) == null) {
+            refreshAllSources();
             mgr.addReceiver(this);
             return true;
         } else {
@@ -221,6 +236,7 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
     @Override
     public boolean removeAlertManager(AlertManager mgr) {
         if (this.managers.remove(createAlertSourceId(mgr)) != null) {
+            refreshAllSources();
             mgr.removeReceiver(this);
             return true;
         } else {
@@ -260,13 +276,13 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
      */
     @Override
     public Iterator<? extends Alert> getAlerts(AlertCriteria criteria) {
-        Map<String, AlertSource> srcs = snapshotAllSources();
+        Map<String, AlertSource> srcs = this.allSources;
         return combineAlerts(criteria, srcs).iterator();
     }
 
 
     public Iterator<? extends AlertSummary> getAlertsSummary(AlertCriteria criteria) {
-        Map<String, AlertSource> srcs = snapshotAllSources();
+        Map<String, AlertSource> srcs = this.allSources;
         return combineAlertSummary(criteria, srcs).iterator();
     }
 
@@ -307,35 +323,105 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
     @Override
     public void alertsAvailable(int count) {
         LOG.debug("Alerts available: {}", count);
+        this.dispatchStatistics.notifications.incrementAndGet();
+
+        // A single pass picks up every alert created since the last one, so there is no need to queue
+        // another pass while one is still waiting to run.
+        if (this.alertsFetchPending.compareAndSet(false, true)) {
+            this.availableAlertsExecutor.execute(this::fetchAvailableAlerts);
+        } else {
+            this.dispatchStatistics.coalescedNotifications.incrementAndGet();
+        }
+    }
 
-        this.availableAlertsExecutor.execute(() -> {
-            final AtomicReference<DateTime> sinceTime = new AtomicReference<>(AggregatingAlertProvider.this.lastAlertsTime);
-            Map<String, AlertSource> sources = snapshotAllSources();
+    private void fetchAvailableAlerts() {
+        // Cleared before fetching so that notifications arriving during this pass schedule another one.
+        this.alertsFetchPending.set(false);
+
+        DateTime sinceTime = this.lastAlertsTime;
+        DateTime latestTime = sinceTime;
+        Iterator<Alert> alerts = combineAlerts(criteria().asServiceAccount(true).after(sinceTime), this.allSources).iterator();
+
+        while (alerts.hasNext()) {
+            Alert alert = alerts.next();
+            LOG.debug("Alert {} received from {}", alert.getId(), alert.getSource());
+
+            dispatchAlert(alert);
+
+            if (alert.getCreatedTime().isAfter(latestTime)) {
+                latestTime = alert.getCreatedTime();
+            }
+        }
 
-            combineAlerts(criteria().asServiceAccount(true).after(sinceTime.get()), sources).forEach(alert -> {
-                LOG.debug("Alert {} received from {}", alert.getId(), alert.getSource());
+        this.lastAlertsTime = latestTime;
+    }
 
+    private void dispatchAlert(final Alert alert) {
+        ThreadPoolExecutor[] lanes = getDispatchLanes();
+        ThreadPoolExecutor lane = lanes[Math.floorMod(alert.getId().hashCode(), lanes.length)];
+        this.dispatchStatistics.enqueued.incrementAndGet();
+        lane.execute(() -> {
+            try {
                 notifyListeners(alert);
                 if (alert.isActionable()) {
                     notifyResponders(alert);
                 }
-
-                sinceTime.set(alert.getCreatedTime());
-            });
-
-            AggregatingAlertProvider.this.lastAlertsTime = sinceTime.get();
+            } catch (Exception e) {
+                LOG.error("Failed to dispatch alert {}", alert.getId(), e);
+            } finally {
+                this.dispatchStatistics.dispatched.incrementAndGet();
+            }
         });
+        this.dispatchStatistics.recordQueueDepth(lane.getQueue().size());
+    }
+
+    /**
+     * Gets the dispatch lanes, creating them on first use.
+     */
+    private ThreadPoolExecutor[] getDispatchLanes() {
+        ThreadPoolExecutor[] lanes = this.dispatchLanes;
+        if (lanes == null) {
+            synchronized (this) {
+                lanes = this.dispatchLanes;
+                if (lanes == null) {
+                    int count = Math.max(1, this.dispatchConsumers);
+                    int capacity = Math.max(1, this.dispatchQueueCapacity / count);
+                    ThreadFactory threadFactory = new ThreadFactoryBuilder().setDaemon(true).setNameFormat("alerts-dispatch-%d").build();
+                    lanes = new ThreadPoolExecutor[count];
+                    for (int i = 0; i < count; i++) {
+                        lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacity), threadFactory,
+                                                          new BackpressureHandler(this.dispatchStatistics));
+                    }
+                    this.dispatchLanes = lanes;
+                }
+            }
+        }
+        return lanes;
     }
 
     @PostConstruct
-    private void createRegistrations() {
-        this.respondersRegistration = this.respondableAlertsBus.on(new MatchAllSelector(), this);
+    private void startDispatch() {
+        getDispatchLanes();
     }
 
     @PreDestroy
-    private void cancelRegistrations() {
-        this.respondersRegistration.cancel();
-        this.listeners.values().forEach(reg -> reg.cancel());
+    private void stopDispatch() {
+        ThreadPoolExecutor[] lanes = this.dispatchLanes;
+        if (lanes != null) {
+            for (ThreadPoolExecutor lane : lanes) {
+                lane.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the combined source snapshot read by the alert queries and dispatch path.  Registry
+     * changes are rare compared to reads, so readers never lock or copy.
+     */
+    private synchronized void refreshAllSources() {
+        Map<String, AlertSource> srcs = new HashMap<>(this.sources);
+        srcs.putAll(this.managers);
+        this.allSources = Collections.unmodifiableMap(srcs);
     }
 
     private AlertSource getSource(String srcId) {
@@ -389,14 +475,35 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
         notifyListeners(alert);
     }
 
+    /**
+     * Passes the alert to each responder on the calling dispatch lane, so the responders see the changes to an alert in order.
+     */
     private void notifyResponders(Alert alert) {
-        Event<Alert> event = Event.wrap(alert);
-        this.respondableAlertsBus.notify(alert.getType(), event);
+        final Alert unwrapped = unwrapAlert(alert);
+        final AlertManager mgr = (AlertManager) unwrapped.getSource();
+
+        for (AlertResponder responder : this.responders) {
+            try {
+                AlertResponse resp = mgr.getResponse(unwrapped);
+                AlertResponseWrapper wrapper = new AlertResponseWrapper(resp);
+                responder.alertChange(unwrapped, wrapper);
+            } catch (Exception e) {
+                LOG.error("Alert responder {} failed to handle alert {}", responder, alert.getId(), e);
+            }
+        }
     }
 
+    /**
+     * Passes the alert to each listener on the calling dispatch lane, so the listeners see the changes to an alert in order.
+     */
     private void notifyListeners(Alert alert) {
-        Event<Alert> event = Event.wrap(alert);
-        this.alertsBus.notify(alert.getType(), event);
+        for (AlertListener listener : this.listeners) {
+            try {
+                listener.alertChange(alert);
+            } catch (Exception e) {
+                LOG.error("Alert listener {} failed to handle alert {}", listener, alert.getId(), e);
+            }
+        }
     }
 
 //    private void notifyResponders(final Alert.ID id, final AlertManager manager) {
@@ -431,36 +538,6 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
         return response.latestAlert;
     }
 
-    private List<AlertListener> snapshotListeners() {
-        synchronized (AggregatingAlertProvider.this.listeners) {
-            return new ArrayList<>(AggregatingAlertProvider.this.listeners.keySet());
-        }
-    }
-
-    private List<AlertResponder> snapshotResponderts() {
-        synchronized (AggregatingAlertProvider.this.responders) {
-            return new ArrayList<>(AggregatingAlertProvider.this.responders);
-        }
-    }
-
-    private Map<String, AlertSource> snapshotSources() {
-        synchronized (this.sources) {
-            return new HashMap<>(this.sources);
-        }
-    }
-
-    private Map<String, AlertSource> snapshotManagers() {
-        synchronized (this.managers) {
-            return new HashMap<>(this.managers);
-        }
-    }
-
-    private Map<String, AlertSource> snapshotAllSources() {
-        Map<String, AlertSource> srcs = snapshotSources();
-        srcs.putAll(snapshotManagers());
-        return srcs;
-    }
-
     private SimpleEntry<Alert, AlertManager> findActionableAlert(ID id) {
         SourceAlertID srcId = asSourceAlertId(id);
         AlertManager mgr = this.managers.get(srcId.sourceId);
@@ -489,50 +566,233 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
     }
 
     private Alert wrapAlert(final SourceAlertID id, final Alert alert) {
-        if (Proxy.isProxyClass(alert.getClass())) {
+        if (alert instanceof SourceAlertWrapper) {
             return alert;
         } else {
-            InvocationHandler handler = new AlertInvocationHandler(alert, id);
-            return (Alert) Proxy.newProxyInstance(this.getClass().getClassLoader(), new Class<?>[]{Alert.class}, handler);
+            return new SourceAlertWrapper(alert, id);
         }
     }
 
-    public Alert unwrapAlert(Alert proxy) {
-        if (Proxy.isProxyClass(proxy.getClass())) {
-            AlertInvocationHandler handler = (AlertInvocationHandler) Proxy.getInvocationHandler(proxy);
-            return handler.wrapped;
+    public Alert unwrapAlert(Alert alert) {
+        if (alert instanceof SourceAlertWrapper) {
+            return ((SourceAlertWrapper) alert).getWrappedAlert();
         } else {
-            return proxy;  // not a proxy
+            return alert;  // not wrapped
         }
     }
 
-    protected static class AlertInvocationHandler implements InvocationHandler, SourceAlert {
+    /**
+     * Presents an alert from a source with an ID that identifies that source.  All other
+     * calls are delegated to the source's alert.
+     */
+    protected static class SourceAlertWrapper implements Alert, SourceAlert {
 
         private final Alert wrapped;
-        private final SourceAlertID proxyId;
+        private final SourceAlertID sourceAlertId;
 
-        public AlertInvocationHandler(Alert wrapped, SourceAlertID proxyId) {
+        public SourceAlertWrapper(Alert wrapped, SourceAlertID sourceAlertId) {
             super();
             this.wrapped = wrapped;
-            this.proxyId = proxyId;
+            this.sourceAlertId = sourceAlertId;
         }
 
         @Override
-        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-            if (method.getName().equals("getId")) {
-                return (Alert.ID) this.proxyId;
-            } else {
-                return method.invoke(this.wrapped, args);
-            }
+        public ID getId() {
+            return this.sourceAlertId;
+        }
+
+        @Override
+        public URI getType() {
+            return this.wrapped.getType();
+        }
+
+        @Override
+        public String getSubtype() {
+            return this.wrapped.getSubtype();
+        }
+
+        @Override
+        public String getDescription() {
+            return this.wrapped.getDescription();
+        }
+
+        @Override
+        public Level getLevel() {
+            return this.wrapped.getLevel();
+        }
+
+        @Override
+        public DateTime getCreatedTime() {
+            return this.wrapped.getCreatedTime();
+        }
+
+        @Override
+        public DateTime getModifiedTime() {
+            return this.wrapped.getModifiedTime();
+        }
+
+        @Override
+        public AlertSource getSource() {
+            return this.wrapped.getSource();
         }
 
+        @Override
+        public boolean isActionable() {
+            return this.wrapped.isActionable();
+        }
+
+        @Override
+        public State getState() {
+            return this.wrapped.getState();
+        }
+
+        @Override
+        public boolean isCleared() {
+            return this.wrapped.isCleared();
+        }
+
+        @Override
+        public List<AlertChangeEvent> getEvents() {
+            return this.wrapped.getEvents();
+        }
+
+        @Override
+        public <C extends Serializable> C getContent() {
+            return this.wrapped.getContent();
+        }
+
+        @Override
         public Alert getWrappedAlert() {
             return this.wrapped;
         }
 
         @Override
         public ID getSourceAlertId() {
-            return proxyId;
+            return this.sourceAlertId;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof SourceAlertWrapper)) {
+                return false;
+            }
+
+            SourceAlertWrapper that = (SourceAlertWrapper) obj;
+
+            return Objects.equals(this.sourceAlertId, that.sourceAlertId) &&
+                   Objects.equals(this.wrapped, that.wrapped);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.sourceAlertId, this.wrapped);
+        }
+
+        @Override
+        public String toString() {
+            return this.wrapped.toString();
+        }
+    }
+
+    /**
+     * Counters describing the load on the alert dispatch queue.
+     */
+    public static class DispatchStatistics {
+
+        private final AtomicLong notifications = new AtomicLong();
+        private final AtomicLong coalescedNotifications = new AtomicLong();
+        private final AtomicLong enqueued = new AtomicLong();
+        private final AtomicLong dispatched = new AtomicLong();
+        private final AtomicLong blockedDispatches = new AtomicLong();
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+        /**
+         * @return the number of alerts-available notifications received from the alert managers
+         */
+        public long getNotifications() {
+            return notifications.get();
+        }
+
+        /**
+         * @return the number of notifications absorbed by a fetch that was already pending
+         */
+        public long getCoalescedNotifications() {
+            return coalescedNotifications.get();
+        }
+
+        /**
+         * @return the number of alerts submitted for dispatch
+         */
+        public long getEnqueued() {
+            return enqueued.get();
+        }
+
+        /**
+         * @return the number of alerts published to the listeners and responders
+         */
+        public long getDispatched() {
+            return dispatched.get();
+        }
+
+        /**
+         * @return the number of alerts the fetching thread waited to queue because their lane was full
+         */
+        public long getBlockedDispatches() {
+            return blockedDispatches.get();
+        }
+
+        /**
+         * @return the largest number of alerts observed waiting in a lane
+         */
+        public int getMaxQueueDepth() {
+            return maxQueueDepth.get();
+        }
+
+        private void recordQueueDepth(int depth) {
+            int max = this.maxQueueDepth.get();
+            while (depth > max && ! this.maxQueueDepth.compareAndSet(max, depth)) {
+                max = this.maxQueueDepth.get();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "DispatchStatistics[notifications=" + getNotifications() + ", coalesced=" + getCoalescedNotifications()
+                   + ", enqueued=" + getEnqueued() + ", dispatched=" + getDispatched()
+                   + ", blockedDispatches=" + getBlockedDispatches() + ", maxQueueDepth=" + getMaxQueueDepth() + "]";
+        }
+    }
+
+    /**
+     * Applies backpressure when a dispatch lane is full by making the fetching thread wait for space in the lane,
+     * which stops it from pulling more alerts until the lane catches up.  Publishing the alert on the fetching
+     * thread instead could overtake earlier changes to the same alert still waiting in the lane.
+     */
+    private static class BackpressureHandler implements RejectedExecutionHandler {
+
+        private final DispatchStatistics statistics;
+
+        public BackpressureHandler(DispatchStatistics statistics) {
+            this.statistics = statistics;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (! executor.isShutdown()) {
+                long count = this.statistics.blockedDispatches.incrementAndGet();
+                if (count % 1000 == 1) {
+                    LOG.warn("Alert dispatch queue is full; the fetching thread is waiting for the dispatchers: {}", this.statistics);
+                }
+                try {
+                    executor.getQueue().put(task);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted waiting to dispatch an alert", e);
+                }
+            }
         }
     }
 
@@ -597,21 +857,6 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
         }
     }
 
-    private static class ListenerConsumer implements Consumer<Event<Alert>> {
-
-        private final AlertListener listener;
-
-        public ListenerConsumer(AlertListener listener) {
-            super();
-            this.listener = listener;
-        }
-
-        @Override
-        public void accept(Event<Alert> event) {
-            this.listener.alertChange(event.getData());
-        }
-    }
-
     protected static class Criteria extends BaseAlertCriteria {
 
 
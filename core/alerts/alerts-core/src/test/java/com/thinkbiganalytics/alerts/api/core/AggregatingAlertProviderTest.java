@@ -31,11 +31,10 @@ import com.thinkbiganalytics.alerts.api.AlertCriteria;
 import com.thinkbiganalytics.alerts.api.AlertListener;
 import com.thinkbiganalytics.alerts.api.AlertResponder;
 import com.thinkbiganalytics.alerts.api.AlertResponse;
-import com.thinkbiganalytics.alerts.api.core.AggregatingAlertProvider.AlertInvocationHandler;
+import com.thinkbiganalytics.alerts.api.SourceAlert;
 import com.thinkbiganalytics.alerts.api.core.AggregatingAlertProvider.SourceAlertID;
 import com.thinkbiganalytics.alerts.spi.AlertManager;
 import com.thinkbiganalytics.alerts.spi.AlertSource;
-import com.thinkbiganalytics.metadata.event.reactor.ReactorConfiguration;
 import com.thinkbiganalytics.security.UsernamePrincipal;
 
 import org.joda.time.DateTime;
@@ -54,15 +53,16 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.io.Serializable;
-import java.lang.reflect.Proxy;
 import java.net.URI;
 import java.security.Principal;
 import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
@@ -72,13 +72,14 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(SpringJUnit4ClassRunner.class)
-@SpringApplicationConfiguration(classes = {ReactorConfiguration.class, AggregatingAlertProviderTest.TestConfig.class})
+@SpringApplicationConfiguration(classes = {AggregatingAlertProviderTest.TestConfig.class})
 public class AggregatingAlertProviderTest {
 
     @Inject
@@ -304,6 +305,133 @@ public class AggregatingAlertProviderTest {
 
         verify(this.listener, times(2)).alertChange(any(Alert.class));
         verify(this.responder, times(1)).alertChange(any(Alert.class), any(AlertResponse.class));
+        assertThat(this.provider.getDispatchStatistics().getNotifications()).isEqualTo(1);
+        assertThat(this.provider.getDispatchStatistics().getEnqueued()).isEqualTo(2);
+    }
+
+    /**
+     * Changes to the same alert are published in the order they were fetched, even with several dispatch lanes.
+     */
+    @Test
+    public void testAlertChangesDispatchedInOrder() throws InterruptedException {
+        int changeCount = 50;
+        TestAlert first = new TestAlert(this.source);
+        Alert[] changes = new Alert[changeCount * 2];
+        for (int i = 0; i < changeCount; i++) {
+            TestAlert change = new TestAlert(this.source);
+            change.id = first.id;
+            changes[i * 2] = change;
+            changes[i * 2 + 1] = new TestAlert(this.source);
+        }
+        List<Alert> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(changes.length);
+
+        this.provider.setDispatchConsumers(4);
+        this.provider.addAlertSource(this.source);
+
+        when(this.source.getAlerts(any(AlertCriteria.class))).thenAnswer(iteratorAnswer(changes));
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+                received.add(provider.unwrapAlert((Alert) invocation.getArguments()[0]));
+                latch.countDown();
+                return null;
+            }
+        }).when(this.listener).alertChange(any(Alert.class));
+
+        this.provider.alertsAvailable(changes.length);
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        List<Alert> expected = new ArrayList<>();
+        List<Alert> actual = new ArrayList<>();
+        for (int i = 0; i < changes.length; i += 2) {
+            expected.add(changes[i]);
+        }
+        synchronized (received) {
+            for (Alert alert : received) {
+                if (alert.getId() == first.id) {
+                    actual.add(alert);
+                }
+            }
+        }
+        assertThat(actual).containsExactlyElementsOf(expected);
+    }
+
+    /**
+     * The listeners and responders are called on the dispatch lane rather than handed off to another thread, and a failing listener does not stop the others.
+     */
+    @Test
+    public void testListenersCalledOnDispatchLane() throws InterruptedException {
+        AlertListener failing = mock(AlertListener.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                throw new IllegalStateException("listener failure");
+            }
+        }).when(failing).alertChange(any(Alert.class));
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(2);
+
+        this.provider.addListener(failing);
+        this.provider.addAlertManager(this.manager);
+
+        when(this.manager.getAlerts(any(AlertCriteria.class))).thenAnswer(iteratorAnswer(new TestAlert(this.manager, true)));
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                threads.add(Thread.currentThread().getName());
+                latch.countDown();
+                return null;
+            }
+        }).when(this.listener).alertChange(any(Alert.class));
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                threads.add(Thread.currentThread().getName());
+                latch.countDown();
+                return null;
+            }
+        }).when(this.responder).alertChange(any(Alert.class), any(AlertResponse.class));
+
+        this.provider.alertsAvailable(1);
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(threads).hasSize(2);
+        assertThat(threads.get(0)).startsWith("alerts-dispatch-").isEqualTo(threads.get(1));
+    }
+
+    /**
+     * The dispatch lanes are created on first use when the provider is not initialized by Spring.
+     */
+    @Test
+    public void testDispatchWithoutPostConstruct() {
+        AggregatingAlertProvider standalone = new AggregatingAlertProvider();
+        standalone.setAvailableAlertsExecutor(MoreExecutors.directExecutor());
+        standalone.addAlertSource(this.source);
+        when(this.source.getAlerts(any(AlertCriteria.class))).thenAnswer(iteratorAnswer(new TestAlert(this.source)));
+
+        standalone.alertsAvailable(1);
+
+        assertThat(standalone.getDispatchStatistics().getEnqueued()).isEqualTo(1);
+    }
+
+    @Test
+    public void testGetAlertWrapsSourceAlert() {
+        TestAlert srcAlert = new TestAlert(this.source);
+        SourceAlertID srcId = new SourceAlertID(srcAlert.getId(), this.source);
+
+        this.provider.addAlertSource(this.source);
+
+        when(this.source.getAlert(any(Alert.ID.class))).thenReturn(Optional.of(srcAlert));
+
+        Alert alert = this.provider.getAlert(srcId).get();
+
+        assertThat(alert).isInstanceOf(SourceAlert.class);
+        assertThat(alert.getId()).isEqualTo(srcId);
+        assertThat(((SourceAlert) alert).getWrappedAlert()).isSameAs(srcAlert);
+        assertThat(this.provider.unwrapAlert(alert)).isSameAs(srcAlert);
+        assertThat(alert.getCreatedTime()).isEqualTo(srcAlert.getCreatedTime());
     }
 
 
@@ -324,9 +452,8 @@ public class AggregatingAlertProviderTest {
         return new Function<Alert, Alert>() {
             @Override
             public Alert apply(Alert input) {
-                if (Proxy.isProxyClass(input.getClass())) {
-                    AlertInvocationHandler handler = (AlertInvocationHandler) Proxy.getInvocationHandler(input);
-                    return handler.getWrappedAlert();
+                if (input instanceof SourceAlert) {
+                    return ((SourceAlert) input).getWrappedAlert();
                 } else {
                     return input;
                 }
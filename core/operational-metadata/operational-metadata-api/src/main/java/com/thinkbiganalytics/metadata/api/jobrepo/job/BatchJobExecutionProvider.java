@@ -28,6 +28,7 @@ import org.joda.time.ReadablePeriod;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -119,6 +120,14 @@ public interface BatchJobExecutionProvider extends BatchJobExecutionFilters {
      */
     BatchJobExecution getOrCreateJobExecution(ProvenanceEventRecordDTO event, OpsManagerFeed feed);
 
+    /**
+     * Lock the feeds for the creation of new jobs until the current transaction completes.
+     * The feeds are locked in a consistent order so transactions creating jobs for several feeds do not deadlock each other.
+     *
+     * @param feeds the feeds of the events that will be processed in the current transaction
+     */
+    void lockFeedsForJobCreation(Collection<? extends OpsManagerFeed> feeds);
+
     /**
      * after a job execution is committed and returned this is called to store the job and its id back in a map for future reference
      */
@@ -217,6 +226,15 @@ public interface BatchJobExecutionProvider extends BatchJobExecutionFilters {
 
     List<BatchAndStreamingJobStatusCount> getBatchAndStreamingJobCounts(String filter);
 
+    /**
+     * Recompute the job status summary used by the dashboard counts from the job executions, repairing any drift.
+     * The summary is written in its own transaction so this should not be called within a transaction.
+     *
+     * @param days the number of days to look back from today, or null to rebuild the entire summary
+     * @return the number of summary rows written
+     */
+    int reconcileJobStatusSummary(Integer days);
+
     /**
      * Find all flowFiles that are related to the supplied flow file
      *
@@ -229,6 +247,13 @@ public interface BatchJobExecutionProvider extends BatchJobExecutionFilters {
 
     void notifyFailure(BatchJobExecution jobExecution, OpsManagerFeed feed, boolean isStream, String status);
 
+    /**
+     * Notify that a job failed after it may have already finished with another status, such as a job that is manually failed
+     *
+     * @param previousStatus the status the job finished with before it failed, or null if it was still running
+     */
+    void notifyFailure(BatchJobExecution jobExecution, OpsManagerFeed feed, boolean isStream, String status, BatchJobExecution.JobStatus previousStatus);
+
     void notifyStopped(BatchJobExecution jobExecution, OpsManagerFeed feed, String status);
 
     void notifySuccess(BatchJobExecution jobExecution, OpsManagerFeed feed, String status);
@@ -100,6 +100,34 @@ public interface NifiFeedProcessorStatisticsProvider {
 
     List<? extends NifiFeedProcessorStats> save(List<? extends NifiFeedProcessorStats> stats);
 
+    /**
+     * Adds the stats to the minute, hour and day rollups used when querying over longer time frames.
+     * This should be called once for each newly created stats, in its own transaction as it fails if another transaction creates one of the same rollups first.
+     *
+     * @param stats the newly created stats
+     */
+    void rollup(List<? extends NifiFeedProcessorStats> stats);
+
+    /**
+     * Records the event times of saved stats that could not be added to their rollups so the rollups can be rebuilt by {@link #backfillFailedRollups()}.
+     *
+     * @param stats the saved stats
+     */
+    void markRollupFailed(List<? extends NifiFeedProcessorStats> stats);
+
+    /**
+     * Rebuilds the rollups of the stats that could not be added to them from the saved stats.
+     *
+     * @return the number of failed rollups rebuilt
+     */
+    int backfillFailedRollups();
+
+    /**
+     * Deletes the rollups older than the retention period of their resolution.
+     *
+     * @return the number of rollups deleted
+     */
+    int purgeStatisticsRollups();
 
 
     List<? extends NifiFeedProcessorErrors> findFeedProcessorErrors(String feedName, DateTime start, DateTime end);
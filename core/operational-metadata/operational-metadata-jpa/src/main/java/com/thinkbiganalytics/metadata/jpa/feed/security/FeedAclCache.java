@@ -42,6 +42,11 @@ public class FeedAclCache extends CacheListBean<String, FeedOpsAclEntry> impleme
     @Inject
     AccessController accessController;
 
+    /**
+     * Index of the feeds each user and group can access
+     */
+    private final FeedAclIndex index = new FeedAclIndex();
+
 
     public boolean isAvailable() {
         return isPopulated();
@@ -51,9 +56,21 @@ public class FeedAclCache extends CacheListBean<String, FeedOpsAclEntry> impleme
         if (StringUtils.isBlank(feedId) || !accessController.isEntityAccessControlled()) {
             return true;
         }
-        return get(feedId).stream()
-            .anyMatch(acl -> ((acl.getPrincipalType() == FeedOpsAclEntry.PrincipalType.GROUP && userContext.getGroups().contains(acl.getPrincipalName()))
-                              || (acl.getPrincipalType() == FeedOpsAclEntry.PrincipalType.USER && userContext.getName().equals(acl.getPrincipalName()))));
+        return getFeedAccess(userContext).hasAccess(feedId);
+    }
+
+    /**
+     * Gets the feeds the user can access. Callers checking many feeds should get this once and use it for each feed.
+     *
+     * @param userContext the user
+     * @return the feeds the user can access
+     */
+    public FeedAccess getFeedAccess(RoleSetExposingSecurityExpressionRoot userContext) {
+        if (!accessController.isEntityAccessControlled()) {
+            return feedId -> true;
+        }
+        FeedAclIndex.AccessibleFeeds access = index.getAccessibleFeeds(userContext.getName(), userContext.getGroups());
+        return feedId -> StringUtils.isBlank(feedId) || access.hasAccess(feedId);
     }
 
 
@@ -80,16 +97,19 @@ public class FeedAclCache extends CacheListBean<String, FeedOpsAclEntry> impleme
     @Override
     public void onAddedItem(JpaFeedOpsAclEntry.EntryId key, JpaFeedOpsAclEntry value) {
         add(key.getUuid().toString(), value);
+        index.add(value);
     }
 
     @Override
     public void onRemovedItem(JpaFeedOpsAclEntry value) {
         remove(getKey(value), value);
+        index.remove(value, get(getKey(value)));
     }
 
     @Override
     public void onRemoveAll() {
         invalidateAll();
+        index.clear();
     }
 
     @Override
@@ -102,4 +122,19 @@ public class FeedAclCache extends CacheListBean<String, FeedOpsAclEntry> impleme
     public boolean isEqual(FeedOpsAclEntry value1, FeedOpsAclEntry value2) {
         return value1.getId().equals(value2.getId());
     }
+
+    /**
+     * The feeds a user can access
+     */
+    @FunctionalInterface
+    public interface FeedAccess {
+
+        /**
+         * Indicates if the user can access the feed.
+         *
+         * @param feedId the feed id
+         * @return {@code true} if the user can access the feed, {@code false} otherwise
+         */
+        boolean hasAccess(String feedId);
+    }
 }
@@ -0,0 +1,179 @@
+package com.thinkbiganalytics.metadata.jpa.feed.security;
+
+/*-
+ * #%L
+ * kylo-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.thinkbiganalytics.metadata.api.feed.security.FeedOpsAclEntry;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index of the feeds each user and group can access.
+ *
+ * Each feed is given an ordinal and each principal has a bitset of the ordinals of its feeds. The feeds a user can access are the union of the bitsets of
+ * the user and their groups, which is computed once per distinct user and group set and reused until the ACLs change.
+ *
+ * The bitsets are copied on write so they can be read without locking.
+ */
+public class FeedAclIndex {
+
+    /**
+     * Ordinal of each feed id
+     */
+    private final Map<String, Integer> feedOrdinals = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextOrdinal = new AtomicInteger(0);
+
+    /**
+     * Feed ordinals accessible by each group
+     */
+    private final Map<String, BitSet> groupFeeds = new ConcurrentHashMap<>();
+
+    /**
+     * Feed ordinals accessible by each user
+     */
+    private final Map<String, BitSet> userFeeds = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented when any ACL changes to invalidate the accessible feeds computed for the users
+     */
+    private final AtomicLong version = new AtomicLong(0);
+
+    /**
+     * Accessible feeds by user name and groups
+     */
+    private final Cache<Object, AccessibleFeeds> userAccess = CacheBuilder.newBuilder().maximumSize(1000).expireAfterAccess(1, TimeUnit.HOURS).build();
+
+    /**
+     * Grants access to a feed.
+     *
+     * @param entry the ACL entry
+     */
+    public synchronized void add(FeedOpsAclEntry entry) {
+        principalFeeds(entry.getPrincipalType()).compute(entry.getPrincipalName(), (principal, feeds) -> {
+            BitSet updated = (feeds != null) ? (BitSet) feeds.clone() : new BitSet();
+            updated.set(ordinal(entry.getFeedId().toString()));
+            return updated;
+        });
+        version.incrementAndGet();
+    }
+
+    /**
+     * Revokes access to a feed unless one of the remaining entries of the feed grants it to the same principal.
+     *
+     * @param entry            the removed ACL entry
+     * @param remainingEntries the entries of the feed that remain
+     */
+    public synchronized void remove(FeedOpsAclEntry entry, Collection<? extends FeedOpsAclEntry> remainingEntries) {
+        boolean stillGranted = remainingEntries.stream()
+            .anyMatch(acl -> acl.getPrincipalType() == entry.getPrincipalType() && acl.getPrincipalName().equals(entry.getPrincipalName()));
+        Integer ordinal = feedOrdinals.get(entry.getFeedId().toString());
+        if (!stillGranted && ordinal != null) {
+            principalFeeds(entry.getPrincipalType()).computeIfPresent(entry.getPrincipalName(), (principal, feeds) -> {
+                BitSet updated = (BitSet) feeds.clone();
+                updated.clear(ordinal);
+                return updated.isEmpty() ? null : updated;
+            });
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes all ACLs.
+     */
+    public synchronized void clear() {
+        groupFeeds.clear();
+        userFeeds.clear();
+        feedOrdinals.clear();
+        nextOrdinal.set(0);
+        version.incrementAndGet();
+        userAccess.invalidateAll();
+    }
+
+    /**
+     * Gets the feeds a user can access.
+     *
+     * @param userName the user name
+     * @param groups   the groups of the user
+     * @return the feeds the user can access
+     */
+    public AccessibleFeeds getAccessibleFeeds(String userName, Set<String> groups) {
+        Object key = Arrays.asList(userName, groups);
+        long currentVersion = version.get();
+        AccessibleFeeds access = userAccess.getIfPresent(key);
+        if (access == null || access.version != currentVersion) {
+            BitSet feeds = new BitSet();
+            BitSet granted = userFeeds.get(userName);
+            if (granted != null) {
+                feeds.or(granted);
+            }
+            for (String group : groups) {
+                granted = groupFeeds.get(group);
+                if (granted != null) {
+                    feeds.or(granted);
+                }
+            }
+            access = new AccessibleFeeds(feeds, currentVersion);
+            userAccess.put(key, access);
+        }
+        return access;
+    }
+
+    private int ordinal(String feedId) {
+        return feedOrdinals.computeIfAbsent(feedId, id -> nextOrdinal.getAndIncrement());
+    }
+
+    private Map<String, BitSet> principalFeeds(FeedOpsAclEntry.PrincipalType principalType) {
+        return principalType == FeedOpsAclEntry.PrincipalType.GROUP ? groupFeeds : userFeeds;
+    }
+
+    /**
+     * The feeds a user can access
+     */
+    public class AccessibleFeeds {
+
+        private final BitSet feeds;
+
+        private final long version;
+
+        private AccessibleFeeds(BitSet feeds, long version) {
+            this.feeds = feeds;
+            this.version = version;
+        }
+
+        /**
+         * Indicates if the user can access the feed.
+         */
+        public boolean hasAccess(String feedId) {
+            Integer ordinal = feedOrdinals.get(feedId);
+            return ordinal != null && feeds.get(ordinal);
+        }
+    }
+}
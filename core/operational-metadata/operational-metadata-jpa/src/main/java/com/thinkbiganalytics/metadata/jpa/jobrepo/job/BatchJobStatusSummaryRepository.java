@@ -0,0 +1,56 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.job;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.querydsl.QueryDslPredicateExecutor;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * Spring data repository for {@link JpaBatchJobStatusSummary}
+ */
+public interface BatchJobStatusSummaryRepository extends JpaRepository<JpaBatchJobStatusSummary, JpaBatchJobStatusSummary.SummaryId>,
+                                                         QueryDslPredicateExecutor<JpaBatchJobStatusSummary> {
+
+    /**
+     * Adds to the count of an existing summary row.
+     *
+     * @return the number of rows updated, which is 0 if the summary row does not exist yet
+     */
+    @Modifying
+    @Query("update JpaBatchJobStatusSummary as summary set summary.count = summary.count + :delta "
+           + "where summary.id.feedName = :feedName and summary.id.startYear = :year and summary.id.startMonth = :month and summary.id.startDay = :day "
+           + "and summary.id.status = :status")
+    int addToCount(@Param("feedName") String feedName, @Param("year") Integer year, @Param("month") Integer month, @Param("day") Integer day,
+                   @Param("status") BatchJobExecution.JobStatus status, @Param("delta") Long delta);
+
+    @Modifying
+    @Query("delete from JpaBatchJobStatusSummary as summary where summary.id.startYear = :year and summary.id.startMonth = :month and summary.id.startDay = :day")
+    int deleteForDay(@Param("year") Integer year, @Param("month") Integer month, @Param("day") Integer day);
+
+    @Modifying
+    @Query("delete from JpaBatchJobStatusSummary")
+    int deleteAllSummaries();
+}
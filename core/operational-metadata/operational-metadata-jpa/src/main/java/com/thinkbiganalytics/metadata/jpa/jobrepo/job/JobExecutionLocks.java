@@ -0,0 +1,77 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.job;
+/*-
+ * #%L
+ * kylo-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.util.concurrent.Striped;
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Striped locks used when getting or creating a {@link JpaBatchJobExecution} for a provenance event.
+ *
+ * Events for the same job flow file always map to the same lock so they do not race to create the same job,
+ * while events for unrelated jobs map to different stripes and can be processed in parallel.
+ * The locks are released before the transaction commits, so the BATCH_NIFI_JOB primary key is what finally prevents a duplicate job.
+ *
+ * Creating a new batch job also needs the feed lock since it relates the new flow file to the latest job for the feed.
+ * Callers must always acquire the job flow file lock before the feed lock.
+ *
+ * When Kylo is clustered the feed row is also locked in the database until the transaction commits. That row lock is always taken first,
+ * before either of these locks, so that no thread waits for a feed row while it holds one of these locks.
+ */
+public class JobExecutionLocks {
+
+    /**
+     * Default number of stripes for each of the lock sets
+     */
+    public static final int DEFAULT_STRIPES = 256;
+
+    private final Striped<Lock> jobFlowFileLocks;
+
+    private final Striped<Lock> feedLocks;
+
+    public JobExecutionLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes the number of stripes for each of the lock sets
+     */
+    public JobExecutionLocks(int stripes) {
+        this.jobFlowFileLocks = Striped.lock(stripes);
+        this.feedLocks = Striped.lock(stripes);
+    }
+
+    /**
+     * @param jobFlowFileId the job flow file id of the event
+     * @return the lock guarding the job execution for the job flow file
+     */
+    public Lock jobFlowFileLock(String jobFlowFileId) {
+        return jobFlowFileLocks.get(jobFlowFileId != null ? jobFlowFileId : "");
+    }
+
+    /**
+     * @param feedName the name of the feed
+     * @return the lock guarding the creation of new jobs for the feed
+     */
+    public Lock feedLock(String feedName) {
+        return feedLocks.get(feedName != null ? feedName : "");
+    }
+}
@@ -0,0 +1,110 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.job;
+/*-
+ * #%L
+ * kylo-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobStatusSummary.SummaryId;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pending changes to the {@link JpaBatchJobStatusSummary} counts.
+ *
+ * Job status changes are added here as they happen and periodically drained and written in a single transaction,
+ * so finishing a job never waits on, or fails because of, the summary table.
+ */
+public class JobStatusSummaryBuffer {
+
+    private final Map<SummaryId, Long> deltas = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a finished job execution to the summary.
+     */
+    public void add(String feedName, BatchJobExecution jobExecution) {
+        add(feedName, jobExecution, jobExecution.getStatus(), 1L);
+    }
+
+    /**
+     * Moves a finished job execution from its previous status to its current status.
+     * A null previous status, or one that is not summarized, only adds the job to its current status.
+     */
+    public void move(String feedName, BatchJobExecution jobExecution, BatchJobExecution.JobStatus previousStatus) {
+        if (previousStatus != jobExecution.getStatus()) {
+            add(feedName, jobExecution, previousStatus, -1L);
+            add(feedName, jobExecution, jobExecution.getStatus(), 1L);
+        }
+    }
+
+    /**
+     * Adds the delta for the job status.
+     * Job executions that are still running or have no start time are ignored.
+     */
+    public void add(String feedName, BatchJobExecution jobExecution, BatchJobExecution.JobStatus status, long delta) {
+        if (feedName != null && jobExecution.getStartTime() != null && JpaBatchJobStatusSummary.isSummarized(status)) {
+            DateTime startTime = jobExecution.getStartTime();
+            SummaryId id = new SummaryId(feedName, startTime.getYear(), startTime.getMonthOfYear(), startTime.getDayOfMonth(), status);
+            deltas.merge(id, delta, Long::sum);
+        }
+    }
+
+    /**
+     * Removes and returns all non-zero pending deltas.
+     */
+    public Map<SummaryId, Long> drain() {
+        Map<SummaryId, Long> drained = new HashMap<>();
+        for (SummaryId id : deltas.keySet()) {
+            Long delta = deltas.remove(id);
+            if (delta != null && delta != 0L) {
+                drained.put(id, delta);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Adds deltas back after they could not be written.
+     */
+    public void restore(Map<SummaryId, Long> drained) {
+        drained.forEach((id, delta) -> deltas.merge(id, delta, Long::sum));
+    }
+
+    /**
+     * Removes the pending deltas for jobs started on or after the day of {@code since}, or all deltas if {@code since} is null.
+     * Used when the summary for those days is recomputed from the job executions.
+     */
+    public void discardSince(DateTime since) {
+        if (since == null) {
+            deltas.clear();
+            return;
+        }
+        LocalDate sinceDay = since.toLocalDate();
+        deltas.keySet().removeIf(id -> !new LocalDate(id.getStartYear(), id.getStartMonth(), id.getStartDay()).isBefore(sinceDay));
+    }
+
+    public boolean isEmpty() {
+        return deltas.isEmpty();
+    }
+}
@@ -20,11 +20,14 @@ package com.thinkbiganalytics.metadata.jpa.jobrepo.job;
  * #L%
  */
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
 import com.querydsl.core.types.ConstructorExpression;
 import com.querydsl.core.types.Expression;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.NumberExpression;
 import com.querydsl.jpa.JPAExpressions;
 import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
@@ -62,6 +65,7 @@ import com.thinkbiganalytics.metadata.jpa.feed.JpaOpsManagerFeed;
 import com.thinkbiganalytics.metadata.jpa.feed.OpsManagerFeedRepository;
 import com.thinkbiganalytics.metadata.jpa.feed.QJpaOpsManagerFeed;
 import com.thinkbiganalytics.metadata.jpa.feed.QOpsManagerFeedId;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobStatusSummary.SummaryId;
 import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiEventJobExecution;
 import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.NifiRelatedRootFlowFilesRepository;
 import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.QJpaNifiFeedStats;
@@ -82,29 +86,41 @@ import org.joda.time.ReadablePeriod;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.persistence.LockModeType;
 import javax.persistence.OptimisticLockException;
 
 
@@ -167,6 +183,17 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
 
     private BatchStatusChangeReceiver batchStatusChangeReceiver = new BatchStatusChangeReceiver();
 
+    /**
+     * The number of lock stripes used to guard the creation of job executions
+     */
+    @Value("${kylo.ops.mgr.job-execution.lock-stripes:256}")
+    private int jobExecutionLockStripes = JobExecutionLocks.DEFAULT_STRIPES;
+
+    /**
+     * Locks keyed by job flow file and feed guarding the get or create of a job execution
+     */
+    private JobExecutionLocks jobExecutionLocks;
+
 
     /**
      * Latest start time for feed.
@@ -174,6 +201,38 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
      */
     private Map<String, Long> latestStartTimeByFeedName = new ConcurrentHashMap<>();
 
+    /**
+     * Transaction resource key holding the feeds whose cached values were updated in the current transaction
+     */
+    private final Object cachedFeedsTransactionKey = new Object();
+
+    @Inject
+    private BatchJobStatusSummaryRepository jobStatusSummaryRepository;
+
+    /**
+     * Read the dashboard job counts from the {@link JpaBatchJobStatusSummary} instead of aggregating all the job executions
+     */
+    @Value("${kylo.ops.mgr.job-status-summary.enabled:true}")
+    private boolean jobStatusSummaryEnabled = true;
+
+    /**
+     * How often the pending job status summary changes are written
+     */
+    @Value("${kylo.ops.mgr.job-status-summary.flush-interval-ms:5000}")
+    private long jobStatusSummaryFlushIntervalMillis = 5000L;
+
+    /**
+     * Summary changes for finished jobs that have not been written yet
+     */
+    private final JobStatusSummaryBuffer jobStatusSummaryBuffer = new JobStatusSummaryBuffer();
+
+    /**
+     * Held while the job status summary is written so a flush cannot interleave with a reconcile
+     */
+    private final Lock jobStatusSummaryLock = new ReentrantLock();
+
+    private ScheduledExecutorService jobStatusSummaryFlusher;
+
 
     @Autowired
     public JpaBatchJobExecutionProvider(BatchJobExecutionRepository jobExecutionRepository, BatchJobInstanceRepository jobInstanceRepository,
@@ -194,7 +253,20 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
 
     @PostConstruct
     private void init() {
+        jobExecutionLocks = new JobExecutionLocks(jobExecutionLockStripes);
         clusterService.subscribe(batchStatusChangeReceiver, FeedOperationBatchStatusChange.CLUSTER_MESSAGE_TYPE);
+        if (jobStatusSummaryEnabled) {
+            jobStatusSummaryFlusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("job-status-summary-%d").build());
+            jobStatusSummaryFlusher.scheduleWithFixedDelay(this::flushJobStatusSummary, jobStatusSummaryFlushIntervalMillis, jobStatusSummaryFlushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (jobStatusSummaryFlusher != null) {
+            jobStatusSummaryFlusher.shutdown();
+            flushJobStatusSummary();
+        }
     }
 
     @Override
@@ -406,22 +478,56 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
 
 
     /**
-     * Get or Create the JobExecution for a given ProvenanceEvent
+     * Get or Create the JobExecution for a given ProvenanceEvent.
+     *
+     * Events for the same job flow file are serialized on a striped lock. Creating a new job, or getting the job for a stream, also locks the feed
+     * since it depends upon the latest job for that feed.  Events for other jobs and feeds are processed in parallel.
+     * The striped locks are released before the transaction commits.  A second transaction that misses the uncommitted job and creates it again
+     * fails on the BATCH_NIFI_JOB primary key, the job flow file id, and the caller retries it.
+     *
+     * When Kylo is clustered the feed row is locked before any of the striped locks are taken.  The row lock is held until the transaction commits,
+     * so a thread holding a striped lock must never wait for a feed row, otherwise it could deadlock with a transaction that already holds the row,
+     * such as a batch that locked all of its feeds up front, and is waiting for the striped lock.
      */
     @Override
-    public synchronized JpaBatchJobExecution getOrCreateJobExecution(ProvenanceEventRecordDTO event, OpsManagerFeed feed) {
+    public JpaBatchJobExecution getOrCreateJobExecution(ProvenanceEventRecordDTO event, OpsManagerFeed feed) {
         JpaBatchJobExecution jobExecution = null;
         if (event.isStream()) {
             //Streams only care about start/stop events to track.. otherwise we can disregard the events)
             if (event.isStartOfJob() || event.isFinalJobEvent()) {
-                jobExecution = getOrCreateStreamJobExecution(event, feed);
+                lockFeedForJobCreation(feed);
+                Lock feedLock = jobExecutionLocks.feedLock(event.getFeedName());
+                feedLock.lock();
+                try {
+                    jobExecution = getOrCreateStreamJobExecution(event, feed);
+                } finally {
+                    feedLock.unlock();
+                }
             }
         } else {
             if (feed == null) {
                 feed = opsManagerFeedRepository.findByName(event.getFeedName());
             }
-            if (isProcessBatchEvent(event, feed)) {
-                jobExecution = getOrCreateBatchJobExecution(event, feed);
+            lockFeedForJobCreation(feed);
+            Lock jobFlowFileLock = jobExecutionLocks.jobFlowFileLock(event.getJobFlowFileId());
+            jobFlowFileLock.lock();
+            try {
+                JpaBatchJobExecution existingJobExecution = jobExecutionRepository.findByFlowFile(event.getJobFlowFileId());
+                if (existingJobExecution != null) {
+                    jobExecution = getOrCreateBatchJobExecution(event, feed, existingJobExecution);
+                } else {
+                    Lock feedLock = jobExecutionLocks.feedLock(event.getFeedName());
+                    feedLock.lock();
+                    try {
+                        if (isProcessBatchEvent(event, feed)) {
+                            jobExecution = getOrCreateBatchJobExecution(event, feed, null);
+                        }
+                    } finally {
+                        feedLock.unlock();
+                    }
+                }
+            } finally {
+                jobFlowFileLock.unlock();
             }
         }
 
@@ -429,6 +535,60 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
 
     }
 
+    /**
+     * When Kylo is clustered another node may be creating a job for the same feed.
+     * Take a pessimistic lock on the feed row for the remainder of the transaction so job creation for the feed is serialized across the cluster.
+     * This must be called before taking any of the {@link JobExecutionLocks}, and feeds must be locked in id order when more than one is locked.
+     *
+     * @param feed the feed
+     */
+    private void lockFeedForJobCreation(OpsManagerFeed feed) {
+        if (clusterService.isClustered() && feed != null && feed.getId() != null) {
+            getEntityManager().find(JpaOpsManagerFeed.class, feed.getId(), LockModeType.PESSIMISTIC_WRITE);
+        }
+    }
+
+    /**
+     * The latest job and start time caches are updated before the transaction commits.
+     * If the transaction rolls back, remove the cached values for the feed so the next lookup reads what was committed.
+     *
+     * @param feedName the feed whose cached values were updated in the current transaction
+     */
+    private void evictCachedFeedOnRollback(String feedName) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<String> feedNames = (Set<String>) TransactionSynchronizationManager.getResource(cachedFeedsTransactionKey);
+        if (feedNames == null) {
+            Set<String> updatedFeedNames = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(cachedFeedsTransactionKey, updatedFeedNames);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(cachedFeedsTransactionKey);
+                    if (status != STATUS_COMMITTED) {
+                        updatedFeedNames.forEach(name -> {
+                            latestStreamingJobByFeedName.remove(name);
+                            latestStartTimeByFeedName.remove(name);
+                        });
+                    }
+                }
+            });
+            feedNames = updatedFeedNames;
+        }
+        feedNames.add(feedName);
+    }
+
+    @Override
+    public void lockFeedsForJobCreation(Collection<? extends OpsManagerFeed> feeds) {
+        if (clusterService.isClustered() && feeds != null) {
+            Map<String, OpsManagerFeed> feedsById = new TreeMap<>();
+            feeds.stream().filter(feed -> feed != null && feed.getId() != null).forEach(feed -> feedsById.putIfAbsent(feed.getId().toString(), feed));
+            feedsById.values().forEach(this::lockFeedForJobCreation);
+        }
+    }
+
     @Override
     public void updateFeedJobStartTime(BatchJobExecution jobExecution,OpsManagerFeed feed){
         if(jobExecution != null){
@@ -437,10 +597,12 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
             if(startTime != null) {
                 if (!latestStartTimeByFeedName.containsKey(startTime)) {
                     latestStartTimeByFeedName.put(feed.getName(), startTime);
+                    evictCachedFeedOnRollback(feed.getName());
                 } else {
                     Long previousStartTime = latestStartTimeByFeedName.get(startTime);
                     if (startTime > previousStartTime) {
                         latestStartTimeByFeedName.put(feed.getName(), startTime);
+                        evictCachedFeedOnRollback(feed.getName());
                     }
                 }
             }
@@ -511,11 +673,13 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
     }
 
 
-    private JpaBatchJobExecution getOrCreateBatchJobExecution(ProvenanceEventRecordDTO event, OpsManagerFeed feed) {
-        JpaBatchJobExecution jobExecution = null;
+    private JpaBatchJobExecution getOrCreateBatchJobExecution(ProvenanceEventRecordDTO event, OpsManagerFeed feed, JpaBatchJobExecution existingJobExecution) {
+        JpaBatchJobExecution jobExecution = existingJobExecution;
         boolean isNew = false;
         try {
-            jobExecution = jobExecutionRepository.findByFlowFile(event.getJobFlowFileId());
+            if (jobExecution == null) {
+                jobExecution = jobExecutionRepository.findByFlowFile(event.getJobFlowFileId());
+            }
             if (jobExecution == null) {
                 jobExecution = createNewJobExecution(event, feed);
                 isNew = true;
@@ -575,6 +739,7 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
             save(jobExecution);
             //update the cache
             latestStreamingJobByFeedName.put(feed, jobExecution);
+            evictCachedFeedOnRollback(feed);
         }
     }
 
@@ -589,6 +754,7 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
             jobExecution.setStartTime(DateTimeUtil.getNowUTCTime());
             save(jobExecution);
             latestStreamingJobByFeedName.put(feed, jobExecution);
+            evictCachedFeedOnRollback(feed);
         }
     }
 
@@ -626,6 +792,7 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
             }
             if (jobExecution != null) {
                 latestStreamingJobByFeedName.put(event.getFeedName(), jobExecution);
+                evictCachedFeedOnRollback(event.getFeedName());
             }
         } catch (OptimisticLockException e) {
             //read
@@ -823,9 +990,13 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
         QJpaNifiFeedStats feedStats = QJpaNifiFeedStats.jpaNifiFeedStats;
 
         BooleanBuilder whereBuilder = new BooleanBuilder();
+        boolean useSummary = isJobStatusSummaryQuery(filter);
         if (StringUtils.isNotBlank(filter)) {
             whereBuilder.and(GenericQueryDslFilter.buildFilter(jobExecution, filter));
         }
+        if (useSummary) {
+            whereBuilder.and(unsummarizedJobStatus(jobExecution));
+        }
 
         Expression<JpaBatchAndStreamingJobStatusCounts> expr =
             Projections.bean(JpaBatchAndStreamingJobStatusCounts.class,
@@ -844,7 +1015,10 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
             .leftJoin(feedStats).on(feed.id.uuid.eq(feedStats.feedId.uuid))
             .where(whereBuilder)
             .groupBy(jobExecution.status, feed.id, feed.name, feed.isStream, feedStats.runningFeedFlows);
-        List<BatchAndStreamingJobStatusCount> stats = (List<BatchAndStreamingJobStatusCount>) query.fetch();
+        List<BatchAndStreamingJobStatusCount> stats = new ArrayList<>((List<BatchAndStreamingJobStatusCount>) query.fetch());
+        if (useSummary) {
+            stats.addAll(getSummaryBatchAndStreamingJobCounts());
+        }
 
         return stats.stream().map(s -> {
             if (s.isStream()
@@ -874,9 +1048,13 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
         QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
 
         BooleanBuilder whereBuilder = new BooleanBuilder();
+        boolean useSummary = isJobStatusSummaryQuery(filter);
         if (StringUtils.isNotBlank(filter)) {
             whereBuilder.and(GenericQueryDslFilter.buildFilter(jobExecution, filter));
         }
+        if (useSummary) {
+            whereBuilder.and(unsummarizedJobStatus(jobExecution));
+        }
 
         ConstructorExpression<JpaBatchJobExecutionStatusCounts> expr =
             Projections.constructor(JpaBatchJobExecutionStatusCounts.class,
@@ -890,7 +1068,10 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
             .where(whereBuilder.and(feed.isStream.eq(false))
                        .and(FeedAclIndexQueryAugmentor.generateExistsExpression(feed.id, controller.isEntityAccessControlled())))
             .groupBy(jobExecution.status);
-        List<JobStatusCount> stats = (List<JobStatusCount>) query.fetch();
+        List<JobStatusCount> stats = new ArrayList<>((List<JobStatusCount>) query.fetch());
+        if (useSummary) {
+            stats.addAll(getSummaryJobStatusCount());
+        }
 
         //merge in streaming feed stats
         List<? extends NifiFeedStats> streamingFeedStats = feedStatisticsProvider.findFeedStats(true);
@@ -926,6 +1107,12 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
 
         QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
 
+        BooleanBuilder whereBuilder = new BooleanBuilder();
+        boolean useSummary = isJobStatusSummaryQuery(null);
+        if (useSummary) {
+            whereBuilder.and(unsummarizedJobStatus(jobExecution));
+        }
+
         JPAQuery
             query = factory.select(
             Projections.constructor(JpaBatchJobExecutionStatusCounts.class,
@@ -937,10 +1124,15 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
             .from(jobExecution)
             .innerJoin(jobInstance).on(jobExecution.jobInstance.jobInstanceId.eq(jobInstance.jobInstanceId))
             .innerJoin(feed).on(jobInstance.feed.id.eq(feed.id))
-            .where(FeedAclIndexQueryAugmentor.generateExistsExpression(feed.id, controller.isEntityAccessControlled()))
+            .where(whereBuilder
+                       .and(FeedAclIndexQueryAugmentor.generateExistsExpression(feed.id, controller.isEntityAccessControlled())))
             .groupBy(jobExecution.status, jobExecution.startYear, jobExecution.startMonth, jobExecution.startDay);
 
-        return (List<JobStatusCount>) query.fetch();
+        List<JobStatusCount> stats = new ArrayList<>((List<JobStatusCount>) query.fetch());
+        if (useSummary) {
+            stats.addAll(getSummaryJobStatusCountByDate(null));
+        }
+        return stats;
 
     }
 
@@ -958,11 +1150,16 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
 
         QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
 
+        DateTime since = DateTimeUtil.getNowUTCTime().minus(period);
         BooleanBuilder whereBuilder = new BooleanBuilder();
-        whereBuilder.and(jobExecution.startTime.goe(DateTimeUtil.getNowUTCTime().minus(period)));
+        whereBuilder.and(jobExecution.startTime.goe(since));
+        boolean useSummary = isJobStatusSummaryQuery(filter);
         if (StringUtils.isNotBlank(filter)) {
             whereBuilder.and(GenericQueryDslFilter.buildFilter(jobExecution, filter));
         }
+        if (useSummary) {
+            whereBuilder.and(unsummarizedJobStatus(jobExecution));
+        }
 
         JPAQuery
             query = factory.select(
@@ -979,10 +1176,240 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
                        .and(FeedAclIndexQueryAugmentor.generateExistsExpression(feed.id, controller.isEntityAccessControlled())))
             .groupBy(jobExecution.status, jobExecution.startYear, jobExecution.startMonth, jobExecution.startDay);
 
-        return (List<JobStatusCount>) query.fetch();
+        List<JobStatusCount> stats = new ArrayList<>((List<JobStatusCount>) query.fetch());
+        if (useSummary) {
+            stats.addAll(getSummaryJobStatusCountByDate(since));
+        }
+        return stats;
 
     }
 
+    /**
+     * Indicates if the counts of the finished jobs should be read from the job status summary.
+     * The summary cannot be used with a filter as it only has the feed, day and status of the jobs.
+     */
+    private boolean isJobStatusSummaryQuery(String filter) {
+        return jobStatusSummaryEnabled && StringUtils.isBlank(filter);
+    }
+
+    /**
+     * Matches the job executions that are not counted in the job status summary
+     */
+    private Predicate unsummarizedJobStatus(QJpaBatchJobExecution jobExecution) {
+        List<BatchJobExecution.JobStatus> statuses = new ArrayList<>();
+        for (BatchJobExecution.JobStatus status : BatchJobExecution.JobStatus.values()) {
+            if (!JpaBatchJobStatusSummary.isSummarized(status)) {
+                statuses.add(status);
+            }
+        }
+        return jobExecution.status.in(statuses).or(jobExecution.startTime.isNull());
+    }
+
+    /**
+     * Matches the summary rows for the day of {@code since} and later
+     */
+    private Predicate summaryOnOrAfter(QJpaBatchJobStatusSummary summary, DateTime since) {
+        int year = since.getYear();
+        int month = since.getMonthOfYear();
+        return summary.id.startYear.gt(year)
+            .or(summary.id.startYear.eq(year).and(summary.id.startMonth.gt(month)))
+            .or(summary.id.startYear.eq(year).and(summary.id.startMonth.eq(month)).and(summary.id.startDay.goe(since.getDayOfMonth())));
+    }
+
+    /**
+     * Gets the counts of finished batch jobs grouped by status from the job status summary
+     */
+    private List<JobStatusCount> getSummaryJobStatusCount() {
+        QJpaBatchJobStatusSummary summary = QJpaBatchJobStatusSummary.jpaBatchJobStatusSummary;
+        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+
+        NumberExpression<Long> count = summary.count.sum();
+        List<Tuple> rows = factory.select(summary.id.status, count)
+            .from(summary)
+            .innerJoin(feed).on(feed.name.eq(summary.id.feedName))
+            .where(feed.isStream.eq(false)
+                       .and(FeedAclIndexQueryAugmentor.generateExistsExpression(feed.id, controller.isEntityAccessControlled())))
+            .groupBy(summary.id.status)
+            .fetch();
+
+        List<JobStatusCount> stats = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            stats.add(new JpaBatchJobExecutionStatusCounts(row.get(summary.id.status), row.get(count)));
+        }
+        return stats;
+    }
+
+    /**
+     * Gets the counts of finished jobs grouped by status and day from the job status summary
+     *
+     * @param since the earliest day to include, or null for all days
+     */
+    private List<JobStatusCount> getSummaryJobStatusCountByDate(DateTime since) {
+        QJpaBatchJobStatusSummary summary = QJpaBatchJobStatusSummary.jpaBatchJobStatusSummary;
+        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+
+        BooleanBuilder whereBuilder = new BooleanBuilder();
+        if (since != null) {
+            whereBuilder.and(summaryOnOrAfter(summary, since));
+        }
+
+        NumberExpression<Long> count = summary.count.sum();
+        List<Tuple> rows = factory.select(summary.id.status, summary.id.startYear, summary.id.startMonth, summary.id.startDay, count)
+            .from(summary)
+            .innerJoin(feed).on(feed.name.eq(summary.id.feedName))
+            .where(whereBuilder
+                       .and(FeedAclIndexQueryAugmentor.generateExistsExpression(feed.id, controller.isEntityAccessControlled())))
+            .groupBy(summary.id.status, summary.id.startYear, summary.id.startMonth, summary.id.startDay)
+            .fetch();
+
+        List<JobStatusCount> stats = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            stats.add(new JpaBatchJobExecutionStatusCounts(row.get(summary.id.status).name(), row.get(summary.id.startYear), row.get(summary.id.startMonth),
+                                                           row.get(summary.id.startDay), row.get(count)));
+        }
+        return stats;
+    }
+
+    /**
+     * Gets the counts of finished jobs grouped by status and feed from the job status summary
+     */
+    private List<BatchAndStreamingJobStatusCount> getSummaryBatchAndStreamingJobCounts() {
+        QJpaBatchJobStatusSummary summary = QJpaBatchJobStatusSummary.jpaBatchJobStatusSummary;
+        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+        QJpaNifiFeedStats feedStats = QJpaNifiFeedStats.jpaNifiFeedStats;
+
+        NumberExpression<Long> count = summary.count.sum();
+        List<Tuple> rows = factory.select(summary.id.status, feed.id, feed.name, feed.isStream, feedStats.runningFeedFlows, count)
+            .from(summary)
+            .innerJoin(feed).on(feed.name.eq(summary.id.feedName))
+            .leftJoin(feedStats).on(feed.id.uuid.eq(feedStats.feedId.uuid))
+            .groupBy(summary.id.status, feed.id, feed.name, feed.isStream, feedStats.runningFeedFlows)
+            .fetch();
+
+        List<BatchAndStreamingJobStatusCount> stats = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            JpaBatchAndStreamingJobStatusCounts stat = new JpaBatchAndStreamingJobStatusCounts();
+            stat.setStatus(row.get(summary.id.status).name());
+            stat.setOpsManagerFeedId(row.get(feed.id));
+            stat.setFeedName(row.get(feed.name));
+            stat.setStream(BooleanUtils.isTrue(row.get(feed.isStream)));
+            stat.setRunningFeedFlows(row.get(feedStats.runningFeedFlows));
+            stat.setCount(row.get(count));
+            stats.add(stat);
+        }
+        return stats;
+    }
+
+    /**
+     * Adds a finished job to the job status summary.
+     * The change is written by the next {@link #flushJobStatusSummary()}.
+     */
+    private void addToJobStatusSummary(BatchJobExecution jobExecution, OpsManagerFeed feed) {
+        moveInJobStatusSummary(jobExecution, feed, null);
+    }
+
+    /**
+     * Moves a finished job from the status it previously finished with to its current status in the job status summary.
+     * The change is written by the next {@link #flushJobStatusSummary()}.
+     *
+     * @param previousStatus the status the job previously finished with, or null if the job was not counted yet
+     */
+    private void moveInJobStatusSummary(BatchJobExecution jobExecution, OpsManagerFeed feed, BatchJobExecution.JobStatus previousStatus) {
+        if (jobStatusSummaryEnabled && jobExecution != null && jobExecution.isFinished()) {
+            String feedName = feed != null ? feed.getName() : jobExecution.getJobInstance().getFeed().getName();
+            jobStatusSummaryBuffer.move(feedName, jobExecution, previousStatus);
+        }
+    }
+
+    /**
+     * Writes the pending job status summary changes.
+     * If the changes cannot be written they are kept and retried on the next flush.
+     */
+    public void flushJobStatusSummary() {
+        jobStatusSummaryLock.lock();
+        try {
+            Map<SummaryId, Long> deltas = jobStatusSummaryBuffer.drain();
+            if (deltas.isEmpty()) {
+                return;
+            }
+            try {
+                metadataAccess.commit(() -> {
+                    for (Map.Entry<SummaryId, Long> entry : deltas.entrySet()) {
+                        SummaryId id = entry.getKey();
+                        if (jobStatusSummaryRepository.addToCount(id.getFeedName(), id.getStartYear(), id.getStartMonth(), id.getStartDay(), id.getStatus(), entry.getValue()) == 0) {
+                            jobStatusSummaryRepository.save(new JpaBatchJobStatusSummary(id, entry.getValue()));
+                        }
+                    }
+                }, MetadataAccess.SERVICE);
+            } catch (Exception e) {
+                log.warn("Unable to update the job status summary for {} entries. It will be retried: {}", deltas.size(), e.getMessage());
+                jobStatusSummaryBuffer.restore(deltas);
+            }
+        } finally {
+            jobStatusSummaryLock.unlock();
+        }
+    }
+
+    /**
+     * Recomputes the job status summary in its own transaction.
+     * No pending changes are flushed until the transaction commits, otherwise changes drained before the reconcile discards them could be written on top of the recomputed counts.
+     */
+    @Override
+    public int reconcileJobStatusSummary(Integer days) {
+        jobStatusSummaryLock.lock();
+        try {
+            return metadataAccess.commit(() -> doReconcileJobStatusSummary(days), MetadataAccess.SERVICE);
+        } finally {
+            jobStatusSummaryLock.unlock();
+        }
+    }
+
+    private int doReconcileJobStatusSummary(Integer days) {
+        QJpaBatchJobExecution jobExecution = QJpaBatchJobExecution.jpaBatchJobExecution;
+        QJpaBatchJobInstance jobInstance = QJpaBatchJobInstance.jpaBatchJobInstance;
+        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+
+        List<BatchJobExecution.JobStatus> statuses = new ArrayList<>();
+        for (BatchJobExecution.JobStatus status : BatchJobExecution.JobStatus.values()) {
+            if (JpaBatchJobStatusSummary.isSummarized(status)) {
+                statuses.add(status);
+            }
+        }
+
+        // Pending changes for the reconciled days are already in the job executions
+        BooleanBuilder whereBuilder = new BooleanBuilder(jobExecution.status.in(statuses));
+        if (days != null) {
+            DateTime since = DateTimeUtil.getNowUTCTime().minusDays(days).withTimeAtStartOfDay();
+            jobStatusSummaryBuffer.discardSince(since);
+            whereBuilder.and(jobExecution.startTime.goe(since));
+            for (DateTime day = since; !day.isAfterNow(); day = day.plusDays(1)) {
+                jobStatusSummaryRepository.deleteForDay(day.getYear(), day.getMonthOfYear(), day.getDayOfMonth());
+            }
+        } else {
+            jobStatusSummaryBuffer.discardSince(null);
+            jobStatusSummaryRepository.deleteAllSummaries();
+        }
+
+        NumberExpression<Long> count = jobExecution.count();
+        List<Tuple> rows = factory.select(feed.name, jobExecution.startYear, jobExecution.startMonth, jobExecution.startDay, jobExecution.status, count)
+            .from(jobExecution)
+            .innerJoin(jobInstance).on(jobExecution.jobInstance.jobInstanceId.eq(jobInstance.jobInstanceId))
+            .innerJoin(feed).on(jobInstance.feed.id.eq(feed.id))
+            .where(whereBuilder)
+            .groupBy(feed.name, jobExecution.startYear, jobExecution.startMonth, jobExecution.startDay, jobExecution.status)
+            .fetch();
+
+        List<JpaBatchJobStatusSummary> summaries = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            SummaryId id = new SummaryId(row.get(feed.name), row.get(jobExecution.startYear), row.get(jobExecution.startMonth), row.get(jobExecution.startDay),
+                                         row.get(jobExecution.status));
+            summaries.add(new JpaBatchJobStatusSummary(id, row.get(count)));
+        }
+        jobStatusSummaryRepository.save(summaries);
+        log.info("Reconciled {} job status summary rows for the last {} days", summaries.size(), days != null ? days : "all");
+        return summaries.size();
+    }
+
 
     public List<String> findRelatedFlowFiles(String flowFileId) {
         return relatedRootFlowFilesRepository.findRelatedFlowFiles(flowFileId);
@@ -993,6 +1420,8 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
     public BatchJobExecution abandonJob(Long executionId) {
         BatchJobExecution execution = findByJobExecutionId(executionId);
         if (execution != null && !execution.getStatus().equals(BatchJobExecution.JobStatus.ABANDONED)) {
+            BatchJobExecution.JobStatus previousStatus = execution.getStatus();
+            boolean wasFinished = execution.isFinished();
             if (execution.getStartTime() == null) {
                 execution.setStartTime(DateTimeUtil.getNowUTCTime());
             }
@@ -1009,6 +1438,11 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
             OpsManagerFeed feed = execution.getJobInstance().getFeed();
 
             save(execution);
+            if (wasFinished) {
+                jobStatusSummaryBuffer.move(feed.getName(), execution, previousStatus);
+            } else {
+                jobStatusSummaryBuffer.add(feed.getName(), execution);
+            }
 
             jobExecutionChangedNotifier.notifyAbandoned(execution, feed, null);
 
@@ -1029,16 +1463,24 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
 
     @Override
     public void notifySuccess(BatchJobExecution jobExecution, OpsManagerFeed feed, String status) {
+        addToJobStatusSummary(jobExecution, feed);
         jobExecutionChangedNotifier.notifySuccess(jobExecution, feed, status);
     }
 
     @Override
     public void notifyStopped(BatchJobExecution jobExecution, OpsManagerFeed feed, String status) {
+        addToJobStatusSummary(jobExecution, feed);
         jobExecutionChangedNotifier.notifySuccess(jobExecution, feed, status);
     }
 
     @Override
     public void notifyFailure(BatchJobExecution jobExecution, OpsManagerFeed feed, boolean isStream, String status) {
+        notifyFailure(jobExecution, feed, isStream, status, null);
+    }
+
+    @Override
+    public void notifyFailure(BatchJobExecution jobExecution, OpsManagerFeed feed, boolean isStream, String status, BatchJobExecution.JobStatus previousStatus) {
+        moveInJobStatusSummary(jobExecution, feed, previousStatus);
 
         jobExecutionChangedNotifier.notifyOperationStatusEvent(jobExecution, feed, FeedOperation.State.FAILURE, status);
 
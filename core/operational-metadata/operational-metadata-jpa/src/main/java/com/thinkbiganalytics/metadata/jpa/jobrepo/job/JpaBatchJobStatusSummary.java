@@ -0,0 +1,160 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.job;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Table;
+
+/**
+ * Number of finished job executions for a feed, start day and status.
+ *
+ * The summary is maintained as jobs finish so that the dashboard counts read one row per feed and day instead of every {@link JpaBatchJobExecution}.
+ * Running jobs are not included as their status is still changing.
+ */
+@Entity
+@Table(name = "BATCH_JOB_STATUS_SUMMARY")
+public class JpaBatchJobStatusSummary {
+
+    @EmbeddedId
+    private SummaryId id;
+
+    @Column(name = "JOB_COUNT")
+    private Long count = 0L;
+
+    public JpaBatchJobStatusSummary() {
+    }
+
+    public JpaBatchJobStatusSummary(SummaryId id, Long count) {
+        this.id = id;
+        this.count = count;
+    }
+
+    public SummaryId getId() {
+        return id;
+    }
+
+    public Long getCount() {
+        return count;
+    }
+
+    public void setCount(Long count) {
+        this.count = count;
+    }
+
+    /**
+     * Indicates if job executions with the status are counted in the summary.
+     */
+    public static boolean isSummarized(BatchJobExecution.JobStatus status) {
+        return status == BatchJobExecution.JobStatus.COMPLETED
+               || status == BatchJobExecution.JobStatus.FAILED
+               || status == BatchJobExecution.JobStatus.STOPPED
+               || status == BatchJobExecution.JobStatus.ABANDONED;
+    }
+
+    @Embeddable
+    public static class SummaryId implements Serializable {
+
+        private static final long serialVersionUID = -2376415207398746532L;
+
+        @Column(name = "FEED_NAME")
+        private String feedName;
+
+        @Column(name = "START_YEAR")
+        private Integer startYear;
+
+        @Column(name = "START_MONTH")
+        private Integer startMonth;
+
+        @Column(name = "START_DAY")
+        private Integer startDay;
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "STATUS", length = 10)
+        private BatchJobExecution.JobStatus status;
+
+        public SummaryId() {
+        }
+
+        public SummaryId(String feedName, Integer startYear, Integer startMonth, Integer startDay, BatchJobExecution.JobStatus status) {
+            this.feedName = feedName;
+            this.startYear = startYear;
+            this.startMonth = startMonth;
+            this.startDay = startDay;
+            this.status = status;
+        }
+
+        public String getFeedName() {
+            return feedName;
+        }
+
+        public Integer getStartYear() {
+            return startYear;
+        }
+
+        public Integer getStartMonth() {
+            return startMonth;
+        }
+
+        public Integer getStartDay() {
+            return startDay;
+        }
+
+        public BatchJobExecution.JobStatus getStatus() {
+            return status;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SummaryId that = (SummaryId) o;
+            return Objects.equals(feedName, that.feedName)
+                   && Objects.equals(startYear, that.startYear)
+                   && Objects.equals(startMonth, that.startMonth)
+                   && Objects.equals(startDay, that.startDay)
+                   && status == that.status;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(feedName, startYear, startMonth, startDay, status);
+        }
+
+        @Override
+        public String toString() {
+            return feedName + "/" + startYear + "-" + startMonth + "-" + startDay + "/" + status;
+        }
+    }
+}
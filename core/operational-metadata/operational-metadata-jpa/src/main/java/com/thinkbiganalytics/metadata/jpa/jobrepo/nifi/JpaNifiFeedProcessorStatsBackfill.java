@@ -0,0 +1,98 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
+import org.joda.time.DateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The event times of a feed's {@link JpaNifiFeedProcessorStats} that were saved but could not be added to their {@link JpaNifiFeedProcessorStatsRollup}s.
+ * The rollups within the window are rebuilt from the saved stats once no more stats are expected in them.
+ */
+@Entity
+@Table(name = "NIFI_FEED_PROC_STATS_BACKFILL")
+public class JpaNifiFeedProcessorStatsBackfill {
+
+    @Id
+    @GeneratedValue(generator = "uuid2")
+    @GenericGenerator(name = "uuid2", strategy = "uuid2")
+    @Column(name = "ID", unique = true)
+    private String id;
+
+    @Column(name = "FM_FEED_NAME")
+    private String feedName;
+
+    /**
+     * The earliest min event time of the stats
+     */
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    @Column(name = "MIN_EVENT_TIME")
+    private DateTime minEventTime;
+
+    /**
+     * The latest min event time of the stats, as the stats are rolled up by their min event time
+     */
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    @Column(name = "MAX_EVENT_TIME")
+    private DateTime maxEventTime;
+
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    @Column(name = "CREATED_TIME")
+    private DateTime createdTime;
+
+    public JpaNifiFeedProcessorStatsBackfill() {
+    }
+
+    public JpaNifiFeedProcessorStatsBackfill(String feedName, DateTime minEventTime, DateTime maxEventTime) {
+        this.feedName = feedName;
+        this.minEventTime = minEventTime;
+        this.maxEventTime = maxEventTime;
+        this.createdTime = DateTime.now();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFeedName() {
+        return feedName;
+    }
+
+    public DateTime getMinEventTime() {
+        return minEventTime;
+    }
+
+    public DateTime getMaxEventTime() {
+        return maxEventTime;
+    }
+
+    public DateTime getCreatedTime() {
+        return createdTime;
+    }
+}
@@ -0,0 +1,412 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStats;
+
+import org.hibernate.annotations.Type;
+import org.joda.time.DateTime;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Table;
+
+/**
+ * Statistics for a feed and processor summed over a fixed time bucket.
+ *
+ * The rollups are maintained as the {@link JpaNifiFeedProcessorStats} arrive so that queries over long time frames read one row per bucket instead of
+ * every collected row.
+ */
+@Entity
+@Table(name = "NIFI_FEED_PROC_STATS_ROLLUP")
+public class JpaNifiFeedProcessorStatsRollup {
+
+    @EmbeddedId
+    private RollupId id;
+
+    @Column(name = "PROCESSOR_NAME")
+    private String processorName;
+
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    @Column(name = "MIN_EVENT_TIME")
+    private DateTime minEventTime;
+
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    @Column(name = "MAX_EVENT_TIME")
+    private DateTime maxEventTime;
+
+    @Column(name = "DURATION_MILLIS")
+    private Long duration = 0L;
+
+    @Column(name = "BYTES_IN")
+    private Long bytesIn = 0L;
+
+    @Column(name = "BYTES_OUT")
+    private Long bytesOut = 0L;
+
+    @Column(name = "TOTAL_EVENTS")
+    private Long totalCount = 0L;
+
+    @Column(name = "JOBS_STARTED")
+    private Long jobsStarted = 0L;
+
+    @Column(name = "JOBS_FINISHED")
+    private Long jobsFinished = 0L;
+
+    @Column(name = "JOBS_FAILED")
+    private Long jobsFailed = 0L;
+
+    @Column(name = "JOB_DURATION")
+    private Long jobDuration = 0L;
+
+    @Column(name = "SUCCESSFUL_JOB_DURATION")
+    private Long successfulJobDuration = 0L;
+
+    @Column(name = "PROCESSORS_FAILED")
+    private Long processorsFailed = 0L;
+
+    @Column(name = "FLOW_FILES_STARTED")
+    private Long flowFilesStarted = 0L;
+
+    @Column(name = "FLOW_FILES_FINISHED")
+    private Long flowFilesFinished = 0L;
+
+    @Column(name = "FAILED_EVENTS")
+    private Long failedCount = 0L;
+
+    /**
+     * Number of {@link JpaNifiFeedProcessorStats} rows summed into this rollup
+     */
+    @Column(name = "STATS_COUNT")
+    private Long statsCount = 0L;
+
+    public JpaNifiFeedProcessorStatsRollup() {
+    }
+
+    public JpaNifiFeedProcessorStatsRollup(RollupId id) {
+        this.id = id;
+    }
+
+    /**
+     * Adds the statistics to this rollup.
+     *
+     * @param stats the statistics within the bucket of this rollup
+     */
+    public void add(NifiFeedProcessorStats stats) {
+        if (stats.getProcessorName() != null) {
+            processorName = stats.getProcessorName();
+        }
+        if (stats.getMinEventTime() != null && (minEventTime == null || stats.getMinEventTime().isBefore(minEventTime))) {
+            minEventTime = stats.getMinEventTime();
+        }
+        if (stats.getMaxEventTime() != null && (maxEventTime == null || stats.getMaxEventTime().isAfter(maxEventTime))) {
+            maxEventTime = stats.getMaxEventTime();
+        }
+        duration = sum(duration, stats.getDuration());
+        bytesIn = sum(bytesIn, stats.getBytesIn());
+        bytesOut = sum(bytesOut, stats.getBytesOut());
+        totalCount = sum(totalCount, stats.getTotalCount());
+        jobsStarted = sum(jobsStarted, stats.getJobsStarted());
+        jobsFinished = sum(jobsFinished, stats.getJobsFinished());
+        jobsFailed = sum(jobsFailed, stats.getJobsFailed());
+        jobDuration = sum(jobDuration, stats.getJobDuration());
+        successfulJobDuration = sum(successfulJobDuration, stats.getSuccessfulJobDuration());
+        processorsFailed = sum(processorsFailed, stats.getProcessorsFailed());
+        flowFilesStarted = sum(flowFilesStarted, stats.getFlowFilesStarted());
+        flowFilesFinished = sum(flowFilesFinished, stats.getFlowFilesFinished());
+        failedCount = sum(failedCount, stats.getFailedCount());
+        statsCount = sum(statsCount, 1L);
+    }
+
+    /**
+     * Adds another rollup of the same bucket to this rollup.
+     */
+    public void add(JpaNifiFeedProcessorStatsRollup rollup) {
+        if (rollup.processorName != null) {
+            processorName = rollup.processorName;
+        }
+        if (rollup.minEventTime != null && (minEventTime == null || rollup.minEventTime.isBefore(minEventTime))) {
+            minEventTime = rollup.minEventTime;
+        }
+        if (rollup.maxEventTime != null && (maxEventTime == null || rollup.maxEventTime.isAfter(maxEventTime))) {
+            maxEventTime = rollup.maxEventTime;
+        }
+        duration = sum(duration, rollup.duration);
+        bytesIn = sum(bytesIn, rollup.bytesIn);
+        bytesOut = sum(bytesOut, rollup.bytesOut);
+        totalCount = sum(totalCount, rollup.totalCount);
+        jobsStarted = sum(jobsStarted, rollup.jobsStarted);
+        jobsFinished = sum(jobsFinished, rollup.jobsFinished);
+        jobsFailed = sum(jobsFailed, rollup.jobsFailed);
+        jobDuration = sum(jobDuration, rollup.jobDuration);
+        successfulJobDuration = sum(successfulJobDuration, rollup.successfulJobDuration);
+        processorsFailed = sum(processorsFailed, rollup.processorsFailed);
+        flowFilesStarted = sum(flowFilesStarted, rollup.flowFilesStarted);
+        flowFilesFinished = sum(flowFilesFinished, rollup.flowFilesFinished);
+        failedCount = sum(failedCount, rollup.failedCount);
+        statsCount = sum(statsCount, rollup.statsCount);
+    }
+
+    /**
+     * Replaces the sums of this rollup with those of another rollup of the same bucket.
+     */
+    public void replace(JpaNifiFeedProcessorStatsRollup rollup) {
+        processorName = null;
+        minEventTime = null;
+        maxEventTime = null;
+        duration = 0L;
+        bytesIn = 0L;
+        bytesOut = 0L;
+        totalCount = 0L;
+        jobsStarted = 0L;
+        jobsFinished = 0L;
+        jobsFailed = 0L;
+        jobDuration = 0L;
+        successfulJobDuration = 0L;
+        processorsFailed = 0L;
+        flowFilesStarted = 0L;
+        flowFilesFinished = 0L;
+        failedCount = 0L;
+        statsCount = 0L;
+        add(rollup);
+    }
+
+    /**
+     * Sums the stats into the rollups of a resolution.
+     * Stats without a feed name, processor or min event time are not rolled up.
+     *
+     * @return the rollups by bucket
+     */
+    public static Map<RollupId, JpaNifiFeedProcessorStatsRollup> of(Resolution resolution, Iterable<? extends NifiFeedProcessorStats> stats) {
+        Map<RollupId, JpaNifiFeedProcessorStatsRollup> rollups = new HashMap<>();
+        for (NifiFeedProcessorStats stat : stats) {
+            if (stat.getFeedName() != null && stat.getProcessorId() != null && stat.getMinEventTime() != null) {
+                RollupId id = new RollupId(resolution, stat.getFeedName(), stat.getProcessorId(), resolution.bucketStart(stat.getMinEventTime()));
+                rollups.computeIfAbsent(id, JpaNifiFeedProcessorStatsRollup::new).add(stat);
+            }
+        }
+        return rollups;
+    }
+
+    private static Long sum(Long total, Long value) {
+        return (total != null ? total : 0L) + (value != null ? value : 0L);
+    }
+
+    public RollupId getId() {
+        return id;
+    }
+
+    public String getProcessorName() {
+        return processorName;
+    }
+
+    public DateTime getMinEventTime() {
+        return minEventTime;
+    }
+
+    public DateTime getMaxEventTime() {
+        return maxEventTime;
+    }
+
+    public Long getDuration() {
+        return duration;
+    }
+
+    public Long getBytesIn() {
+        return bytesIn;
+    }
+
+    public Long getBytesOut() {
+        return bytesOut;
+    }
+
+    public Long getTotalCount() {
+        return totalCount;
+    }
+
+    public Long getJobsStarted() {
+        return jobsStarted;
+    }
+
+    public Long getJobsFinished() {
+        return jobsFinished;
+    }
+
+    public Long getJobsFailed() {
+        return jobsFailed;
+    }
+
+    public Long getJobDuration() {
+        return jobDuration;
+    }
+
+    public Long getSuccessfulJobDuration() {
+        return successfulJobDuration;
+    }
+
+    public Long getProcessorsFailed() {
+        return processorsFailed;
+    }
+
+    public Long getFlowFilesStarted() {
+        return flowFilesStarted;
+    }
+
+    public Long getFlowFilesFinished() {
+        return flowFilesFinished;
+    }
+
+    public Long getFailedCount() {
+        return failedCount;
+    }
+
+    public Long getStatsCount() {
+        return statsCount;
+    }
+
+    /**
+     * The size of the time buckets of a rollup
+     */
+    public enum Resolution {
+        MINUTE(TimeUnit.MINUTES.toMillis(1)),
+        HOUR(TimeUnit.HOURS.toMillis(1)),
+        DAY(TimeUnit.DAYS.toMillis(1));
+
+        /**
+         * Minimum number of buckets a time window must span for a resolution to be used
+         */
+        static final long MIN_BUCKETS = 150;
+
+        private final long millis;
+
+        Resolution(long millis) {
+            this.millis = millis;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public long getSeconds() {
+            return TimeUnit.MILLISECONDS.toSeconds(millis);
+        }
+
+        /**
+         * Gets the start of the bucket containing the time.
+         */
+        public DateTime bucketStart(DateTime time) {
+            return new DateTime(time.getMillis() - Math.floorMod(time.getMillis(), millis), time.getZone());
+        }
+
+        /**
+         * Finds the coarsest resolution that still spans {@link #MIN_BUCKETS} buckets over the time window.
+         *
+         * @return the resolution, or {@code null} if the window is too short for any rollup and the collected statistics should be used
+         */
+        public static Resolution forWindow(DateTime start, DateTime end) {
+            long window = end.getMillis() - start.getMillis();
+            Resolution resolution = null;
+            for (Resolution r : values()) {
+                if (window >= r.millis * MIN_BUCKETS) {
+                    resolution = r;
+                }
+            }
+            return resolution;
+        }
+    }
+
+    /**
+     * Identifies the rollup of a feed processor for a bucket
+     */
+    @Embeddable
+    public static class RollupId implements Serializable {
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "RESOLUTION", length = 10)
+        private Resolution resolution;
+
+        @Column(name = "FM_FEED_NAME")
+        private String feedName;
+
+        @Column(name = "NIFI_PROCESSOR_ID")
+        private String processorId;
+
+        @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+        @Column(name = "BUCKET_TIME")
+        private DateTime bucketTime;
+
+        public RollupId() {
+        }
+
+        public RollupId(Resolution resolution, String feedName, String processorId, DateTime bucketTime) {
+            this.resolution = resolution;
+            this.feedName = feedName;
+            this.processorId = processorId;
+            this.bucketTime = bucketTime;
+        }
+
+        public Resolution getResolution() {
+            return resolution;
+        }
+
+        public String getFeedName() {
+            return feedName;
+        }
+
+        public String getProcessorId() {
+            return processorId;
+        }
+
+        public DateTime getBucketTime() {
+            return bucketTime;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            RollupId that = (RollupId) o;
+            return resolution == that.resolution
+                   && Objects.equals(feedName, that.feedName)
+                   && Objects.equals(processorId, that.processorId)
+                   && bucketTime != null && that.bucketTime != null && bucketTime.getMillis() == that.bucketTime.getMillis();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resolution, feedName, processorId, bucketTime != null ? bucketTime.getMillis() : null);
+        }
+    }
+}
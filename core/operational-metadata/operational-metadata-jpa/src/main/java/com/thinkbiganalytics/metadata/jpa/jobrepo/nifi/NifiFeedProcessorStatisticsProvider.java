@@ -20,6 +20,8 @@ package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
  * #L%
  */
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.Projections;
@@ -30,15 +32,30 @@ import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorErrors;
 import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStats;
 import com.thinkbiganalytics.metadata.jpa.feed.FeedAclIndexQueryAugmentor;
 import com.thinkbiganalytics.metadata.jpa.feed.QJpaOpsManagerFeed;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiFeedProcessorStatsRollup.Resolution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiFeedProcessorStatsRollup.RollupId;
 import com.thinkbiganalytics.security.AccessController;
 
 import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -48,6 +65,8 @@ import javax.inject.Inject;
 @Service
 public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStatisticsProvider {
 
+    private static final Logger log = LoggerFactory.getLogger(NifiFeedProcessorStatisticsProvider.class);
+
     public static final String ITEM_LAST_MODIFIED_KEY = "NIFI_FEED_PROCESSOR_STATS";
 
     @Autowired
@@ -66,6 +85,41 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
     @Inject
     private AccessController accessController;
 
+    @Inject
+    private NifiFeedProcessorStatsRollupRepository rollupRepository;
+
+    @Inject
+    private NifiFeedProcessorStatsBackfillRepository backfillRepository;
+
+    /**
+     * Minutes after a day ends before the failed rollups within it are rebuilt, allowing for the stats collected near the end of the day to be saved
+     */
+    private static final int BACKFILL_DELAY_MINUTES = 15;
+
+    /**
+     * Days to keep the minute rollups
+     */
+    @Value("${kylo.ops.mgr.stats.rollup.retention.minute.days:7}")
+    private int minuteRollupRetentionDays = 7;
+
+    /**
+     * Days to keep the hour rollups
+     */
+    @Value("${kylo.ops.mgr.stats.rollup.retention.hour.days:180}")
+    private int hourRollupRetentionDays = 180;
+
+    /**
+     * Days to keep the day rollups
+     */
+    @Value("${kylo.ops.mgr.stats.rollup.retention.day.days:1825}")
+    private int dayRollupRetentionDays = 1825;
+
+    /**
+     * The first bucket of each rollup resolution. Statistics collected before the rollups were introduced, or older than the retention period, are only in the raw table.
+     * The first bucket moves as rollups are purged, possibly by another node, so the cached times expire.
+     */
+    private final Cache<Resolution, Optional<DateTime>> rollupStartTimes = CacheBuilder.newBuilder().expireAfterWrite(10, TimeUnit.MINUTES).build();
+
     @Autowired
     public NifiFeedProcessorStatisticsProvider(NifiFeedProcessorStatisticsRepository repository, NifiEventRepository nifiEventRepository) {
         this.statisticsRepository = repository;
@@ -139,8 +193,51 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
     }
 
 
+    /**
+     * Finds the coarsest rollup resolution to query for the time window.
+     *
+     * @return the resolution, or {@code null} if the raw statistics should be queried
+     */
+    private Resolution rollupResolution(DateTime start, DateTime end) {
+        Resolution coarsest = Resolution.forWindow(start, end);
+        if (coarsest != null) {
+            for (int i = coarsest.ordinal(); i >= 0; i--) {
+                Resolution resolution = Resolution.values()[i];
+                if (isRolledUp(resolution, start)) {
+                    return resolution;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Indicates if the rollups of the resolution cover all statistics since the start time.
+     */
+    private boolean isRolledUp(Resolution resolution, DateTime start) {
+        Optional<DateTime> firstBucket;
+        try {
+            firstBucket = rollupStartTimes.get(resolution, () -> Optional.ofNullable(rollupRepository.findMinBucketTime(resolution)));
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Unable to find the first " + resolution + " rollup", e.getCause());
+        }
+        return firstBucket.isPresent() && !start.isBefore(firstBucket.get().plus(resolution.getMillis()));
+    }
+
+    private Predicate rollupWithin(String feedName, Resolution resolution, DateTime start, DateTime end) {
+        QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
+        return rollup.id.resolution.eq(resolution)
+            .and(rollup.id.feedName.eq(feedName))
+            .and(rollup.id.bucketTime.goe(resolution.bucketStart(start)))
+            .and(rollup.id.bucketTime.loe(end));
+    }
+
     @Override
     public List<? extends JpaNifiFeedProcessorStats> findFeedProcessorStatisticsByProcessorId(String feedName, DateTime start, DateTime end) {
+        Resolution resolution = rollupResolution(start, end);
+        if (resolution != null) {
+            return findRollupStatisticsByProcessorId(feedName, resolution, start, end);
+        }
         QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
         QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
         JPAQuery
@@ -167,8 +264,35 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
     }
 
 
+    private List<? extends JpaNifiFeedProcessorStats> findRollupStatisticsByProcessorId(String feedName, Resolution resolution, DateTime start, DateTime end) {
+        QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
+        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+        JPAQuery
+            query = factory.select(
+            Projections.bean(JpaNifiFeedProcessorStats.class,
+                             rollup.id.feedName.as("feedName"), rollup.id.processorId.as("processorId"), rollup.processorName,
+                             rollup.bytesIn.sum().as("bytesIn"), rollup.bytesOut.sum().as("bytesOut"), rollup.duration.sum().as("duration"),
+                             rollup.jobsStarted.sum().as("jobsStarted"), rollup.jobsFinished.sum().as("jobsFinished"), rollup.jobDuration.sum().as("jobDuration"),
+                             rollup.flowFilesStarted.sum().as("flowFilesStarted"), rollup.flowFilesFinished.sum().as("flowFilesFinished"), rollup.totalCount.sum().as("totalCount"),
+                             rollup.maxEventTime.max().as("maxEventTime"), rollup.minEventTime.min().as("minEventTime"), rollup.jobsFailed.sum().as("jobsFailed"),
+                             rollup.failedCount.sum().as("failedCount"))
+        )
+            .from(rollup)
+            .innerJoin(feed).on(feed.name.eq(rollup.id.feedName))
+            .where(rollupWithin(feedName, resolution, start, end),
+                   FeedAclIndexQueryAugmentor.generateExistsExpression(feed.id, accessController.isEntityAccessControlled()))
+            .groupBy(rollup.id.feedName, rollup.id.processorId, rollup.processorName)
+            .orderBy(rollup.processorName.asc());
+
+        return (List<JpaNifiFeedProcessorStats>) query.fetch();
+    }
+
     @Override
     public List<? extends JpaNifiFeedProcessorStats> findFeedProcessorStatisticsByProcessorName(String feedName, DateTime start, DateTime end) {
+        Resolution resolution = rollupResolution(start, end);
+        if (resolution != null) {
+            return findRollupStatisticsByProcessorName(feedName, resolution, start, end);
+        }
         QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
 
         QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
@@ -196,7 +320,34 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
         return (List<JpaNifiFeedProcessorStats>) query.fetch();
     }
 
+    private List<? extends JpaNifiFeedProcessorStats> findRollupStatisticsByProcessorName(String feedName, Resolution resolution, DateTime start, DateTime end) {
+        QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
+        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+        JPAQuery
+            query = factory.select(
+            Projections.bean(JpaNifiFeedProcessorStats.class,
+                             rollup.id.feedName.as("feedName"), rollup.processorName,
+                             rollup.bytesIn.sum().as("bytesIn"), rollup.bytesOut.sum().as("bytesOut"), rollup.duration.sum().as("duration"),
+                             rollup.jobsStarted.sum().as("jobsStarted"), rollup.jobsFinished.sum().as("jobsFinished"), rollup.jobDuration.sum().as("jobDuration"),
+                             rollup.flowFilesStarted.sum().as("flowFilesStarted"), rollup.flowFilesFinished.sum().as("flowFilesFinished"), rollup.totalCount.sum().as("totalCount"),
+                             rollup.maxEventTime.max().as("maxEventTime"), rollup.minEventTime.min().as("minEventTime"), rollup.jobsFailed.sum().as("jobsFailed"),
+                             rollup.failedCount.sum().as("failedCount"))
+        )
+            .from(rollup)
+            .innerJoin(feed).on(feed.name.eq(rollup.id.feedName))
+            .where(rollupWithin(feedName, resolution, start, end),
+                   FeedAclIndexQueryAugmentor.generateExistsExpression(feed.id, accessController.isEntityAccessControlled()))
+            .groupBy(rollup.id.feedName, rollup.processorName)
+            .orderBy(rollup.processorName.asc());
+
+        return (List<JpaNifiFeedProcessorStats>) query.fetch();
+    }
+
     public List<? extends JpaNifiFeedProcessorStats> findForFeedStatisticsGroupedByTime(String feedName, DateTime start, DateTime end) {
+        Resolution resolution = rollupResolution(start, end);
+        if (resolution != null) {
+            return findRollupStatisticsGroupedByTime(feedName, resolution, start, end);
+        }
         QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
 
         QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
@@ -228,6 +379,40 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
         return (List<JpaNifiFeedProcessorStats>) query.fetch();
     }
 
+    /**
+     * Find the stats for a feed summed by rollup bucket.
+     * The rates are computed here as each bucket spans the same interval.
+     */
+    private List<? extends JpaNifiFeedProcessorStats> findRollupStatisticsGroupedByTime(String feedName, Resolution resolution, DateTime start, DateTime end) {
+        QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
+        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+        JPAQuery
+            query = factory.select(
+            Projections.bean(JpaNifiFeedProcessorStats.class,
+                             rollup.id.feedName.as("feedName"),
+                             rollup.bytesIn.sum().as("bytesIn"), rollup.bytesOut.sum().as("bytesOut"), rollup.duration.sum().as("duration"),
+                             rollup.jobsStarted.sum().as("jobsStarted"), rollup.jobsFinished.sum().as("jobsFinished"), rollup.jobDuration.sum().as("jobDuration"),
+                             rollup.flowFilesStarted.sum().as("flowFilesStarted"), rollup.flowFilesFinished.sum().as("flowFilesFinished"), rollup.failedCount.sum().as("failedCount"),
+                             rollup.id.bucketTime.as("minEventTime"),
+                             rollup.jobsFailed.sum().as("jobsFailed"), rollup.totalCount.sum().as("totalCount"))
+        )
+            .from(rollup)
+            .innerJoin(feed).on(feed.name.eq(rollup.id.feedName))
+            .where(rollupWithin(feedName, resolution, start, end),
+                   FeedAclIndexQueryAugmentor.generateExistsExpression(feed.id, accessController.isEntityAccessControlled()))
+            .groupBy(rollup.id.feedName, rollup.id.bucketTime)
+            .orderBy(rollup.id.bucketTime.asc());
+
+        List<JpaNifiFeedProcessorStats> results = query.fetch();
+        BigDecimal seconds = BigDecimal.valueOf(resolution.getSeconds());
+        for (JpaNifiFeedProcessorStats stats : results) {
+            stats.setCollectionIntervalSeconds(resolution.getSeconds());
+            stats.setJobsStartedPerSecond(BigDecimal.valueOf(stats.getJobsStarted()).divide(seconds, 2, RoundingMode.HALF_UP));
+            stats.setJobsFinishedPerSecond(BigDecimal.valueOf(stats.getJobsFinished()).divide(seconds, 2, RoundingMode.HALF_UP));
+        }
+        return results;
+    }
+
     public List<? extends NifiFeedProcessorErrors> findFeedProcessorErrors(String feedName, DateTime start, DateTime end) {
         return accessController.isEntityAccessControlled() ? statisticsRepository.findWithErrorsWithinTimeWithAcl(feedName, start, end)
                                                            : statisticsRepository.findWithErrorsWithinTimeWithoutAcl(feedName, start, end);
@@ -264,6 +449,158 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
         return stats;
     }
 
+    /**
+     * Adds the stats to their rollups.
+     * The existing rollups are locked before they are added to so concurrent consumers, or other nodes, do not lose each other's increments.
+     * Buckets without a rollup are inserted. If another transaction inserts the same bucket first this transaction fails on the primary key and should be retried.
+     */
+    @Override
+    public void rollup(List<? extends NifiFeedProcessorStats> stats) {
+        Map<Resolution, Map<RollupId, JpaNifiFeedProcessorStatsRollup>> rollups = new EnumMap<>(Resolution.class);
+        for (Resolution resolution : Resolution.values()) {
+            Map<RollupId, JpaNifiFeedProcessorStatsRollup> buckets = JpaNifiFeedProcessorStatsRollup.of(resolution, stats);
+            if (!buckets.isEmpty()) {
+                rollups.put(resolution, buckets);
+            }
+        }
+        //lock the resolutions in the same order in every transaction
+        for (Map.Entry<Resolution, Map<RollupId, JpaNifiFeedProcessorStatsRollup>> entry : rollups.entrySet()) {
+            Map<RollupId, JpaNifiFeedProcessorStatsRollup> buckets = entry.getValue();
+            Set<String> feedNames = buckets.keySet().stream().map(RollupId::getFeedName).collect(Collectors.toSet());
+            DateTime start = buckets.keySet().stream().map(RollupId::getBucketTime).min(DateTime::compareTo).get();
+            DateTime end = buckets.keySet().stream().map(RollupId::getBucketTime).max(DateTime::compareTo).get();
+            for (JpaNifiFeedProcessorStatsRollup existing : rollupRepository.findForUpdate(entry.getKey(), feedNames, start, end)) {
+                JpaNifiFeedProcessorStatsRollup rollup = buckets.get(existing.getId());
+                if (rollup != null) {
+                    existing.add(rollup);
+                    buckets.put(existing.getId(), existing);
+                }
+            }
+            rollupRepository.save(buckets.values());
+        }
+    }
+
+    @Override
+    public void markRollupFailed(List<? extends NifiFeedProcessorStats> stats) {
+        Map<String, List<DateTime>> eventTimes = stats.stream()
+            .filter(stat -> stat.getFeedName() != null && stat.getMinEventTime() != null)
+            .collect(Collectors.groupingBy(NifiFeedProcessorStats::getFeedName, Collectors.mapping(NifiFeedProcessorStats::getMinEventTime, Collectors.toList())));
+        for (Map.Entry<String, List<DateTime>> entry : eventTimes.entrySet()) {
+            DateTime min = entry.getValue().stream().min(DateTime::compareTo).get();
+            DateTime max = entry.getValue().stream().max(DateTime::compareTo).get();
+            backfillRepository.save(new JpaNifiFeedProcessorStatsBackfill(entry.getKey(), min, max));
+        }
+    }
+
+    /**
+     * Rebuilds the rollups of the windows marked by {@link #markRollupFailed(List)} once their day has ended, so no more stats are expected in any of their buckets.
+     * The minute rollups are summed from the saved stats, then each hour and day rollup is summed from the rollups of the next finer resolution.
+     * A window is dropped without being rebuilt if the rollups needed to rebuild it have been purged.
+     */
+    @Override
+    public int backfillFailedRollups() {
+        DateTime before = Resolution.DAY.bucketStart(DateTime.now().minusMinutes(BACKFILL_DELAY_MINUTES));
+        int rebuilt = 0;
+        for (JpaNifiFeedProcessorStatsBackfill backfill : backfillRepository.findEndingBefore(before)) {
+            if (isRollupRetained(backfill)) {
+                backfill(backfill);
+                rebuilt++;
+            } else {
+                log.warn("Unable to rebuild the rollups of feed {} between {} and {} as they have been purged", backfill.getFeedName(), backfill.getMinEventTime(), backfill.getMaxEventTime());
+            }
+            backfillRepository.delete(backfill);
+        }
+        if (rebuilt > 0) {
+            rollupStartTimes.invalidateAll();
+        }
+        return rebuilt;
+    }
+
+    /**
+     * Indicates if the finer rollups needed to rebuild the coarser rollups of the window are all still retained.
+     */
+    private boolean isRollupRetained(JpaNifiFeedProcessorStatsBackfill backfill) {
+        DateTime now = DateTime.now();
+        for (int i = 1; i < Resolution.values().length; i++) {
+            Resolution finer = Resolution.values()[i - 1];
+            int days = getRollupRetentionDays(finer);
+            if (days > 0 && Resolution.values()[i].bucketStart(backfill.getMinEventTime()).isBefore(finer.bucketStart(now.minusDays(days)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rebuilds the rollups of the feed in every bucket of the window, locking them in the same order as {@link #rollup(List)}.
+     */
+    private void backfill(JpaNifiFeedProcessorStatsBackfill backfill) {
+        String feedName = backfill.getFeedName();
+        Resolution minute = Resolution.MINUTE;
+        DateTime start = minute.bucketStart(backfill.getMinEventTime());
+        DateTime end = minute.bucketStart(backfill.getMaxEventTime()).plus(minute.getMillis());
+        replaceRollups(minute, feedName, start, end, JpaNifiFeedProcessorStatsRollup.of(minute, statisticsRepository.findForRollup(feedName, start, end)));
+
+        for (int i = 1; i < Resolution.values().length; i++) {
+            Resolution finer = Resolution.values()[i - 1];
+            Resolution resolution = Resolution.values()[i];
+            start = resolution.bucketStart(start);
+            end = resolution.bucketStart(end.minus(1)).plus(resolution.getMillis());
+            Map<RollupId, JpaNifiFeedProcessorStatsRollup> rollups = new HashMap<>();
+            for (JpaNifiFeedProcessorStatsRollup rollup : rollupRepository.findForUpdate(finer, Collections.singleton(feedName), start, end.minus(1))) {
+                RollupId id = new RollupId(resolution, feedName, rollup.getId().getProcessorId(), resolution.bucketStart(rollup.getId().getBucketTime()));
+                rollups.computeIfAbsent(id, JpaNifiFeedProcessorStatsRollup::new).add(rollup);
+            }
+            replaceRollups(resolution, feedName, start, end, rollups);
+        }
+    }
+
+    /**
+     * Replaces the rollups of the feed within the buckets from start, inclusive, to end, exclusive, deleting those without a replacement.
+     */
+    private void replaceRollups(Resolution resolution, String feedName, DateTime start, DateTime end, Map<RollupId, JpaNifiFeedProcessorStatsRollup> rollups) {
+        for (JpaNifiFeedProcessorStatsRollup existing : rollupRepository.findForUpdate(resolution, Collections.singleton(feedName), start, end.minus(1))) {
+            JpaNifiFeedProcessorStatsRollup rollup = rollups.remove(existing.getId());
+            if (rollup != null) {
+                existing.replace(rollup);
+                rollupRepository.save(existing);
+            } else {
+                rollupRepository.delete(existing);
+            }
+        }
+        rollupRepository.save(rollups.values());
+    }
+
+    @Override
+    public int purgeStatisticsRollups() {
+        DateTime now = DateTime.now();
+        int deleted = 0;
+        for (Resolution resolution : Resolution.values()) {
+            int days = getRollupRetentionDays(resolution);
+            if (days > 0) {
+                deleted += rollupRepository.deleteBefore(resolution, resolution.bucketStart(now.minusDays(days)));
+            }
+        }
+        rollupStartTimes.invalidateAll();
+        return deleted;
+    }
+
+    /**
+     * Gets the number of days to keep the rollups of a resolution
+     *
+     * @return the days, or 0 to keep the rollups forever
+     */
+    private int getRollupRetentionDays(Resolution resolution) {
+        switch (resolution) {
+            case MINUTE:
+                return minuteRollupRetentionDays;
+            case HOUR:
+                return hourRollupRetentionDays;
+            default:
+                return dayRollupRetentionDays;
+        }
+    }
+
     /**
      * Call the procedure to compact the NIFI_FEED_PROCESSOR_STATS table
      * @return a summary of what was compacted
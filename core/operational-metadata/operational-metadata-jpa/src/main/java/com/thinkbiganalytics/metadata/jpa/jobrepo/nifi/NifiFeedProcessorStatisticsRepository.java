@@ -51,6 +51,13 @@ public interface NifiFeedProcessorStatisticsRepository extends JpaRepository<Jpa
                    + "where stats.minEventTime between :startTime and :endTime ")
     List<JpaNifiFeedProcessorStats> findWithinTimeWindowWithoutAcl(@Param("startTime") DateTime start, @Param("endTime") DateTime end);
 
+    /**
+     * Finds the stats of the feed with a min event time in the window, which are the stats added to the rollups of the window.
+     */
+    @Query(value = "select stats from JpaNifiFeedProcessorStats as stats where stats.feedName = :feedName "
+                   + "and stats.minEventTime >= :startTime and stats.minEventTime < :endTime")
+    List<JpaNifiFeedProcessorStats> findForRollup(@Param("feedName") String feedName, @Param("startTime") DateTime start, @Param("endTime") DateTime end);
+
     @Query(value = "select max(stats.maxEventId) from JpaNifiFeedProcessorStats as stats")
     Long findMaxEventId();
 
@@ -0,0 +1,38 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.joda.time.DateTime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+/**
+ * Spring data repository for {@link JpaNifiFeedProcessorStatsBackfill}
+ */
+public interface NifiFeedProcessorStatsBackfillRepository extends JpaRepository<JpaNifiFeedProcessorStatsBackfill, String> {
+
+    @Query(value = "select backfill from JpaNifiFeedProcessorStatsBackfill as backfill where backfill.maxEventTime < :before order by backfill.createdTime")
+    List<JpaNifiFeedProcessorStatsBackfill> findEndingBefore(@Param("before") DateTime before);
+}
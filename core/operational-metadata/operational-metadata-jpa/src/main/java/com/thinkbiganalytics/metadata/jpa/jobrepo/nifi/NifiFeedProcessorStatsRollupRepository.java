@@ -0,0 +1,59 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.joda.time.DateTime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.querydsl.QueryDslPredicateExecutor;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.LockModeType;
+
+/**
+ * Spring data repository for {@link JpaNifiFeedProcessorStatsRollup}
+ */
+public interface NifiFeedProcessorStatsRollupRepository extends JpaRepository<JpaNifiFeedProcessorStatsRollup, JpaNifiFeedProcessorStatsRollup.RollupId>,
+                                                                QueryDslPredicateExecutor<JpaNifiFeedProcessorStatsRollup> {
+
+    @Query(value = "select min(rollup.id.bucketTime) from JpaNifiFeedProcessorStatsRollup as rollup where rollup.id.resolution = :resolution")
+    DateTime findMinBucketTime(@Param("resolution") JpaNifiFeedProcessorStatsRollup.Resolution resolution);
+
+    /**
+     * Finds the rollups of the feeds within the buckets, locking the rows for the remainder of the transaction.
+     * The rows are locked in primary key order so concurrent transactions rolling up the same feeds do not deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "select rollup from JpaNifiFeedProcessorStatsRollup as rollup where rollup.id.resolution = :resolution and rollup.id.feedName in :feedNames "
+                   + "and rollup.id.bucketTime >= :start and rollup.id.bucketTime <= :end "
+                   + "order by rollup.id.feedName, rollup.id.processorId, rollup.id.bucketTime")
+    List<JpaNifiFeedProcessorStatsRollup> findForUpdate(@Param("resolution") JpaNifiFeedProcessorStatsRollup.Resolution resolution, @Param("feedNames") Collection<String> feedNames,
+                                                        @Param("start") DateTime start, @Param("end") DateTime end);
+
+    @Modifying
+    @Query(value = "delete from JpaNifiFeedProcessorStatsRollup as rollup where rollup.id.resolution = :resolution and rollup.id.bucketTime < :before")
+    int deleteBefore(@Param("resolution") JpaNifiFeedProcessorStatsRollup.Resolution resolution, @Param("before") DateTime before);
+}
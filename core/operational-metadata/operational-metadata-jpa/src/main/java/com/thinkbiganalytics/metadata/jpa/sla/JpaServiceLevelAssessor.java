@@ -37,6 +37,7 @@ import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAssessment;
 import com.thinkbiganalytics.metadata.sla.spi.AssessorNotFoundException;
 import com.thinkbiganalytics.metadata.sla.spi.MetricAssessmentBuilder;
 import com.thinkbiganalytics.metadata.sla.spi.MetricAssessor;
+import com.thinkbiganalytics.metadata.sla.spi.MetricAssessorStatistics;
 import com.thinkbiganalytics.metadata.sla.spi.ObligationAssessmentBuilder;
 import com.thinkbiganalytics.metadata.sla.spi.ObligationAssessor;
 import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementProvider;
@@ -79,6 +80,8 @@ public class JpaServiceLevelAssessor implements ServiceLevelAssessor {
     private Set<ObligationAssessor<? extends Obligation>> obligationAssessors;
     private Set<MetricAssessor<? extends Metric, ? extends Serializable>> metricAssessors;
 
+    private final MetricAssessorStatistics metricAssessorStatistics = new MetricAssessorStatistics();
+
 
     public JpaServiceLevelAssessor() {
         this.obligationAssessors = Collections.synchronizedSet(new HashSet<ObligationAssessor<? extends Obligation>>());
@@ -258,6 +261,30 @@ public class JpaServiceLevelAssessor implements ServiceLevelAssessor {
         return this.defaultObligationAssessor;
     }
 
+    @Override
+    public Serializable getInputState(ServiceLevelAgreement sla) {
+        HashSet<Serializable> states = new HashSet<>();
+
+        try {
+            for (Metric metric : sla.getAllMetrics()) {
+                Serializable state = findAssessor(metric).getInputState(metric);
+                if (state == null) {
+                    return null;
+                }
+                states.add(state);
+            }
+        } catch (AssessorNotFoundException e) {
+            return null;
+        }
+
+        return states;
+    }
+
+    @Override
+    public MetricAssessorStatistics getMetricAssessorStatistics() {
+        return this.metricAssessorStatistics;
+    }
+
     @SuppressWarnings("unchecked")
     protected <M extends Metric> MetricAssessor<M, ?> findAssessor(M metric) {
         synchronized (this.metricAssessors) {
@@ -331,7 +358,12 @@ public class JpaServiceLevelAssessor implements ServiceLevelAssessor {
             MetricAssessor<M, ?> assessor = findAssessor(metric);
             MetricAssessmentBuilderImpl builder = new MetricAssessmentBuilderImpl(metric, this.assessment);
 
-            assessor.assess(metric, builder);
+            long start = System.nanoTime();
+            try {
+                assessor.assess(metric, builder);
+            } finally {
+                metricAssessorStatistics.record(assessor, System.nanoTime() - start);
+            }
             MetricAssessment<?> metricAssmt = builder.build();
             return metricAssmt;
         }
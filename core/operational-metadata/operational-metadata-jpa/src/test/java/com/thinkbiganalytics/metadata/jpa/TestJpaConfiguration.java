@@ -40,7 +40,6 @@ import org.springframework.context.annotation.Primary;
 
 import javax.sql.DataSource;
 
-import reactor.bus.EventBus;
 
 @EnableAutoConfiguration
 @ComponentScan(basePackages = {"com.thinkbiganalytics"})
@@ -79,16 +78,4 @@ public class TestJpaConfiguration {
     public ServiceLevelAgreementProvider slaProvider() {
         return new InMemorySLAProvider();
     }
-
-    @Bean(name = "alertsEventBus")
-    @Primary
-    public EventBus alertsEventBus() {
-        return Mockito.mock(EventBus.class);
-    }
-
-    @Bean(name = "respondableAlertsEventBus")
-    @Primary
-    public EventBus respondableAlertsEventBus() {
-        return Mockito.mock(EventBus.class);
-    }
 }
@@ -0,0 +1,104 @@
+package com.thinkbiganalytics.metadata.jpa.feed.security;
+
+/*-
+ * #%L
+ * kylo-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.feed.Feed;
+import com.thinkbiganalytics.metadata.api.feed.security.FeedOpsAclEntry.PrincipalType;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+public class FeedAclIndexTest {
+
+    private static final UUID FEED_1 = UUID.randomUUID();
+    private static final UUID FEED_2 = UUID.randomUUID();
+
+    private static final Set<String> ADMINS = Collections.singleton("admin");
+
+    /**
+     * Verify users can access the feeds granted to them or their groups.
+     */
+    @Test
+    public void hasAccess() {
+        FeedAclIndex index = new FeedAclIndex();
+        index.add(entry(FEED_1, "admin", PrincipalType.GROUP));
+        index.add(entry(FEED_2, "dladmin", PrincipalType.USER));
+
+        FeedAclIndex.AccessibleFeeds admin = index.getAccessibleFeeds("user", ADMINS);
+        Assert.assertTrue(admin.hasAccess(FEED_1.toString()));
+        Assert.assertFalse(admin.hasAccess(FEED_2.toString()));
+        Assert.assertFalse(admin.hasAccess(UUID.randomUUID().toString()));
+
+        FeedAclIndex.AccessibleFeeds dladmin = index.getAccessibleFeeds("dladmin", new HashSet<>(ADMINS));
+        Assert.assertTrue(dladmin.hasAccess(FEED_1.toString()));
+        Assert.assertTrue(dladmin.hasAccess(FEED_2.toString()));
+
+        Assert.assertFalse(index.getAccessibleFeeds("other", Collections.emptySet()).hasAccess(FEED_1.toString()));
+    }
+
+    /**
+     * Verify the accessible feeds are updated when entries are added and removed.
+     */
+    @Test
+    public void update() {
+        FeedAclIndex index = new FeedAclIndex();
+        JpaFeedOpsAclEntry entry = entry(FEED_1, "admin", PrincipalType.GROUP);
+        index.add(entry);
+        Assert.assertTrue(index.getAccessibleFeeds("user", ADMINS).hasAccess(FEED_1.toString()));
+        Assert.assertSame(index.getAccessibleFeeds("user", ADMINS), index.getAccessibleFeeds("user", ADMINS));
+
+        // another entry for the same principal still grants access
+        index.remove(entry, Collections.singletonList(entry(FEED_1, "admin", PrincipalType.GROUP)));
+        Assert.assertTrue(index.getAccessibleFeeds("user", ADMINS).hasAccess(FEED_1.toString()));
+
+        index.remove(entry, Collections.emptyList());
+        Assert.assertFalse(index.getAccessibleFeeds("user", ADMINS).hasAccess(FEED_1.toString()));
+
+        index.add(entry(FEED_2, "admin", PrincipalType.GROUP));
+        Assert.assertTrue(index.getAccessibleFeeds("user", ADMINS).hasAccess(FEED_2.toString()));
+
+        index.clear();
+        Assert.assertFalse(index.getAccessibleFeeds("user", ADMINS).hasAccess(FEED_2.toString()));
+    }
+
+    private JpaFeedOpsAclEntry entry(UUID feedId, String principalName, PrincipalType type) {
+        return new JpaFeedOpsAclEntry(new TestFeedId(feedId), principalName, type);
+    }
+
+    private static class TestFeedId implements Feed.ID {
+
+        private final UUID uuid;
+
+        TestFeedId(UUID uuid) {
+            this.uuid = uuid;
+        }
+
+        @Override
+        public String toString() {
+            return uuid.toString();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.thinkbiganalytics.metadata.jpa.job;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.cluster.ClusterService;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+import com.thinkbiganalytics.metadata.jpa.feed.JpaOpsManagerFeed;
+import com.thinkbiganalytics.metadata.jpa.feed.OpsManagerFeedRepository;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.BatchJobExecutionRepository;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.BatchJobInstanceRepository;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.BatchJobParametersRepository;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.BatchRelatedFlowFileRepository;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JobExecutionLocks;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecutionProvider;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.NifiRelatedRootFlowFilesRepository;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+
+/**
+ * Tests the {@link JobExecutionLocks} and the order in which the {@link JpaBatchJobExecutionProvider} takes them.
+ */
+public class JobExecutionLocksTest {
+
+    @Test
+    public void testSameKeySameLock() {
+        JobExecutionLocks locks = new JobExecutionLocks(16);
+        String flowFile = UUID.randomUUID().toString();
+        Assert.assertSame(locks.jobFlowFileLock(flowFile), locks.jobFlowFileLock(flowFile));
+        Assert.assertSame(locks.feedLock("category.feed"), locks.feedLock("category.feed"));
+        Assert.assertNotNull(locks.jobFlowFileLock(null));
+    }
+
+    @Test
+    public void testSameJobFlowFileIsSerialized() throws Exception {
+        JobExecutionLocks locks = new JobExecutionLocks();
+        String flowFile = UUID.randomUUID().toString();
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(executor.submit(() -> {
+                Lock lock = locks.jobFlowFileLock(flowFile);
+                lock.lock();
+                try {
+                    maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                    sleep(1L);
+                    concurrent.decrementAndGet();
+                } finally {
+                    lock.unlock();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Assert.assertEquals(1, maxConcurrent.get());
+    }
+
+    /**
+     * When clustered, a new batch job locks the feed row before taking the striped locks, so no thread waits for a feed row while holding a striped lock
+     */
+    @Test
+    public void testFeedRowLockedBeforeStripedLocksForNewJob() throws Exception {
+        ProvenanceEventRecordDTO event = newEvent();
+
+        assertFeedRowLockedWithoutStripedLocks(event);
+    }
+
+    /**
+     * When clustered, the start of a stream job locks the feed row before taking the striped feed lock
+     */
+    @Test
+    public void testFeedRowLockedBeforeStripedLocksForStream() throws Exception {
+        ProvenanceEventRecordDTO event = newEvent();
+        event.setStream(true);
+        event.setIsStartOfJob(true);
+
+        assertFeedRowLockedWithoutStripedLocks(event);
+    }
+
+    private void assertFeedRowLockedWithoutStripedLocks(ProvenanceEventRecordDTO event) {
+        JobExecutionLocks locks = new JobExecutionLocks(16);
+        ReentrantLock jobFlowFileLock = (ReentrantLock) locks.jobFlowFileLock(event.getJobFlowFileId());
+        ReentrantLock feedLock = (ReentrantLock) locks.feedLock(event.getFeedName());
+        AtomicInteger rowLocks = new AtomicInteger();
+
+        EntityManager entityManager = Mockito.mock(EntityManager.class);
+        Mockito.when(entityManager.find(Mockito.eq(JpaOpsManagerFeed.class), Mockito.any(), Mockito.eq(LockModeType.PESSIMISTIC_WRITE))).thenAnswer(invocation -> {
+            Assert.assertFalse("job flow file lock held while locking the feed row", jobFlowFileLock.isHeldByCurrentThread());
+            Assert.assertFalse("feed lock held while locking the feed row", feedLock.isHeldByCurrentThread());
+            rowLocks.incrementAndGet();
+            // stop here, the rest of the job creation is not under test
+            throw new IllegalStateException("feed row locked");
+        });
+
+        ClusterService clusterService = Mockito.mock(ClusterService.class);
+        Mockito.when(clusterService.isClustered()).thenReturn(true);
+
+        JpaBatchJobExecutionProvider provider = new JpaBatchJobExecutionProvider(Mockito.mock(BatchJobExecutionRepository.class), Mockito.mock(BatchJobInstanceRepository.class),
+                                                                                 Mockito.mock(NifiRelatedRootFlowFilesRepository.class), Mockito.mock(BatchJobParametersRepository.class),
+                                                                                 Mockito.mock(OpsManagerFeedRepository.class), Mockito.mock(BatchRelatedFlowFileRepository.class));
+        provider.setEntityManager(entityManager);
+        ReflectionTestUtils.setField(provider, "clusterService", clusterService);
+        ReflectionTestUtils.setField(provider, "jobExecutionLocks", locks);
+
+        OpsManagerFeed feed = Mockito.mock(OpsManagerFeed.class);
+        Mockito.when(feed.getId()).thenReturn(Mockito.mock(OpsManagerFeed.ID.class));
+
+        try {
+            provider.getOrCreateJobExecution(event, feed);
+            Assert.fail("Expected the feed row to be locked");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("feed row locked", e.getMessage());
+        }
+        Assert.assertEquals(1, rowLocks.get());
+    }
+
+    private ProvenanceEventRecordDTO newEvent() {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setJobFlowFileId(UUID.randomUUID().toString());
+        event.setFeedName("category.feed");
+        return event;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.thinkbiganalytics.metadata.jpa.job;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JobStatusSummaryBuffer;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobStatusSummary.SummaryId;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * Tests the {@link JobStatusSummaryBuffer}
+ */
+public class JobStatusSummaryBufferTest {
+
+    private static final String FEED = "category.feed";
+
+    private static final DateTime START = new DateTime(2017, 6, 15, 10, 30, DateTimeZone.UTC);
+
+    private JpaBatchJobExecution job(BatchJobExecution.JobStatus status, DateTime startTime) {
+        JpaBatchJobExecution jobExecution = new JpaBatchJobExecution();
+        jobExecution.setStartTime(startTime);
+        jobExecution.setStatus(status);
+        return jobExecution;
+    }
+
+    private SummaryId id(DateTime day, BatchJobExecution.JobStatus status) {
+        return new SummaryId(FEED, day.getYear(), day.getMonthOfYear(), day.getDayOfMonth(), status);
+    }
+
+    @Test
+    public void testAddGroupsByFeedDayAndStatus() {
+        JobStatusSummaryBuffer buffer = new JobStatusSummaryBuffer();
+        buffer.add(FEED, job(BatchJobExecution.JobStatus.COMPLETED, START));
+        buffer.add(FEED, job(BatchJobExecution.JobStatus.COMPLETED, START.plusHours(2)));
+        buffer.add(FEED, job(BatchJobExecution.JobStatus.FAILED, START));
+        buffer.add(FEED, job(BatchJobExecution.JobStatus.COMPLETED, START.plusDays(1)));
+
+        Map<SummaryId, Long> deltas = buffer.drain();
+        Assert.assertEquals(3, deltas.size());
+        Assert.assertEquals(Long.valueOf(2L), deltas.get(id(START, BatchJobExecution.JobStatus.COMPLETED)));
+        Assert.assertEquals(Long.valueOf(1L), deltas.get(id(START, BatchJobExecution.JobStatus.FAILED)));
+        Assert.assertEquals(Long.valueOf(1L), deltas.get(id(START.plusDays(1), BatchJobExecution.JobStatus.COMPLETED)));
+        Assert.assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testRunningJobsAreIgnored() {
+        JobStatusSummaryBuffer buffer = new JobStatusSummaryBuffer();
+        buffer.add(FEED, job(BatchJobExecution.JobStatus.STARTED, START));
+        buffer.add(FEED, job(BatchJobExecution.JobStatus.COMPLETED, null));
+        buffer.add(null, job(BatchJobExecution.JobStatus.COMPLETED, START));
+        Assert.assertTrue(buffer.drain().isEmpty());
+    }
+
+    @Test
+    public void testMoveBetweenStatuses() {
+        JobStatusSummaryBuffer buffer = new JobStatusSummaryBuffer();
+        JpaBatchJobExecution jobExecution = job(BatchJobExecution.JobStatus.FAILED, START);
+        buffer.add(FEED, jobExecution);
+        jobExecution.setStatus(BatchJobExecution.JobStatus.ABANDONED);
+        buffer.move(FEED, jobExecution, BatchJobExecution.JobStatus.FAILED);
+
+        Map<SummaryId, Long> deltas = buffer.drain();
+        Assert.assertEquals(1, deltas.size());
+        Assert.assertEquals(Long.valueOf(1L), deltas.get(id(START, BatchJobExecution.JobStatus.ABANDONED)));
+    }
+
+    /**
+     * A completed job that is manually failed moves from completed to failed, and a running job that fails is only added
+     */
+    @Test
+    public void testMoveFailedJob() {
+        JobStatusSummaryBuffer buffer = new JobStatusSummaryBuffer();
+        JpaBatchJobExecution completed = job(BatchJobExecution.JobStatus.COMPLETED, START);
+        buffer.add(FEED, completed);
+        completed.setStatus(BatchJobExecution.JobStatus.FAILED);
+        buffer.move(FEED, completed, BatchJobExecution.JobStatus.COMPLETED);
+        buffer.move(FEED, job(BatchJobExecution.JobStatus.FAILED, START), null);
+
+        Map<SummaryId, Long> deltas = buffer.drain();
+        Assert.assertEquals(1, deltas.size());
+        Assert.assertEquals(Long.valueOf(2L), deltas.get(id(START, BatchJobExecution.JobStatus.FAILED)));
+    }
+
+    @Test
+    public void testRestoreAndDiscard() {
+        JobStatusSummaryBuffer buffer = new JobStatusSummaryBuffer();
+        buffer.add(FEED, job(BatchJobExecution.JobStatus.COMPLETED, START));
+        Map<SummaryId, Long> failed = buffer.drain();
+        buffer.add(FEED, job(BatchJobExecution.JobStatus.COMPLETED, START));
+        buffer.add(FEED, job(BatchJobExecution.JobStatus.COMPLETED, START.minusDays(1)));
+        buffer.restore(failed);
+
+        buffer.discardSince(START.withTimeAtStartOfDay());
+        Map<SummaryId, Long> deltas = buffer.drain();
+        Assert.assertEquals(1, deltas.size());
+        Assert.assertEquals(Long.valueOf(1L), deltas.get(id(START.minusDays(1), BatchJobExecution.JobStatus.COMPLETED)));
+    }
+}
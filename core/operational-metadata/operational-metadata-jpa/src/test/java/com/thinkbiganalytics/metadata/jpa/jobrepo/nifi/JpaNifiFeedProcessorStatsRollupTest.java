@@ -0,0 +1,125 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStatisticsProvider.TimeFrame;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiFeedProcessorStatsRollup.Resolution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiFeedProcessorStatsRollup.RollupId;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+public class JpaNifiFeedProcessorStatsRollupTest {
+
+    private static final DateTime NOW = new DateTime(2017, 6, 15, 10, 42, 17, 250, DateTimeZone.UTC);
+
+    /**
+     * Verify times are truncated to the start of their bucket.
+     */
+    @Test
+    public void bucketStart() {
+        Assert.assertEquals(new DateTime(2017, 6, 15, 10, 42, DateTimeZone.UTC), Resolution.MINUTE.bucketStart(NOW));
+        Assert.assertEquals(new DateTime(2017, 6, 15, 10, 0, DateTimeZone.UTC), Resolution.HOUR.bucketStart(NOW));
+        Assert.assertEquals(new DateTime(2017, 6, 15, 0, 0, DateTimeZone.UTC), Resolution.DAY.bucketStart(NOW));
+    }
+
+    /**
+     * Verify the coarsest resolution that still spans enough buckets is chosen for a time frame.
+     */
+    @Test
+    public void forWindow() {
+        Assert.assertNull(Resolution.forWindow(TimeFrame.HOUR.startTimeRelativeTo(NOW), NOW));
+        Assert.assertEquals(Resolution.MINUTE, Resolution.forWindow(TimeFrame.THREE_HOUR.startTimeRelativeTo(NOW), NOW));
+        Assert.assertEquals(Resolution.MINUTE, Resolution.forWindow(TimeFrame.THREE_DAYS.startTimeRelativeTo(NOW), NOW));
+        Assert.assertEquals(Resolution.HOUR, Resolution.forWindow(TimeFrame.WEEK.startTimeRelativeTo(NOW), NOW));
+        Assert.assertEquals(Resolution.HOUR, Resolution.forWindow(TimeFrame.THREE_MONTHS.startTimeRelativeTo(NOW), NOW));
+        Assert.assertEquals(Resolution.DAY, Resolution.forWindow(TimeFrame.YEAR.startTimeRelativeTo(NOW), NOW));
+    }
+
+    /**
+     * Verify stats and rollups of the same bucket are summed.
+     */
+    @Test
+    public void add() {
+        RollupId id = new RollupId(Resolution.HOUR, "category.feed", "processor", Resolution.HOUR.bucketStart(NOW));
+        JpaNifiFeedProcessorStatsRollup rollup = new JpaNifiFeedProcessorStatsRollup(id);
+        rollup.add(stats(NOW.minusMinutes(10), 2L));
+        rollup.add(stats(NOW, 3L));
+
+        JpaNifiFeedProcessorStatsRollup other = new JpaNifiFeedProcessorStatsRollup(id);
+        other.add(stats(NOW.minusMinutes(30), 5L));
+        rollup.add(other);
+
+        Assert.assertEquals(10L, rollup.getJobsStarted().longValue());
+        Assert.assertEquals(3L, rollup.getStatsCount().longValue());
+        Assert.assertEquals(NOW.minusMinutes(30), rollup.getMinEventTime());
+        Assert.assertEquals(NOW.plusSeconds(1), rollup.getMaxEventTime());
+        Assert.assertEquals("Processor", rollup.getProcessorName());
+        Assert.assertEquals(id, new RollupId(Resolution.HOUR, "category.feed", "processor", new DateTime(2017, 6, 15, 10, 0, DateTimeZone.UTC)));
+    }
+
+    /**
+     * Verify stats are summed into the bucket of their min event time, skipping stats that cannot be rolled up.
+     */
+    @Test
+    public void of() {
+        JpaNifiFeedProcessorStats noEventTime = new JpaNifiFeedProcessorStats("category.feed", "processor");
+        Map<RollupId, JpaNifiFeedProcessorStatsRollup> rollups = JpaNifiFeedProcessorStatsRollup.of(Resolution.MINUTE, Arrays.asList(stats(NOW, 1L), stats(NOW.plusSeconds(10), 2L),
+                                                                                                                                   stats(NOW.plusMinutes(1), 4L), noEventTime));
+        Assert.assertEquals(2, rollups.size());
+        Assert.assertEquals(3L, rollups.get(new RollupId(Resolution.MINUTE, "category.feed", "processor", Resolution.MINUTE.bucketStart(NOW))).getJobsStarted().longValue());
+        Assert.assertEquals(4L, rollups.get(new RollupId(Resolution.MINUTE, "category.feed", "processor", Resolution.MINUTE.bucketStart(NOW.plusMinutes(1)))).getJobsStarted().longValue());
+    }
+
+    /**
+     * Verify a rebuilt rollup replaces the sums of an existing rollup.
+     */
+    @Test
+    public void replace() {
+        RollupId id = new RollupId(Resolution.HOUR, "category.feed", "processor", Resolution.HOUR.bucketStart(NOW));
+        JpaNifiFeedProcessorStatsRollup existing = new JpaNifiFeedProcessorStatsRollup(id);
+        existing.add(stats(NOW.minusMinutes(30), 5L));
+
+        JpaNifiFeedProcessorStatsRollup rebuilt = new JpaNifiFeedProcessorStatsRollup(id);
+        rebuilt.add(stats(NOW.minusMinutes(10), 2L));
+        rebuilt.add(stats(NOW, 3L));
+        existing.replace(rebuilt);
+
+        Assert.assertEquals(5L, existing.getJobsStarted().longValue());
+        Assert.assertEquals(2L, existing.getStatsCount().longValue());
+        Assert.assertEquals(NOW.minusMinutes(10), existing.getMinEventTime());
+        Assert.assertEquals(NOW.plusSeconds(1), existing.getMaxEventTime());
+    }
+
+    private JpaNifiFeedProcessorStats stats(DateTime minEventTime, Long jobsStarted) {
+        JpaNifiFeedProcessorStats stats = new JpaNifiFeedProcessorStats("category.feed", "processor");
+        stats.setProcessorName("Processor");
+        stats.setMinEventTime(minEventTime);
+        stats.setMaxEventTime(minEventTime.plusSeconds(1));
+        stats.setJobsStarted(jobsStarted);
+        return stats;
+    }
+}
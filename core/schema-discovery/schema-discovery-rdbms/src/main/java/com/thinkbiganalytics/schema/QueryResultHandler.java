@@ -0,0 +1,50 @@
+package com.thinkbiganalytics.schema;
+
+/*-
+ * #%L
+ * kylo-schema-discovery-rdbms
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.discovery.schema.QueryResultColumn;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receives the rows of a query as they are read from the result set.
+ *
+ * @see QueryRunner#stream(String, int, QueryResultHandler)
+ */
+public interface QueryResultHandler {
+
+    /**
+     * Called once with the result columns before any rows are read.
+     *
+     * @param columns the result columns
+     */
+    void onColumns(@Nonnull List<QueryResultColumn> columns);
+
+    /**
+     * Called for each row in the result set.
+     *
+     * @param row the column values, in the order given to {@link #onColumns(List)}
+     * @return {@code true} if the row was accepted and more rows should be read, or {@code false} if the row was not accepted and the result set should be closed
+     */
+    boolean onRow(@Nonnull Object[] row);
+}
@@ -31,10 +31,12 @@ import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.StatementCallback;
 
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -105,6 +107,53 @@ public class QueryRunner {
         return queryResult;
     }
 
+    /**
+     * Executes the specified SELECT query and passes each row to the handler as it is read.
+     *
+     * <p>Rows are not collected in memory. The result set is closed as soon as the handler returns {@code false} from {@link QueryResultHandler#onRow(Object[])}.</p>
+     *
+     * @param query     the SELECT query
+     * @param fetchSize the number of rows to fetch from the server at a time, or 0 for the driver default
+     * @param handler   receives the columns and rows
+     * @return the number of rows accepted by the handler
+     * @throws DataAccessException if the query cannot be executed
+     */
+    public long stream(@Nonnull final String query, final int fetchSize, @Nonnull final QueryResultHandler handler) {
+        // Validate the query
+        if (!validateQuery(query)) {
+            throw new DataRetrievalFailureException("Invalid query: " + query);
+        }
+
+        // Execute the query
+        final Long count = jdbcTemplate.execute(new StatementCallback<Long>() {
+            @Override
+            public Long doInStatement(Statement stmt) throws SQLException {
+                if (fetchSize > 0) {
+                    stmt.setFetchSize(fetchSize);
+                }
+
+                try (final ResultSet rs = stmt.executeQuery(query)) {
+                    final List<QueryResultColumn> columns = QueryRunner.this.createColumns(rs.getMetaData());
+                    handler.onColumns(columns);
+
+                    long rows = 0;
+                    while (rs.next()) {
+                        final Object[] row = new Object[columns.size()];
+                        for (int i = 0; i < row.length; ++i) {
+                            row[i] = rs.getObject(i + 1);
+                        }
+                        if (!handler.onRow(row)) {
+                            break;
+                        }
+                        ++rows;
+                    }
+                    return rows;
+                }
+            }
+        });
+        return (count != null) ? count : 0;
+    }
+
     /**
      * Initializes the query result with the specified metadata.
      *
@@ -113,6 +162,18 @@ public class QueryRunner {
      * @throws SQLException if the metadata is not available
      */
     private void initQueryResult(@Nonnull final DefaultQueryResult queryResult, @Nonnull final ResultSetMetaData rsMetaData) throws SQLException {
+        queryResult.setColumns(createColumns(rsMetaData));
+    }
+
+    /**
+     * Creates the result columns from the specified metadata.
+     *
+     * @param rsMetaData the result set metadata for the query
+     * @return the result columns
+     * @throws SQLException if the metadata is not available
+     */
+    @Nonnull
+    private List<QueryResultColumn> createColumns(@Nonnull final ResultSetMetaData rsMetaData) throws SQLException {
         final List<QueryResultColumn> columns = new ArrayList<>();
         final Map<String, Integer> displayNameMap = new HashMap<>();
 
@@ -146,7 +207,7 @@ public class QueryRunner {
             columns.add(column);
         }
 
-        queryResult.setColumns(columns);
+        return columns;
     }
 
     /**
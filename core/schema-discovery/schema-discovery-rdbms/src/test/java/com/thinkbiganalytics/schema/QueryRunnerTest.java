@@ -0,0 +1,135 @@
+package com.thinkbiganalytics.schema;
+
+/*-
+ * #%L
+ * kylo-schema-discovery-rdbms
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.discovery.schema.QueryResultColumn;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+public class QueryRunnerTest {
+
+    private EmbeddedDatabase database;
+
+    @Before
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).build();
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE users (id INT, name VARCHAR(32))");
+        for (int i = 1; i <= 5; ++i) {
+            jdbcTemplate.update("INSERT INTO users VALUES (?, ?)", i, "user" + i);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    /**
+     * Verify streaming every row of a query.
+     */
+    @Test
+    public void stream() {
+        final CollectingHandler handler = new CollectingHandler(Integer.MAX_VALUE);
+        final long count = new QueryRunner(database).stream("SELECT id, name FROM users ORDER BY id", 2, handler);
+
+        Assert.assertEquals(5, count);
+        Assert.assertEquals(2, handler.columns.size());
+        Assert.assertEquals("ID", handler.columns.get(0).getDisplayName());
+        Assert.assertEquals("NAME", handler.columns.get(1).getDisplayName());
+        Assert.assertEquals(5, handler.rows.size());
+        Assert.assertArrayEquals(new Object[]{5, "user5"}, handler.rows.get(4));
+    }
+
+    /**
+     * Verify the stream ends when the handler stops it.
+     */
+    @Test
+    public void streamStopped() {
+        final CollectingHandler handler = new CollectingHandler(3);
+        final long count = new QueryRunner(database).stream("SELECT id, name FROM users ORDER BY id", 0, handler);
+
+        Assert.assertEquals(3, count);
+        Assert.assertEquals(3, handler.rows.size());
+        Assert.assertArrayEquals(new Object[]{3, "user3"}, handler.rows.get(2));
+    }
+
+    /**
+     * Verify a row the handler does not accept is not counted.
+     */
+    @Test
+    public void streamNoneAccepted() {
+        final CollectingHandler handler = new CollectingHandler(0);
+        final long count = new QueryRunner(database).stream("SELECT id, name FROM users ORDER BY id", 0, handler);
+
+        Assert.assertEquals(0, count);
+        Assert.assertEquals(2, handler.columns.size());
+    }
+
+    /**
+     * Verify streaming rejects non-SELECT queries.
+     */
+    @Test(expected = DataRetrievalFailureException.class)
+    public void streamInvalid() {
+        new QueryRunner(database).stream("DROP TABLE users", 0, new CollectingHandler(0));
+    }
+
+    /**
+     * Collects rows up to a limit.
+     */
+    private static class CollectingHandler implements QueryResultHandler {
+
+        final int limit;
+        List<QueryResultColumn> columns;
+        final List<Object[]> rows = new ArrayList<>();
+
+        CollectingHandler(final int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void onColumns(@Nonnull final List<QueryResultColumn> columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public boolean onRow(@Nonnull final Object[] row) {
+            if (rows.size() >= limit) {
+                return false;
+            }
+            rows.add(row);
+            return true;
+        }
+    }
+}
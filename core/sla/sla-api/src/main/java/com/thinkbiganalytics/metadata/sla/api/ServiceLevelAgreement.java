@@ -53,6 +53,13 @@ public interface ServiceLevelAgreement {
      */
     DateTime getCreatedTime();
 
+    /**
+     * @return the time when this SLA was last modified
+     */
+    default DateTime getModifiedTime() {
+        return getCreatedTime();
+    }
+
     /**
      * @return a description of this SLA
      */
@@ -47,4 +47,17 @@ public interface MetricAssessor<M extends Metric, D extends Serializable> {
      * @param builder the builder that this assessor should use to generate the assessment
      */
     void assess(M metric, MetricAssessmentBuilder<D> builder);
+
+    /**
+     * Describes the data that an assessment of the given metric would be based on.  If the state is the same as it
+     * was when the metric was last assessed then the assessment would also be the same and may be skipped.
+     * Assessors whose results depend on anything other than their input data, such as the current time, should
+     * return null.
+     *
+     * @param metric the metric to describe
+     * @return a value that is equal only for identical inputs, or null if it cannot be determined
+     */
+    default Serializable getInputState(M metric) {
+        return null;
+    }
 }
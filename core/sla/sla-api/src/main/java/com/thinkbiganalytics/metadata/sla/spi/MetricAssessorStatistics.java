@@ -0,0 +1,93 @@
+package com.thinkbiganalytics.metadata.sla.spi;
+
+/*-
+ * #%L
+ * thinkbig-sla-api
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records how long each kind of {@link MetricAssessor} takes to assess its metrics.
+ */
+public class MetricAssessorStatistics {
+
+    private final Map<String, Latency> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * Records a single metric assessment.
+     *
+     * @param assessor the assessor that performed the assessment
+     * @param nanos    the time the assessment took in nanoseconds
+     */
+    public void record(MetricAssessor<?, ?> assessor, long nanos) {
+        this.latencies.computeIfAbsent(assessor.getClass().getSimpleName(), name -> new Latency()).record(nanos);
+    }
+
+    /**
+     * @return the latencies recorded so far keyed by the simple class name of the assessor
+     */
+    public Map<String, Latency> getLatencies() {
+        return Collections.unmodifiableMap(new TreeMap<>(this.latencies));
+    }
+
+    @Override
+    public String toString() {
+        return getLatencies().toString();
+    }
+
+    /**
+     * The accumulated latency of one kind of assessor.
+     */
+    public static class Latency {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos) {
+            this.count.increment();
+            this.totalNanos.add(nanos);
+            this.maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getCount() {
+            return this.count.sum();
+        }
+
+        public long getAverageMillis() {
+            long count = getCount();
+            return count > 0 ? TimeUnit.NANOSECONDS.toMillis(this.totalNanos.sum() / count) : 0L;
+        }
+
+        public long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(this.maxNanos.get());
+        }
+
+        @Override
+        public String toString() {
+            return "[count=" + getCount() + ", avgMillis=" + getAverageMillis() + ", maxMillis=" + getMaxMillis() + "]";
+        }
+    }
+}
@@ -61,4 +61,21 @@ public interface ServiceLevelAssessor {
      * @return the same assessor (aids registration of new assessor beans in spring by providing this method as a factory method)
      */
     MetricAssessor<? extends Metric, ? extends Serializable> registerMetricAssessor(MetricAssessor<? extends Metric, ? extends Serializable> assessor);
+
+    /**
+     * Combines the {@link MetricAssessor#getInputState(Metric) input states} of all of the metrics of an SLA.
+     *
+     * @param sla the SLA
+     * @return the combined input state, or null if any of the metrics cannot describe its input state
+     */
+    default Serializable getInputState(ServiceLevelAgreement sla) {
+        return null;
+    }
+
+    /**
+     * @return the latencies of the metric assessors used by this assessor, or null if they are not recorded
+     */
+    default MetricAssessorStatistics getMetricAssessorStatistics() {
+        return null;
+    }
 }
@@ -0,0 +1,123 @@
+package com.thinkbiganalytics.metadata.sla.spi.core;
+
+/*-
+ * #%L
+ * thinkbig-sla-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.Throwables;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * Shares the data looked up by metric assessors between all of the SLAs assessed during a single
+ * {@link DefaultServiceLevelAgreementChecker#checkAgreements() check}, so that the metrics of every SLA
+ * watching the same feed are served by one query.  Outside of a check the lookups are not cached.
+ */
+public class AssessmentDataCache {
+
+    private static final ThreadLocal<AssessmentDataCache> CURRENT = new ThreadLocal<>();
+
+    private final ConcurrentMap<Key, Future<Optional<Object>>> values = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the value previously loaded for the key during the current check, or loads it now.  The value is
+     * loaded outside of the map, and threads asking for the same key while it is loading wait for the result.
+     * A failed load is not cached.
+     *
+     * @param type   the kind of data being looked up, such as "lastFeedJob"
+     * @param id     the identifier of the data, such as a feed name
+     * @param loader loads the value when it is not already cached; may return null
+     * @return the cached or loaded value
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> V get(String type, Object id, Supplier<V> loader) {
+        AssessmentDataCache cache = CURRENT.get();
+
+        if (cache == null) {
+            return loader.get();
+        } else {
+            Key key = new Key(type, id);
+            Future<Optional<Object>> future = cache.values.get(key);
+
+            if (future == null) {
+                FutureTask<Optional<Object>> task = new FutureTask<>(() -> Optional.ofNullable(loader.get()));
+                future = cache.values.putIfAbsent(key, task);
+
+                if (future == null) {
+                    future = task;
+                    task.run();
+                }
+            }
+
+            try {
+                return (V) future.get().orElse(null);
+            } catch (ExecutionException e) {
+                cache.values.remove(key, future);
+                throw Throwables.propagate(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for " + type + " " + id, e);
+            }
+        }
+    }
+
+    /**
+     * Makes this cache available to assessors running on the current thread until {@link #exit()} is called.
+     */
+    public void enter() {
+        CURRENT.set(this);
+    }
+
+    /**
+     * Ends the use of this cache on the current thread.
+     */
+    public void exit() {
+        CURRENT.remove();
+    }
+
+    public int size() {
+        return this.values.size();
+    }
+
+    private static class Key {
+
+        private final Object[] parts;
+
+        Key(Object... parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && Arrays.equals(this.parts, ((Key) obj).parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(this.parts);
+        }
+    }
+}
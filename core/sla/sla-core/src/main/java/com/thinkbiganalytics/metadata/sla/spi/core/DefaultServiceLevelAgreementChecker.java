@@ -32,14 +32,31 @@ import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAssessmentProvider;
 import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAssessor;
 import com.thinkbiganalytics.security.role.SecurityRole;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -68,27 +85,165 @@ public class DefaultServiceLevelAgreementChecker implements ServiceLevelAgreemen
     //store a ref to the last Assessment ID that was alerted
     protected Map<ServiceLevelAgreement.ID, ServiceLevelAssessment.ID> alertedAssessments;
 
+    /** The state of each SLA and its assessor inputs when it was last assessed by {@link #checkAgreements()} */
+    private final Map<ServiceLevelAgreement.ID, AssessedState> lastInputStates = new ConcurrentHashMap<>();
+
+    private final CheckStatistics checkStatistics = new CheckStatistics();
+
+    /** Number of SLAs assessed concurrently by {@link #checkAgreements()}; 1 assesses them serially in the caller's transaction */
+    private int workerThreads = 4;
+
+    /** Whether {@link #checkAgreements()} skips SLAs whose assessor inputs have not changed since their last assessment */
+    private boolean skipUnchanged = true;
+
 
     public DefaultServiceLevelAgreementChecker() {
         this.alertedAssessments = Collections
             .synchronizedMap(new LinkedHashMap<ServiceLevelAgreement.ID, ServiceLevelAssessment.ID>());
     }
 
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = Math.max(1, workerThreads);
+    }
+
+    public void setSkipUnchanged(boolean skipUnchanged) {
+        this.skipUnchanged = skipUnchanged;
+    }
+
+    /**
+     * @return the durations and counts of the checks performed by {@link #checkAgreements()}
+     */
+    public CheckStatistics getCheckStatistics() {
+        return checkStatistics;
+    }
+
     /**
      * Caller should wrap this in commit
      */
     public void checkAgreements() {
         List<? extends ServiceLevelAgreement> list = slaProvider.getAgreements();
+        List<ServiceLevelAgreement.ID> ids = list.stream().map(ServiceLevelAgreement::getId).collect(Collectors.toList());
 
         LOG.info("Checking {} service level agreements", list.size());
 
-        for (ServiceLevelAgreement agreement : list) {
-            checkAgreement(agreement);
+        // Forget the states of SLAs that have been deleted
+        Set<ServiceLevelAgreement.ID> current = new HashSet<>(ids);
+        this.lastInputStates.keySet().retainAll(current);
+
+        long start = System.currentTimeMillis();
+        AssessmentDataCache cache = new AssessmentDataCache();
+        CheckCounts counts = new CheckCounts();
+
+        if (this.workerThreads <= 1 || list.size() <= 1) {
+            // The states are only recorded once every SLA has been assessed without an error
+            Map<ServiceLevelAgreement.ID, AssessedState> assessedStates = new LinkedHashMap<>();
+            cache.enter();
+            try {
+                for (ServiceLevelAgreement agreement : list) {
+                    assessedStates.put(agreement.getId(), checkAgreementIfChanged(agreement, counts));
+                }
+            } finally {
+                cache.exit();
+            }
+            assessedStates.forEach(this::recordState);
+        } else {
+            checkAgreementsInParallel(ids, cache, counts);
+        }
+
+        long duration = System.currentTimeMillis() - start;
+        this.checkStatistics.record(duration, counts);
+
+        LOG.info("Completed checking SLAs in {} ms: {} assessed, {} unchanged, {} failed, {} shared lookups",
+                 duration, counts.assessed.get(), counts.skipped.get(), counts.failed.get(), cache.size());
+        if (LOG.isDebugEnabled() && this.assessor.getMetricAssessorStatistics() != null) {
+            LOG.debug("Metric assessor latencies: {}", this.assessor.getMetricAssessorStatistics());
+        }
+    }
+
+    /**
+     * Assesses each SLA on a bounded pool of worker threads.  The SLAs are looked up again by ID on the worker
+     * so that each one is assessed within the worker's own transaction, and the state of an SLA is only recorded
+     * once that transaction has completed.
+     */
+    private void checkAgreementsInParallel(List<ServiceLevelAgreement.ID> ids, AssessmentDataCache cache, CheckCounts counts) {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(this.workerThreads, ids.size()),
+                                                            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("sla-checker-%d").build());
+        try {
+            List<Future<?>> futures = new ArrayList<>(ids.size());
+
+            for (ServiceLevelAgreement.ID id : ids) {
+                futures.add(pool.submit(() -> {
+                    AtomicReference<AssessedState> assessedState = new AtomicReference<>();
+                    cache.enter();
+                    try {
+                        executeInWorker(() -> assessedState.set(checkAgreementIfChanged(slaProvider.getAgreement(id), counts)));
+                        recordState(id, assessedState.get());
+                    } catch (Exception e) {
+                        counts.failed.incrementAndGet();
+                        LOG.error("Failed to check SLA {}", id, e);
+                    } finally {
+                        cache.exit();
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted while checking SLAs");
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOG.error("Failed to check SLAs", e.getCause());
+        } finally {
+            pool.shutdownNow();
         }
+    }
 
-        LOG.info("Completed checking SLAs");
+    /**
+     * Runs the assessment of a single SLA on a worker thread.  Subclasses should override this to wrap the task in
+     * a transaction.
+     */
+    protected void executeInWorker(Runnable task) {
+        task.run();
+    }
 
+    /**
+     * Assesses the SLA unless its inputs have not changed since it was last assessed.
+     *
+     * @return the state the SLA was assessed in, or null if it was not assessed
+     */
+    private AssessedState checkAgreementIfChanged(ServiceLevelAgreement agreement, CheckCounts counts) {
+        if (agreement == null) {
+            return null;
+        }
+
+        Serializable inputs = this.skipUnchanged ? this.assessor.getInputState(agreement) : null;
+        AssessedState inputState = new AssessedState(agreement.getModifiedTime(), inputs);
+
+        if (inputs != null && inputState.equals(this.lastInputStates.get(agreement.getId()))) {
+            LOG.debug("Skipping SLA {} as its inputs have not changed since it was last assessed", agreement.getName());
+            counts.skipped.incrementAndGet();
+            return null;
+        } else {
+            boolean assessed = assessAgreement(agreement);
+            counts.assessed.incrementAndGet();
+            return assessed ? inputState : new AssessedState(agreement.getModifiedTime(), null);
+        }
+    }
 
+    /**
+     * Records the state an SLA was assessed in so it is skipped until its inputs change.  An SLA whose inputs
+     * are unknown or whose assessment failed is forgotten so it is assessed again by the next check.
+     */
+    private void recordState(ServiceLevelAgreement.ID id, AssessedState state) {
+        if (state == null) {
+            return;
+        } else if (state.inputs != null) {
+            this.lastInputStates.put(id, state);
+        } else {
+            this.lastInputStates.remove(id);
+        }
     }
 
     /**
@@ -96,33 +251,41 @@ public class DefaultServiceLevelAgreementChecker implements ServiceLevelAgreemen
      */
     public void checkAgreement(ServiceLevelAgreement agreement) {
         if (agreement != null) {
-            Alert newAlert = null;
-            if (isAssessable(agreement)) {
-                LOG.info("Assessing SLA  : " + agreement.getName());
+            assessAgreement(agreement);
+        }
+    }
+
+    /**
+     * @return true if the agreement was assessed
+     */
+    private boolean assessAgreement(ServiceLevelAgreement agreement) {
+        boolean assessed = false;
+        Alert newAlert = null;
+        if (isAssessable(agreement)) {
+            LOG.info("Assessing SLA  : " + agreement.getName());
 
-                try {
-                    ServiceLevelAssessment assessment = assessor.assess(agreement);
+            try {
+                ServiceLevelAssessment assessment = assessor.assess(agreement);
+                assessed = true;
 
-                    if (shouldAlert(agreement, assessment)) {
-                        newAlert = alertManager.createEntityAlert(AssessmentAlerts.VIOLATION_ALERT_TYPE,
-                                                       Alert.Level.FATAL,
-                                                       "Violation of SLA: " + agreement.getName(), alertManager.createEntityIdentificationAlertContent(agreement.getId().toString(),
-                                                                                                                                                       SecurityRole.ENTITY_TYPE.SLA,assessment.getId()));
+                if (shouldAlert(agreement, assessment)) {
+                    newAlert = alertManager.createEntityAlert(AssessmentAlerts.VIOLATION_ALERT_TYPE,
+                                                   Alert.Level.FATAL,
+                                                   "Violation of SLA: " + agreement.getName(), alertManager.createEntityIdentificationAlertContent(agreement.getId().toString(),
+                                                                                                                                                   SecurityRole.ENTITY_TYPE.SLA,assessment.getId()));
 
 
-                    }
-                } catch (AssessorNotFoundException e) {
-                    LOG.info("SLA assessment failed.  Assessor Not found: {} - Exception: {}", agreement.getName(), e);
                 }
-            }
-            if (newAlert != null) {
-                // Record this assessment as the latest for this SLA.
-                alertedAssessments.put(agreement.getId(), (ServiceLevelAssessment.ID) newAlert.getContent());
-                LOG.info("SLA assessment failed: {} - generated alert: {}", agreement.getName(), newAlert.getId());
+            } catch (AssessorNotFoundException e) {
+                LOG.info("SLA assessment failed.  Assessor Not found: {} - Exception: {}", agreement.getName(), e);
             }
         }
-
-
+        if (newAlert != null) {
+            // Record this assessment as the latest for this SLA.
+            alertedAssessments.put(agreement.getId(), (ServiceLevelAssessment.ID) newAlert.getContent());
+            LOG.info("SLA assessment failed: {} - generated alert: {}", agreement.getName(), newAlert.getId());
+        }
+        return assessed;
     }
 
 
@@ -165,5 +328,87 @@ public class DefaultServiceLevelAgreementChecker implements ServiceLevelAgreemen
         return true;
     }
 
+    /**
+     * The modification time of an SLA and the combined input state of its metrics, so that changing the SLA's
+     * obligations causes it to be assessed again even when its inputs have not changed.
+     */
+    private static class AssessedState {
+
+        private final DateTime modifiedTime;
+        private final Serializable inputs;
+
+        AssessedState(DateTime modifiedTime, Serializable inputs) {
+            this.modifiedTime = modifiedTime;
+            this.inputs = inputs;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof AssessedState)) {
+                return false;
+            }
+            AssessedState that = (AssessedState) obj;
+            return Objects.equals(this.modifiedTime, that.modifiedTime) && Objects.equals(this.inputs, that.inputs);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.modifiedTime, this.inputs);
+        }
+    }
+
+    private static class CheckCounts {
+
+        private final AtomicInteger assessed = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+    }
+
+    /**
+     * Durations and counts of the checks performed by {@link #checkAgreements()}.
+     */
+    public static class CheckStatistics {
+
+        private final AtomicLong checks = new AtomicLong();
+        private final AtomicLong maxDurationMillis = new AtomicLong();
+        private volatile long lastDurationMillis;
+        private volatile int lastAssessed;
+        private volatile int lastSkipped;
+        private volatile int lastFailed;
+
+        private void record(long durationMillis, CheckCounts counts) {
+            this.checks.incrementAndGet();
+            this.maxDurationMillis.accumulateAndGet(durationMillis, Math::max);
+            this.lastDurationMillis = durationMillis;
+            this.lastAssessed = counts.assessed.get();
+            this.lastSkipped = counts.skipped.get();
+            this.lastFailed = counts.failed.get();
+        }
+
+        public long getChecks() {
+            return checks.get();
+        }
+
+        public long getMaxDurationMillis() {
+            return maxDurationMillis.get();
+        }
+
+        public long getLastDurationMillis() {
+            return lastDurationMillis;
+        }
+
+        public int getLastAssessed() {
+            return lastAssessed;
+        }
+
+        public int getLastSkipped() {
+            return lastSkipped;
+        }
+
+        public int getLastFailed() {
+            return lastFailed;
+        }
+    }
+
 
 }
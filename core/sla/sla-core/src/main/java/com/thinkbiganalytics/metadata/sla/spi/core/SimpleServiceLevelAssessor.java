@@ -34,6 +34,7 @@ import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAssessment;
 import com.thinkbiganalytics.metadata.sla.spi.AssessorNotFoundException;
 import com.thinkbiganalytics.metadata.sla.spi.MetricAssessmentBuilder;
 import com.thinkbiganalytics.metadata.sla.spi.MetricAssessor;
+import com.thinkbiganalytics.metadata.sla.spi.MetricAssessorStatistics;
 import com.thinkbiganalytics.metadata.sla.spi.ObligationAssessmentBuilder;
 import com.thinkbiganalytics.metadata.sla.spi.ObligationAssessor;
 import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAssessor;
@@ -65,6 +66,8 @@ public class SimpleServiceLevelAssessor implements ServiceLevelAssessor {
 
     private Map<ServiceLevelAgreement.ID, ServiceLevelAssessment> lastAssessments = new HashMap<>();
 
+    private final MetricAssessorStatistics metricAssessorStatistics = new MetricAssessorStatistics();
+
     /**
      *
      */
@@ -170,6 +173,30 @@ public class SimpleServiceLevelAssessor implements ServiceLevelAssessor {
         return this.defaultObligationAssessor;
     }
 
+    @Override
+    public Serializable getInputState(ServiceLevelAgreement sla) {
+        HashSet<Serializable> states = new HashSet<>();
+
+        try {
+            for (Metric metric : sla.getAllMetrics()) {
+                Serializable state = findAssessor(metric).getInputState(metric);
+                if (state == null) {
+                    return null;
+                }
+                states.add(state);
+            }
+        } catch (AssessorNotFoundException e) {
+            return null;
+        }
+
+        return states;
+    }
+
+    @Override
+    public MetricAssessorStatistics getMetricAssessorStatistics() {
+        return this.metricAssessorStatistics;
+    }
+
     @SuppressWarnings("unchecked")
     protected <M extends Metric> MetricAssessor<M, ?> findAssessor(M metric) {
         synchronized (this.metricAssessors) {
@@ -266,7 +293,12 @@ public class SimpleServiceLevelAssessor implements ServiceLevelAssessor {
             MetricAssessor<M, ?> assessor = findAssessor(metric);
             MetricAssessmentBuilderImpl builder = new MetricAssessmentBuilderImpl(metric);
 
-            assessor.assess(metric, builder);
+            long start = System.nanoTime();
+            try {
+                assessor.assess(metric, builder);
+            } finally {
+                metricAssessorStatistics.record(assessor, System.nanoTime() - start);
+            }
             MetricAssessment<?> metricAssmt = builder.build();
             this.assessment.add(metricAssmt);
             return metricAssmt;
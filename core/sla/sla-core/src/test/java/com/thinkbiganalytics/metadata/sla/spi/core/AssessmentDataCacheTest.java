@@ -0,0 +1,158 @@
+package com.thinkbiganalytics.metadata.sla.spi.core;
+
+/*-
+ * #%L
+ * thinkbig-sla-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class AssessmentDataCacheTest {
+
+    @Test
+    public void testNotCachedOutsideCheck() {
+        AtomicInteger loads = new AtomicInteger();
+
+        AssessmentDataCache.get("lastFeedJob", "feed1", loads::incrementAndGet);
+        AssessmentDataCache.get("lastFeedJob", "feed1", loads::incrementAndGet);
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testSharedWithinCheck() {
+        AtomicInteger loads = new AtomicInteger();
+        AssessmentDataCache cache = new AssessmentDataCache();
+
+        cache.enter();
+        try {
+            assertThat(AssessmentDataCache.get("lastFeedJob", "feed1", loads::incrementAndGet)).isEqualTo(1);
+            assertThat(AssessmentDataCache.get("lastFeedJob", "feed1", loads::incrementAndGet)).isEqualTo(1);
+            assertThat(AssessmentDataCache.get("lastFeedJob", "feed2", loads::incrementAndGet)).isEqualTo(2);
+            assertThat(AssessmentDataCache.get("lastActiveTimeStamp", "feed1", loads::incrementAndGet)).isEqualTo(3);
+        } finally {
+            cache.exit();
+        }
+
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(AssessmentDataCache.get("lastFeedJob", "feed1", loads::incrementAndGet)).isEqualTo(4);
+    }
+
+    @Test
+    public void testNullValueCached() {
+        AtomicInteger loads = new AtomicInteger();
+        AssessmentDataCache cache = new AssessmentDataCache();
+
+        cache.enter();
+        try {
+            Object first = AssessmentDataCache.get("lastFeedJob", "missing", () -> {
+                loads.incrementAndGet();
+                return null;
+            });
+            Object second = AssessmentDataCache.get("lastFeedJob", "missing", () -> {
+                loads.incrementAndGet();
+                return null;
+            });
+
+            assertThat(first).isNull();
+            assertThat(second).isNull();
+            assertThat(loads.get()).isEqualTo(1);
+        } finally {
+            cache.exit();
+        }
+    }
+
+    @Test
+    public void testFailedLoadNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        AssessmentDataCache cache = new AssessmentDataCache();
+
+        cache.enter();
+        try {
+            try {
+                AssessmentDataCache.get("lastFeedJob", "feed1", () -> {
+                    throw new IllegalStateException("query failed");
+                });
+                fail("Expected the load to fail");
+            } catch (IllegalStateException e) {
+                assertThat(e).hasMessage("query failed");
+            }
+
+            assertThat(AssessmentDataCache.get("lastFeedJob", "feed1", loads::incrementAndGet)).isEqualTo(1);
+        } finally {
+            cache.exit();
+        }
+    }
+
+    @Test
+    public void testConcurrentLoadsShared() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        AssessmentDataCache cache = new AssessmentDataCache();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<Integer> first = pool.submit(() -> {
+                cache.enter();
+                try {
+                    return AssessmentDataCache.get("lastFeedJob", "feed1", () -> {
+                        loading.countDown();
+                        try {
+                            release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return loads.incrementAndGet();
+                    });
+                } finally {
+                    cache.exit();
+                }
+            });
+
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+            Future<Integer> second = pool.submit(() -> {
+                cache.enter();
+                try {
+                    return AssessmentDataCache.get("lastFeedJob", "feed1", loads::incrementAndGet);
+                } finally {
+                    cache.exit();
+                }
+            });
+
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+            assertThat(loads.get()).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
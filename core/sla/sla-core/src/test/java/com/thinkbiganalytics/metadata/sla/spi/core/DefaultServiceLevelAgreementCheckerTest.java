@@ -0,0 +1,228 @@
+package com.thinkbiganalytics.metadata.sla.spi.core;
+
+/*-
+ * #%L
+ * thinkbig-sla-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.alerts.spi.AlertManager;
+import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreement;
+import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAssessment;
+import com.thinkbiganalytics.metadata.sla.spi.AssessorNotFoundException;
+import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementProvider;
+import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAssessmentProvider;
+import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAssessor;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultServiceLevelAgreementCheckerTest {
+
+    private static final DateTime MODIFIED = new DateTime(2017, 6, 15, 10, 0);
+
+    private DefaultServiceLevelAgreementChecker checker;
+
+    private List<ServiceLevelAgreement> agreements;
+
+    @Before
+    public void setUp() {
+        this.agreements = new ArrayList<>();
+        this.checker = createChecker(new DefaultServiceLevelAgreementChecker());
+        this.checker.setWorkerThreads(1);
+    }
+
+    @Test
+    public void testSkipUnchanged() {
+        ServiceLevelAgreement sla = agreement("sla1", "feed1:1");
+
+        this.checker.checkAgreements();
+        this.checker.checkAgreements();
+
+        verify(this.checker.assessor, times(1)).assess(sla);
+        assertThat(this.checker.getCheckStatistics().getLastAssessed()).isEqualTo(0);
+        assertThat(this.checker.getCheckStatistics().getLastSkipped()).isEqualTo(1);
+
+        when(this.checker.assessor.getInputState(sla)).thenReturn("feed1:2");
+        this.checker.checkAgreements();
+
+        verify(this.checker.assessor, times(2)).assess(sla);
+    }
+
+    @Test
+    public void testSkipUnchangedDisabled() {
+        ServiceLevelAgreement sla = agreement("sla1", "feed1:1");
+        this.checker.setSkipUnchanged(false);
+
+        this.checker.checkAgreements();
+        this.checker.checkAgreements();
+
+        verify(this.checker.assessor, times(2)).assess(sla);
+    }
+
+    @Test
+    public void testUnknownInputsAlwaysAssessed() {
+        ServiceLevelAgreement sla = agreement("sla1", null);
+
+        this.checker.checkAgreements();
+        this.checker.checkAgreements();
+
+        verify(this.checker.assessor, times(2)).assess(sla);
+    }
+
+    @Test
+    public void testModifiedTimeInvalidates() {
+        ServiceLevelAgreement sla = agreement("sla1", "feed1:1");
+
+        this.checker.checkAgreements();
+        when(sla.getModifiedTime()).thenReturn(MODIFIED.plusMinutes(1));
+        this.checker.checkAgreements();
+
+        verify(this.checker.assessor, times(2)).assess(sla);
+    }
+
+    @Test
+    public void testDeletedStatePruned() {
+        ServiceLevelAgreement sla = agreement("sla1", "feed1:1");
+
+        this.checker.checkAgreements();
+        this.agreements.clear();
+        this.checker.checkAgreements();
+        this.agreements.add(sla);
+        this.checker.checkAgreements();
+
+        verify(this.checker.assessor, times(2)).assess(sla);
+    }
+
+    @Test
+    public void testStateNotRecordedWhenAssessorNotFound() {
+        ServiceLevelAgreement sla = agreement("sla1", "feed1:1");
+        when(this.checker.assessor.assess(sla)).thenThrow(new AssessorNotFoundException("No assessor", null));
+
+        this.checker.checkAgreements();
+        this.checker.checkAgreements();
+
+        verify(this.checker.assessor, times(2)).assess(sla);
+    }
+
+    @Test
+    public void testStateNotRecordedWhenCheckFails() {
+        ServiceLevelAgreement sla1 = agreement("sla1", "feed1:1");
+        ServiceLevelAgreement sla2 = agreement("sla2", "feed2:1");
+        when(this.checker.assessor.assess(sla2)).thenThrow(new IllegalStateException("query failed"));
+
+        try {
+            this.checker.checkAgreements();
+            fail("Expected the check to fail");
+        } catch (IllegalStateException e) {
+            assertThat(e).hasMessage("query failed");
+        }
+        doReturn(mock(ServiceLevelAssessment.class)).when(this.checker.assessor).assess(sla2);
+        this.checker.checkAgreements();
+
+        verify(this.checker.assessor, times(2)).assess(sla1);
+    }
+
+    @Test
+    public void testParallelAssessedOnWorkers() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        this.checker.setWorkerThreads(2);
+        List<ServiceLevelAgreement> slas = Arrays.asList(agreement("sla1", "feed1:1"), agreement("sla2", "feed2:1"), agreement("sla3", "feed3:1"));
+        doAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return mock(ServiceLevelAssessment.class);
+        }).when(this.checker.assessor).assess(any(ServiceLevelAgreement.class));
+
+        this.checker.checkAgreements();
+
+        assertThat(threads).isNotEmpty();
+        threads.forEach(name -> assertThat(name).startsWith("sla-checker-"));
+        assertThat(this.checker.getCheckStatistics().getLastAssessed()).isEqualTo(3);
+
+        this.checker.checkAgreements();
+
+        slas.forEach(sla -> verify(this.checker.assessor, times(1)).assess(sla));
+        assertThat(this.checker.getCheckStatistics().getLastSkipped()).isEqualTo(3);
+    }
+
+    @Test
+    public void testParallelStateNotRecordedWhenWorkerFails() {
+        this.checker = createChecker(new DefaultServiceLevelAgreementChecker() {
+            @Override
+            protected void executeInWorker(Runnable task) {
+                task.run();
+                throw new IllegalStateException("commit failed");
+            }
+        });
+        ServiceLevelAgreement sla1 = agreement("sla1", "feed1:1");
+        ServiceLevelAgreement sla2 = agreement("sla2", "feed2:1");
+
+        this.checker.checkAgreements();
+
+        assertThat(this.checker.getCheckStatistics().getLastFailed()).isEqualTo(2);
+
+        this.checker.checkAgreements();
+
+        verify(this.checker.assessor, times(2)).assess(sla1);
+        verify(this.checker.assessor, times(2)).assess(sla2);
+    }
+
+    private DefaultServiceLevelAgreementChecker createChecker(DefaultServiceLevelAgreementChecker checker) {
+        checker.slaProvider = mock(ServiceLevelAgreementProvider.class);
+        checker.assessmentProvider = mock(ServiceLevelAssessmentProvider.class);
+        checker.assessor = mock(ServiceLevelAssessor.class);
+        checker.alertManager = mock(AlertManager.class);
+
+        when(checker.slaProvider.getAgreements()).thenAnswer(invocation -> new ArrayList<>(this.agreements));
+        when(checker.slaProvider.getAgreement(any(ServiceLevelAgreement.ID.class))).thenAnswer(invocation -> this.agreements.stream()
+            .filter(sla -> sla.getId().equals(invocation.getArguments()[0]))
+            .findFirst()
+            .orElse(null));
+        when(checker.assessor.assess(any(ServiceLevelAgreement.class))).thenReturn(mock(ServiceLevelAssessment.class));
+        // An assessment equal to the previous one does not raise an alert
+        when(checker.assessmentProvider.findLatestAssessment(any(ServiceLevelAgreement.ID.class))).thenReturn(mock(ServiceLevelAssessment.class));
+        return checker;
+    }
+
+    private ServiceLevelAgreement agreement(String name, String inputState) {
+        ServiceLevelAgreement.ID id = mock(ServiceLevelAgreement.ID.class, name);
+        ServiceLevelAgreement sla = mock(ServiceLevelAgreement.class);
+        when(sla.getId()).thenReturn(id);
+        when(sla.getName()).thenReturn(name);
+        when(sla.getModifiedTime()).thenReturn(MODIFIED);
+        when(this.checker.assessor.getInputState(sla)).thenReturn(inputState);
+        this.agreements.add(sla);
+        return sla;
+    }
+}
@@ -0,0 +1,251 @@
+package com.thinkbiganalytics.nifi.v2.elasticsearch;
+
+/*-
+ * #%L
+ * thinkbig-nifi-elasticsearch-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.nifi.logging.ComponentLog;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Sends index requests to Elasticsearch in bulk requests of a bounded size.
+ *
+ * <p>A bulk request is sent once it reaches the maximum number of documents or bytes. At most {@code concurrentRequests} bulk requests are in flight at a time;
+ * {@link #add(IndexRequest)} blocks until one completes. Documents rejected because the cluster is busy, or whole requests that fail, are retried with an
+ * exponential backoff.</p>
+ */
+class ElasticSearchBulkIndexer implements Closeable {
+
+    /**
+     * Initial delay before retrying a bulk request
+     */
+    private static final long INITIAL_RETRY_DELAY_MS = 500;
+
+    @Nonnull
+    private final Client client;
+
+    @Nonnull
+    private final ComponentLog log;
+
+    private final int maxActions;
+    private final long maxBytes;
+    private final int concurrentRequests;
+    private final int maxRetries;
+
+    /**
+     * Sends the bulk requests
+     */
+    @Nonnull
+    private final ExecutorService executor;
+
+    /**
+     * Limits the number of in-flight bulk requests
+     */
+    @Nonnull
+    private final Semaphore inFlight;
+
+    /**
+     * Bulk request being built
+     */
+    @Nonnull
+    private BulkRequest current = new BulkRequest();
+
+    /**
+     * Number of documents that could not be indexed
+     */
+    private final AtomicInteger failedCount = new AtomicInteger();
+
+    /**
+     * First failure message
+     */
+    private final AtomicReference<String> failureMessage = new AtomicReference<>();
+
+    /**
+     * Constructs an {@code ElasticSearchBulkIndexer}.
+     *
+     * @param client             the Elasticsearch client
+     * @param log                the processor log
+     * @param maxActions         the maximum number of documents in each bulk request
+     * @param maxBytes           the maximum size of each bulk request in bytes
+     * @param concurrentRequests the maximum number of bulk requests in flight
+     * @param maxRetries         the number of times to retry a failed bulk request
+     */
+    ElasticSearchBulkIndexer(@Nonnull final Client client, @Nonnull final ComponentLog log, final int maxActions, final long maxBytes, final int concurrentRequests, final int maxRetries) {
+        this.client = client;
+        this.log = log;
+        this.maxActions = maxActions;
+        this.maxBytes = maxBytes;
+        this.concurrentRequests = concurrentRequests;
+        this.maxRetries = maxRetries;
+        this.executor = Executors.newFixedThreadPool(concurrentRequests);
+        this.inFlight = new Semaphore(concurrentRequests);
+    }
+
+    /**
+     * Adds the specified document, sending the current bulk request if it is full.
+     *
+     * @param request the index request
+     * @throws InterruptedException if interrupted while waiting for an in-flight request
+     */
+    void add(@Nonnull final IndexRequest request) throws InterruptedException {
+        current.add(request);
+        if (current.numberOfActions() >= maxActions || current.estimatedSizeInBytes() >= maxBytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the current bulk request, waiting for an in-flight request to complete if needed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void flush() throws InterruptedException {
+        if (current.numberOfActions() == 0) {
+            return;
+        }
+
+        final BulkRequest request = current;
+        current = new BulkRequest();
+
+        inFlight.acquire();
+        try {
+            executor.execute(() -> {
+                try {
+                    send(request);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (final RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Sends the remaining documents and waits for every bulk request to complete.
+     *
+     * @return {@code true} if every document was indexed, or {@code false} otherwise
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean finish() throws InterruptedException {
+        flush();
+        inFlight.acquire(concurrentRequests);
+        inFlight.release(concurrentRequests);
+        return failedCount.get() == 0;
+    }
+
+    /**
+     * Gets the number of documents that could not be indexed.
+     */
+    int getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Gets a description of the first failure, or {@code null} if there were no failures.
+     */
+    String getFailureMessage() {
+        return failureMessage.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Sends the specified bulk request, retrying rejected documents.
+     */
+    private void send(@Nonnull final BulkRequest initialRequest) {
+        BulkRequest request = initialRequest;
+        long delay = INITIAL_RETRY_DELAY_MS;
+
+        for (int attempt = 0; ; ++attempt) {
+            final boolean canRetry = attempt < maxRetries;
+            final BulkRequest retry = new BulkRequest();
+
+            try {
+                final BulkResponse response = client.bulk(request).actionGet();
+                if (response.hasFailures()) {
+                    final List<ActionRequest> actions = request.requests();
+                    for (final BulkItemResponse item : response.getItems()) {
+                        if (!item.isFailed()) {
+                            continue;
+                        }
+                        final RestStatus status = item.getFailure().getStatus();
+                        if (canRetry && (status == RestStatus.TOO_MANY_REQUESTS || status == RestStatus.SERVICE_UNAVAILABLE)) {
+                            retry.add(actions.get(item.getItemId()));
+                        } else {
+                            fail(1, item.getFailureMessage());
+                        }
+                    }
+                }
+            } catch (final Exception e) {
+                if (canRetry) {
+                    log.warn("Bulk request of {} documents failed and will be retried: {}", new Object[]{request.numberOfActions(), e.toString()});
+                    retry.add(request.requests());
+                } else {
+                    fail(request.numberOfActions(), e.toString());
+                }
+            }
+
+            if (retry.numberOfActions() == 0) {
+                return;
+            }
+
+            try {
+                TimeUnit.MILLISECONDS.sleep(delay);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(retry.numberOfActions(), "Interrupted before retrying bulk request");
+                return;
+            }
+            delay *= 2;
+            request = retry;
+        }
+    }
+
+    /**
+     * Records documents that could not be indexed.
+     */
+    private void fail(final int count, final String message) {
+        failedCount.addAndGet(count);
+        if (failureMessage.compareAndSet(null, message)) {
+            log.error("Error occurred while batch updating: " + message);
+        }
+    }
+}
@@ -20,10 +20,14 @@ package com.thinkbiganalytics.nifi.v2.elasticsearch;
  * #L%
  */
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.thinkbiganalytics.hashing.HashingUtil;
 import com.thinkbiganalytics.nifi.processor.AbstractNiFiProcessor;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.nifi.annotation.behavior.InputRequirement;
 import org.apache.nifi.annotation.documentation.CapabilityDescription;
@@ -31,22 +35,21 @@ import org.apache.nifi.annotation.documentation.Tags;
 import org.apache.nifi.components.PropertyDescriptor;
 import org.apache.nifi.flowfile.FlowFile;
 import org.apache.nifi.logging.ComponentLog;
+import org.apache.nifi.processor.DataUnit;
 import org.apache.nifi.processor.ProcessContext;
 import org.apache.nifi.processor.ProcessSession;
 import org.apache.nifi.processor.Relationship;
 import org.apache.nifi.processor.exception.ProcessException;
 import org.apache.nifi.processor.util.StandardValidators;
-import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONObject;
-import org.elasticsearch.action.bulk.BulkRequestBuilder;
-import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.transport.TransportClient;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.InetSocketTransportAddress;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetAddress;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -158,6 +161,59 @@ public class IndexElasticSearch extends AbstractNiFiProcessor {
         .expressionLanguageSupported(true)
         .build();
 
+    /**
+     * Property for the maximum number of documents in each bulk request
+     */
+    public static final PropertyDescriptor BULK_ACTIONS = new PropertyDescriptor.Builder()
+        .name("BulkActions")
+        .displayName("Bulk Request Documents")
+        .description("Maximum number of documents to send to elasticsearch in each bulk request")
+        .required(true)
+        .defaultValue("1000")
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .build();
+
+    /**
+     * Property for the maximum size of each bulk request
+     */
+    public static final PropertyDescriptor BULK_SIZE = new PropertyDescriptor.Builder()
+        .name("BulkSize")
+        .displayName("Bulk Request Size")
+        .description("Maximum size of each bulk request sent to elasticsearch")
+        .required(true)
+        .defaultValue("5 MB")
+        .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+        .build();
+
+    /**
+     * Property for the maximum number of bulk requests in flight
+     */
+    public static final PropertyDescriptor CONCURRENT_REQUESTS = new PropertyDescriptor.Builder()
+        .name("ConcurrentRequests")
+        .displayName("Concurrent Bulk Requests")
+        .description("Maximum number of bulk requests to elasticsearch in flight at a time for each flow file")
+        .required(true)
+        .defaultValue("2")
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .build();
+
+    /**
+     * Property for the number of retries of a failed bulk request
+     */
+    public static final PropertyDescriptor MAX_RETRIES = new PropertyDescriptor.Builder()
+        .name("MaxRetries")
+        .displayName("Bulk Request Retries")
+        .description("Number of times to retry a bulk request that fails, or documents that elasticsearch rejects because it is busy")
+        .required(true)
+        .defaultValue("3")
+        .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+        .build();
+
+    /**
+     * Parses and serializes the JSON documents
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     private final Set<Relationship> relationships;
     private final List<PropertyDescriptor> propDescriptors;
 
@@ -178,6 +234,10 @@ public class IndexElasticSearch extends AbstractNiFiProcessor {
         pds.add(ID_FIELD);
         pds.add(CATEGORY_NAME);
         pds.add(FEED_NAME);
+        pds.add(BULK_ACTIONS);
+        pds.add(BULK_SIZE);
+        pds.add(CONCURRENT_REQUESTS);
+        pds.add(MAX_RETRIES);
         propDescriptors = Collections.unmodifiableList(pds);
     }
 
@@ -207,19 +267,22 @@ public class IndexElasticSearch extends AbstractNiFiProcessor {
             String categoryName = context.getProperty(CATEGORY_NAME).evaluateAttributeExpressions(flowFile).getValue();
             String feedName = context.getProperty(FEED_NAME).evaluateAttributeExpressions(flowFile).getValue();
 
-            final StringBuffer sb = new StringBuffer();
-            session.read(flowFile, in -> sb.append(IOUtils.toString(in, Charset.defaultCharset())));
+            final BulkSettings bulkSettings = new BulkSettings(context.getProperty(BULK_ACTIONS).asInteger(),
+                                                               context.getProperty(BULK_SIZE).asDataSize(DataUnit.B).longValue(),
+                                                               context.getProperty(CONCURRENT_REQUESTS).asInteger(),
+                                                               context.getProperty(MAX_RETRIES).asInteger());
 
-            logger.debug("The json that was received is: " + sb.toString());
-
-            boolean success = sendToElasticSearch(sb.toString(),
-                                                  hostName,
-                                                  indexName,
-                                                  type,
-                                                  clusterName,
-                                                  idField,
-                                                  categoryName,
-                                                  feedName);
+            final boolean[] result = new boolean[1];
+            session.read(flowFile, in -> {
+                try {
+                    result[0] = sendToElasticSearch(in, hostName, indexName, type, clusterName, idField, categoryName, feedName, bulkSettings);
+                } catch (final IOException e) {
+                    throw e;
+                } catch (final Exception e) {
+                    throw new ProcessException(e);
+                }
+            });
+            boolean success = result[0];
 
             if (!success) {
                 logger.info("*** Completed with failed status");
@@ -235,54 +298,89 @@ public class IndexElasticSearch extends AbstractNiFiProcessor {
 
     }
 
-    private boolean sendToElasticSearch(String json,
+    private boolean sendToElasticSearch(InputStream in,
                                         String hostName,
                                         String index,
                                         String type,
                                         String clusterName,
                                         String idField,
                                         String categoryName,
-                                        String feedName
+                                        String feedName,
+                                        BulkSettings bulkSettings
                                         ) throws Exception {
         final ComponentLog logger = getLog();
         Settings settings = Settings.settingsBuilder()
             .put("cluster.name", clusterName).build();
-        Client client = TransportClient.builder().settings(settings).build()
+
+        try (Client client = TransportClient.builder().settings(settings).build()
             .addTransportAddress(new InetSocketTransportAddress(InetAddress.getByName(hostName), 9300));
+             ElasticSearchBulkIndexer indexer = new ElasticSearchBulkIndexer(client, logger, bulkSettings.actions, bulkSettings.bytes, bulkSettings.concurrentRequests, bulkSettings.retries);
+             JsonParser parser = MAPPER.getFactory().createParser(in)) {
+
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of documents");
+            }
 
-        JSONArray array = new JSONArray(json);
-        BulkRequestBuilder bulkRequest = client.prepareBulk();
-
-        for (int i = 0; i < array.length(); i++) {
-            JSONObject jsonObj = array.getJSONObject(i);
-            String id = null;
-
-            if (idField != null && idField.length() > 0) {
-                id = jsonObj.getString(idField);
-                logger.debug("Document index id using field " + idField + ": " + id);
-            } else if (StringUtils.isNotEmpty(categoryName) && (StringUtils.isNotEmpty(feedName))) {
-                String hash = HashingUtil.getHashMD5(jsonObj.toString());
-                if (StringUtils.isNotEmpty(hash)) {
-                    id = categoryName + "::" + feedName + "::" + hash;
-                    logger.debug("Document index id using hash: " + id);
+            int count = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                ObjectNode jsonObj = MAPPER.readTree(parser);
+                String id = null;
+
+                if (idField != null && idField.length() > 0) {
+                    JsonNode idNode = jsonObj.get(idField);
+                    if (idNode == null) {
+                        throw new IOException("JSONObject[\"" + idField + "\"] not found.");
+                    }
+                    id = idNode.asText();
+                    logger.debug("Document index id using field " + idField + ": " + id);
+                } else if (StringUtils.isNotEmpty(categoryName) && (StringUtils.isNotEmpty(feedName))) {
+                    // Hash the jettison form of the document so ids match those of previously indexed documents
+                    String hash = HashingUtil.getHashMD5(new JSONObject(MAPPER.writeValueAsString(jsonObj)).toString());
+                    if (StringUtils.isNotEmpty(hash)) {
+                        id = categoryName + "::" + feedName + "::" + hash;
+                        logger.debug("Document index id using hash: " + id);
+                    }
                 }
+
+                if (StringUtils.isEmpty(id)) {
+                    id = UUID.randomUUID().toString();
+                    logger.debug("Document index id auto-generated + " + id);
+                }
+
+                jsonObj.put("post_date", String.valueOf(System.currentTimeMillis()));
+                indexer.add(client.prepareIndex(index, type, id)
+                                .setSource(MAPPER.writeValueAsBytes(jsonObj))
+                                .request());
+                ++count;
             }
 
-            if (StringUtils.isEmpty(id)) {
-                id = UUID.randomUUID().toString();
-                logger.debug("Document index id auto-generated + " + id);
+            if (parser.getCurrentToken() != JsonToken.END_ARRAY) {
+                throw new IOException("Expected a JSON object but found " + parser.getCurrentToken());
             }
 
-            jsonObj.put("post_date", String.valueOf(System.currentTimeMillis()));
-            bulkRequest.add(client.prepareIndex(index, type, id)
-                                .setSource(jsonObj.toString())
-            );
+            if (!indexer.finish()) {
+                logger.error("Failed to index " + indexer.getFailedCount() + " of " + count + " documents: " + indexer.getFailureMessage());
+                return false;
+            }
+            return true;
         }
-        BulkResponse bulkResponse = bulkRequest.get();
-        if (bulkResponse.hasFailures()) {
-            logger.error("Error occurred while batch updating" + bulkResponse.buildFailureMessage());
-            return false;
+    }
+
+    /**
+     * Limits for sending documents in bulk requests.
+     */
+    private static class BulkSettings {
+
+        final int actions;
+        final long bytes;
+        final int concurrentRequests;
+        final int retries;
+
+        BulkSettings(final int actions, final long bytes, final int concurrentRequests, final int retries) {
+            this.actions = actions;
+            this.bytes = bytes;
+            this.concurrentRequests = concurrentRequests;
+            this.retries = retries;
         }
-        return true;
     }
 }
@@ -20,13 +20,15 @@ package com.thinkbiganalytics.nifi.v2.elasticsearch;
  * #L%
  */
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
+import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import com.thinkbiganalytics.nifi.processor.AbstractNiFiProcessor;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.nifi.annotation.behavior.InputRequirement;
 import org.apache.nifi.annotation.documentation.CapabilityDescription;
 import org.apache.nifi.annotation.documentation.Tags;
@@ -40,18 +42,18 @@ import org.apache.nifi.processor.exception.ProcessException;
 import org.apache.nifi.processor.io.InputStreamCallback;
 import org.apache.nifi.processor.io.OutputStreamCallback;
 import org.apache.nifi.processor.util.StandardValidators;
-import org.codehaus.jettison.json.JSONArray;
-import org.codehaus.jettison.json.JSONObject;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -177,6 +179,11 @@ public class MergeHiveTableMetadata extends AbstractNiFiProcessor {
         .defaultValue("COMMENT")
         .build();
 
+    /**
+     * Parses the JSON columns
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     private final Set<Relationship> relationships;
     private final List<PropertyDescriptor> propDescriptors;
 
@@ -229,76 +236,58 @@ public class MergeHiveTableMetadata extends AbstractNiFiProcessor {
             final String columnTypeField = context.getProperty(COLUMN_TYPE).evaluateAttributeExpressions(flowFile).getValue();
             final String columnCommentField = context.getProperty(COLUMN_COMMENT).evaluateAttributeExpressions(flowFile).getValue();
 
-            final StringBuffer sb = new StringBuffer();
+            final Map<String, Metadata> tables = new HashMap<>();
             session.read(flowFile, new InputStreamCallback() {
 
                 @Override
                 public void process(InputStream in) throws IOException {
-                    sb.append(IOUtils.toString(in, Charset.defaultCharset()));
-                }
-
-            });
-
-            logger.debug("The json that was received is: " + sb.toString());
+                    try (JsonParser parser = MAPPER.getFactory().createParser(in)) {
+                        if (parser.nextToken() != JsonToken.START_ARRAY) {
+                            throw new IOException("Expected a JSON array of columns");
+                        }
 
-            flowFile = session.write(flowFile, new OutputStreamCallback() {
-                @Override
-                public void process(final OutputStream out) throws IOException {
-                    try {
-                        JSONArray array = new JSONArray(sb.toString());
-                        Map<String, Metadata> tables = new HashMap<>();
-
-                        for (int i = 0; i < array.length(); i++) {
-                            JSONObject jsonObj = array.getJSONObject(i);
-                            String databaseName = jsonObj.getString(databaseNameField);
-                            String databaseOwner = jsonObj.getString(databaseOwnerField);
-                            String tableName = jsonObj.getString(tableNameField);
-                            String tableCreateTime = jsonObj.getString(tableCreateTimeField);
-                            String tableType = jsonObj.getString(tableTypeField);
-                            String columnName = jsonObj.getString(columnNameField);
-                            String columnType = jsonObj.getString(columnTypeField);
-                            String columnComment = jsonObj.getString(columnCommentField);
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            JsonNode jsonObj = MAPPER.readTree(parser);
+                            String databaseName = getString(jsonObj, databaseNameField);
+                            String tableName = getString(jsonObj, tableNameField);
                             String key = databaseName + tableName;
 
-                            if (tables.containsKey(key)) {
-                                Metadata meta = tables.get(key);
-                                HiveColumn column = new HiveColumn();
-                                column.setColumnName(columnName);
-                                column.setColumnType(columnType);
-                                column.setColumnComment(columnComment);
-                                meta.getHiveColumns().add(column);
-
-                            } else {
-                                Metadata meta = new Metadata();
+                            Metadata meta = tables.get(key);
+                            if (meta == null) {
+                                meta = new Metadata();
                                 meta.setDatabaseName(databaseName);
-                                meta.setDatabaseOwner(databaseOwner);
-                                meta.setTableCreateTime(tableCreateTime);
+                                meta.setDatabaseOwner(getString(jsonObj, databaseOwnerField));
+                                meta.setTableCreateTime(getString(jsonObj, tableCreateTimeField));
                                 meta.setTableName(tableName);
-                                meta.setTableType(tableType);
-                                HiveColumn column = new HiveColumn();
-                                column.setColumnName(columnName);
-                                column.setColumnType(columnType);
-                                column.setColumnComment(columnComment);
-                                meta.getHiveColumns().add(column);
+                                meta.setTableType(getString(jsonObj, tableTypeField));
                                 tables.put(key, meta);
                             }
+
+                            HiveColumn column = new HiveColumn();
+                            column.setColumnName(getString(jsonObj, columnNameField));
+                            column.setColumnType(getString(jsonObj, columnTypeField));
+                            column.setColumnComment(getString(jsonObj, columnCommentField));
+                            meta.getHiveColumns().add(column);
                         }
-                        List<Metadata> tablesAsList = new ArrayList<>();
-                        Iterator iter = tables.entrySet().iterator();
-                        while (iter.hasNext()) {
-                            Map.Entry pair = (Map.Entry) iter.next();
-                            tablesAsList.add((Metadata) pair.getValue());
+
+                        if (parser.getCurrentToken() != JsonToken.END_ARRAY) {
+                            throw new IOException("Expected a JSON object but found " + parser.getCurrentToken());
                         }
-                        Gson gson = new Gson();
-                        JsonElement element = gson.toJsonTree(tablesAsList, new TypeToken<List<Metadata>>() {
-                        }.getType());
-                        JsonArray jsonArray = element.getAsJsonArray();
-
-                        out.write(jsonArray.toString().getBytes());
-                    } catch (final Exception e) {
-                        throw new ProcessException(e);
                     }
                 }
+
+            });
+
+            flowFile = session.write(flowFile, new OutputStreamCallback() {
+                @Override
+                public void process(final OutputStream out) throws IOException {
+                    List<Metadata> tablesAsList = new ArrayList<>(tables.values());
+                    Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()));
+                    gson.toJson(tablesAsList, new TypeToken<List<Metadata>>() {
+                    }.getType(), writer);
+                    writer.flush();
+                }
             });
 
             logger.info("*** Completed with status ");
@@ -310,6 +299,19 @@ public class MergeHiveTableMetadata extends AbstractNiFiProcessor {
 
     }
 
+    /**
+     * Gets the string value of the specified field.
+     *
+     * @throws IOException if the field does not exist
+     */
+    private static String getString(JsonNode jsonObj, String field) throws IOException {
+        JsonNode value = jsonObj.get(field);
+        if (value == null) {
+            throw new IOException("JSONObject[\"" + field + "\"] not found.");
+        }
+        return value.asText();
+    }
+
     private class Metadata {
 
         private String databaseName;
@@ -26,10 +26,14 @@ import com.thinkbiganalytics.nifi.v2.elasticsearch.MergeHiveTableMetadata;
 import org.apache.nifi.util.MockFlowFile;
 import org.apache.nifi.util.TestRunner;
 import org.apache.nifi.util.TestRunners;
+import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 
 import static org.junit.Assert.assertNotNull;
@@ -52,6 +56,41 @@ public class MergeHiveTableMetadataTest {
 
     }
 
+    /**
+     * Verify columns are merged into one document per table.
+     */
+    @Test
+    public void merge() {
+        final String json = "["
+                            + "{\"NAME\":\"sales\",\"OWNER_NAME\":\"admin\",\"CREATE_TIME\":1490000000,\"TBL_NAME\":\"orders\",\"TBL_TYPE\":\"MANAGED_TABLE\","
+                            + "\"COLUMN_NAME\":\"id\",\"TYPE_NAME\":\"int\",\"COMMENT\":\"order <id>\"},"
+                            + "{\"NAME\":\"sales\",\"OWNER_NAME\":\"admin\",\"CREATE_TIME\":1490000000,\"TBL_NAME\":\"orders\",\"TBL_TYPE\":\"MANAGED_TABLE\","
+                            + "\"COLUMN_NAME\":\"total\",\"TYPE_NAME\":\"double\",\"COMMENT\":null}"
+                            + "]";
+
+        TestRunner nifiTestRunner = TestRunners.newTestRunner(new MergeHiveTableMetadata());
+        nifiTestRunner.enqueue(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        nifiTestRunner.run(1, true, true);
+
+        nifiTestRunner.assertAllFlowFilesTransferred(MergeHiveTableMetadata.REL_SUCCESS, 1);
+        final String outgoingJson = new String(nifiTestRunner.getFlowFilesForRelationship(MergeHiveTableMetadata.REL_SUCCESS).get(0).toByteArray());
+        Assert.assertEquals("[{\"databaseName\":\"sales\",\"databaseOwner\":\"admin\",\"tableCreateTime\":\"1490000000\",\"tableName\":\"orders\",\"tableType\":\"MANAGED_TABLE\","
+                            + "\"hiveColumns\":[{\"columnName\":\"id\",\"columnType\":\"int\",\"columnComment\":\"order <id>\"},"
+                            + "{\"columnName\":\"total\",\"columnType\":\"double\",\"columnComment\":\"null\"}]}]", outgoingJson);
+    }
+
+    /**
+     * Verify a document that is not a JSON array is sent to failure.
+     */
+    @Test
+    public void mergeInvalid() {
+        TestRunner nifiTestRunner = TestRunners.newTestRunner(new MergeHiveTableMetadata());
+        nifiTestRunner.enqueue(new ByteArrayInputStream("{\"NAME\":\"sales\"}".getBytes(StandardCharsets.UTF_8)));
+        nifiTestRunner.run(1, true, true);
+
+        nifiTestRunner.assertAllFlowFilesTransferred(MergeHiveTableMetadata.REL_FAILURE, 1);
+    }
+
     private void runProcessor(InputStream testDocument) {
         TestRunner nifiTestRunner = TestRunners.newTestRunner(new MergeHiveTableMetadata());
         nifiTestRunner.setValidateExpressionUsage(true);
@@ -21,9 +21,11 @@ package com.thinkbiganalytics.nifi.v2.hdfs;
  */
 
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 
@@ -47,8 +49,14 @@ import java.util.Base64;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 @CapabilityDescription("Computes HDFS checksums of list of files")
 @EventDriven
@@ -115,6 +123,19 @@ public class ComputeHDFSChecksums extends AbstractHadoopProcessor {
         .expressionLanguageSupported(true)
         .build();
 
+    /**
+     * The number of files to compute checksums for at the same time
+     */
+    public static final PropertyDescriptor THREAD_COUNT = new PropertyDescriptor.Builder()
+        .name("threadCount")
+        .displayName("Thread Count")
+        .description("Number of files to compute checksums for at the same time. With more than one thread, the remaining files are cancelled as soon as a " +
+                     "checksum doesn't match or a file is not found.")
+        .required(true)
+        .defaultValue("1")
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .build();
+
     /**
      * Output paths to other NiFi processors
      */
@@ -128,7 +149,7 @@ public class ComputeHDFSChecksums extends AbstractHadoopProcessor {
     @Override
     protected List<PropertyDescriptor> getSupportedPropertyDescriptors() {
         return ImmutableList.<PropertyDescriptor>builder().addAll(super.getSupportedPropertyDescriptors()).
-            add(DIRECTORY).add(FAIL_IF_INCORRECT_CHECKSUM).add(FILES).build();
+            add(DIRECTORY).add(FAIL_IF_INCORRECT_CHECKSUM).add(FILES).add(THREAD_COUNT).build();
     }
 
     /**
@@ -157,6 +178,7 @@ public class ComputeHDFSChecksums extends AbstractHadoopProcessor {
         String absolutePath = context.getProperty(DIRECTORY).evaluateAttributeExpressions(flowFile).getValue();
         Boolean failIfWrongChecksum = context.getProperty(FAIL_IF_INCORRECT_CHECKSUM).
             evaluateAttributeExpressions(flowFile).asBoolean();
+        int threadCount = context.getProperty(THREAD_COUNT).asInteger();
         Gson jsonParser = new Gson();
         File[] filesList;
         try {
@@ -165,24 +187,17 @@ public class ComputeHDFSChecksums extends AbstractHadoopProcessor {
                 filesList = new File[0];
             }
 
-            for (File f : filesList) {
-                String name = f.getName();
-                Path filePath;
-                if (absolutePath == null || absolutePath.isEmpty()) {
-                    filePath = new Path(name);
-                } else {
-                    filePath = new Path(absolutePath, name);
-                }
-                FileChecksum computed_checksum = fs.getFileChecksum(filePath);
-                String b64_checksum = Base64.getEncoder().encodeToString(computed_checksum.getBytes());
-                f.setComputedChecksum(new Checksum(b64_checksum.length(), b64_checksum,
-                                                   computed_checksum.getAlgorithmName()));
-                if (failIfWrongChecksum && !Objects.equals(b64_checksum, f.getChecksum().getValue())) {
-                    getLog().error("Checksums don't match! File: " + filePath.toString() + " checksum provided: " +
-                                   f.getChecksum().getValue() + " checksum computed: " + b64_checksum);
-                    session.transfer(flowFile, REL_FAILURE);
-                    return;
-                }
+            final long start = System.currentTimeMillis();
+            final File mismatch = (threadCount > 1 && filesList.length > 1)
+                                  ? computeChecksumsInParallel(fs, absolutePath, filesList, failIfWrongChecksum, threadCount)
+                                  : computeChecksums(fs, absolutePath, filesList, failIfWrongChecksum);
+            getLog().debug("Computed checksums of {} files in {} ms", new Object[]{filesList.length, System.currentTimeMillis() - start});
+
+            if (mismatch != null) {
+                getLog().error("Checksums don't match! File: " + getPath(absolutePath, mismatch).toString() + " checksum provided: " +
+                               (mismatch.getChecksum() != null ? mismatch.getChecksum().getValue() : null) + " checksum computed: " + mismatch.getComputedChecksum().getValue());
+                session.transfer(flowFile, REL_FAILURE);
+                return;
             }
         } catch (JsonSyntaxException e) {
             getLog().error("Files list attribute does not contain a proper JSON array");
@@ -199,12 +214,107 @@ public class ComputeHDFSChecksums extends AbstractHadoopProcessor {
         session.transfer(flowFile, REL_SUCCESS);
     }
 
+    /**
+     * Computes the checksum of each file in turn, stopping at the first mismatch.
+     *
+     * @return the first file whose checksum doesn't match, or {@code null} if every checksum matches or mismatches are allowed
+     * @throws IOException if a checksum cannot be computed
+     */
+    @Nullable
+    private File computeChecksums(@Nonnull final FileSystem fs, @Nullable final String absolutePath, @Nonnull final File[] files, final boolean failIfWrongChecksum)
+        throws IOException {
+        for (File f : files) {
+            if (!computeChecksum(fs, absolutePath, f, failIfWrongChecksum)) {
+                return f;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Computes the checksums of the files using a pool of threads. The remaining files are cancelled at the first mismatch or error.
+     *
+     * @return the first file found whose checksum doesn't match, or {@code null} if every checksum matches or mismatches are allowed
+     * @throws IOException if a checksum cannot be computed
+     */
+    @Nullable
+    private File computeChecksumsInParallel(@Nonnull final FileSystem fs, @Nullable final String absolutePath, @Nonnull final File[] files, final boolean failIfWrongChecksum,
+                                            final int threadCount) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, files.length),
+                                                                      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ComputeHDFSChecksums-%d").build());
+        try {
+            final CompletionService<File> completionService = new ExecutorCompletionService<>(executor);
+            for (final File f : files) {
+                completionService.submit(() -> computeChecksum(fs, absolutePath, f, failIfWrongChecksum) ? null : f);
+            }
+
+            for (int i = 0; i < files.length; ++i) {
+                final File mismatch;
+                try {
+                    mismatch = completionService.take().get();
+                } catch (final ExecutionException e) {
+                    Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+                    throw Throwables.propagate(e.getCause());
+                }
+                if (mismatch != null) {
+                    return mismatch;
+                }
+            }
+            return null;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessException("Interrupted while computing checksums", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Computes the checksum of the specified file and records it, along with the time taken, on the file.
+     *
+     * @return {@code true} if mismatches are allowed or the computed checksum matches the provided one, or {@code false} otherwise
+     * @throws IOException if the checksum cannot be computed
+     */
+    private boolean computeChecksum(@Nonnull final FileSystem fs, @Nullable final String absolutePath, @Nonnull final File f, final boolean failIfWrongChecksum)
+        throws IOException {
+        final Path filePath = getPath(absolutePath, f);
+        final long start = System.currentTimeMillis();
+        FileChecksum computed_checksum = fs.getFileChecksum(filePath);
+        String b64_checksum = Base64.getEncoder().encodeToString(computed_checksum.getBytes());
+        f.setComputedChecksum(new Checksum(b64_checksum.length(), b64_checksum,
+                                           computed_checksum.getAlgorithmName()));
+        f.setComputeTimeMillis(System.currentTimeMillis() - start);
+        getLog().debug("Computed checksum of {} in {} ms", new Object[]{filePath, f.getComputeTimeMillis()});
+        return !failIfWrongChecksum || (f.getChecksum() != null && Objects.equals(b64_checksum, f.getChecksum().getValue()));
+    }
+
+    /**
+     * Gets the HDFS path of the specified file.
+     */
+    @Nonnull
+    private Path getPath(@Nullable final String absolutePath, @Nonnull final File f) {
+        if (absolutePath == null || absolutePath.isEmpty()) {
+            return new Path(f.getName());
+        } else {
+            return new Path(absolutePath, f.getName());
+        }
+    }
+
     class File {
 
         private String name;
         private Integer size;
         private Checksum checksum;
         private Checksum computedChecksum;
+        private Long computeTimeMillis;
+
+        public Long getComputeTimeMillis() {
+            return computeTimeMillis;
+        }
+
+        public void setComputeTimeMillis(Long computeTimeMillis) {
+            this.computeTimeMillis = computeTimeMillis;
+        }
 
         public Checksum getComputedChecksum() {
             return computedChecksum;
@@ -301,6 +301,113 @@ public class ComputeHDFSChecksumsTest {
         inOrder.verifyNoMoreInteractions();
     }
 
+    @Test
+    public void testMultipleFilesInParallel() throws Exception {
+        String fileName = "000000_0";
+        String fileName2 = "000000_1";
+        String fileName3 = "000000_2";
+        mockChecksumsByFileName();
+
+        runner.setProperty(ComputeHDFSChecksums.THREAD_COUNT, "3");
+        runner.setProperty(ComputeHDFSChecksums.FAIL_IF_INCORRECT_CHECKSUM, "True");
+        runner.setProperty(ComputeHDFSChecksums.FILES,
+                           String.format("[" + fileEntry + "," + fileEntry + "," + fileEntry + "]",
+                                         fileName, "AAAAAAAAAAAAAAIAESIzRFVmd4iZqrvM3e7/AAAAAAA=",
+                                         fileName2, "AAAAAAAAAAAAAAIAESIzRFVmd4iZqrvM3e7/AQAAAAA=",
+                                         fileName3, "AAAAAAAAAAAAAAIAESIzRFVmd4iZqrvM3e7/AgAAAAA="));
+        runner.enqueue(new byte[0]);
+        runner.run();
+
+        // Check relationships
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(ComputeHDFSChecksums.REL_FAILURE).size());
+        Assert.assertEquals(1, runner.getFlowFilesForRelationship(ComputeHDFSChecksums.REL_SUCCESS).size());
+
+        // Check computed checksums and timings are in the same order as the files
+        String filesJSON = runner.getFlowFilesForRelationship(ComputeHDFSChecksums.REL_SUCCESS).get(0).getAttribute("files");
+        ComputeHDFSChecksums.File[] files = new Gson().fromJson(filesJSON, ComputeHDFSChecksums.File[].class);
+        Assert.assertEquals("AAAAAAAAAAAAAAIAESIzRFVmd4iZqrvM3e7/AQAAAAA=", files[1].getComputedChecksum().getValue());
+        for (ComputeHDFSChecksums.File file : files) {
+            Assert.assertNotNull(file.getComputeTimeMillis());
+        }
+
+        // Check file system calls
+        Mockito.verify(fileSystem).getFileChecksum(new Path(fileName));
+        Mockito.verify(fileSystem).getFileChecksum(new Path(fileName2));
+        Mockito.verify(fileSystem).getFileChecksum(new Path(fileName3));
+        Mockito.verifyNoMoreInteractions(fileSystem);
+    }
+
+    @Test
+    public void testMultipleFilesInParallelFailOnWrongChecksum() throws Exception {
+        mockChecksumsByFileName();
+
+        runner.setProperty(ComputeHDFSChecksums.THREAD_COUNT, "2");
+        runner.setProperty(ComputeHDFSChecksums.FAIL_IF_INCORRECT_CHECKSUM, "True");
+        runner.setProperty(ComputeHDFSChecksums.FILES,
+                           String.format("[" + fileEntry + "," + fileEntry + "," + fileEntry + "]",
+                                         "000000_0", "AAAAAAAAAAAAAAIAESIzRFVmd4iZqrvM3e7/AAAAAAA=",
+                                         "000000_1", "AAACAAAAAAAAAAAArRnBpxcZ9ze14XqfLMB4yA==",
+                                         "000000_2", "AAAAAAAAAAAAAAIAESIzRFVmd4iZqrvM3e7/AgAAAAA="));
+        runner.enqueue(new byte[0]);
+        runner.run();
+
+        // Check relationships
+        Assert.assertEquals(1, runner.getFlowFilesForRelationship(ComputeHDFSChecksums.REL_FAILURE).size());
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(ComputeHDFSChecksums.REL_SUCCESS).size());
+    }
+
+    @Test
+    public void testFilesWithoutChecksumDontFailOnWrongChecksum() throws Exception {
+        mockChecksumsByFileName();
+
+        runner.setProperty(ComputeHDFSChecksums.FAIL_IF_INCORRECT_CHECKSUM, "False");
+        runner.setProperty(ComputeHDFSChecksums.FILES, "[{\"name\": \"000000_0\"}, {\"name\": \"000000_1\"}]");
+        runner.enqueue(new byte[0]);
+        runner.run();
+
+        // Check relationships
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(ComputeHDFSChecksums.REL_FAILURE).size());
+        Assert.assertEquals(1, runner.getFlowFilesForRelationship(ComputeHDFSChecksums.REL_SUCCESS).size());
+
+        // Check computed checksums were passed to attributes
+        String filesJSON = runner.getFlowFilesForRelationship(ComputeHDFSChecksums.REL_SUCCESS).get(0).getAttribute("files");
+        ComputeHDFSChecksums.File[] files = new Gson().fromJson(filesJSON, ComputeHDFSChecksums.File[].class);
+        Assert.assertEquals("AAAAAAAAAAAAAAIAESIzRFVmd4iZqrvM3e7/AAAAAAA=", files[0].getComputedChecksum().getValue());
+        Assert.assertEquals("AAAAAAAAAAAAAAIAESIzRFVmd4iZqrvM3e7/AQAAAAA=", files[1].getComputedChecksum().getValue());
+    }
+
+    @Test
+    public void testFilesWithoutChecksumInParallelFailOnWrongChecksum() throws Exception {
+        mockChecksumsByFileName();
+
+        runner.setProperty(ComputeHDFSChecksums.THREAD_COUNT, "2");
+        runner.setProperty(ComputeHDFSChecksums.FAIL_IF_INCORRECT_CHECKSUM, "True");
+        runner.setProperty(ComputeHDFSChecksums.FILES, "[{\"name\": \"000000_0\"}, {\"name\": \"000000_1\"}]");
+        runner.enqueue(new byte[0]);
+        runner.run();
+
+        // Check relationships
+        Assert.assertEquals(1, runner.getFlowFilesForRelationship(ComputeHDFSChecksums.REL_FAILURE).size());
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(ComputeHDFSChecksums.REL_SUCCESS).size());
+    }
+
+    @Test
+    public void testFileNotFoundExceptionInParallel() throws Exception {
+        Mockito.doThrow(new FileNotFoundException()).when(fileSystem).getFileChecksum(any(Path.class));
+
+        runner.setProperty(ComputeHDFSChecksums.THREAD_COUNT, "2");
+        runner.setProperty(ComputeHDFSChecksums.FILES,
+                           String.format("[" + fileEntry + "," + fileEntry + "]",
+                                         "000000_0", "AAAAAAAAAAAAAAIAESIzRFVmd4iZqrvM3e7/AAAAAAA=",
+                                         "000000_1", "AAAAAAAAAAAAAAIAESIzRFVmd4iZqrvM3e7/AQAAAAA="));
+        runner.enqueue(new byte[0]);
+        runner.run();
+
+        // Check relationships
+        Assert.assertEquals(1, runner.getFlowFilesForRelationship(ComputeHDFSChecksums.REL_FAILURE).size());
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(ComputeHDFSChecksums.REL_SUCCESS).size());
+    }
+
     @Test
     public void testFileNotFoundException() throws Exception {
         String fileName = "000000_0";
@@ -333,6 +440,16 @@ public class ComputeHDFSChecksumsTest {
         return ((MockProcessContext) runner.getProcessContext()).validate();
     }
 
+    /**
+     * Returns a checksum ending with the last digit of the file name.
+     */
+    private void mockChecksumsByFileName() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            final String name = ((Path) invocation.getArguments()[0]).getName();
+            return new MD5MD5CRC32FileChecksum(0, 512, new MD5Hash("112233445566778899aabbccddeeff0" + name.charAt(name.length() - 1)));
+        }).when(fileSystem).getFileChecksum(any(Path.class));
+    }
+
     private void verifyGetFileChecksumCall(String fileName) throws Exception {
         InOrder inOrder = Mockito.inOrder(fileSystem);
         inOrder.verify(fileSystem).getFileChecksum(new Path(fileName));
@@ -24,7 +24,9 @@ import com.thinkbiganalytics.jms.SendJmsMessage;
 import com.thinkbiganalytics.jms.Queues;
 import com.thinkbiganalytics.nifi.provenance.AggregationEventProcessingStats;
 import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.codec.ProvenanceMessageCodec;
 import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+import com.thinkbiganalytics.nifi.provenance.repo.ConfigurationProperties;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +44,8 @@ import javax.annotation.PostConstruct;
  * 2 Queues are used.  The Queue names are constants shared with Kylo Operations Manager found in the {@link Queues} class.
  * Queues.PROVENANCE_EVENT_STATS_QUEUE  is the Statistics Queue name for creating the Summary statistics
  * Queues.FEED_MANAGER_QUEUE is the Batch Provenance Events Queue for creating the Jobs/Steps in Kylo
+ *
+ * Messages are java serialized unless the binary {@link ProvenanceMessageCodec} format is enabled in the config.properties
  */
 public class ProvenanceEventJmsWriter {
 
@@ -54,6 +58,8 @@ public class ProvenanceEventJmsWriter {
 
     private Map<String, Set<JmsSendListener>> listeners = new HashMap<>();
 
+    private volatile ProvenanceMessageCodec messageCodec;
+
     public ProvenanceEventJmsWriter() {
 
     }
@@ -85,6 +91,22 @@ public class ProvenanceEventJmsWriter {
         }
     }
 
+    /**
+     * @return the codec used to encode the messages, or null if they should be java serialized
+     */
+    private ProvenanceMessageCodec getMessageCodec() {
+        ConfigurationProperties properties = ConfigurationProperties.getInstance();
+        if (!properties.isBinaryJmsMessageFormat()) {
+            return null;
+        }
+        ProvenanceMessageCodec codec = messageCodec;
+        if (codec == null || codec.getCompression() != properties.getJmsMessageCompression()) {
+            codec = new ProvenanceMessageCodec(properties.getJmsMessageCompression());
+            messageCodec = codec;
+        }
+        return codec;
+    }
+
     /**
      * Send the Statistics to JMS using the JMS Queue {@link Queues#PROVENANCE_EVENT_STATS_QUEUE}
      *
@@ -92,7 +114,12 @@ public class ProvenanceEventJmsWriter {
      */
     public void writeStats(AggregatedFeedProcessorStatisticsHolder stats) {
         try {
-                sendJmsMessage.sendSerializedObjectToQueue(Queues.PROVENANCE_EVENT_STATS_QUEUE, stats);
+                ProvenanceMessageCodec codec = getMessageCodec();
+                if (codec != null) {
+                    sendJmsMessage.sendBytesToQueue(Queues.PROVENANCE_EVENT_STATS_QUEUE, codec.encode(stats));
+                } else {
+                    sendJmsMessage.sendSerializedObjectToQueue(Queues.PROVENANCE_EVENT_STATS_QUEUE, stats);
+                }
               //  AggregationEventProcessingStats.addStreamingEvents(stats.getEventCount().intValue());
                 notifySuccess(Queues.PROVENANCE_EVENT_STATS_QUEUE, stats);
         } catch (Exception e) {
@@ -109,7 +136,12 @@ public class ProvenanceEventJmsWriter {
     public void writeBatchEvents(ProvenanceEventRecordDTOHolder events) {
         try {
             logger.info("SENDING Batch Events to JMS {} ", events);
-            sendJmsMessage.sendSerializedObjectToQueue(Queues.FEED_MANAGER_QUEUE, events);
+            ProvenanceMessageCodec codec = getMessageCodec();
+            if (codec != null) {
+                sendJmsMessage.sendBytesToQueue(Queues.FEED_MANAGER_QUEUE, codec.encode(events));
+            } else {
+                sendJmsMessage.sendSerializedObjectToQueue(Queues.FEED_MANAGER_QUEUE, events);
+            }
             AggregationEventProcessingStats.addBatchEvents(events.getEvents().size());
             notifySuccess(Queues.FEED_MANAGER_QUEUE, events);
         } catch (Exception e) {
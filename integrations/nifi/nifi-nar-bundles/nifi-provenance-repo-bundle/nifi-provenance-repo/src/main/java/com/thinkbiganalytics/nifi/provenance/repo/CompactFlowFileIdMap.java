@@ -0,0 +1,156 @@
+package com.thinkbiganalytics.nifi.provenance.repo;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import org.eclipse.collections.impl.map.mutable.UnifiedMap;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thread safe map of flow file id to another flow file id, such as the map of every flow file to the feed flow file that started it.
+ *
+ * Keys are stored as 128-bit {@link UUID}s in striped {@link UnifiedMap}s, which keep their entries inline in the table rather than in a node per entry.
+ * Values are interned so the many flow files belonging to the same feed flow share a single string, which is handed back as is on lookups.
+ * Keys that are not canonical lower case uuids are kept in a regular map.
+ *
+ * The {@link #entrySet()} is a point in time copy and is only intended for backing up or copying the map.
+ */
+public class CompactFlowFileIdMap extends AbstractMap<String, String> {
+
+    private final UnifiedMap<UUID, String>[] stripes;
+
+    private final int mask;
+
+    private final Map<String, String> nonUuidIds = new ConcurrentHashMap<>();
+
+    private final Interner<String> values = Interners.newWeakInterner();
+
+    public CompactFlowFileIdMap() {
+        this(16);
+    }
+
+    @SuppressWarnings("unchecked")
+    public CompactFlowFileIdMap(int stripeCount) {
+        int count = FlowFileUuids.stripeCount(stripeCount);
+        this.stripes = new UnifiedMap[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new UnifiedMap<>();
+        }
+        this.mask = count - 1;
+    }
+
+    private UnifiedMap<UUID, String> stripe(UUID key) {
+        return stripes[FlowFileUuids.stripe(key.getLeastSignificantBits() ^ key.getMostSignificantBits(), mask)];
+    }
+
+    @Override
+    public String get(Object key) {
+        UUID uuid = FlowFileUuids.parse(key);
+        if (uuid != null) {
+            UnifiedMap<UUID, String> map = stripe(uuid);
+            String value;
+            synchronized (map) {
+                value = map.get(uuid);
+            }
+            if (value != null) {
+                return value;
+            }
+        }
+        return nonUuidIds.isEmpty() || key == null ? null : nonUuidIds.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public String put(String key, String value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        UUID uuid = FlowFileUuids.parse(key);
+        if (uuid == null) {
+            return nonUuidIds.put(key, value);
+        }
+        String storedValue = values.intern(value);
+        UnifiedMap<UUID, String> map = stripe(uuid);
+        synchronized (map) {
+            return map.put(uuid, storedValue);
+        }
+    }
+
+    @Override
+    public String remove(Object key) {
+        UUID uuid = FlowFileUuids.parse(key);
+        if (uuid != null) {
+            UnifiedMap<UUID, String> map = stripe(uuid);
+            String value;
+            synchronized (map) {
+                value = map.remove(uuid);
+            }
+            if (value != null) {
+                return value;
+            }
+        }
+        return nonUuidIds.isEmpty() || key == null ? null : nonUuidIds.remove(key);
+    }
+
+    @Override
+    public int size() {
+        int size = nonUuidIds.size();
+        for (UnifiedMap<UUID, String> map : stripes) {
+            synchronized (map) {
+                size += map.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        nonUuidIds.clear();
+        for (UnifiedMap<UUID, String> map : stripes) {
+            synchronized (map) {
+                map.clear();
+            }
+        }
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        Map<String, String> copy = new HashMap<>(nonUuidIds);
+        for (UnifiedMap<UUID, String> map : stripes) {
+            synchronized (map) {
+                map.forEachKeyValue((uuid, value) -> copy.put(uuid.toString(), value));
+            }
+        }
+        return copy.entrySet();
+    }
+}
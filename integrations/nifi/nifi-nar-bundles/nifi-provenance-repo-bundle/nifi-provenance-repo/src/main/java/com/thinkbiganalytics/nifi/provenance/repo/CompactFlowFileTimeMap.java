@@ -0,0 +1,153 @@
+package com.thinkbiganalytics.nifi.provenance.repo;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectLongHashMap;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thread safe map of flow file id to a time in millis.
+ * Flow file ids are stored as 128-bit {@link UUID} keys in striped primitive {@link ObjectLongHashMap}s, avoiding the map node, the id string and the boxed {@link Long}.
+ * Ids that are not canonical uuids are kept in a regular map.
+ *
+ * The {@link #entrySet()} is a point in time copy and is only intended for backing up or copying the map.
+ */
+public class CompactFlowFileTimeMap extends AbstractMap<String, Long> {
+
+    private final ObjectLongHashMap<UUID>[] stripes;
+
+    private final int mask;
+
+    private final Map<String, Long> nonUuidIds = new ConcurrentHashMap<>();
+
+    public CompactFlowFileTimeMap() {
+        this(16);
+    }
+
+    @SuppressWarnings("unchecked")
+    public CompactFlowFileTimeMap(int stripeCount) {
+        int count = FlowFileUuids.stripeCount(stripeCount);
+        this.stripes = new ObjectLongHashMap[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ObjectLongHashMap<>();
+        }
+        this.mask = count - 1;
+    }
+
+    private ObjectLongHashMap<UUID> stripe(UUID key) {
+        return stripes[FlowFileUuids.stripe(key.getLeastSignificantBits() ^ key.getMostSignificantBits(), mask)];
+    }
+
+    @Override
+    public Long get(Object key) {
+        UUID uuid = FlowFileUuids.parse(key);
+        if (uuid != null) {
+            ObjectLongHashMap<UUID> map = stripe(uuid);
+            synchronized (map) {
+                if (map.containsKey(uuid)) {
+                    return map.get(uuid);
+                }
+            }
+        }
+        return nonUuidIds.isEmpty() || key == null ? null : nonUuidIds.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        UUID uuid = FlowFileUuids.parse(key);
+        if (uuid != null) {
+            ObjectLongHashMap<UUID> map = stripe(uuid);
+            synchronized (map) {
+                if (map.containsKey(uuid)) {
+                    return true;
+                }
+            }
+        }
+        return !nonUuidIds.isEmpty() && key != null && nonUuidIds.containsKey(key);
+    }
+
+    @Override
+    public Long put(String key, Long value) {
+        UUID uuid = FlowFileUuids.parse(key);
+        if (uuid == null) {
+            return nonUuidIds.put(key, value);
+        }
+        long v = value;
+        ObjectLongHashMap<UUID> map = stripe(uuid);
+        synchronized (map) {
+            Long previous = map.containsKey(uuid) ? map.get(uuid) : null;
+            map.put(uuid, v);
+            return previous;
+        }
+    }
+
+    @Override
+    public Long remove(Object key) {
+        UUID uuid = FlowFileUuids.parse(key);
+        if (uuid != null) {
+            ObjectLongHashMap<UUID> map = stripe(uuid);
+            synchronized (map) {
+                if (map.containsKey(uuid)) {
+                    return map.removeKeyIfAbsent(uuid, 0L);
+                }
+            }
+        }
+        return nonUuidIds.isEmpty() || key == null ? null : nonUuidIds.remove(key);
+    }
+
+    @Override
+    public int size() {
+        int size = nonUuidIds.size();
+        for (ObjectLongHashMap<UUID> map : stripes) {
+            synchronized (map) {
+                size += map.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        nonUuidIds.clear();
+        for (ObjectLongHashMap<UUID> map : stripes) {
+            synchronized (map) {
+                map.clear();
+            }
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Long>> entrySet() {
+        Map<String, Long> copy = new HashMap<>(nonUuidIds);
+        for (ObjectLongHashMap<UUID> map : stripes) {
+            synchronized (map) {
+                map.forEachKeyValue((uuid, value) -> copy.put(uuid.toString(), value));
+            }
+        }
+        return copy.entrySet();
+    }
+}
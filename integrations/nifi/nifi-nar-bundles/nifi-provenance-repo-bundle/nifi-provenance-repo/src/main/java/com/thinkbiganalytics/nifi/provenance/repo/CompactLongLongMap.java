@@ -0,0 +1,140 @@
+package com.thinkbiganalytics.nifi.provenance.repo;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.eclipse.collections.impl.map.mutable.primitive.LongLongHashMap;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A thread safe map of event id to a long value stored in striped primitive {@link LongLongHashMap}s.
+ *
+ * Each entry costs two longs in the backing array instead of a map node and two boxed {@link Long} objects.
+ * The {@link #entrySet()} is a point in time copy and is only intended for backing up or copying the map.
+ */
+public class CompactLongLongMap extends AbstractMap<Long, Long> {
+
+    private final LongLongHashMap[] stripes;
+
+    private final int mask;
+
+    public CompactLongLongMap() {
+        this(16);
+    }
+
+    public CompactLongLongMap(int stripeCount) {
+        int count = FlowFileUuids.stripeCount(stripeCount);
+        this.stripes = new LongLongHashMap[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new LongLongHashMap();
+        }
+        this.mask = count - 1;
+    }
+
+    private LongLongHashMap stripe(long key) {
+        return stripes[FlowFileUuids.stripe(key, mask)];
+    }
+
+    @Override
+    public Long get(Object key) {
+        if (!(key instanceof Long)) {
+            return null;
+        }
+        long k = (Long) key;
+        LongLongHashMap map = stripe(k);
+        synchronized (map) {
+            return map.containsKey(k) ? map.get(k) : null;
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof Long)) {
+            return false;
+        }
+        long k = (Long) key;
+        LongLongHashMap map = stripe(k);
+        synchronized (map) {
+            return map.containsKey(k);
+        }
+    }
+
+    @Override
+    public Long put(Long key, Long value) {
+        long k = key;
+        long v = value;
+        LongLongHashMap map = stripe(k);
+        synchronized (map) {
+            Long previous = map.containsKey(k) ? map.get(k) : null;
+            map.put(k, v);
+            return previous;
+        }
+    }
+
+    @Override
+    public Long remove(Object key) {
+        if (!(key instanceof Long)) {
+            return null;
+        }
+        long k = (Long) key;
+        LongLongHashMap map = stripe(k);
+        synchronized (map) {
+            if (map.containsKey(k)) {
+                return map.removeKeyIfAbsent(k, 0L);
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (LongLongHashMap map : stripes) {
+            synchronized (map) {
+                size += map.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (LongLongHashMap map : stripes) {
+            synchronized (map) {
+                map.clear();
+            }
+        }
+    }
+
+    @Override
+    public Set<Entry<Long, Long>> entrySet() {
+        Map<Long, Long> copy = new HashMap<>();
+        for (LongLongHashMap map : stripes) {
+            synchronized (map) {
+                map.forEachKeyValue(copy::put);
+            }
+        }
+        return copy.entrySet();
+    }
+}
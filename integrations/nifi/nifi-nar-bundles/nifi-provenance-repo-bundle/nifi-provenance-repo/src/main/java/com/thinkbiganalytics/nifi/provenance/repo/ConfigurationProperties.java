@@ -20,6 +20,8 @@ package com.thinkbiganalytics.nifi.provenance.repo;
  * #L%
  */
 
+import com.thinkbiganalytics.nifi.provenance.model.codec.ProvenanceMessageCodec;
+
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,6 +46,14 @@ public class ConfigurationProperties {
     public static final Long DEFAULT_RUN_INTERVAL_MILLIS = 3000L;
     public static final Integer DEFAULT_THROTTLE_STARTING_FEED_FLOWS_THRESHOLD = 15;
     public static final Integer DEFAULT_THROTTLE_STARTING_FEED_FLOWS_TIME_PERIOD_MILLIS = 1000;
+    public static final Integer DEFAULT_STATISTICS_SHARDS = 16;
+    public static final String DEFAULT_JOURNAL_DIRECTORY_NAME = "feed-event-statistics-journal";
+    public static final Integer DEFAULT_JOURNAL_SEGMENT_SIZE_MB = 64;
+    public static final Long DEFAULT_JOURNAL_COMPACTION_INTERVAL_SECONDS = 60L;
+    public static final Integer DEFAULT_JOURNAL_COMPACTION_THRESHOLD_MB = 32;
+    public static final String JMS_MESSAGE_FORMAT_SERIALIZED = "serialized";
+    public static final String JMS_MESSAGE_FORMAT_BINARY = "binary";
+    public static final String DEFAULT_JMS_MESSAGE_COMPRESSION = "deflate";
 
     public static final String DEFAULT_ORPHAN_CHILD_FLOW_FILE_PROCESSORS = "{\"CLONE\":[\"ConvertCSVToAvro\"]}";
 
@@ -59,6 +69,15 @@ public class ConfigurationProperties {
     private String backupLocation = DEFAULT_BACKUP_LOCATION;
     private Integer throttleStartingFeedFlowsThreshold = DEFAULT_THROTTLE_STARTING_FEED_FLOWS_THRESHOLD;
     private Integer throttleStartingFeedFlowsTimePeriodMillis = DEFAULT_THROTTLE_STARTING_FEED_FLOWS_TIME_PERIOD_MILLIS;
+    private Integer statisticsShards = DEFAULT_STATISTICS_SHARDS;
+    private boolean compactStateStore = false;
+    private boolean journalEnabled = false;
+    private String journalLocation;
+    private Integer journalSegmentSizeMb = DEFAULT_JOURNAL_SEGMENT_SIZE_MB;
+    private Long journalCompactionIntervalSeconds = DEFAULT_JOURNAL_COMPACTION_INTERVAL_SECONDS;
+    private Integer journalCompactionThresholdMb = DEFAULT_JOURNAL_COMPACTION_THRESHOLD_MB;
+    private String jmsMessageFormat = JMS_MESSAGE_FORMAT_SERIALIZED;
+    private String jmsMessageCompression = DEFAULT_JMS_MESSAGE_COMPRESSION;
 
     //JSON MAP of eventType to processors that create children that are removed without provenance.
     private String orphanChildFlowFileProcessorsString;
@@ -112,10 +131,22 @@ public class ConfigurationProperties {
 
         this.throttleStartingFeedFlowsThreshold = new Integer(properties.getProperty("kylo.provenance.event.count.throttle.threshold", DEFAULT_THROTTLE_STARTING_FEED_FLOWS_THRESHOLD + ""));
         this.throttleStartingFeedFlowsTimePeriodMillis = new Integer(properties.getProperty("kylo.provenance.event.throttle.threshold.time.millis", DEFAULT_THROTTLE_STARTING_FEED_FLOWS_TIME_PERIOD_MILLIS + ""));
+        this.statisticsShards = new Integer(properties.getProperty("kylo.provenance.statistics.shards", DEFAULT_STATISTICS_SHARDS + ""));
+        this.compactStateStore = Boolean.parseBoolean(properties.getProperty("kylo.provenance.compact.state.store", "false"));
+        this.journalEnabled = Boolean.parseBoolean(properties.getProperty("kylo.provenance.cache.journal.enabled", "false"));
+        this.journalLocation = properties.getProperty("kylo.provenance.cache.journal.location");
+        this.journalSegmentSizeMb = new Integer(properties.getProperty("kylo.provenance.cache.journal.segment.size.mb", DEFAULT_JOURNAL_SEGMENT_SIZE_MB + ""));
+        this.journalCompactionIntervalSeconds = new Long(properties.getProperty("kylo.provenance.cache.journal.compaction.interval.seconds", DEFAULT_JOURNAL_COMPACTION_INTERVAL_SECONDS + ""));
+        this.journalCompactionThresholdMb = new Integer(properties.getProperty("kylo.provenance.cache.journal.compaction.threshold.mb", DEFAULT_JOURNAL_COMPACTION_THRESHOLD_MB + ""));
+        this.jmsMessageFormat = properties.getProperty("kylo.provenance.jms.message.format", JMS_MESSAGE_FORMAT_SERIALIZED);
+        this.jmsMessageCompression = properties.getProperty("kylo.provenance.jms.message.compression", DEFAULT_JMS_MESSAGE_COMPRESSION);
         orphanChildFlowFileProcessorsString = properties.getProperty("kylo.provenance.orphan.child.flowfile.processors", DEFAULT_ORPHAN_CHILD_FLOW_FILE_PROCESSORS);
         //only update this on the initial run.  Any changes will be detected and updated with the ConfigurationPropertiesRefresher
         if(lastModified == null) {
             FeedEventStatistics.getInstance().updateEventTypeProcessorTypeSkipChildren(orphanChildFlowFileProcessorsString);
+            if (compactStateStore) {
+                FeedEventStatistics.getInstance().useCompactStateStore();
+            }
         }
     }
 
@@ -138,6 +169,78 @@ public class ConfigurationProperties {
         return throttleStartingFeedFlowsTimePeriodMillis == null ? DEFAULT_THROTTLE_STARTING_FEED_FLOWS_THRESHOLD : throttleStartingFeedFlowsTimePeriodMillis;
     }
 
+    /**
+     * The number of independent shards the feed processor statistics are partitioned into.
+     * This is only read on startup
+     */
+    public Integer getStatisticsShards() {
+        return statisticsShards == null || statisticsShards < 1 ? DEFAULT_STATISTICS_SHARDS : statisticsShards;
+    }
+
+    /**
+     * Should the feed event statistics track flow files and events using the compact, primitive keyed state store.
+     * This is only read on startup
+     */
+    public boolean isCompactStateStore() {
+        return compactStateStore;
+    }
+
+    /**
+     * Should changes to the feed event statistics be journaled to disk as they happen, instead of only backed up on shutdown.
+     * This is only read on startup
+     */
+    public boolean isFeedEventStatisticsJournalEnabled() {
+        return journalEnabled;
+    }
+
+    /**
+     * The directory holding the feed event statistics journal.  Defaults to a directory alongside the backup location
+     */
+    public String getFeedEventStatisticsJournalLocation() {
+        if (StringUtils.isNotBlank(journalLocation)) {
+            return journalLocation;
+        }
+        File parent = new File(getFeedEventStatisticsBackupLocation()).getParentFile();
+        return new File(parent, DEFAULT_JOURNAL_DIRECTORY_NAME).getPath();
+    }
+
+    /**
+     * The size, in bytes, of each memory mapped journal segment
+     */
+    public Integer getFeedEventStatisticsJournalSegmentSizeBytes() {
+        int sizeMb = journalSegmentSizeMb == null || journalSegmentSizeMb < 1 ? DEFAULT_JOURNAL_SEGMENT_SIZE_MB : journalSegmentSizeMb;
+        return sizeMb * 1024 * 1024;
+    }
+
+    /**
+     * How often the journal is synced to disk and checked for compaction
+     */
+    public Long getFeedEventStatisticsJournalCompactionIntervalSeconds() {
+        return journalCompactionIntervalSeconds == null || journalCompactionIntervalSeconds < 1 ? DEFAULT_JOURNAL_COMPACTION_INTERVAL_SECONDS : journalCompactionIntervalSeconds;
+    }
+
+    /**
+     * The bytes journaled since the last checkpoint that trigger a new checkpoint
+     */
+    public Long getFeedEventStatisticsJournalCompactionThresholdBytes() {
+        int thresholdMb = journalCompactionThresholdMb == null || journalCompactionThresholdMb < 0 ? DEFAULT_JOURNAL_COMPACTION_THRESHOLD_MB : journalCompactionThresholdMb;
+        return thresholdMb * 1024L * 1024L;
+    }
+
+    /**
+     * Should the events and statistics be sent to JMS using the binary {@link ProvenanceMessageCodec} rather than java serialization
+     */
+    public boolean isBinaryJmsMessageFormat() {
+        return JMS_MESSAGE_FORMAT_BINARY.equalsIgnoreCase(StringUtils.trim(jmsMessageFormat));
+    }
+
+    /**
+     * The compression applied to binary JMS messages
+     */
+    public ProvenanceMessageCodec.Compression getJmsMessageCompression() {
+        return ProvenanceMessageCodec.Compression.fromName(jmsMessageCompression);
+    }
+
     public Long getFeedProcessingRunInterval() {
         return runInterval == null ? DEFAULT_RUN_INTERVAL_MILLIS : runInterval;
     }
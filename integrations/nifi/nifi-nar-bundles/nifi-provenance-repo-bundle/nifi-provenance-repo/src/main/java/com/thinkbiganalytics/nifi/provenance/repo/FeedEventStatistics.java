@@ -26,7 +26,9 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.Striped;
 import com.thinkbiganalytics.json.ObjectMapperSerializer;
+import com.thinkbiganalytics.nifi.provenance.repo.FeedEventStatisticsJournal.Field;
 import com.thinkbiganalytics.nifi.provenance.util.ProvenanceEventUtil;
 
 import org.apache.commons.io.serialization.ValidatingObjectInputStream;
@@ -46,15 +48,17 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -69,7 +73,7 @@ public class FeedEventStatistics implements Serializable {
     protected Map<String, String> feedFlowFileIdToFeedProcessorId = new ConcurrentHashMap<>();
 
     ////Track feedFlowFile relationships to parent/child flow files for lifetime feed job execution
-    protected Set<String> detailedTrackingFeedFlowFileId = new HashSet<>();
+    protected Set<String> detailedTrackingFeedFlowFileId = ConcurrentHashMap.newKeySet();
 
     /**
      * Map of all the flow files as they pertain to the starting feed flow file
@@ -87,12 +91,23 @@ public class FeedEventStatistics implements Serializable {
     RemovalListener<Long, String> flowFileRemovalListener = new RemovalListener<Long, String>() {
         @Override
         public void onRemoval(RemovalNotification<Long, String> removalNotification) {
-            Long eventId = removalNotification.getKey();
-            String flowFileId = removalNotification.getValue();
-            clearData(eventId, flowFileId);
+            //the listener runs on whichever thread touches the cache, which may be holding the lock of another feed flow.
+            //queue the flow file to be cleared by clearExpiredFlowFiles once that lock is released
+            expiredFlowFiles.add(new ExpiredFlowFile(removalNotification.getKey(), removalNotification.getValue()));
         }
     };
 
+    /**
+     * Flow files removed from the {@link #detailedTrackingFlowFilesToDelete} cache that still need their data cleared
+     */
+    private final transient Queue<ExpiredFlowFile> expiredFlowFiles = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Locks striped by the feed flow file id.  Changes to the flow file lineage of a feed flow are made holding its lock
+     * so events for flow files of the same feed flow do not lose each other's parent, child or starting flow file assignments.
+     */
+    private final transient Striped<Lock> feedFlowLocks = Striped.lock(256);
+
     /**
      * An Expiring cache of the flowfile information that is tracked and Sent to Kylo Ops Manager as ProvenanceEventDTO objects
      * Map<EventId, eventFlowFileId>.  The eventId is tied to the flowfile id that initiated the final DROP event type
@@ -135,7 +150,7 @@ public class FeedEventStatistics implements Serializable {
     /**
      * Set of Event Ids that are events that finish the feed flow execution.  Last Job Event Ids
      */
-    protected Set<Long> eventsThatCompleteFeedFlow = new HashSet<>();
+    protected Set<Long> eventsThatCompleteFeedFlow = ConcurrentHashMap.newKeySet();
 
     /**
      * Count of how many flow files are still processing for a given feedFlowFile execution
@@ -164,7 +179,7 @@ public class FeedEventStatistics implements Serializable {
     /**
      * Count of the flows running by feed processor
      */
-    protected Set<String> changedFeedProcessorRunningFeedFlows = new HashSet<>();
+    protected Set<String> changedFeedProcessorRunningFeedFlows = ConcurrentHashMap.newKeySet();
 
     protected AtomicBoolean feedProcessorRunningFeedFlowsChanged = new AtomicBoolean(false);
 
@@ -179,6 +194,11 @@ public class FeedEventStatistics implements Serializable {
      */
     private Map<String, Set<String>> eventTypeProcessorTypeSkipChildren = new HashMap<>();
 
+    /**
+     * Journal recording the changes to the statistics, or null if journaling is not enabled
+     */
+    private transient volatile FeedEventStatisticsJournal journal;
+
 
     private static final FeedEventStatistics instance = new FeedEventStatistics();
 
@@ -212,6 +232,133 @@ public class FeedEventStatistics implements Serializable {
         return skip;
     }
 
+    /**
+     * Switch the flow file and event maps to the compact, primitive keyed store.
+     * Any data already tracked is copied into the new store.  This should be called on startup before events are processed.
+     */
+    public void useCompactStateStore() {
+        if (!(allFlowFileToFeedFlowFile instanceof CompactFlowFileIdMap)) {
+            Map<String, String> compactAllFlowFileToFeedFlowFile = new CompactFlowFileIdMap();
+            compactAllFlowFileToFeedFlowFile.putAll(allFlowFileToFeedFlowFile);
+            allFlowFileToFeedFlowFile = compactAllFlowFileToFeedFlowFile;
+
+            Map<String, Long> compactFlowFileLastNonDropEventTime = new CompactFlowFileTimeMap();
+            compactFlowFileLastNonDropEventTime.putAll(flowFileLastNonDropEventTime);
+            flowFileLastNonDropEventTime = compactFlowFileLastNonDropEventTime;
+
+            Map<Long, Long> compactEventDuration = new CompactLongLongMap();
+            compactEventDuration.putAll(eventDuration);
+            eventDuration = compactEventDuration;
+
+            Map<Long, Long> compactEventStartTime = new CompactLongLongMap();
+            compactEventStartTime.putAll(eventStartTime);
+            eventStartTime = compactEventStartTime;
+            log.info("Using the compact state store for feed event statistics");
+        }
+    }
+
+    /**
+     * Start journaling the changes to the statistics.
+     * The caller must ensure no events are processed while the journal is started, see {@link FeedStatisticsManager#startJournal(FeedEventStatisticsJournal, boolean)}
+     *
+     * @param journal the journal
+     * @param recover true to first recover the statistics from the journal, false if they were already loaded from the backup
+     */
+    public void startJournal(FeedEventStatisticsJournal journal, boolean recover) {
+        if (recover) {
+            FeedEventStatisticsData data = journal.recover();
+            if (data != null) {
+                load(data);
+            }
+        }
+        this.journal = journal;
+    }
+
+    public boolean isJournaling() {
+        return journal != null;
+    }
+
+    /**
+     * Start a new journal segment and copy the statistics for a checkpoint of the journal.
+     * Events continue to be processed while the statistics are copied.  Every change is made before it is journaled, so the changes in the earlier segments are all in the copy,
+     * and the changes made during the copy are also in the new segment, which replays them idempotently.
+     *
+     * @return the checkpoint to write, or null if not journaling or the checkpoint could not be started
+     */
+    public Checkpoint startCheckpoint() {
+        FeedEventStatisticsJournal journal = this.journal;
+        if (journal == null) {
+            return null;
+        }
+        try {
+            clearExpiredFlowFiles();
+            long sequence = journal.startCheckpoint();
+            FeedEventStatisticsData data = FeedEventStatisticsData.copyOf(this);
+            return new Checkpoint(journal, data, sequence);
+        } catch (Exception e) {
+            log.error("Unable to start the feed event statistics checkpoint. {} ", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Sync the journal to disk
+     *
+     * @param compactionThresholdBytes the bytes journaled since the last checkpoint that trigger a new checkpoint
+     * @return true if enough has been journaled since the last checkpoint that a new one should be written
+     */
+    public boolean syncJournal(long compactionThresholdBytes) {
+        FeedEventStatisticsJournal journal = this.journal;
+        if (journal != null) {
+            journal.force();
+            return journal.getBytesSinceCheckpoint() >= compactionThresholdBytes;
+        }
+        return false;
+    }
+
+    /**
+     * Close the journal, writing any queued changes
+     *
+     * @return true if every change was journaled, false if not journaling or the journal failed and the statistics need to be backed up instead
+     */
+    public boolean closeJournal() {
+        FeedEventStatisticsJournal journal = this.journal;
+        if (journal != null) {
+            this.journal = null;
+            journal.close();
+            return !journal.isFailed();
+        }
+        return false;
+    }
+
+    private void journalPut(Field field, Object key, Object value) {
+        FeedEventStatisticsJournal journal = this.journal;
+        if (journal != null) {
+            journal.put(field, key, value);
+        }
+    }
+
+    private void journalAdd(Field field, Object key) {
+        FeedEventStatisticsJournal journal = this.journal;
+        if (journal != null) {
+            journal.add(field, key);
+        }
+    }
+
+    private void journalRemove(Field field, Object key) {
+        FeedEventStatisticsJournal journal = this.journal;
+        if (journal != null) {
+            journal.remove(field, key);
+        }
+    }
+
+    private void journalSet(Field field, Object key, long value) {
+        FeedEventStatisticsJournal journal = this.journal;
+        if (journal != null) {
+            journal.set(field, key, value);
+        }
+    }
+
     public void updateEventTypeProcessorTypeSkipChildren(String json) {
         try {
             Map<String, Set<String>> m = ObjectMapperSerializer.deserialize(json, new TypeReference<Map<String, Set<String>>>() {
@@ -232,7 +379,7 @@ public class FeedEventStatistics implements Serializable {
 
         try {
             //cleanup any files that should be removed before backup
-            detailedTrackingFlowFilesToDelete.cleanUp();
+            clearExpiredFlowFiles();
 
             FileOutputStream fos = new FileOutputStream(location);
             GZIPOutputStream gz = new GZIPOutputStream(fos);
@@ -327,13 +474,76 @@ public class FeedEventStatistics implements Serializable {
     }
 
 
+    /**
+     * @param feedFlowFileId the starting feed flow file id
+     * @return the lock guarding the lineage of the feed flow
+     */
+    public Lock feedFlowLock(String feedFlowFileId) {
+        return feedFlowLocks.get(feedFlowFileId != null ? feedFlowFileId : "");
+    }
+
+    /**
+     * Find the starting feed flow file an event belongs to before its lineage is assigned.
+     * A starting event is its own feed flow file, otherwise it is the feed flow file of the event flow file or of one of its parents.
+     *
+     * @param event the event
+     * @return the feed flow file id, or null if the event is not part of a tracked feed flow
+     */
+    public String resolveFeedFlowFileId(ProvenanceEventRecord event) {
+        if (ProvenanceEventUtil.isStartingFeedFlow(event)) {
+            return event.getFlowFileUuid();
+        }
+        String feedFlowFile = allFlowFileToFeedFlowFile.get(event.getFlowFileUuid());
+        if (feedFlowFile == null && hasParents(event)) {
+            feedFlowFile = determineParentFeedFlow(event);
+        }
+        return feedFlowFile;
+    }
+
+    /**
+     * @param event          the event
+     * @param feedFlowFileId the feed flow file id from {@link #resolveFeedFlowFileId(ProvenanceEventRecord)}
+     * @return the processor id that started the feed flow, or null if the feed flow is not tracked
+     */
+    public String resolveFeedProcessorId(ProvenanceEventRecord event, String feedFlowFileId) {
+        if (feedFlowFileId == null) {
+            return null;
+        }
+        if (ProvenanceEventUtil.isStartingFeedFlow(event)) {
+            return event.getComponentId();
+        }
+        return feedFlowFileIdToFeedProcessorId.get(feedFlowFileId);
+    }
+
+    /**
+     * Expire the tracked flow files whose removal was delayed and clear their data.
+     * This is called periodically by the gather statistics task rather than for every event.
+     * Each flow file is cleared holding the lock of its feed flow, so this must not be called while holding a feed flow lock.
+     */
+    public void clearExpiredFlowFiles() {
+        detailedTrackingFlowFilesToDelete.cleanUp();
+        ExpiredFlowFile expired;
+        while ((expired = expiredFlowFiles.poll()) != null) {
+            Lock lock = feedFlowLock(getFeedFlowFileId(expired.flowFileId));
+            lock.lock();
+            try {
+                clearData(expired.eventId, expired.flowFileId);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
     public void checkAndAssignStartingFlowFile(ProvenanceEventRecord event) {
         if (ProvenanceEventUtil.isStartingFeedFlow(event)) {
             //startingFlowFiles.add(event.getFlowFileUuid());
             allFlowFileToFeedFlowFile.put(event.getFlowFileUuid(), event.getFlowFileUuid());
+            journalPut(Field.ALL_FLOW_FILE_TO_FEED_FLOW_FILE, event.getFlowFileUuid(), event.getFlowFileUuid());
             //add the flow to active processing
-            feedFlowProcessing.computeIfAbsent(event.getFlowFileUuid(), feedFlowFileId -> new AtomicInteger(0)).incrementAndGet();
+            int processing = feedFlowProcessing.computeIfAbsent(event.getFlowFileUuid(), feedFlowFileId -> new AtomicInteger(0)).incrementAndGet();
+            journalSet(Field.FEED_FLOW_PROCESSING, event.getFlowFileUuid(), processing);
             feedFlowFileIdToFeedProcessorId.put(event.getFlowFileUuid(), event.getComponentId());
+            journalPut(Field.FEED_FLOW_FILE_PROCESSOR_ID, event.getFlowFileUuid(), event.getComponentId());
 
             feedProcessorRunningFeedFlows.computeIfAbsent(event.getComponentId(),processorId -> new AtomicLong(0)).incrementAndGet();
             feedProcessorRunningFeedFlowsChanged.set(true);
@@ -351,6 +561,25 @@ public class FeedEventStatistics implements Serializable {
         return feedProcessorRunningFeedFlowsChanged.get();
     }
 
+    /**
+     * Return the running flow counts for the feed processors that changed since the last call and mark them as unchanged.
+     * Changes made while draining are kept for the next call.
+     *
+     * @return the changed feed processor ids and their running flow counts
+     */
+    public Map<String, Long> drainRunningFeedFlowsChanged() {
+        feedProcessorRunningFeedFlowsChanged.set(false);
+        Map<String, Long> changed = new HashMap<>();
+        for (String processorId : changedFeedProcessorRunningFeedFlows) {
+            changedFeedProcessorRunningFeedFlows.remove(processorId);
+            AtomicLong count = feedProcessorRunningFeedFlows.get(processorId);
+            if (count != null) {
+                changed.put(processorId, count.get());
+            }
+        }
+        return changed;
+    }
+
     /**
      * attach the event that has parents/children to a tracking feedflowfile (if possible)
      * This is for the Many to one case
@@ -385,8 +614,10 @@ public class FeedEventStatistics implements Serializable {
                 startingFlowFile = determineParentFeedFlow(event);
                 if (startingFlowFile != null) {
                     allFlowFileToFeedFlowFile.put(event.getFlowFileUuid(), startingFlowFile);
+                    journalPut(Field.ALL_FLOW_FILE_TO_FEED_FLOW_FILE, event.getFlowFileUuid(), startingFlowFile);
                     if (feedFlowProcessing.containsKey(startingFlowFile)) {
-                        feedFlowProcessing.get(startingFlowFile).incrementAndGet();
+                        int processing = feedFlowProcessing.get(startingFlowFile).incrementAndGet();
+                        journalSet(Field.FEED_FLOW_PROCESSING, startingFlowFile, processing);
                         trackingEventFlowFile = true;
                     }
                 }
@@ -397,13 +628,16 @@ public class FeedEventStatistics implements Serializable {
         if (startingFlowFile != null && event.getChildUuids() != null && !event.getChildUuids().isEmpty() && !shouldSkipChildren(event.getEventType(), event.getComponentType())) {
             for (String child : event.getChildUuids()) {
                 allFlowFileToFeedFlowFile.put(child, startingFlowFile);
+                journalPut(Field.ALL_FLOW_FILE_TO_FEED_FLOW_FILE, child, startingFlowFile);
                 //Add children flow files to active processing
                 //skip this add if we already did it while iterating the parents.
                 //NiFi will create a new Flow File for this event (event.getFlowFileId) and it will also be part of the children
                 if (feedFlowProcessing.containsKey(startingFlowFile) && (!trackingEventFlowFile || (trackingEventFlowFile && !child.equalsIgnoreCase(event.getFlowFileUuid())))) {
-                    feedFlowProcessing.get(startingFlowFile).incrementAndGet();
+                    int processing = feedFlowProcessing.get(startingFlowFile).incrementAndGet();
+                    journalSet(Field.FEED_FLOW_PROCESSING, startingFlowFile, processing);
                 }
                 flowFileLastNonDropEventTime.put(child, event.getEventTime());
+                journalPut(Field.FLOW_FILE_LAST_NON_DROP_EVENT_TIME, child, event.getEventTime());
             }
         }
 
@@ -424,6 +658,7 @@ public class FeedEventStatistics implements Serializable {
         DateTime st = new DateTime(startTime);
         if (ProvenanceEventUtil.isStartingFeedFlow(event)) {
             feedFlowFileStartTime.put(event.getFlowFileUuid(), startTime);
+            journalPut(Field.FEED_FLOW_FILE_START_TIME, event.getFlowFileUuid(), startTime);
         }
 
         Long duration = event.getEventTime() - startTime;
@@ -432,12 +667,13 @@ public class FeedEventStatistics implements Serializable {
 
         if (!ProvenanceEventType.DROP.equals(event.getEventType())) {
             flowFileLastNonDropEventTime.put(event.getFlowFileUuid(), event.getEventTime());
+            journalPut(Field.FLOW_FILE_LAST_NON_DROP_EVENT_TIME, event.getFlowFileUuid(), event.getEventTime());
         }
 
     }
 
     public void skip(ProvenanceEventRecord event, Long eventId) {
-        skippedEvents.incrementAndGet();
+        journalSet(Field.SKIPPED_EVENTS, null, skippedEvents.incrementAndGet());
     }
 
 
@@ -469,6 +705,7 @@ public class FeedEventStatistics implements Serializable {
 
     public void setTrackingDetails(ProvenanceEventRecord event) {
         detailedTrackingFeedFlowFileId.add(event.getFlowFileUuid());
+        journalAdd(Field.DETAILED_TRACKING_FEED_FLOW_FILE, event.getFlowFileUuid());
     }
 
     private boolean hasParents(ProvenanceEventRecord event) {
@@ -539,6 +776,8 @@ public class FeedEventStatistics implements Serializable {
     private void clearMapsForEventFlowFile(String eventFlowFileId) {
         flowFileLastNonDropEventTime.remove(eventFlowFileId);
         allFlowFileToFeedFlowFile.remove(eventFlowFileId);
+        journalRemove(Field.FLOW_FILE_LAST_NON_DROP_EVENT_TIME, eventFlowFileId);
+        journalRemove(Field.ALL_FLOW_FILE_TO_FEED_FLOW_FILE, eventFlowFileId);
     }
 
     /**
@@ -580,6 +819,13 @@ public class FeedEventStatistics implements Serializable {
 
 
             feedFlowFileIdToFeedProcessorId.remove(feedFlowFile);
+
+            journalRemove(Field.DETAILED_TRACKING_FEED_FLOW_FILE, feedFlowFile);
+            journalRemove(Field.FEED_FLOW_FILE_FAILURE_COUNT, feedFlowFile);
+            journalRemove(Field.FEED_FLOW_FILE_END_TIME, feedFlowFile);
+            journalRemove(Field.FEED_FLOW_FILE_START_TIME, feedFlowFile);
+            journalRemove(Field.FEED_FLOW_PROCESSING, feedFlowFile);
+            journalRemove(Field.FEED_FLOW_FILE_PROCESSOR_ID, feedFlowFile);
         }
     }
 
@@ -589,6 +835,7 @@ public class FeedEventStatistics implements Serializable {
         if (isEndingFeedFlow(eventId)) {
             clearMapsForFeedFlowFile(feedFlowFile);
             eventsThatCompleteFeedFlow.remove(eventId);
+            journalRemove(Field.EVENTS_THAT_COMPLETE_FEED_FLOW, eventId);
         }
     }
 
@@ -640,11 +887,14 @@ public class FeedEventStatistics implements Serializable {
             //get the feed flow fileId for this event
             AtomicInteger activeCounts = feedFlowProcessing.get(feedFlowFileId);
             if (activeCounts != null) {
-                feedFlowProcessing.get(feedFlowFileId).decrementAndGet();
-                if (activeCounts.get() <= 0) {
+                int remaining = activeCounts.decrementAndGet();
+                journalSet(Field.FEED_FLOW_PROCESSING, feedFlowFileId, remaining);
+                if (remaining <= 0) {
                     //Feed is finished
                     eventsThatCompleteFeedFlow.add(eventId);
                     feedFlowFileEndTime.put(feedFlowFileId, event.getEventTime());
+                    journalAdd(Field.EVENTS_THAT_COMPLETE_FEED_FLOW, eventId);
+                    journalPut(Field.FEED_FLOW_FILE_END_TIME, feedFlowFileId, event.getEventTime());
                     decrementRunningProcessorFeedFlows(feedFlowFileId);
                 }
 
@@ -654,7 +904,8 @@ public class FeedEventStatistics implements Serializable {
 
         if (feedFlowFileId != null && ProvenanceEventUtil.isTerminatedByFailureRelationship(event)) {
             //add to failureMap
-            feedFlowFileFailureCount.computeIfAbsent(feedFlowFileId, flowFileId -> new AtomicInteger(0)).incrementAndGet();
+            int failures = feedFlowFileFailureCount.computeIfAbsent(feedFlowFileId, flowFileId -> new AtomicInteger(0)).incrementAndGet();
+            journalSet(Field.FEED_FLOW_FILE_FAILURE_COUNT, feedFlowFileId, failures);
         }
 
 
@@ -665,6 +916,47 @@ public class FeedEventStatistics implements Serializable {
     }
 
 
+    /**
+     * The statistics copied for a journal checkpoint, and the sequence of the segment started after them
+     */
+    public static class Checkpoint {
+
+        private final FeedEventStatisticsJournal journal;
+
+        private final FeedEventStatisticsData data;
+
+        private final long sequence;
+
+        private Checkpoint(FeedEventStatisticsJournal journal, FeedEventStatisticsData data, long sequence) {
+            this.journal = journal;
+            this.data = data;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Write the checkpoint and delete the journal segments it replaces
+         *
+         * @return true if the checkpoint was written
+         */
+        public boolean write() {
+            return journal.writeCheckpoint(data, sequence);
+        }
+    }
+
+    /**
+     * A flow file whose tracking data expired from the {@link #detailedTrackingFlowFilesToDelete} cache
+     */
+    private static class ExpiredFlowFile {
+
+        private final Long eventId;
+        private final String flowFileId;
+
+        ExpiredFlowFile(Long eventId, String flowFileId) {
+            this.eventId = eventId;
+            this.flowFileId = flowFileId;
+        }
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("FeedEventStatistics{");
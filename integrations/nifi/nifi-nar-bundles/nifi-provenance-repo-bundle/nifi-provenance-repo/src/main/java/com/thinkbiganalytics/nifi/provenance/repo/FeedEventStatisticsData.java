@@ -106,19 +106,48 @@ public class FeedEventStatisticsData implements Serializable {
 
     public FeedEventStatisticsData(FeedEventStatistics other) {
         this.feedFlowFileIdToFeedProcessorId = other.feedFlowFileIdToFeedProcessorId;
-        this.detailedTrackingFeedFlowFileId = other.detailedTrackingFeedFlowFileId;
-        this.allFlowFileToFeedFlowFile = other.allFlowFileToFeedFlowFile;
-        this.flowFileLastNonDropEventTime = other.flowFileLastNonDropEventTime;
-        this.eventDuration = other.eventDuration;
-        this.eventStartTime = other.eventStartTime;
+        this.detailedTrackingFeedFlowFileId = new HashSet<>(other.detailedTrackingFeedFlowFileId);
+        this.allFlowFileToFeedFlowFile = serializable(other.allFlowFileToFeedFlowFile);
+        this.flowFileLastNonDropEventTime = serializable(other.flowFileLastNonDropEventTime);
+        this.eventDuration = serializable(other.eventDuration);
+        this.eventStartTime = serializable(other.eventStartTime);
         this.feedFlowFileStartTime = other.feedFlowFileStartTime;
         this.feedFlowFileEndTime = other.feedFlowFileEndTime;
-        this.eventsThatCompleteFeedFlow = other.eventsThatCompleteFeedFlow;
+        this.eventsThatCompleteFeedFlow = new HashSet<>(other.eventsThatCompleteFeedFlow);
         this.feedFlowProcessing = other.feedFlowProcessing;
         this.skippedEvents = other.skippedEvents;
         this.feedFlowFileFailureCount = other.feedFlowFileFailureCount;
     }
 
+    /**
+     * Copy the statistics so they can be written while events continue to be processed.
+     * The event duration and start times are not copied as they only live for the processing of a single event.
+     *
+     * @param other the statistics to copy
+     * @return a copy of the statistics
+     */
+    public static FeedEventStatisticsData copyOf(FeedEventStatistics other) {
+        FeedEventStatisticsData data = new FeedEventStatisticsData();
+        data.feedFlowFileIdToFeedProcessorId = new ConcurrentHashMap<>(other.feedFlowFileIdToFeedProcessorId);
+        data.detailedTrackingFeedFlowFileId = new HashSet<>(other.detailedTrackingFeedFlowFileId);
+        data.allFlowFileToFeedFlowFile = new ConcurrentHashMap<>(other.allFlowFileToFeedFlowFile);
+        data.flowFileLastNonDropEventTime = new ConcurrentHashMap<>(other.flowFileLastNonDropEventTime);
+        data.feedFlowFileStartTime = new ConcurrentHashMap<>(other.feedFlowFileStartTime);
+        data.feedFlowFileEndTime = new ConcurrentHashMap<>(other.feedFlowFileEndTime);
+        data.eventsThatCompleteFeedFlow = new HashSet<>(other.eventsThatCompleteFeedFlow);
+        other.feedFlowProcessing.forEach((feedFlowFile, count) -> data.feedFlowProcessing.put(feedFlowFile, new AtomicInteger(count.get())));
+        data.skippedEvents = new AtomicLong(other.skippedEvents.get());
+        other.feedFlowFileFailureCount.forEach((feedFlowFile, count) -> data.feedFlowFileFailureCount.put(feedFlowFile, new AtomicInteger(count.get())));
+        return data;
+    }
+
+    /**
+     * The compact state store maps are copied into a {@link ConcurrentHashMap} so the backup format is the same regardless of the store in use
+     */
+    private static <K, V> Map<K, V> serializable(Map<K, V> map) {
+        return map instanceof ConcurrentHashMap ? map : new ConcurrentHashMap<>(map);
+    }
+
     public void load() {
 
     }
@@ -0,0 +1,694 @@
+package com.thinkbiganalytics.nifi.provenance.repo;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.apache.commons.io.serialization.ValidatingObjectInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append only, memory mapped journal of the changes made to the {@link FeedEventStatistics}.
+ *
+ * Each change is written as a checksummed record to the current journal segment.  Since the segment is memory mapped the record is in the OS page cache
+ * as soon as it is written, so it survives NiFi being killed without needing a full backup at shutdown.  The segments are periodically synced to disk.
+ *
+ * The journal is compacted by writing a checkpoint of the full statistics (the same gzip format as the shutdown backup).  A checkpoint numbered N contains every change
+ * written to the segments numbered below N, so once it is written those segments are deleted.  The checkpoint is copied while events are still processed,
+ * so it may also contain some of the changes in segment N, which is why every record can be replayed over data that already includes it.
+ * On startup the latest checkpoint is loaded and the remaining segments are replayed on top of it.
+ *
+ * Appending a change does not take a lock.  The calling thread encodes and checksums the record and adds it to a queue which a single writer thread drains into the segment,
+ * so threads processing events for different feeds never wait on each other to journal their changes.  Records are written in the order they are queued.
+ */
+public class FeedEventStatisticsJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedEventStatisticsJournal.class);
+
+    private static final int MAGIC = 0x4B59464A;
+    private static final int VERSION = 2;
+
+    /**
+     * Version 1 segments, which only increment the counters, can still be replayed
+     */
+    private static final int MIN_VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 8;
+
+    /**
+     * Each record is prefixed with its length and CRC.  The length is written last so a partially written record is never replayed.
+     */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final byte PUT = 1;
+    private static final byte ADD = 2;
+    private static final byte REMOVE = 3;
+    private static final byte INCREMENT = 4;
+
+    /**
+     * Set a counter to the value it was changed to.  Unlike {@link #INCREMENT} this can be replayed over data that already includes the change
+     */
+    private static final byte SET = 5;
+
+    private static final byte UUID_STRING = 0;
+    private static final byte UTF8_STRING = 1;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_PREFIX = "checkpoint-";
+    private static final String CHECKPOINT_SUFFIX = ".gz";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * The number of queued records at which the appending threads write the queue themselves rather than leaving it to the writer thread
+     */
+    private static final int MAX_PENDING_RECORDS = 65536;
+
+    /**
+     * The longest the writer thread waits before checking the queue again
+     */
+    private static final long WRITER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * The buffer used by each appending thread to encode its records
+     */
+    private static final ThreadLocal<ByteBuffer> RECORD = ThreadLocal.withInitial(() -> ByteBuffer.allocate(512));
+
+    private static final ThreadLocal<CRC32> CRC = ThreadLocal.withInitial(CRC32::new);
+
+    /**
+     * The statistics that are journaled.
+     * The event duration and start time maps are not journaled as they only live for the processing of a single event.
+     */
+    enum Field {
+        FEED_FLOW_FILE_PROCESSOR_ID(1, false, false, data -> data.feedFlowFileIdToFeedProcessorId),
+        DETAILED_TRACKING_FEED_FLOW_FILE(2, false, false, data -> data.detailedTrackingFeedFlowFileId),
+        ALL_FLOW_FILE_TO_FEED_FLOW_FILE(3, false, false, data -> data.allFlowFileToFeedFlowFile),
+        FLOW_FILE_LAST_NON_DROP_EVENT_TIME(4, false, true, data -> data.flowFileLastNonDropEventTime),
+        FEED_FLOW_FILE_START_TIME(5, false, true, data -> data.feedFlowFileStartTime),
+        FEED_FLOW_FILE_END_TIME(6, false, true, data -> data.feedFlowFileEndTime),
+        EVENTS_THAT_COMPLETE_FEED_FLOW(7, true, false, data -> data.eventsThatCompleteFeedFlow),
+        FEED_FLOW_PROCESSING(8, false, false, data -> data.feedFlowProcessing),
+        SKIPPED_EVENTS(9, false, false, data -> data.skippedEvents),
+        FEED_FLOW_FILE_FAILURE_COUNT(10, false, false, data -> data.feedFlowFileFailureCount);
+
+        private final byte id;
+
+        /**
+         * true if the keys are event ids, false if they are flow file ids
+         */
+        private final boolean longKey;
+
+        /**
+         * true if the values put are times, false if they are ids
+         */
+        private final boolean longValue;
+
+        /**
+         * The map, set or counter this field updates in the backup data
+         */
+        private final Function<FeedEventStatisticsData, Object> target;
+
+        Field(int id, boolean longKey, boolean longValue, Function<FeedEventStatisticsData, Object> target) {
+            this.id = (byte) id;
+            this.longKey = longKey;
+            this.longValue = longValue;
+            this.target = target;
+        }
+
+        static Field valueOf(byte id) {
+            for (Field field : values()) {
+                if (field.id == id) {
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException("Unknown journal field " + id);
+        }
+    }
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    /**
+     * The encoded records waiting to be written, each including its header
+     */
+    private final Queue<byte[]> pending = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pendingRecords = new AtomicInteger();
+
+    /**
+     * Guards the segment.  Held by the writer thread, or any other thread, while it writes the pending records
+     */
+    private final Object writeMonitor = new Object();
+
+    /**
+     * The thread writing the queued records, started by the first append
+     */
+    private volatile Thread writer;
+
+    private volatile boolean writerWaiting;
+
+    private MappedByteBuffer segment;
+
+    private long sequence;
+
+    private final AtomicLong bytesSinceCheckpoint = new AtomicLong();
+
+    private volatile boolean failed;
+
+    private volatile boolean closed;
+
+    private final Object checkpointLock = new Object();
+
+    private long lastCheckpointSequence = -1;
+
+    /**
+     * @param directory   the directory holding the journal segments and checkpoints
+     * @param segmentSize the size, in bytes, of each journal segment
+     */
+    public FeedEventStatisticsJournal(File directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        if (!directory.exists() && !directory.mkdirs()) {
+            log.error("Unable to create the feed event statistics journal directory {} ", directory);
+        }
+        this.sequence = Math.max(maxSequence(SEGMENT_PREFIX, SEGMENT_SUFFIX), maxSequence(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX));
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return true if a change could not be journaled, and changes are no longer being journaled
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the number of bytes journaled since the last checkpoint was started
+     */
+    public long getBytesSinceCheckpoint() {
+        return bytesSinceCheckpoint.get();
+    }
+
+    public void put(Field field, Object key, Object value) {
+        append(PUT, field, key, value);
+    }
+
+    public void add(Field field, Object key) {
+        append(ADD, field, key, null);
+    }
+
+    public void remove(Field field, Object key) {
+        append(REMOVE, field, key, null);
+    }
+
+    public void increment(Field field, Object key, long delta) {
+        append(INCREMENT, field, key, delta);
+    }
+
+    /**
+     * Journal the value a counter was changed to
+     *
+     * @param field the counter
+     * @param key   the key of the counter, or null for the skipped events
+     * @param value the value of the counter after the change
+     */
+    public void set(Field field, Object key, long value) {
+        append(SET, field, key, value);
+    }
+
+    private void append(byte op, Field field, Object key, Object value) {
+        if (failed || closed) {
+            return;
+        }
+        try {
+            ByteBuffer record = RECORD.get();
+            record.clear();
+            record.position(RECORD_HEADER_SIZE);
+            record = ensureRemaining(record, 2);
+            record.put(op).put(field.id);
+            if (field.longKey) {
+                record = writeLong(record, (Long) key);
+            } else {
+                record = writeString(record, key != null ? key.toString() : "");
+            }
+            if (op == PUT) {
+                if (field.longValue) {
+                    record = writeLong(record, (Long) value);
+                } else {
+                    record = writeString(record, (String) value);
+                }
+            } else if (op == INCREMENT || op == SET) {
+                record = writeLong(record, (Long) value);
+            }
+            int length = record.position() - RECORD_HEADER_SIZE;
+            CRC32 crc = CRC.get();
+            crc.reset();
+            crc.update(record.array(), RECORD_HEADER_SIZE, length);
+            record.putInt(0, length);
+            record.putInt(4, (int) crc.getValue());
+            pending.offer(Arrays.copyOf(record.array(), RECORD_HEADER_SIZE + length));
+            bytesSinceCheckpoint.addAndGet(RECORD_HEADER_SIZE + length);
+        } catch (Exception e) {
+            failed = true;
+            log.error("Unable to write to the feed event statistics journal {}.  Changes will no longer be journaled. {} ", directory, e.getMessage(), e);
+            return;
+        }
+        if (writer == null) {
+            startWriter();
+        }
+        if (pendingRecords.incrementAndGet() >= MAX_PENDING_RECORDS) {
+            //the writer thread has fallen behind.  Write the queue rather than let it grow
+            flush();
+        } else if (writerWaiting) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * @return the buffer, or a larger copy of it if it does not have the bytes remaining
+     */
+    private static ByteBuffer ensureRemaining(ByteBuffer record, int bytes) {
+        if (record.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+            record.flip();
+            larger.put(record);
+            RECORD.set(larger);
+            return larger;
+        }
+        return record;
+    }
+
+    private static ByteBuffer writeLong(ByteBuffer record, long value) {
+        record = ensureRemaining(record, 8);
+        record.putLong(value);
+        return record;
+    }
+
+    private static ByteBuffer writeString(ByteBuffer record, String value) {
+        UUID uuid = FlowFileUuids.parse(value);
+        if (uuid != null) {
+            record = ensureRemaining(record, 17);
+            record.put(UUID_STRING).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            record = ensureRemaining(record, 5 + bytes.length);
+            record.put(UTF8_STRING).putInt(bytes.length).put(bytes);
+        }
+        return record;
+    }
+
+    private void startWriter() {
+        synchronized (writeMonitor) {
+            if (writer == null && !closed) {
+                Thread thread = new Thread(this::writePending, "FeedEventStatistics-JournalWriter");
+                thread.setDaemon(true);
+                thread.start();
+                writer = thread;
+            }
+        }
+    }
+
+    /**
+     * Run by the writer thread.  Writes the queued records until the journal is closed
+     */
+    private void writePending() {
+        while (!closed) {
+            if (pending.isEmpty()) {
+                writerWaiting = true;
+                if (pending.isEmpty() && !closed) {
+                    LockSupport.parkNanos(this, WRITER_PARK_NANOS);
+                }
+                writerWaiting = false;
+            }
+            flush();
+        }
+    }
+
+    /**
+     * Write every record queued so far to the current segment
+     */
+    public void flush() {
+        synchronized (writeMonitor) {
+            byte[] bytes;
+            while ((bytes = pending.poll()) != null) {
+                pendingRecords.decrementAndGet();
+                if (!failed) {
+                    write(bytes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the record to the segment.  The length is written last so a partially written record is never replayed.
+     */
+    private void write(byte[] bytes) {
+        try {
+            if (segment == null || segment.remaining() < bytes.length) {
+                nextSegment();
+            }
+            int position = segment.position();
+            segment.position(position + 4);
+            segment.put(bytes, 4, bytes.length - 4);
+            segment.putInt(position, bytes.length - RECORD_HEADER_SIZE);
+        } catch (Exception e) {
+            failed = true;
+            log.error("Unable to write to the feed event statistics journal {}.  Changes will no longer be journaled. {} ", directory, e.getMessage(), e);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        if (buffer.get() == UUID_STRING) {
+            return new UUID(buffer.getLong(), buffer.getLong()).toString();
+        } else {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Start writing to a new segment.  Must be called holding the write monitor.
+     *
+     * @return the sequence of the new segment
+     */
+    private long nextSegment() throws IOException {
+        sequence++;
+        File file = file(SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            //the mapping stays valid after the channel is closed
+            MappedByteBuffer next = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            next.putInt(MAGIC).putInt(VERSION);
+            if (segment != null) {
+                segment.force();
+            }
+            segment = next;
+        }
+        return sequence;
+    }
+
+    /**
+     * Start a new segment for the changes made after a checkpoint.
+     * The checkpoint data must be copied after calling this method, so every change written to an earlier segment is in the copy.
+     * Changes made while the data is copied may be both in the copy and in the new segment.  They are journaled with {@link #set(Field, Object, long)} rather than
+     * {@link #increment(Field, Object, long)} so replaying them on top of the checkpoint gives the same result.
+     *
+     * @return the sequence of the checkpoint
+     */
+    public long startCheckpoint() throws IOException {
+        synchronized (writeMonitor) {
+            flush();
+            bytesSinceCheckpoint.set(0);
+            return nextSegment();
+        }
+    }
+
+    /**
+     * Write the checkpoint and delete the segments and checkpoints it replaces
+     *
+     * @param data     the statistics at the time the checkpoint was started
+     * @param sequence the sequence returned from {@link #startCheckpoint()}
+     * @return true if the checkpoint was written
+     */
+    public boolean writeCheckpoint(FeedEventStatisticsData data, long sequence) {
+        synchronized (checkpointLock) {
+            if (sequence <= lastCheckpointSequence) {
+                return false;
+            }
+            File checkpoint = file(CHECKPOINT_PREFIX, sequence, CHECKPOINT_SUFFIX);
+            File temp = new File(checkpoint.getPath() + TEMP_SUFFIX);
+            try {
+                try (FileOutputStream fos = new FileOutputStream(temp)) {
+                    GZIPOutputStream gz = new GZIPOutputStream(new BufferedOutputStream(fos));
+                    ObjectOutputStream oos = new ObjectOutputStream(gz);
+                    oos.writeObject(data);
+                    oos.flush();
+                    gz.finish();
+                    gz.flush();
+                    fos.getFD().sync();
+                }
+                Files.move(temp.toPath(), checkpoint.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                lastCheckpointSequence = sequence;
+            } catch (Exception e) {
+                log.error("Unable to write the feed event statistics checkpoint {}. {} ", checkpoint, e.getMessage(), e);
+                return false;
+            }
+            for (Long older : sequences(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+                if (older < sequence) {
+                    delete(file(SEGMENT_PREFIX, older, SEGMENT_SUFFIX));
+                }
+            }
+            for (Long older : sequences(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX)) {
+                if (older < sequence) {
+                    delete(file(CHECKPOINT_PREFIX, older, CHECKPOINT_SUFFIX));
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Load the latest checkpoint and replay the journal segments written after it
+     *
+     * @return the recovered statistics, or null if there is nothing to recover
+     */
+    public FeedEventStatisticsData recover() {
+        long start = System.currentTimeMillis();
+        FeedEventStatisticsData data = null;
+        long from = 0;
+        List<Long> checkpoints = sequences(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX);
+        Collections.reverse(checkpoints);
+        for (Long checkpoint : checkpoints) {
+            data = readCheckpoint(file(CHECKPOINT_PREFIX, checkpoint, CHECKPOINT_SUFFIX));
+            if (data != null) {
+                from = checkpoint;
+                break;
+            }
+        }
+        List<Long> segments = sequences(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        final long firstSegment = from;
+        segments.removeIf(segmentSequence -> segmentSequence < firstSegment);
+        if (data == null && segments.isEmpty()) {
+            return null;
+        }
+        if (data == null) {
+            data = new FeedEventStatisticsData();
+        }
+        long records = 0;
+        for (Long segmentSequence : segments) {
+            records += replay(file(SEGMENT_PREFIX, segmentSequence, SEGMENT_SUFFIX), data);
+        }
+        log.info("Recovered the feed event statistics from checkpoint {} and {} journal records in {} ms", from, records, System.currentTimeMillis() - start);
+        return data;
+    }
+
+    private FeedEventStatisticsData readCheckpoint(File file) {
+        try (ValidatingObjectInputStream ois = new ValidatingObjectInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))))) {
+            ois.accept(FeedEventStatisticsData.class);
+            ois.accept("java.lang.*", "java.util.*", "[Ljava.util.*");
+            return (FeedEventStatisticsData) ois.readObject();
+        } catch (Exception e) {
+            log.error("Unable to read the feed event statistics checkpoint {}. {} ", file, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Apply the records in the segment to the data
+     *
+     * @return the number of records replayed
+     */
+    private long replay(File file, FeedEventStatisticsData data) {
+        long records = 0;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+            if (buffer.remaining() < SEGMENT_HEADER_SIZE || buffer.getInt() != MAGIC || !isSupportedVersion(buffer.getInt())) {
+                log.warn("Skipping the invalid feed event statistics journal segment {} ", file);
+                return 0;
+            }
+            CRC32 checksum = new CRC32();
+            while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                int length = buffer.getInt();
+                int expectedCrc = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                checksum.reset();
+                checksum.update(bytes, 0, length);
+                if ((int) checksum.getValue() != expectedCrc) {
+                    log.warn("Stopped replaying the feed event statistics journal segment {} at a corrupt record after {} records", file, records);
+                    break;
+                }
+                apply(ByteBuffer.wrap(bytes), data);
+                records++;
+            }
+        } catch (Exception e) {
+            log.error("Unable to replay the feed event statistics journal segment {}. {} ", file, e.getMessage(), e);
+        }
+        return records;
+    }
+
+    private static boolean isSupportedVersion(int version) {
+        return version >= MIN_VERSION && version <= VERSION;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void apply(ByteBuffer buffer, FeedEventStatisticsData data) {
+        byte op = buffer.get();
+        Field field = Field.valueOf(buffer.get());
+        Object key = field.longKey ? (Object) buffer.getLong() : readString(buffer);
+        Object target = field.target.apply(data);
+        switch (op) {
+            case PUT:
+                Object value = field.longValue ? (Object) buffer.getLong() : readString(buffer);
+                ((Map<Object, Object>) target).put(key, value);
+                break;
+            case ADD:
+                ((Set<Object>) target).add(key);
+                break;
+            case REMOVE:
+                if (target instanceof Map) {
+                    ((Map<Object, Object>) target).remove(key);
+                } else {
+                    ((Set<Object>) target).remove(key);
+                }
+                break;
+            case INCREMENT:
+                long delta = buffer.getLong();
+                if (target instanceof AtomicLong) {
+                    ((AtomicLong) target).addAndGet(delta);
+                } else {
+                    ((Map<Object, AtomicInteger>) target).computeIfAbsent(key, k -> new AtomicInteger(0)).addAndGet((int) delta);
+                }
+                break;
+            case SET:
+                long count = buffer.getLong();
+                if (target instanceof AtomicLong) {
+                    //the skipped events only grow, and may be journaled out of order by threads processing different feed flows
+                    ((AtomicLong) target).accumulateAndGet(count, Math::max);
+                } else {
+                    ((Map<Object, AtomicInteger>) target).put(key, new AtomicInteger((int) count));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown journal operation " + op);
+        }
+    }
+
+    /**
+     * Sync the written records to disk
+     */
+    public void force() {
+        MappedByteBuffer current;
+        synchronized (writeMonitor) {
+            flush();
+            current = segment;
+        }
+        if (current != null) {
+            current.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        force();
+        synchronized (writeMonitor) {
+            segment = null;
+        }
+    }
+
+    private File file(String prefix, long sequence, String suffix) {
+        return new File(directory, prefix + sequence + suffix);
+    }
+
+    /**
+     * @return the sorted sequences of the files with the prefix and suffix
+     */
+    private List<Long> sequences(String prefix, String suffix) {
+        List<Long> sequences = new ArrayList<>();
+        String[] names = directory.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(prefix) && name.endsWith(suffix)) {
+                    try {
+                        sequences.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                    } catch (NumberFormatException e) {
+                        //not a journal file
+                    }
+                }
+            }
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+
+    private long maxSequence(String prefix, String suffix) {
+        List<Long> sequences = sequences(prefix, suffix);
+        return sequences.isEmpty() ? 0 : sequences.get(sequences.size() - 1);
+    }
+
+    private void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            log.warn("Unable to delete the feed event statistics journal file {} ", file);
+        }
+    }
+}
@@ -254,8 +254,59 @@ public class FeedStatistics {
         stats.clear();
     }
 
+    /**
+     * Swap out the events and stats collected since the last snapshot, leaving this object empty to collect the next interval.
+     * The caller must ensure no events are being added to this object during the swap.
+     *
+     * @return the events and stats collected since the last snapshot
+     */
+    public Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot(feedProcessorId, processorId, lastRecords.values(), stats.values());
+        lastRecords = new ConcurrentHashMap<>(limit);
+        stats = new ConcurrentHashMap<>();
+        return snapshot;
+    }
+
     public void setLimit(Integer limit) {
         this.limit = limit;
     }
 
+    /**
+     * The events and stats collected by a {@link FeedStatistics} for a single collection interval
+     */
+    public static class Snapshot {
+
+        private final String feedProcessorId;
+        private final String processorId;
+        private final Collection<ProvenanceEventRecordDTO> eventsToSend;
+        private final Collection<GroupedStats> stats;
+
+        Snapshot(String feedProcessorId, String processorId, Collection<ProvenanceEventRecordDTO> eventsToSend, Collection<GroupedStats> stats) {
+            this.feedProcessorId = feedProcessorId;
+            this.processorId = processorId;
+            this.eventsToSend = eventsToSend;
+            this.stats = stats;
+        }
+
+        public String getFeedProcessorId() {
+            return feedProcessorId;
+        }
+
+        public String getProcessorId() {
+            return processorId;
+        }
+
+        public Collection<ProvenanceEventRecordDTO> getEventsToSend() {
+            return eventsToSend;
+        }
+
+        public Collection<GroupedStats> getStats() {
+            return stats;
+        }
+
+        public boolean hasStats() {
+            return stats.stream().anyMatch(s -> s.getTotalCount() > 0);
+        }
+    }
+
 }
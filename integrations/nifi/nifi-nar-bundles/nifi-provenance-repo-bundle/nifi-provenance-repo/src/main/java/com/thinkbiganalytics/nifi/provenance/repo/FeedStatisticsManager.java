@@ -31,11 +31,11 @@ import org.apache.nifi.provenance.ProvenanceEventRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -48,6 +48,14 @@ import java.util.stream.Collectors;
 
 /**
  * Manage the Feed Stats calculation and sending of events to Ops Manager
+ *
+ * Statistics are partitioned into shards by the feed processor id.  Each shard has its own lock which is only held while an event is added to it,
+ * or while the gather task swaps out the data collected for the shard.
+ * An event is routed by the feed flow it belongs to, and its flow file lineage is updated holding the lock of that feed flow,
+ * so events for different flow files of the same feed flow cannot lose each other's lineage changes.
+ * A journal checkpoint copies the {@link FeedEventStatistics} without taking the shard locks, so it does not pause the processing of events.
+ * The events and stats are flattened and sent to JMS without holding any lock, so adding events never waits on the JMS collection cycle.
+ * Tracked flow files whose removal was delayed are expired by the gather task rather than while adding each event.
  */
 public class FeedStatisticsManager {
 
@@ -55,13 +63,24 @@ public class FeedStatisticsManager {
 
     private Long sendJmsTimeMillis = ConfigurationProperties.DEFAULT_RUN_INTERVAL_MILLIS; //every 3 seconds
 
-    private Lock lock = new ReentrantLock();
+    /**
+     * Lock guarding the scheduling of the gather statistics task
+     */
+    private Lock scheduleLock = new ReentrantLock();
 
-    private Map<String, FeedStatistics> feedStatisticsMap = new ConcurrentHashMap<>();
+    /**
+     * The statistics partitioned by feed processor id
+     */
+    private final Shard[] shards;
 
     private static final FeedStatisticsManager instance = new FeedStatisticsManager();
 
     private FeedStatisticsManager() {
+        int shardCount = ConfigurationProperties.getInstance().getStatisticsShards();
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
         initTimerThread();
     }
 
@@ -89,86 +108,157 @@ public class FeedStatisticsManager {
     private ScheduledExecutorService jmsGatherEventsToSendService = Executors.newSingleThreadScheduledExecutor(gatherStatsThreadFactory);
 
 
+    private Shard shard(String feedProcessorId) {
+        return shards[(feedProcessorId.hashCode() & Integer.MAX_VALUE) % shards.length];
+    }
 
     public void addEvent(ProvenanceEventRecord event, Long eventId) {
-        lock.lock();
-        try {
-            //build up feed flow file map relationships
-            boolean isStartingFeedFlow = ProvenanceEventUtil.isStartingFeedFlow(event);
-            if (isStartingFeedFlow) {
-                FeedEventStatistics.getInstance().checkAndAssignStartingFlowFile(event);
-            }
-            FeedEventStatistics.getInstance().assignParentsAndChildren(event);
-
-            //generate statistics and process the event
-            String feedProcessorId = FeedEventStatistics.getInstance().getFeedProcessorId(event);
-            if (feedProcessorId != null) {
-                String key = feedProcessorId + event.getComponentId();
-                feedStatisticsMap.computeIfAbsent(key, feedStatisticsKey -> new FeedStatistics(feedProcessorId, event.getComponentId())).addEvent(event, eventId);
-            } else {
-                //UNABLE TO FIND data in maps
+        FeedEventStatistics feedEventStatistics = FeedEventStatistics.getInstance();
+        //route the event by the feed flow it belongs to.  All the flow files of a feed flow share its feed processor, and therefore its shard
+        String feedFlowFileId = feedEventStatistics.resolveFeedFlowFileId(event);
+        String feedProcessorId = feedEventStatistics.resolveFeedProcessorId(event, feedFlowFileId);
+        if (feedProcessorId != null) {
+            Shard shard = shard(feedProcessorId);
+            shard.lock.lock();
+            try {
+                Lock feedFlowLock = feedEventStatistics.feedFlowLock(feedFlowFileId);
+                feedFlowLock.lock();
+                try {
+                    //build up feed flow file map relationships
+                    boolean isStartingFeedFlow = ProvenanceEventUtil.isStartingFeedFlow(event);
+                    if (isStartingFeedFlow) {
+                        feedEventStatistics.checkAndAssignStartingFlowFile(event);
+                    }
+                    feedEventStatistics.assignParentsAndChildren(event);
+
+                    //generate statistics and process the event
+                    String key = feedProcessorId + event.getComponentId();
+                    shard.feedStatisticsMap.computeIfAbsent(key, feedStatisticsKey -> new FeedStatistics(feedProcessorId, event.getComponentId())).addEvent(event, eventId);
+                } finally {
+                    feedFlowLock.unlock();
+                }
+            } finally {
+                shard.lock.unlock();
             }
-        } finally {
-            lock.unlock();
+        } else {
+            //UNABLE TO FIND data in maps
         }
     }
 
-    public void gatherStatistics() {
-        lock.lock();
-        List<ProvenanceEventRecordDTO> eventsToSend = null;
-        Map<String, AggregatedFeedProcessorStatistics> statsToSend = null;
+    /**
+     * Hold every shard lock, in order, pausing the processing of events.
+     * Only used while the journal is started, as the statistics may be replaced when it is recovered.
+     */
+    private void lockShards() {
+        for (Shard shard : shards) {
+            shard.lock.lock();
+        }
+    }
+
+    private void unlockShards() {
+        for (int i = shards.length - 1; i >= 0; i--) {
+            shards[i].lock.unlock();
+        }
+    }
+
+    /**
+     * Start journaling the changes to the {@link FeedEventStatistics} and write an initial checkpoint
+     *
+     * @param journal the journal
+     * @param recover true to first recover the statistics from the journal, false if they were already loaded from the backup
+     */
+    public void startJournal(FeedEventStatisticsJournal journal, boolean recover) {
+        lockShards();
         try {
-            //Gather Events and Stats to send Ops Manager
-            eventsToSend = feedStatisticsMap.values().stream().flatMap(stats -> stats.getEventsToSend().stream()).collect(Collectors.toList());
+            FeedEventStatistics.getInstance().startJournal(journal, recover);
+        } finally {
+            unlockShards();
+        }
+        checkpointJournal();
+    }
 
-            final String collectionId = UUID.randomUUID().toString();
-            Map<String,Long> runningFlowsCount = new HashMap<>();
+    /**
+     * Compact the journal by writing a checkpoint of the {@link FeedEventStatistics}.
+     * Events are not paused.  The changes made while the statistics are copied are also journaled after the checkpoint, see {@link FeedEventStatistics#startCheckpoint()}.
+     *
+     * @return true if the checkpoint was written
+     */
+    public boolean checkpointJournal() {
+        FeedEventStatistics.Checkpoint checkpoint = FeedEventStatistics.getInstance().startCheckpoint();
+        return checkpoint != null && checkpoint.write();
+    }
 
-            for (FeedStatistics feedStatistics : feedStatisticsMap.values()) {
-                if (feedStatistics.hasStats()) {
-                    if (statsToSend == null) {
-                        statsToSend = new ConcurrentHashMap<>();
-                    }
-                    AggregatedFeedProcessorStatistics
-                        feedProcessorStatistics =
-                        statsToSend.computeIfAbsent(feedStatistics.getFeedProcessorId(),
-                                                    feedProcessorId -> new AggregatedFeedProcessorStatistics(feedStatistics.getFeedProcessorId(), collectionId, sendJmsTimeMillis));
-
-                    AggregatedProcessorStatistics
-                        processorStatistics =
-                        feedProcessorStatistics.getProcessorStats()
-                            .computeIfAbsent(feedStatistics.getProcessorId(), processorId -> new AggregatedProcessorStatisticsV2(feedStatistics.getProcessorId(), null, collectionId));
-
-                    //accumulate the stats together into the processorStatistics object grouped by source connection id
-                    feedStatistics.getStats().stream().forEach(stats -> {
-                        FeedProcessorStatisticsAggregator.getInstance().addStats1(processorStatistics.getStats(stats.getSourceConnectionIdentifier()), stats);
-                    });
-                }
-            }
+    /**
+     * Sync the journal to disk, writing a checkpoint if enough has been journaled since the last one
+     *
+     * @param compactionThresholdBytes the bytes journaled since the last checkpoint that trigger a new checkpoint
+     */
+    public void syncJournal(long compactionThresholdBytes) {
+        if (FeedEventStatistics.getInstance().syncJournal(compactionThresholdBytes)) {
+            checkpointJournal();
+        }
+    }
 
-            if ((eventsToSend != null && !eventsToSend.isEmpty()) || (statsToSend != null && !statsToSend.isEmpty())) {
-                //send it off to jms on a different thread
-                JmsSender jmsSender = new JmsSender(eventsToSend, statsToSend.values(),FeedEventStatistics.getInstance().getRunningFeedFlowsChanged());
-                this.jmsService.submit(new JmsSenderConsumer(jmsSender));
+    /**
+     * Swap out the data collected by each shard
+     *
+     * @return the snapshot of the events and stats collected since the last gather
+     */
+    private List<FeedStatistics.Snapshot> snapshot() {
+        List<FeedStatistics.Snapshot> snapshots = new ArrayList<>();
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                shard.feedStatisticsMap.values().forEach(feedStatistics -> snapshots.add(feedStatistics.snapshot()));
+            } finally {
+                shard.lock.unlock();
             }
-            else {
-                //if we are empty but the runningFlows have changed, then send off as well
-                if(FeedEventStatistics.getInstance().isFeedProcessorRunningFeedFlowsChanged()){
-                    JmsSender jmsSender = new JmsSender(null, null,FeedEventStatistics.getInstance().getRunningFeedFlowsChanged());
-                    this.jmsService.submit(new JmsSenderConsumer(jmsSender));
-                }
+        }
+        return snapshots;
+    }
 
-            }
+    public void gatherStatistics() {
+        FeedEventStatistics.getInstance().clearExpiredFlowFiles();
+        List<FeedStatistics.Snapshot> snapshots = snapshot();
+        Map<String, Long> runningFeedFlowsChanged = FeedEventStatistics.getInstance().drainRunningFeedFlowsChanged();
 
+        //Gather Events and Stats to send Ops Manager
+        List<ProvenanceEventRecordDTO> eventsToSend = snapshots.stream().flatMap(stats -> stats.getEventsToSend().stream()).collect(Collectors.toList());
+        Map<String, AggregatedFeedProcessorStatistics> statsToSend = null;
 
-        } finally {
-            FeedEventStatistics.getInstance().markFeedProcessorRunningFeedFlowsUnchanged();
+        final String collectionId = UUID.randomUUID().toString();
 
-            feedStatisticsMap.values().stream().forEach(stats -> stats.clear());
-            lock.unlock();
+        for (FeedStatistics.Snapshot feedStatistics : snapshots) {
+            if (feedStatistics.hasStats()) {
+                if (statsToSend == null) {
+                    statsToSend = new HashMap<>();
+                }
+                AggregatedFeedProcessorStatistics
+                    feedProcessorStatistics =
+                    statsToSend.computeIfAbsent(feedStatistics.getFeedProcessorId(),
+                                                feedProcessorId -> new AggregatedFeedProcessorStatistics(feedStatistics.getFeedProcessorId(), collectionId, sendJmsTimeMillis));
+
+                AggregatedProcessorStatistics
+                    processorStatistics =
+                    feedProcessorStatistics.getProcessorStats()
+                        .computeIfAbsent(feedStatistics.getProcessorId(), processorId -> new AggregatedProcessorStatisticsV2(feedStatistics.getProcessorId(), null, collectionId));
+
+                //accumulate the stats together into the processorStatistics object grouped by source connection id
+                feedStatistics.getStats().stream().forEach(stats -> {
+                    FeedProcessorStatisticsAggregator.getInstance().addStats1(processorStatistics.getStats(stats.getSourceConnectionIdentifier()), stats);
+                });
+            }
         }
 
-
+        if (!eventsToSend.isEmpty() || (statsToSend != null && !statsToSend.isEmpty())) {
+            //send it off to jms on a different thread
+            JmsSender jmsSender = new JmsSender(eventsToSend, statsToSend != null ? statsToSend.values() : null, runningFeedFlowsChanged);
+            this.jmsService.submit(new JmsSenderConsumer(jmsSender));
+        } else if (!runningFeedFlowsChanged.isEmpty()) {
+            //if we are empty but the runningFlows have changed, then send off as well
+            JmsSender jmsSender = new JmsSender(null, null, runningFeedFlowsChanged);
+            this.jmsService.submit(new JmsSenderConsumer(jmsSender));
+        }
     }
 
     private Runnable gatherStatisticsTask = new Runnable() {
@@ -179,7 +269,7 @@ public class FeedStatisticsManager {
     };
 
     public void resetStatisticsInterval(Long interval) {
-        lock.lock();
+        scheduleLock.lock();
         sendJmsTimeMillis = interval;
         try {
             if(gatherStatsScheduledFuture != null){
@@ -188,16 +278,18 @@ public class FeedStatisticsManager {
             initGatherStatisticsTimerThread(interval);
 
         } finally {
-            lock.unlock();
+            scheduleLock.unlock();
         }
     }
 
     public void resetMaxEvents(Integer limit) {
-        lock.lock();
-        try {
-            feedStatisticsMap.values().forEach(stats -> stats.setLimit(limit));
-        } finally {
-            lock.unlock();
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                shard.feedStatisticsMap.values().forEach(stats -> stats.setLimit(limit));
+            } finally {
+                shard.lock.unlock();
+            }
         }
     }
 
@@ -220,4 +312,14 @@ public class FeedStatisticsManager {
 
     }
 
+    /**
+     * A partition of the feed statistics guarded by its own lock
+     */
+    private static class Shard {
+
+        private final Lock lock = new ReentrantLock();
+
+        private final Map<String, FeedStatistics> feedStatisticsMap = new HashMap<>();
+    }
+
 }
@@ -0,0 +1,104 @@
+package com.thinkbiganalytics.nifi.provenance.repo;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.UUID;
+
+/**
+ * Converts NiFi flow file ids to and from their 128-bit {@link UUID} form.
+ * Only ids in the canonical lower case form are converted, as only those convert back to the exact same string.
+ * Every other id, including an upper case uuid, is left as is so the same id always maps to the same key.
+ */
+final class FlowFileUuids {
+
+    private static final int UUID_LENGTH = 36;
+
+    private FlowFileUuids() {
+
+    }
+
+    /**
+     * Parses the id without creating any intermediate strings
+     *
+     * @param flowFileId a flow file id
+     * @return the uuid for the id, or null if the id is not a uuid in its canonical lower case form
+     */
+    static UUID parse(Object flowFileId) {
+        if (!(flowFileId instanceof String)) {
+            return null;
+        }
+        String id = (String) flowFileId;
+        if (id.length() != UUID_LENGTH || id.charAt(8) != '-' || id.charAt(13) != '-' || id.charAt(18) != '-' || id.charAt(23) != '-') {
+            return null;
+        }
+        long most = 0;
+        long least = 0;
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                continue;
+            }
+            int digit = hexDigit(id.charAt(i));
+            if (digit < 0) {
+                return null;
+            }
+            if (i < 19) {
+                most = (most << 4) | digit;
+            } else {
+                least = (least << 4) | digit;
+            }
+        }
+        return new UUID(most, least);
+    }
+
+    /**
+     * @return the value of a lower case hex digit, or -1 if the character is not one
+     */
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * Spread the hash so uuids and event ids distribute evenly across stripes
+     */
+    static int stripe(long hash, int mask) {
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        return (int) hash & mask;
+    }
+
+    /**
+     * @param stripes the requested number of stripes
+     * @return the smallest power of two greater than or equal to the requested stripes
+     */
+    static int stripeCount(int stripes) {
+        int count = 1;
+        while (count < stripes) {
+            count <<= 1;
+        }
+        return count;
+    }
+}
@@ -18,12 +18,18 @@ package com.thinkbiganalytics.nifi.provenance.repo;
  * limitations under the License.
  * #L%
  */
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.thinkbiganalytics.nifi.provenance.util.SpringApplicationContext;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
 
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Created by sr186054 on 6/21/17.
  */
@@ -31,8 +37,25 @@ public class KyloProvenanceEventRepositoryUtil {
 
     private static final Logger log = LoggerFactory.getLogger(KyloProvenanceEventRepositoryUtil.class);
 
+    /**
+     * Syncs and compacts the feed event statistics journal, if enabled
+     */
+    private ScheduledExecutorService journalService;
+
 
     public final void persistFeedEventStatisticsToDisk() {
+        if (FeedEventStatistics.getInstance().isJournaling()) {
+            //the changes are already on disk.  Just sync the journal
+            if (journalService != null) {
+                journalService.shutdownNow();
+            }
+            if (FeedEventStatistics.getInstance().closeJournal()) {
+                log.info("onShutdown: Closed the Kylo Flow processing journal");
+                return;
+            }
+            //the journal stopped recording changes when it failed.  Fall back to the full backup, which is loaded in preference to the journal on startup
+            log.warn("onShutdown: The Kylo Flow processing journal failed and is missing changes");
+        }
         log.info("onShutdown: Attempting to persist any active flow files to disk");
         try {
             //persist running flowfile metadata to disk
@@ -58,6 +81,32 @@ public class KyloProvenanceEventRepositoryUtil {
         } else {
             log.error("Error loading backup");
         }
+        if (ConfigurationProperties.getInstance().isFeedEventStatisticsJournalEnabled()) {
+            //if a backup was loaded it is newer than the journal
+            startJournal(!success);
+        }
+    }
+
+    private void startJournal(boolean recover) {
+        ConfigurationProperties properties = ConfigurationProperties.getInstance();
+        try {
+            FeedEventStatisticsJournal journal = new FeedEventStatisticsJournal(new File(properties.getFeedEventStatisticsJournalLocation()), properties.getFeedEventStatisticsJournalSegmentSizeBytes());
+            FeedStatisticsManager.getInstance().startJournal(journal, recover);
+            log.info("Journaling Kylo Flow processing data to {} ", journal.getDirectory());
+
+            long interval = properties.getFeedEventStatisticsJournalCompactionIntervalSeconds();
+            long compactionThreshold = properties.getFeedEventStatisticsJournalCompactionThresholdBytes();
+            journalService = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("FeedEventStatistics-Journal-%d").build());
+            journalService.scheduleWithFixedDelay(() -> {
+                try {
+                    FeedStatisticsManager.getInstance().syncJournal(compactionThreshold);
+                } catch (Exception e) {
+                    log.error("Error syncing the Kylo Flow processing journal. {} ", e.getMessage(), e);
+                }
+            }, interval, interval, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.error("Unable to start the Kylo Flow processing journal. {} ", e.getMessage(), e);
+        }
     }
 
     public void init() {
@@ -0,0 +1,203 @@
+package com.thinkbiganalytics.nifi.provenance.repo;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Tests the compact state store maps used by the {@link FeedEventStatistics} and compares their heap footprint and throughput to the default maps.
+ *
+ * The benchmark is not part of the unit suite as heap measurements depend on the garbage collector. Run it by hand, removing the {@link Ignore}.
+ * The number of tracked flow files for the benchmark defaults to 200,000 and can be raised using the system property {@code kylo.provenance.benchmark.flowFiles}, for example 1000000 or 10000000
+ * (with a suitable -Xmx).
+ */
+public class CompactStateStoreTest {
+
+    private static final Logger log = LoggerFactory.getLogger(CompactStateStoreTest.class);
+
+    private static final int FLOW_FILES = Integer.getInteger("kylo.provenance.benchmark.flowFiles", 200000);
+
+    /**
+     * Number of flow files belonging to each feed flow
+     */
+    private static final int FLOW_FILES_PER_FEED_FLOW = 100;
+
+    @Test
+    public void testFlowFileIdMap() {
+        Map<String, String> map = new CompactFlowFileIdMap(4);
+        String flowFile = UUID.randomUUID().toString();
+        String feedFlowFile = UUID.randomUUID().toString();
+        Assert.assertNull(map.put(flowFile, feedFlowFile));
+        Assert.assertNull(map.put("not-a-uuid", "also-not-a-uuid"));
+        Assert.assertEquals(feedFlowFile, map.get(flowFile));
+        Assert.assertEquals("also-not-a-uuid", map.get("not-a-uuid"));
+        Assert.assertTrue(map.containsKey(flowFile));
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals(2, new ConcurrentHashMap<>(map).size());
+        Assert.assertEquals(feedFlowFile, map.remove(flowFile));
+        Assert.assertNull(map.get(flowFile));
+        Assert.assertFalse(map.containsKey(flowFile));
+        map.clear();
+        Assert.assertEquals(0, map.size());
+    }
+
+    /**
+     * An upper case uuid is not in the canonical form and must always resolve to the same key, separate from its lower case form
+     */
+    @Test
+    public void testFlowFileIdMapUpperCaseIds() {
+        Map<String, String> map = new CompactFlowFileIdMap(4);
+        String flowFile = UUID.randomUUID().toString();
+        String upperCaseFlowFile = flowFile.toUpperCase();
+        map.put(flowFile, "lower");
+        map.put(upperCaseFlowFile, "upper");
+        Assert.assertEquals("lower", map.get(flowFile));
+        Assert.assertEquals("upper", map.get(upperCaseFlowFile));
+        Assert.assertEquals(2, map.size());
+        Assert.assertTrue(map.entrySet().stream().anyMatch(e -> e.getKey().equals(upperCaseFlowFile)));
+        Assert.assertEquals("upper", map.remove(upperCaseFlowFile));
+        Assert.assertEquals("lower", map.get(flowFile));
+        Assert.assertNull(map.get(upperCaseFlowFile));
+    }
+
+    /**
+     * Flow files of the same feed flow share one value which is returned without creating a new string
+     */
+    @Test
+    public void testFlowFileIdMapSharesValues() {
+        Map<String, String> map = new CompactFlowFileIdMap(4);
+        String feedFlowFile = UUID.randomUUID().toString();
+        String flowFile1 = UUID.randomUUID().toString();
+        String flowFile2 = UUID.randomUUID().toString();
+        map.put(flowFile1, new String(feedFlowFile));
+        map.put(flowFile2, new String(feedFlowFile));
+        Assert.assertEquals(feedFlowFile, map.get(flowFile1));
+        Assert.assertSame(map.get(flowFile1), map.get(flowFile2));
+        Assert.assertSame(map.get(flowFile1), map.get(flowFile1));
+    }
+
+    @Test
+    public void testFlowFileUuids() {
+        UUID uuid = UUID.randomUUID();
+        Assert.assertEquals(uuid, FlowFileUuids.parse(uuid.toString()));
+        Assert.assertEquals(new UUID(0L, 0L), FlowFileUuids.parse("00000000-0000-0000-0000-000000000000"));
+        Assert.assertEquals(new UUID(-1L, -1L), FlowFileUuids.parse("ffffffff-ffff-ffff-ffff-ffffffffffff"));
+        Assert.assertNull(FlowFileUuids.parse(uuid.toString().toUpperCase()));
+        Assert.assertNull(FlowFileUuids.parse("0-0-0-0-0"));
+        Assert.assertNull(FlowFileUuids.parse("00000000x0000-0000-0000-000000000000"));
+        Assert.assertNull(FlowFileUuids.parse("0000000g-0000-0000-0000-000000000000"));
+        Assert.assertNull(FlowFileUuids.parse(null));
+        Assert.assertNull(FlowFileUuids.parse(1L));
+    }
+
+    @Test
+    public void testFlowFileTimeMap() {
+        Map<String, Long> map = new CompactFlowFileTimeMap(4);
+        String flowFile = UUID.randomUUID().toString();
+        String upperCaseFlowFile = UUID.randomUUID().toString().toUpperCase();
+        Assert.assertNull(map.put(flowFile, 0L));
+        Assert.assertEquals(Long.valueOf(0L), map.put(flowFile, 10L));
+        map.put(upperCaseFlowFile, 20L);
+        Assert.assertEquals(Long.valueOf(10L), map.get(flowFile));
+        Assert.assertEquals(Long.valueOf(20L), map.get(upperCaseFlowFile));
+        Assert.assertTrue(map.entrySet().stream().anyMatch(e -> e.getKey().equals(upperCaseFlowFile)));
+        Assert.assertEquals(Long.valueOf(10L), map.remove(flowFile));
+        Assert.assertNull(map.remove(flowFile));
+        Assert.assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testLongLongMap() {
+        Map<Long, Long> map = new CompactLongLongMap(4);
+        Assert.assertNull(map.get(1L));
+        map.put(1L, 0L);
+        Assert.assertTrue(map.containsKey(1L));
+        Assert.assertEquals(Long.valueOf(0L), map.get(1L));
+        Assert.assertEquals(Long.valueOf(0L), map.remove(1L));
+        Assert.assertNull(map.remove(1L));
+        Assert.assertTrue(map.isEmpty());
+    }
+
+    /**
+     * Heap footprint and put/get time for the flow file maps tracked per in-flight flow file.
+     * This only logs the results, compare the bytes per flow file of the two stores.
+     */
+    @Test
+    @Ignore("benchmark, run by hand")
+    public void benchmarkHeapFootprint() {
+        List<String> flowFiles = new ArrayList<>(FLOW_FILES);
+        for (int i = 0; i < FLOW_FILES; i++) {
+            flowFiles.add(UUID.randomUUID().toString());
+        }
+
+        measure("default", flowFiles, ConcurrentHashMap::new, ConcurrentHashMap::new, ConcurrentHashMap::new);
+        measure("compact", flowFiles, CompactFlowFileIdMap::new, CompactFlowFileTimeMap::new, CompactLongLongMap::new);
+    }
+
+    private long measure(String store, List<String> flowFiles, Supplier<Map<String, String>> idMapSupplier, Supplier<Map<String, Long>> timeMapSupplier,
+                         Supplier<Map<Long, Long>> eventMapSupplier) {
+        long before = usedMemory();
+        long start = System.nanoTime();
+        Map<String, String> allFlowFileToFeedFlowFile = idMapSupplier.get();
+        Map<String, Long> flowFileLastNonDropEventTime = timeMapSupplier.get();
+        Map<Long, Long> eventStartTime = eventMapSupplier.get();
+        String feedFlowFile = null;
+        long eventId = 0;
+        for (String flowFile : flowFiles) {
+            if (eventId % FLOW_FILES_PER_FEED_FLOW == 0) {
+                feedFlowFile = flowFile;
+            }
+            //copy the ids as NiFi will hand us a new string for each event
+            allFlowFileToFeedFlowFile.put(new String(flowFile), new String(feedFlowFile));
+            flowFileLastNonDropEventTime.put(new String(flowFile), System.currentTimeMillis());
+            eventStartTime.put(eventId++, System.currentTimeMillis());
+        }
+        for (String flowFile : flowFiles) {
+            Assert.assertNotNull(allFlowFileToFeedFlowFile.get(flowFile));
+            Assert.assertNotNull(flowFileLastNonDropEventTime.get(flowFile));
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        long bytes = usedMemory() - before;
+        log.info("{} store: {} flow files, {} bytes/flow file, {} MB total, {} ms to put and get", store, flowFiles.size(), bytes / flowFiles.size(), bytes / (1024 * 1024), elapsedMillis);
+        //keep the maps reachable until measured
+        Assert.assertEquals(flowFiles.size(), allFlowFileToFeedFlowFile.size() + eventStartTime.size() - flowFileLastNonDropEventTime.size());
+        return bytes;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,195 @@
+package com.thinkbiganalytics.nifi.provenance.repo;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.thinkbiganalytics.nifi.provenance.repo.FeedEventStatisticsJournal.Field;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests writing, compacting and recovering the {@link FeedEventStatisticsJournal}
+ */
+public class FeedEventStatisticsJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecoverWithoutClose() throws Exception {
+        File directory = folder.newFolder("journal");
+        //small segments so the journal rolls over
+        FeedEventStatisticsJournal journal = new FeedEventStatisticsJournal(directory, 256);
+        String feedFlowFile = UUID.randomUUID().toString();
+        String child = "not-a-uuid";
+        journal.put(Field.ALL_FLOW_FILE_TO_FEED_FLOW_FILE, feedFlowFile, feedFlowFile);
+        journal.put(Field.FEED_FLOW_FILE_PROCESSOR_ID, feedFlowFile, "processor");
+        journal.increment(Field.FEED_FLOW_PROCESSING, feedFlowFile, 1);
+        journal.put(Field.FEED_FLOW_FILE_START_TIME, feedFlowFile, 100L);
+        journal.add(Field.DETAILED_TRACKING_FEED_FLOW_FILE, feedFlowFile);
+        journal.put(Field.ALL_FLOW_FILE_TO_FEED_FLOW_FILE, child, feedFlowFile);
+        journal.increment(Field.FEED_FLOW_PROCESSING, feedFlowFile, 1);
+        journal.put(Field.FLOW_FILE_LAST_NON_DROP_EVENT_TIME, child, 200L);
+        journal.increment(Field.FEED_FLOW_PROCESSING, feedFlowFile, -1);
+        journal.remove(Field.FLOW_FILE_LAST_NON_DROP_EVENT_TIME, child);
+        journal.remove(Field.ALL_FLOW_FILE_TO_FEED_FLOW_FILE, child);
+        journal.add(Field.EVENTS_THAT_COMPLETE_FEED_FLOW, 5L);
+        journal.increment(Field.SKIPPED_EVENTS, null, 3);
+        journal.increment(Field.FEED_FLOW_FILE_FAILURE_COUNT, feedFlowFile, 1);
+        journal.flush();
+        Assert.assertTrue(directory.list().length > 1);
+
+        //recover as if NiFi was killed without closing the journal
+        FeedEventStatisticsData data = new FeedEventStatisticsJournal(directory, 256).recover();
+        Assert.assertNotNull(data);
+        Assert.assertEquals(feedFlowFile, data.allFlowFileToFeedFlowFile.get(feedFlowFile));
+        Assert.assertNull(data.allFlowFileToFeedFlowFile.get(child));
+        Assert.assertTrue(data.flowFileLastNonDropEventTime.isEmpty());
+        Assert.assertEquals("processor", data.feedFlowFileIdToFeedProcessorId.get(feedFlowFile));
+        Assert.assertEquals(1, data.feedFlowProcessing.get(feedFlowFile).get());
+        Assert.assertEquals(Long.valueOf(100L), data.feedFlowFileStartTime.get(feedFlowFile));
+        Assert.assertTrue(data.detailedTrackingFeedFlowFileId.contains(feedFlowFile));
+        Assert.assertTrue(data.eventsThatCompleteFeedFlow.contains(5L));
+        Assert.assertEquals(3L, data.skippedEvents.get());
+        Assert.assertEquals(1, data.feedFlowFileFailureCount.get(feedFlowFile).get());
+    }
+
+    @Test
+    public void testCheckpointCompactsJournal() throws Exception {
+        File directory = folder.newFolder("journal");
+        FeedEventStatisticsJournal journal = new FeedEventStatisticsJournal(directory, 4096);
+        String feedFlowFile = UUID.randomUUID().toString();
+        journal.put(Field.FEED_FLOW_FILE_PROCESSOR_ID, feedFlowFile, "processor");
+        journal.increment(Field.FEED_FLOW_PROCESSING, feedFlowFile, 2);
+        journal.flush();
+
+        FeedEventStatisticsData checkpoint = new FeedEventStatisticsJournal(directory, 4096).recover();
+        long sequence = journal.startCheckpoint();
+        Assert.assertEquals(0L, journal.getBytesSinceCheckpoint());
+        Assert.assertTrue(journal.writeCheckpoint(checkpoint, sequence));
+
+        //changes after the checkpoint are replayed on top of it
+        journal.increment(Field.FEED_FLOW_PROCESSING, feedFlowFile, -1);
+        journal.put(Field.FEED_FLOW_FILE_END_TIME, feedFlowFile, 300L);
+        journal.close();
+        Assert.assertEquals(2, directory.list().length);
+
+        FeedEventStatisticsData data = new FeedEventStatisticsJournal(directory, 4096).recover();
+        Assert.assertEquals("processor", data.feedFlowFileIdToFeedProcessorId.get(feedFlowFile));
+        Assert.assertEquals(1, data.feedFlowProcessing.get(feedFlowFile).get());
+        Assert.assertEquals(Long.valueOf(300L), data.feedFlowFileEndTime.get(feedFlowFile));
+    }
+
+    /**
+     * Changes made while the checkpoint is copied are in both the checkpoint and the new segment, and are not applied twice
+     */
+    @Test
+    public void testCheckpointCopiedDuringChanges() throws Exception {
+        File directory = folder.newFolder("journal");
+        FeedEventStatisticsJournal journal = new FeedEventStatisticsJournal(directory, 4096);
+        String feedFlowFile = UUID.randomUUID().toString();
+        journal.set(Field.FEED_FLOW_PROCESSING, feedFlowFile, 1);
+        journal.set(Field.SKIPPED_EVENTS, null, 1);
+        long sequence = journal.startCheckpoint();
+
+        //these changes are made after the segment is started, but before the statistics are copied
+        journal.set(Field.FEED_FLOW_PROCESSING, feedFlowFile, 2);
+        journal.set(Field.FEED_FLOW_FILE_FAILURE_COUNT, feedFlowFile, 1);
+        journal.set(Field.SKIPPED_EVENTS, null, 3);
+        journal.set(Field.SKIPPED_EVENTS, null, 2);
+        journal.flush();
+        FeedEventStatisticsData checkpoint = new FeedEventStatisticsData();
+        checkpoint.feedFlowProcessing.put(feedFlowFile, new AtomicInteger(2));
+        checkpoint.feedFlowFileFailureCount.put(feedFlowFile, new AtomicInteger(1));
+        checkpoint.skippedEvents.set(3);
+        Assert.assertTrue(journal.writeCheckpoint(checkpoint, sequence));
+        journal.set(Field.FEED_FLOW_PROCESSING, feedFlowFile, 1);
+        journal.close();
+
+        FeedEventStatisticsData data = new FeedEventStatisticsJournal(directory, 4096).recover();
+        Assert.assertEquals(1, data.feedFlowProcessing.get(feedFlowFile).get());
+        Assert.assertEquals(1, data.feedFlowFileFailureCount.get(feedFlowFile).get());
+        Assert.assertEquals(3L, data.skippedEvents.get());
+    }
+
+    /**
+     * A change that cannot be written fails the journal, so the statistics are backed up at shutdown instead
+     */
+    @Test
+    public void testWriteFailure() throws Exception {
+        File directory = folder.newFolder("journal");
+        FeedEventStatisticsJournal journal = new FeedEventStatisticsJournal(directory, 4096);
+        Assert.assertTrue(directory.delete());
+        journal.put(Field.FEED_FLOW_FILE_PROCESSOR_ID, UUID.randomUUID().toString(), "processor");
+        journal.flush();
+        Assert.assertTrue(journal.isFailed());
+    }
+
+    /**
+     * Changes appended concurrently by many threads are all written
+     */
+    @Test
+    public void testConcurrentAppend() throws Exception {
+        File directory = folder.newFolder("journal");
+        FeedEventStatisticsJournal journal = new FeedEventStatisticsJournal(directory, 4096);
+        int threads = 8;
+        int increments = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String feedFlowFile = "feed-flow-" + i;
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < increments; j++) {
+                    journal.increment(Field.FEED_FLOW_PROCESSING, feedFlowFile, 1);
+                    journal.increment(Field.SKIPPED_EVENTS, null, 1);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        journal.close();
+
+        FeedEventStatisticsData data = new FeedEventStatisticsJournal(directory, 4096).recover();
+        for (int i = 0; i < threads; i++) {
+            Assert.assertEquals(increments, data.feedFlowProcessing.get("feed-flow-" + i).get());
+        }
+        Assert.assertEquals((long) threads * increments, data.skippedEvents.get());
+    }
+
+    @Test
+    public void testNothingToRecover() throws Exception {
+        Assert.assertNull(new FeedEventStatisticsJournal(folder.newFolder("journal"), 4096).recover());
+    }
+}
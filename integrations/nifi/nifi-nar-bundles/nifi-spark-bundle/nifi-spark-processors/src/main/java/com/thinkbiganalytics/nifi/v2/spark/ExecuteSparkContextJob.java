@@ -56,10 +56,13 @@ public class ExecuteSparkContextJob extends AbstractNiFiProcessor {
     private static final String SPARK_CONTEXT_VALUE = "SPARK_CONTEXT";
     private static final String SQL_CONTEXT_VALUE = "SQL_CONTEXT";
     private static final String HIVE_CONTEXT_VALUE = "HIVE_CONTEXT";
+    private static final String JAVA_HIVE_CONTEXT_VALUE = "JAVA_HIVE_CONTEXT";
 
     public static final AllowableValue SPARK_CONTEXT = new AllowableValue(SPARK_CONTEXT_VALUE, "Spark Context", "Creates a Standard Spark Context");
     public static final AllowableValue SQL_CONTEXT = new AllowableValue(SQL_CONTEXT_VALUE, "SQL Context", "Creates a Spark SQL Context");
     public static final AllowableValue HIVE_CONTEXT = new AllowableValue(HIVE_CONTEXT_VALUE, "Hive Context", "Creates a Hive Context");
+    public static final AllowableValue JAVA_HIVE_CONTEXT = new AllowableValue(JAVA_HIVE_CONTEXT_VALUE, "Java Hive Context",
+                                                                             "Creates a Hive Context for Java jobs, such as the Kylo Validator and Profiler");
 
     public static final String FLOW_FILE_ATTRIBUTE_VALUE = "FLOW_FILE_ATTRIBUTE";
     public static final String FLOW_FILE_CONTENTS_VALUE = "FLOW_FILE_CONTENTS";
@@ -130,7 +133,7 @@ public class ExecuteSparkContextJob extends AbstractNiFiProcessor {
         .name("Context Type")
         .description("Type of Context to create")
         .required(true)
-        .allowableValues(SPARK_CONTEXT, SQL_CONTEXT, HIVE_CONTEXT)
+        .allowableValues(SPARK_CONTEXT, SQL_CONTEXT, HIVE_CONTEXT, JAVA_HIVE_CONTEXT)
         .defaultValue(SPARK_CONTEXT.getValue())
         .build();
 
@@ -23,5 +23,10 @@ package com.thinkbiganalytics.nifi.v2.spark;
 public enum SparkContextType {
     SPARK_CONTEXT,
     SQL_CONTEXT,
-    HIVE_CONTEXT
+    HIVE_CONTEXT,
+
+    /**
+     * Hive context for jobs implemented with the Spark Jobserver Java API
+     */
+    JAVA_HIVE_CONTEXT
 }
@@ -376,6 +376,8 @@ public class SparkJobserverService extends AbstractControllerService implements
             return "spark.jobserver.context.SQLContextFactory";
         } else if (contextType == SparkContextType.HIVE_CONTEXT) {
             return "spark.jobserver.context.HiveContextFactory";
+        } else if (contextType == SparkContextType.JAVA_HIVE_CONTEXT) {
+            return "spark.jobserver.context.JavaHiveContextFactory";
         } else {
             return "spark.jobserver.context.DefaultSparkContextFactory";
         }
@@ -99,4 +99,8 @@ public class ProvenanceEventRecordDTOHolder implements Serializable {
         return batchId;
     }
 
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+
 }
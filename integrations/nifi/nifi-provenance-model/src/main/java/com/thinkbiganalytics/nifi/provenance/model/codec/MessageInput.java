@@ -0,0 +1,124 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a message body written by a {@link MessageOutput}, resolving the string references against the dictionary at the start of the body.
+ */
+class MessageInput {
+
+    private final byte[] buffer;
+    private int position;
+    private final int limit;
+
+    private final String[] strings;
+
+    MessageInput(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+
+        long count = readVarLong();
+        if (count < 0 || count > length) {
+            throw new IllegalArgumentException("Invalid provenance message dictionary size " + count);
+        }
+        strings = new String[(int) count];
+        for (int i = 0; i < strings.length; i++) {
+            int stringLength = readLength();
+            strings[i] = new String(buffer, position, stringLength, StandardCharsets.UTF_8);
+            position += stringLength;
+        }
+    }
+
+    int readByte() {
+        if (position >= limit) {
+            throw new IllegalArgumentException("Truncated provenance message");
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    byte[] readBytes(int length) {
+        checkAvailable(length);
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    long readVarLong() {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable length value in provenance message");
+    }
+
+    long readZigZagLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    Long readNullableLong() {
+        return readByte() == 0 ? null : readZigZagLong();
+    }
+
+    String readString() {
+        long index = readVarLong();
+        if (index == 0) {
+            return null;
+        }
+        if (index > strings.length) {
+            throw new IllegalArgumentException("Invalid string reference " + index + " in provenance message");
+        }
+        return strings[(int) index - 1];
+    }
+
+    /**
+     * @return the collection size or -1 if the collection was null
+     */
+    int readSize() {
+        long size = readVarLong() - 1;
+        if (size < -1 || size > limit - position) {
+            throw new IllegalArgumentException("Invalid collection size " + size + " in provenance message");
+        }
+        return (int) size;
+    }
+
+    int readLength() {
+        long length = readVarLong();
+        if (length < 0 || length > limit - position) {
+            throw new IllegalArgumentException("Invalid length " + length + " in provenance message");
+        }
+        return (int) length;
+    }
+
+    private void checkAvailable(int length) {
+        if (length < 0 || position + length > limit) {
+            throw new IllegalArgumentException("Truncated provenance message");
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Growable buffer the {@link ProvenanceMessageCodec} writes a message body into.
+ *
+ * Strings are not written inline.  Each distinct string is added once to a dictionary that precedes the body and the body refers to it by index,
+ * so the flow file ids, processor ids and names repeated throughout a batch are only sent once.
+ */
+class MessageOutput {
+
+    private byte[] buffer;
+    private int size;
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    MessageOutput(int initialCapacity) {
+        this.buffer = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    void writeByte(int b) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) b;
+    }
+
+    void writeBytes(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, size, length);
+        size += length;
+    }
+
+    /**
+     * Write an unsigned variable length long, 7 bits per byte
+     */
+    void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0L) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * Write a signed long so that small negative values stay small
+     */
+    void writeZigZagLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeNullableLong(Long value) {
+        if (value == null) {
+            writeByte(0);
+        } else {
+            writeByte(1);
+            writeZigZagLong(value);
+        }
+    }
+
+    /**
+     * Write a reference to the string in the dictionary.  0 is reserved for null.
+     */
+    void writeString(String value) {
+        if (value == null) {
+            writeVarLong(0);
+        } else {
+            Integer index = dictionary.get(value);
+            if (index == null) {
+                index = strings.size() + 1;
+                dictionary.put(value, index);
+                strings.add(value);
+            }
+            writeVarLong(index);
+        }
+    }
+
+    /**
+     * Write a collection size.  0 is reserved for a null collection.
+     */
+    void writeSize(Object collection, int size) {
+        writeVarLong(collection == null ? 0 : size + 1L);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int dictionarySize() {
+        return strings.size();
+    }
+
+    /**
+     * @return the bytes written so far
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * @return the dictionary followed by the body
+     */
+    byte[] toBody() {
+        MessageOutput out = new MessageOutput(size + strings.size() * 40 + 8);
+        out.writeVarLong(strings.size());
+        for (String value : strings) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeVarLong(bytes.length);
+            out.writeBytes(bytes, 0, bytes.length);
+        }
+        out.writeBytes(buffer, 0, size);
+        return out.toByteArray();
+    }
+
+    private void ensureCapacity(int additional) {
+        if (size + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+        }
+    }
+}
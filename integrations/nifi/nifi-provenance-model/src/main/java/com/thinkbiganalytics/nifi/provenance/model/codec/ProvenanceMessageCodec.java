@@ -0,0 +1,842 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.KyloProcessorFlowType;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolderV2;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolderV3;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsV2;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedProcessorStatisticsV2;
+import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStats;
+import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStatsV2;
+
+import org.joda.time.DateTime;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary wire format for the {@link ProvenanceEventRecordDTOHolder} and {@link AggregatedFeedProcessorStatisticsHolder} messages sent from NiFi to Kylo Operations Manager.
+ *
+ * The fields of each object are written in a fixed order with variable length numbers, and all strings in a message are dictionary encoded
+ * so the flow file ids, processor ids and names repeated within a batch are only sent once.  The body can optionally be compressed.
+ *
+ * A message is laid out as:
+ * <pre>
+ *   magic (4 bytes) | format version (1) | message type (1) | compression (1) | [uncompressed length] | string dictionary | body
+ * </pre>
+ * The format version is incremented whenever the layout of the body changes.  Decoders reject messages with a newer version than they understand.
+ *
+ * Note: Any modifications to the provenance model classes need to be reflected here, along with a new format version
+ */
+public class ProvenanceMessageCodec {
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final byte[] MAGIC = {'K', 'P', 'R', 'V'};
+
+    private static final int HEADER_SIZE = MAGIC.length + 3;
+
+    private static final int TYPE_EVENTS = 1;
+    private static final int TYPE_STATS = 2;
+    private static final int TYPE_STATS_V2 = 3;
+    private static final int TYPE_STATS_V3 = 4;
+
+    /**
+     * Class tags written ahead of objects that have more than one version
+     */
+    private static final int NULL_OBJECT = 0;
+    private static final int VERSION_1 = 1;
+    private static final int VERSION_2 = 2;
+
+    /**
+     * Value tags for the untyped additional property maps
+     */
+    private static final int VALUE_NULL = 0;
+    private static final int VALUE_STRING = 1;
+    private static final int VALUE_LONG = 2;
+    private static final int VALUE_INTEGER = 3;
+    private static final int VALUE_DOUBLE = 4;
+    private static final int VALUE_BOOLEAN = 5;
+    private static final int VALUE_SERIALIZED = 6;
+
+    /**
+     * Event flags and the presence bits of its nullable Long fields
+     */
+    private static final int START_OF_JOB = 1;
+    private static final int FINAL_JOB_EVENT = 1 << 1;
+    private static final int FAILURE = 1 << 2;
+    private static final int STREAM = 1 << 3;
+    private static final int HAS_EVENT_ID = 1 << 4;
+    private static final int HAS_EVENT_TIME = 1 << 5;
+    private static final int HAS_START_TIME = 1 << 6;
+    private static final int HAS_EVENT_DURATION = 1 << 7;
+    private static final int HAS_FILE_SIZE_BYTES = 1 << 8;
+    private static final int HAS_INPUT_CLAIM_SIZE_BYTES = 1 << 9;
+    private static final int HAS_OUTPUT_CLAIM_SIZE_BYTES = 1 << 10;
+
+    /**
+     * Compression applied to the dictionary and body of a message
+     */
+    public enum Compression {
+        NONE(0), DEFLATE(1);
+
+        private final int id;
+
+        Compression(int id) {
+            this.id = id;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public static Compression fromId(int id) {
+            for (Compression compression : values()) {
+                if (compression.id == id) {
+                    return compression;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported provenance message compression " + id);
+        }
+
+        /**
+         * Parse the configured compression name, defaulting to NONE when it is blank or unknown
+         */
+        public static Compression fromName(String name) {
+            for (Compression compression : values()) {
+                if (compression.name().equalsIgnoreCase(name != null ? name.trim() : null)) {
+                    return compression;
+                }
+            }
+            return NONE;
+        }
+    }
+
+    private final Compression compression;
+
+    public ProvenanceMessageCodec() {
+        this(Compression.NONE);
+    }
+
+    public ProvenanceMessageCodec(Compression compression) {
+        this.compression = compression != null ? compression : Compression.NONE;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Encode the batch of provenance events
+     */
+    public byte[] encode(ProvenanceEventRecordDTOHolder holder) {
+        List<ProvenanceEventRecordDTO> events = holder.getEvents();
+        MessageOutput out = new MessageOutput(events != null ? events.size() * 128 : 64);
+        out.writeString(holder.getBatchId());
+        out.writeSize(events, events != null ? events.size() : 0);
+        if (events != null) {
+            long previousEventId = 0L;
+            long previousEventTime = 0L;
+            for (ProvenanceEventRecordDTO event : events) {
+                if (event == null) {
+                    out.writeByte(NULL_OBJECT);
+                } else {
+                    out.writeByte(VERSION_1);
+                    writeEvent(out, event, previousEventId, previousEventTime);
+                    if (event.getEventId() != null) {
+                        previousEventId = event.getEventId();
+                    }
+                    if (event.getEventTime() != null) {
+                        previousEventTime = event.getEventTime();
+                    }
+                }
+            }
+        }
+        return toMessage(TYPE_EVENTS, out);
+    }
+
+    /**
+     * Encode the feed processor statistics
+     */
+    public byte[] encode(AggregatedFeedProcessorStatisticsHolder holder) {
+        int type = holder instanceof AggregatedFeedProcessorStatisticsHolderV3 ? TYPE_STATS_V3 : holder instanceof AggregatedFeedProcessorStatisticsHolderV2 ? TYPE_STATS_V2 : TYPE_STATS;
+        MessageOutput out = new MessageOutput(1024);
+
+        out.writeString(holder.getCollectionId());
+        out.writeNullableLong(holder.getMinTime() != null ? holder.getMinTime().getMillis() : null);
+        out.writeNullableLong(holder.getMaxTime() != null ? holder.getMaxTime().getMillis() : null);
+        out.writeNullableLong(holder.getEventCount() != null ? holder.getEventCount().get() : null);
+        out.writeNullableLong(holder.getMinEventId());
+        out.writeNullableLong(holder.getMaxEventId());
+        Map<String, AggregatedFeedProcessorStatistics> feedStatistics = holder.getFeedStatistics();
+        out.writeSize(feedStatistics, feedStatistics != null ? feedStatistics.size() : 0);
+        if (feedStatistics != null) {
+            for (Map.Entry<String, AggregatedFeedProcessorStatistics> entry : feedStatistics.entrySet()) {
+                out.writeString(entry.getKey());
+                writeFeedProcessorStatistics(out, entry.getValue());
+            }
+        }
+
+        if (holder instanceof AggregatedFeedProcessorStatisticsHolderV2) {
+            Map<String, Long> runningFlows = ((AggregatedFeedProcessorStatisticsHolderV2) holder).getProcessorIdRunningFlows();
+            out.writeSize(runningFlows, runningFlows != null ? runningFlows.size() : 0);
+            if (runningFlows != null) {
+                for (Map.Entry<String, Long> entry : runningFlows.entrySet()) {
+                    out.writeString(entry.getKey());
+                    out.writeNullableLong(entry.getValue());
+                }
+            }
+        }
+        if (holder instanceof AggregatedFeedProcessorStatisticsHolderV3) {
+            out.writeNullableLong(((AggregatedFeedProcessorStatisticsHolderV3) holder).getTimestamp());
+        }
+        return toMessage(type, out);
+    }
+
+    /**
+     * Check if the bytes start with the header written by this codec
+     */
+    public static boolean isEncoded(byte[] message) {
+        if (message == null || message.length < HEADER_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (message[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decode a message produced by either of the encode methods
+     *
+     * @return the decoded {@link ProvenanceEventRecordDTOHolder} or {@link AggregatedFeedProcessorStatisticsHolder}
+     * @throws IllegalArgumentException if the bytes are not a valid message or were written by a newer version of the codec
+     */
+    public static Serializable decode(byte[] message) {
+        if (!isEncoded(message)) {
+            throw new IllegalArgumentException("Not a provenance message");
+        }
+        int version = message[MAGIC.length] & 0xFF;
+        if (version > FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported provenance message format version " + version + ". The highest supported version is " + FORMAT_VERSION);
+        }
+        int type = message[MAGIC.length + 1] & 0xFF;
+        Compression compression = Compression.fromId(message[MAGIC.length + 2] & 0xFF);
+
+        MessageInput in = compression == Compression.NONE ? new MessageInput(message, HEADER_SIZE, message.length - HEADER_SIZE) : inflate(message);
+        switch (type) {
+            case TYPE_EVENTS:
+                return readEvents(in);
+            case TYPE_STATS:
+                return readStatisticsHolder(in, new AggregatedFeedProcessorStatisticsHolder());
+            case TYPE_STATS_V2:
+                return readStatisticsHolder(in, new AggregatedFeedProcessorStatisticsHolderV2());
+            case TYPE_STATS_V3:
+                return readStatisticsHolder(in, new AggregatedFeedProcessorStatisticsHolderV3());
+            default:
+                throw new IllegalArgumentException("Unsupported provenance message type " + type);
+        }
+    }
+
+    private byte[] toMessage(int type, MessageOutput out) {
+        byte[] body = out.toBody();
+        byte[] compressed = compression == Compression.DEFLATE ? deflate(body) : null;
+        //small messages may not be worth compressing
+        boolean compress = compressed != null && compressed.length < body.length;
+        byte[] payload = compress ? compressed : body;
+
+        MessageOutput message = new MessageOutput(HEADER_SIZE + 5 + payload.length);
+        message.writeBytes(MAGIC, 0, MAGIC.length);
+        message.writeByte(FORMAT_VERSION);
+        message.writeByte(type);
+        message.writeByte(compress ? Compression.DEFLATE.getId() : Compression.NONE.getId());
+        if (compress) {
+            message.writeVarLong(body.length);
+        }
+        message.writeBytes(payload, 0, payload.length);
+        return message.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] body) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 2 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(chunk);
+                out.write(chunk, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static MessageInput inflate(byte[] message) {
+        int position = HEADER_SIZE;
+        long length = 0L;
+        for (int shift = 0; ; shift += 7) {
+            if (position >= message.length || shift > 28) {
+                throw new IllegalArgumentException("Invalid provenance message length");
+            }
+            int b = message[position++] & 0xFF;
+            length |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(message, position, message.length - position);
+            byte[] body = new byte[(int) length];
+            int read = 0;
+            while (read < body.length) {
+                int count = inflater.inflate(body, read, body.length - read);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalArgumentException("Truncated provenance message");
+                }
+                read += count;
+            }
+            return new MessageInput(body, 0, body.length);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compressed provenance message", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeEvent(MessageOutput out, ProvenanceEventRecordDTO event, long previousEventId, long previousEventTime) {
+        int flags = 0;
+        flags |= event.isStartOfJob() ? START_OF_JOB : 0;
+        flags |= event.isFinalJobEvent() ? FINAL_JOB_EVENT : 0;
+        flags |= event.isFailure() ? FAILURE : 0;
+        flags |= event.isStream() ? STREAM : 0;
+        flags |= event.getEventId() != null ? HAS_EVENT_ID : 0;
+        flags |= event.getEventTime() != null ? HAS_EVENT_TIME : 0;
+        flags |= event.getStartTime() != null ? HAS_START_TIME : 0;
+        flags |= event.getEventDuration() != null ? HAS_EVENT_DURATION : 0;
+        flags |= event.getFileSizeBytes() != null ? HAS_FILE_SIZE_BYTES : 0;
+        flags |= event.getInputContentClaimFileSizeBytes() != null ? HAS_INPUT_CLAIM_SIZE_BYTES : 0;
+        flags |= event.getOutputContentClaimFileSizeBytes() != null ? HAS_OUTPUT_CLAIM_SIZE_BYTES : 0;
+        out.writeVarLong(flags);
+
+        //event ids and times in a batch are close together so they are written relative to the previous event
+        if (event.getEventId() != null) {
+            out.writeZigZagLong(event.getEventId() - previousEventId);
+        }
+        if (event.getEventTime() != null) {
+            out.writeZigZagLong(event.getEventTime() - previousEventTime);
+        }
+        if (event.getStartTime() != null) {
+            out.writeZigZagLong(event.getStartTime() - (event.getEventTime() != null ? event.getEventTime() : 0L));
+        }
+        if (event.getEventDuration() != null) {
+            out.writeZigZagLong(event.getEventDuration());
+        }
+        if (event.getFileSizeBytes() != null) {
+            out.writeZigZagLong(event.getFileSizeBytes());
+        }
+        if (event.getInputContentClaimFileSizeBytes() != null) {
+            out.writeZigZagLong(event.getInputContentClaimFileSizeBytes());
+        }
+        if (event.getOutputContentClaimFileSizeBytes() != null) {
+            out.writeZigZagLong(event.getOutputContentClaimFileSizeBytes());
+        }
+
+        out.writeString(event.getEventType());
+        out.writeString(event.getFlowFileUuid());
+        out.writeString(event.getFileSize());
+        out.writeString(event.getClusterNodeId());
+        out.writeString(event.getClusterNodeAddress());
+        out.writeString(event.getGroupId());
+        out.writeString(event.getComponentId());
+        out.writeString(event.getComponentType());
+        out.writeString(event.getComponentName());
+        out.writeString(event.getDetails());
+        out.writeString(event.getSourceConnectionIdentifier());
+        out.writeString(event.getInputContentClaimFileSize());
+        out.writeString(event.getOutputContentClaimFileSize());
+        out.writeString(event.getJobFlowFileId());
+        out.writeString(event.getRelationship());
+        out.writeString(event.getFirstEventProcessorId());
+        out.writeString(event.getFeedName());
+        out.writeString(event.getFeedProcessGroupId());
+        out.writeString(event.getProcessorType() != null ? event.getProcessorType().name() : null);
+
+        writeStringList(out, event.getParentUuids());
+        writeStringList(out, event.getChildUuids());
+        writeStringMap(out, event.getUpdatedAttributes());
+        writeStringMap(out, event.getPreviousAttributes());
+        writeStringMap(out, event.getAttributeMap());
+        writeObjectMap(out, event.getAdditionalProperties());
+    }
+
+    private static ProvenanceEventRecordDTOHolder readEvents(MessageInput in) {
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        holder.setBatchId(in.readString());
+        int size = in.readSize();
+        if (size >= 0) {
+            List<ProvenanceEventRecordDTO> events = new ArrayList<>(size);
+            long previousEventId = 0L;
+            long previousEventTime = 0L;
+            for (int i = 0; i < size; i++) {
+                if (in.readByte() == NULL_OBJECT) {
+                    events.add(null);
+                } else {
+                    ProvenanceEventRecordDTO event = readEvent(in, previousEventId, previousEventTime);
+                    if (event.getEventId() != null) {
+                        previousEventId = event.getEventId();
+                    }
+                    if (event.getEventTime() != null) {
+                        previousEventTime = event.getEventTime();
+                    }
+                    events.add(event);
+                }
+            }
+            holder.setEvents(events);
+        }
+        return holder;
+    }
+
+    private static ProvenanceEventRecordDTO readEvent(MessageInput in, long previousEventId, long previousEventTime) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        int flags = (int) in.readVarLong();
+        event.setIsStartOfJob((flags & START_OF_JOB) != 0);
+        event.setIsFinalJobEvent((flags & FINAL_JOB_EVENT) != 0);
+        event.setIsFailure((flags & FAILURE) != 0);
+        event.setStream((flags & STREAM) != 0);
+
+        if ((flags & HAS_EVENT_ID) != 0) {
+            event.setEventId(previousEventId + in.readZigZagLong());
+        }
+        if ((flags & HAS_EVENT_TIME) != 0) {
+            event.setEventTime(previousEventTime + in.readZigZagLong());
+        }
+        if ((flags & HAS_START_TIME) != 0) {
+            event.setStartTime((event.getEventTime() != null ? event.getEventTime() : 0L) + in.readZigZagLong());
+        }
+        if ((flags & HAS_EVENT_DURATION) != 0) {
+            event.setEventDuration(in.readZigZagLong());
+        }
+        if ((flags & HAS_FILE_SIZE_BYTES) != 0) {
+            event.setFileSizeBytes(in.readZigZagLong());
+        }
+        if ((flags & HAS_INPUT_CLAIM_SIZE_BYTES) != 0) {
+            event.setInputContentClaimFileSizeBytes(in.readZigZagLong());
+        }
+        if ((flags & HAS_OUTPUT_CLAIM_SIZE_BYTES) != 0) {
+            event.setOutputContentClaimFileSizeBytes(in.readZigZagLong());
+        }
+
+        event.setEventType(in.readString());
+        event.setFlowFileUuid(in.readString());
+        event.setFileSize(in.readString());
+        event.setClusterNodeId(in.readString());
+        event.setClusterNodeAddress(in.readString());
+        event.setGroupId(in.readString());
+        event.setComponentId(in.readString());
+        event.setComponentType(in.readString());
+        event.setComponentName(in.readString());
+        event.setDetails(in.readString());
+        event.setSourceConnectionIdentifier(in.readString());
+        event.setInputContentClaimFileSize(in.readString());
+        event.setOutputContentClaimFileSize(in.readString());
+        event.setJobFlowFileId(in.readString());
+        event.setRelationship(in.readString());
+        event.setFirstEventProcessorId(in.readString());
+        event.setFeedName(in.readString());
+        event.setFeedProcessGroupId(in.readString());
+        event.setProcessorType(toProcessorType(in.readString()));
+
+        event.setParentUuids(readStringList(in));
+        event.setChildUuids(readStringList(in));
+        event.setUpdatedAttributes(readStringMap(in));
+        event.setPreviousAttributes(readStringMap(in));
+        event.setAttributeMap(readStringMap(in));
+        event.setAdditionalProperties(readObjectMap(in));
+        return event;
+    }
+
+    /**
+     * Processor types added by a newer NiFi are dropped rather than failing the batch
+     */
+    private static KyloProcessorFlowType toProcessorType(String name) {
+        if (name != null) {
+            for (KyloProcessorFlowType type : KyloProcessorFlowType.values()) {
+                if (type.name().equals(name)) {
+                    return type;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static AggregatedFeedProcessorStatisticsHolder readStatisticsHolder(MessageInput in, AggregatedFeedProcessorStatisticsHolder holder) {
+        holder.setCollectionId(in.readString());
+        Long minTime = in.readNullableLong();
+        holder.setMinTime(minTime != null ? new DateTime(minTime) : null);
+        Long maxTime = in.readNullableLong();
+        holder.setMaxTime(maxTime != null ? new DateTime(maxTime) : null);
+        Long eventCount = in.readNullableLong();
+        holder.getEventCount().set(eventCount != null ? eventCount : 0L);
+        holder.setMinEventId(in.readNullableLong());
+        holder.setMaxEventId(in.readNullableLong());
+        int size = in.readSize();
+        if (size >= 0) {
+            Map<String, AggregatedFeedProcessorStatistics> feedStatistics = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                feedStatistics.put(in.readString(), readFeedProcessorStatistics(in));
+            }
+            holder.setFeedStatistics(feedStatistics);
+        } else {
+            holder.setFeedStatistics((Map<String, AggregatedFeedProcessorStatistics>) null);
+        }
+
+        if (holder instanceof AggregatedFeedProcessorStatisticsHolderV2) {
+            size = in.readSize();
+            Map<String, Long> runningFlows = null;
+            if (size >= 0) {
+                runningFlows = new HashMap<>(size);
+                for (int i = 0; i < size; i++) {
+                    runningFlows.put(in.readString(), in.readNullableLong());
+                }
+            }
+            ((AggregatedFeedProcessorStatisticsHolderV2) holder).setProcessorIdRunningFlows(runningFlows);
+        }
+        if (holder instanceof AggregatedFeedProcessorStatisticsHolderV3) {
+            ((AggregatedFeedProcessorStatisticsHolderV3) holder).setTimestamp(in.readNullableLong());
+        }
+        return holder;
+    }
+
+    private static void writeFeedProcessorStatistics(MessageOutput out, AggregatedFeedProcessorStatistics stats) {
+        if (stats == null) {
+            out.writeByte(NULL_OBJECT);
+            return;
+        }
+        out.writeByte(stats instanceof AggregatedFeedProcessorStatisticsV2 ? VERSION_2 : VERSION_1);
+        out.writeString(stats.getStartingProcessorId());
+        out.writeString(stats.getProcessGroup());
+        out.writeString(stats.getCollectionId());
+        out.writeNullableLong(stats.getTotalEvents());
+        out.writeNullableLong(stats.getMinEventId());
+        out.writeNullableLong(stats.getMaxEventId());
+        out.writeNullableLong(stats.getCollectionIntervalMillis());
+        Map<String, AggregatedProcessorStatistics> processorStats = stats.getProcessorStats();
+        out.writeSize(processorStats, processorStats != null ? processorStats.size() : 0);
+        if (processorStats != null) {
+            for (Map.Entry<String, AggregatedProcessorStatistics> entry : processorStats.entrySet()) {
+                out.writeString(entry.getKey());
+                writeProcessorStatistics(out, entry.getValue());
+            }
+        }
+        if (stats instanceof AggregatedFeedProcessorStatisticsV2) {
+            out.writeString(((AggregatedFeedProcessorStatisticsV2) stats).getFeedName());
+        }
+    }
+
+    private static AggregatedFeedProcessorStatistics readFeedProcessorStatistics(MessageInput in) {
+        int version = in.readByte();
+        if (version == NULL_OBJECT) {
+            return null;
+        }
+        AggregatedFeedProcessorStatistics stats = version == VERSION_2 ? new AggregatedFeedProcessorStatisticsV2() : new AggregatedFeedProcessorStatistics();
+        stats.setStartingProcessorId(in.readString());
+        stats.setProcessGroup(in.readString());
+        stats.setCollectionId(in.readString());
+        stats.setTotalEvents(in.readNullableLong());
+        stats.setMinEventId(in.readNullableLong());
+        stats.setMaxEventId(in.readNullableLong());
+        stats.setCollectionIntervalMillis(in.readNullableLong());
+        int size = in.readSize();
+        for (int i = 0; i < size; i++) {
+            String processorId = in.readString();
+            AggregatedProcessorStatistics processorStatistics = readProcessorStatistics(in);
+            if (processorId != null && processorStatistics != null) {
+                stats.getProcessorStats().put(processorId, processorStatistics);
+            }
+        }
+        if (version == VERSION_2) {
+            ((AggregatedFeedProcessorStatisticsV2) stats).setFeedName(in.readString());
+        }
+        return stats;
+    }
+
+    private static void writeProcessorStatistics(MessageOutput out, AggregatedProcessorStatistics stats) {
+        if (stats == null) {
+            out.writeByte(NULL_OBJECT);
+            return;
+        }
+        out.writeByte(stats instanceof AggregatedProcessorStatisticsV2 ? VERSION_2 : VERSION_1);
+        out.writeString(stats.getProcessorId());
+        out.writeString(stats.getProcessorName());
+        out.writeString(stats.getCollectionId());
+        Map<String, GroupedStats> groupedStats = stats.getStats();
+        out.writeSize(groupedStats, groupedStats != null ? groupedStats.size() : 0);
+        if (groupedStats != null) {
+            for (Map.Entry<String, GroupedStats> entry : groupedStats.entrySet()) {
+                out.writeString(entry.getKey());
+                writeGroupedStats(out, entry.getValue());
+            }
+        }
+    }
+
+    private static AggregatedProcessorStatistics readProcessorStatistics(MessageInput in) {
+        int version = in.readByte();
+        if (version == NULL_OBJECT) {
+            return null;
+        }
+        String processorId = in.readString();
+        String processorName = in.readString();
+        String collectionId = in.readString();
+        AggregatedProcessorStatistics stats = version == VERSION_2 ? new AggregatedProcessorStatisticsV2(processorId, processorName, collectionId)
+                                                                    : new AggregatedProcessorStatistics(processorId, processorName, collectionId);
+        int size = in.readSize();
+        for (int i = 0; i < size; i++) {
+            String sourceConnectionIdentifier = in.readString();
+            GroupedStats groupedStats = readGroupedStats(in);
+            if (sourceConnectionIdentifier != null && groupedStats != null) {
+                stats.getStats().put(sourceConnectionIdentifier, groupedStats);
+            }
+        }
+        return stats;
+    }
+
+    private static void writeGroupedStats(MessageOutput out, GroupedStats stats) {
+        if (stats == null) {
+            out.writeByte(NULL_OBJECT);
+            return;
+        }
+        out.writeByte(stats instanceof GroupedStatsV2 ? VERSION_2 : VERSION_1);
+        out.writeNullableLong(stats.getTime());
+        out.writeZigZagLong(stats.getBytesIn());
+        out.writeZigZagLong(stats.getBytesOut());
+        out.writeZigZagLong(stats.getDuration());
+        out.writeZigZagLong(stats.getTotalCount());
+        out.writeZigZagLong(stats.getJobsStarted());
+        out.writeZigZagLong(stats.getJobsFinished());
+        out.writeZigZagLong(stats.getProcessorsFailed());
+        out.writeZigZagLong(stats.getFlowFilesStarted());
+        out.writeZigZagLong(stats.getFlowFilesFinished());
+        out.writeZigZagLong(stats.getJobsFailed());
+        out.writeZigZagLong(stats.getSuccessfulJobDuration());
+        out.writeZigZagLong(stats.getJobDuration());
+        out.writeZigZagLong(stats.getMaxEventId());
+        out.writeString(stats.getSourceConnectionIdentifier());
+        out.writeString(stats.getClusterNodeId());
+        out.writeString(stats.getClusterNodeAddress());
+        out.writeString(stats.getGroupKey());
+        out.writeNullableLong(stats.getMinTime());
+        out.writeNullableLong(stats.getMaxTime());
+        if (stats instanceof GroupedStatsV2) {
+            out.writeString(((GroupedStatsV2) stats).getLatestFlowFileId());
+            writeObjectMap(out, ((GroupedStatsV2) stats).getAdditionalProperties());
+        }
+    }
+
+    private static GroupedStats readGroupedStats(MessageInput in) {
+        int version = in.readByte();
+        if (version == NULL_OBJECT) {
+            return null;
+        }
+        GroupedStats stats = version == VERSION_2 ? new GroupedStatsV2() : new GroupedStats();
+        stats.setTime(in.readNullableLong());
+        stats.setBytesIn(in.readZigZagLong());
+        stats.setBytesOut(in.readZigZagLong());
+        stats.setDuration(in.readZigZagLong());
+        stats.setTotalCount(in.readZigZagLong());
+        stats.setJobsStarted(in.readZigZagLong());
+        stats.setJobsFinished(in.readZigZagLong());
+        stats.setProcessorsFailed(in.readZigZagLong());
+        stats.setFlowFilesStarted(in.readZigZagLong());
+        stats.setFlowFilesFinished(in.readZigZagLong());
+        stats.setJobsFailed(in.readZigZagLong());
+        stats.setSuccessfulJobDuration(in.readZigZagLong());
+        stats.setJobDuration(in.readZigZagLong());
+        stats.setMaxEventId(in.readZigZagLong());
+        stats.setSourceConnectionIdentifier(in.readString());
+        stats.setClusterNodeId(in.readString());
+        stats.setClusterNodeAddress(in.readString());
+        stats.setGroupKey(in.readString());
+        stats.setMinTime(in.readNullableLong());
+        stats.setMaxTime(in.readNullableLong());
+        if (version == VERSION_2) {
+            ((GroupedStatsV2) stats).setLatestFlowFileId(in.readString());
+            ((GroupedStatsV2) stats).setAdditionalProperties(readObjectMap(in));
+        }
+        return stats;
+    }
+
+    private static void writeStringList(MessageOutput out, List<String> values) {
+        out.writeSize(values, values != null ? values.size() : 0);
+        if (values != null) {
+            for (String value : values) {
+                out.writeString(value);
+            }
+        }
+    }
+
+    private static List<String> readStringList(MessageInput in) {
+        int size = in.readSize();
+        if (size < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(in.readString());
+        }
+        return values;
+    }
+
+    private static void writeStringMap(MessageOutput out, Map<String, String> values) {
+        out.writeSize(values, values != null ? values.size() : 0);
+        if (values != null) {
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                out.writeString(entry.getKey());
+                out.writeString(entry.getValue());
+            }
+        }
+    }
+
+    private static Map<String, String> readStringMap(MessageInput in) {
+        int size = in.readSize();
+        if (size < 0) {
+            return null;
+        }
+        Map<String, String> values = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            values.put(in.readString(), in.readString());
+        }
+        return values;
+    }
+
+    private static void writeObjectMap(MessageOutput out, Map<String, Object> values) {
+        out.writeSize(values, values != null ? values.size() : 0);
+        if (values != null) {
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                out.writeString(entry.getKey());
+                writeObject(out, entry.getValue());
+            }
+        }
+    }
+
+    private static Map<String, Object> readObjectMap(MessageInput in) {
+        int size = in.readSize();
+        if (size < 0) {
+            return null;
+        }
+        Map<String, Object> values = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            values.put(in.readString(), readObject(in));
+        }
+        return values;
+    }
+
+    private static void writeObject(MessageOutput out, Object value) {
+        if (value == null) {
+            out.writeByte(VALUE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(VALUE_STRING);
+            out.writeString((String) value);
+        } else if (value instanceof Long) {
+            out.writeByte(VALUE_LONG);
+            out.writeZigZagLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(VALUE_INTEGER);
+            out.writeZigZagLong((Integer) value);
+        } else if (value instanceof Double) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeVarLong(Double.doubleToLongBits((Double) value));
+        } else if (value instanceof Boolean) {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeByte((Boolean) value ? 1 : 0);
+        } else {
+            //anything else falls back to java serialization
+            out.writeByte(VALUE_SERIALIZED);
+            byte[] bytes = serialize(value);
+            out.writeVarLong(bytes.length);
+            out.writeBytes(bytes, 0, bytes.length);
+        }
+    }
+
+    private static Object readObject(MessageInput in) {
+        int tag = in.readByte();
+        switch (tag) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return in.readString();
+            case VALUE_LONG:
+                return in.readZigZagLong();
+            case VALUE_INTEGER:
+                return (int) in.readZigZagLong();
+            case VALUE_DOUBLE:
+                return Double.longBitsToDouble(in.readVarLong());
+            case VALUE_BOOLEAN:
+                return in.readByte() != 0;
+            case VALUE_SERIALIZED:
+                return deserialize(in.readBytes(in.readLength()));
+            default:
+                throw new IllegalArgumentException("Unsupported value type " + tag + " in provenance message");
+        }
+    }
+
+    private static byte[] serialize(Object value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(value);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to serialize the property value " + value, e);
+        }
+    }
+
+    private static Object deserialize(byte[] bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unable to deserialize a property value in the provenance message", e);
+        }
+    }
+}
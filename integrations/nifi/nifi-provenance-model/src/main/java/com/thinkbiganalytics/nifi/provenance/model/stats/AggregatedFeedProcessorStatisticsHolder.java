@@ -64,10 +64,34 @@ public class AggregatedFeedProcessorStatisticsHolder implements Serializable {
         return minEventId;
     }
 
+    public void setMinEventId(Long minEventId) {
+        this.minEventId = minEventId;
+    }
+
     public Long getMaxEventId() {
         return maxEventId;
     }
 
+    public void setMaxEventId(Long maxEventId) {
+        this.maxEventId = maxEventId;
+    }
+
+    public DateTime getMinTime() {
+        return minTime;
+    }
+
+    public void setMinTime(DateTime minTime) {
+        this.minTime = minTime;
+    }
+
+    public DateTime getMaxTime() {
+        return maxTime;
+    }
+
+    public void setMaxTime(DateTime maxTime) {
+        this.maxTime = maxTime;
+    }
+
     public Map<String, AggregatedFeedProcessorStatistics> getFeedStatistics() {
         return feedStatistics;
     }
@@ -91,6 +115,10 @@ public class AggregatedFeedProcessorStatisticsHolder implements Serializable {
         return feedStatistics.values().stream().anyMatch(s -> s.hasStats());
     }
 
+    public String getCollectionId() {
+        return collectionId;
+    }
+
     public void setCollectionId(String collectionId) {
         this.collectionId = collectionId;
     }
@@ -0,0 +1,416 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.KyloProcessorFlowType;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolderV3;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsV2;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedProcessorStatisticsV2;
+import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStats;
+import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStatsV2;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Round trip tests for the {@link ProvenanceMessageCodec}, along with a comparison of its message size and throughput to java serialization.
+ *
+ * The throughput comparison is a benchmark and is ignored in the build. The number of events in the benchmark batch defaults to 5,000 and can be changed using the system property {@code kylo.provenance.benchmark.events}
+ */
+public class ProvenanceMessageCodecTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProvenanceMessageCodecTest.class);
+
+    private static final int EVENTS = Integer.getInteger("kylo.provenance.benchmark.events", 5000);
+
+    private static final int ITERATIONS = 20;
+
+    @Test
+    public void testEventsRoundTrip() {
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        holder.setEvents(events(50));
+        holder.getEvents().get(3).setAdditionalProperties(null);
+        holder.getEvents().get(4).getAdditionalProperties().put("tags", new ArrayList<>(Arrays.asList("a", "b")));
+
+        for (ProvenanceMessageCodec.Compression compression : ProvenanceMessageCodec.Compression.values()) {
+            byte[] message = new ProvenanceMessageCodec(compression).encode(holder);
+            Assert.assertTrue(ProvenanceMessageCodec.isEncoded(message));
+
+            ProvenanceEventRecordDTOHolder decoded = (ProvenanceEventRecordDTOHolder) ProvenanceMessageCodec.decode(message);
+            Assert.assertEquals(holder.getBatchId(), decoded.getBatchId());
+            Assert.assertEquals(holder.getEvents().size(), decoded.getEvents().size());
+            for (int i = 0; i < holder.getEvents().size(); i++) {
+                assertEventEquals(holder.getEvents().get(i), decoded.getEvents().get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyEvents() {
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        ProvenanceEventRecordDTOHolder decoded = (ProvenanceEventRecordDTOHolder) ProvenanceMessageCodec.decode(new ProvenanceMessageCodec().encode(holder));
+        Assert.assertEquals(holder.getBatchId(), decoded.getBatchId());
+        Assert.assertNull(decoded.getEvents());
+
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.reset();
+        holder.setEvents(new ArrayList<>(Arrays.asList(event)));
+        decoded = (ProvenanceEventRecordDTOHolder) ProvenanceMessageCodec.decode(new ProvenanceMessageCodec().encode(holder));
+        assertEventEquals(event, decoded.getEvents().get(0));
+    }
+
+    @Test
+    public void testStatisticsRoundTrip() {
+        AggregatedFeedProcessorStatisticsHolderV3 holder = statistics(20, 5);
+        holder.setMinTime(new DateTime(1500000000000L));
+        holder.setMaxTime(new DateTime(1500000003000L));
+        holder.getEventCount().set(1234L);
+
+        for (ProvenanceMessageCodec.Compression compression : ProvenanceMessageCodec.Compression.values()) {
+            AggregatedFeedProcessorStatisticsHolder decoded = (AggregatedFeedProcessorStatisticsHolder) ProvenanceMessageCodec.decode(new ProvenanceMessageCodec(compression).encode(holder));
+            Assert.assertTrue(decoded instanceof AggregatedFeedProcessorStatisticsHolderV3);
+            AggregatedFeedProcessorStatisticsHolderV3 v3 = (AggregatedFeedProcessorStatisticsHolderV3) decoded;
+            Assert.assertEquals(holder.getCollectionId(), v3.getCollectionId());
+            Assert.assertEquals(holder.getTimestamp(), v3.getTimestamp());
+            Assert.assertEquals(holder.getMinTime().getMillis(), v3.getMinTime().getMillis());
+            Assert.assertEquals(holder.getMaxTime().getMillis(), v3.getMaxTime().getMillis());
+            Assert.assertEquals(1234L, v3.getEventCount().get());
+            Assert.assertEquals(holder.getProcessorIdRunningFlows(), v3.getProcessorIdRunningFlows());
+            Assert.assertEquals(holder.getFeedStatistics().keySet(), v3.getFeedStatistics().keySet());
+
+            for (Map.Entry<String, AggregatedFeedProcessorStatistics> entry : holder.getFeedStatistics().entrySet()) {
+                AggregatedFeedProcessorStatistics expected = entry.getValue();
+                AggregatedFeedProcessorStatistics actual = v3.getFeedStatistics().get(entry.getKey());
+                Assert.assertTrue(actual instanceof AggregatedFeedProcessorStatisticsV2);
+                Assert.assertEquals(((AggregatedFeedProcessorStatisticsV2) expected).getFeedName(), ((AggregatedFeedProcessorStatisticsV2) actual).getFeedName());
+                Assert.assertEquals(expected.getStartingProcessorId(), actual.getStartingProcessorId());
+                Assert.assertEquals(expected.getProcessGroup(), actual.getProcessGroup());
+                Assert.assertEquals(expected.getCollectionId(), actual.getCollectionId());
+                Assert.assertEquals(expected.getCollectionIntervalMillis(), actual.getCollectionIntervalMillis());
+                Assert.assertEquals(expected.getMaxEventId(), actual.getMaxEventId());
+                Assert.assertEquals(expected.getProcessorStats().keySet(), actual.getProcessorStats().keySet());
+
+                for (AggregatedProcessorStatistics processorStats : expected.getProcessorStats().values()) {
+                    AggregatedProcessorStatistics actualProcessorStats = actual.getProcessorStats().get(processorStats.getProcessorId());
+                    Assert.assertTrue(actualProcessorStats instanceof AggregatedProcessorStatisticsV2);
+                    Assert.assertEquals(processorStats.getProcessorName(), actualProcessorStats.getProcessorName());
+                    Assert.assertEquals(processorStats.getCollectionId(), actualProcessorStats.getCollectionId());
+                    GroupedStatsV2 expectedGroup = (GroupedStatsV2) processorStats.getStats().get(GroupedStats.DEFAULT_SOURCE_CONNECTION_ID);
+                    GroupedStatsV2 actualGroup = (GroupedStatsV2) actualProcessorStats.getStats().get(GroupedStats.DEFAULT_SOURCE_CONNECTION_ID);
+                    Assert.assertEquals(expectedGroup.getBytesIn(), actualGroup.getBytesIn());
+                    Assert.assertEquals(expectedGroup.getJobsFinished(), actualGroup.getJobsFinished());
+                    Assert.assertEquals(expectedGroup.getJobDuration(), actualGroup.getJobDuration());
+                    Assert.assertEquals(expectedGroup.getMaxEventId(), actualGroup.getMaxEventId());
+                    Assert.assertEquals(expectedGroup.getTime(), actualGroup.getTime());
+                    Assert.assertEquals(expectedGroup.getMinTime(), actualGroup.getMinTime());
+                    Assert.assertEquals(expectedGroup.getClusterNodeId(), actualGroup.getClusterNodeId());
+                    Assert.assertEquals(expectedGroup.getLatestFlowFileId(), actualGroup.getLatestFlowFileId());
+                    Assert.assertEquals(expectedGroup.getAdditionalProperties(), actualGroup.getAdditionalProperties());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRunningFlowsOnlyStatistics() {
+        AggregatedFeedProcessorStatisticsHolderV3 holder = new AggregatedFeedProcessorStatisticsHolderV3();
+        Map<String, Long> runningFlows = new HashMap<>();
+        runningFlows.put(UUID.randomUUID().toString(), 3L);
+        holder.setProcessorIdRunningFlows(runningFlows);
+        holder.setFeedStatistics((List<AggregatedFeedProcessorStatistics>) null);
+
+        AggregatedFeedProcessorStatisticsHolderV3 decoded = (AggregatedFeedProcessorStatisticsHolderV3) ProvenanceMessageCodec.decode(new ProvenanceMessageCodec().encode(holder));
+        Assert.assertEquals(runningFlows, decoded.getProcessorIdRunningFlows());
+        Assert.assertTrue(decoded.getFeedStatistics().isEmpty());
+    }
+
+    @Test
+    public void testRejectsInvalidMessages() {
+        Assert.assertFalse(ProvenanceMessageCodec.isEncoded(null));
+        Assert.assertFalse(ProvenanceMessageCodec.isEncoded("not a message".getBytes()));
+
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        holder.setEvents(events(5));
+        byte[] message = new ProvenanceMessageCodec().encode(holder);
+
+        byte[] newerVersion = message.clone();
+        newerVersion[4] = (byte) (ProvenanceMessageCodec.FORMAT_VERSION + 1);
+        try {
+            ProvenanceMessageCodec.decode(newerVersion);
+            Assert.fail("Expected a newer format version to be rejected");
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+
+        try {
+            ProvenanceMessageCodec.decode(Arrays.copyOf(message, message.length / 2));
+            Assert.fail("Expected a truncated message to be rejected");
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+    }
+
+    /**
+     * The binary message is smaller than java serialization of the same batch, and smaller again when deflated
+     */
+    @Test
+    public void testSizeComparedToJavaSerialization() throws Exception {
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        holder.setEvents(events(100));
+
+        byte[] serialized = javaSerialize(holder);
+        byte[] encoded = new ProvenanceMessageCodec().encode(holder);
+        byte[] deflated = new ProvenanceMessageCodec(ProvenanceMessageCodec.Compression.DEFLATE).encode(holder);
+
+        Assert.assertTrue(encoded.length < serialized.length);
+        Assert.assertTrue(deflated.length < encoded.length);
+    }
+
+    /**
+     * Compare the message size and encode/decode throughput against java serialization for a batch of events
+     */
+    @Test
+    @Ignore("benchmark, run by hand")
+    public void benchmarkThroughputComparedToJavaSerialization() throws Exception {
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        holder.setEvents(events(EVENTS));
+
+        byte[] serialized = javaSerialize(holder);
+        byte[] encoded = new ProvenanceMessageCodec().encode(holder);
+        byte[] deflated = new ProvenanceMessageCodec(ProvenanceMessageCodec.Compression.DEFLATE).encode(holder);
+
+        log.info("{} events. Java serialization: {} bytes, binary: {} bytes ({}%), binary+deflate: {} bytes ({}%)", EVENTS, serialized.length,
+                 encoded.length, encoded.length * 100L / serialized.length, deflated.length, deflated.length * 100L / serialized.length);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            javaDeserialize(javaSerialize(holder));
+        }
+        long javaMillis = (System.nanoTime() - start) / 1000000L;
+
+        ProvenanceMessageCodec codec = new ProvenanceMessageCodec();
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            ProvenanceMessageCodec.decode(codec.encode(holder));
+        }
+        long binaryMillis = (System.nanoTime() - start) / 1000000L;
+
+        ProvenanceMessageCodec deflateCodec = new ProvenanceMessageCodec(ProvenanceMessageCodec.Compression.DEFLATE);
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            ProvenanceMessageCodec.decode(deflateCodec.encode(holder));
+        }
+        long deflateMillis = (System.nanoTime() - start) / 1000000L;
+
+        log.info("{} round trips of {} events. Java serialization: {} ms, binary: {} ms, binary+deflate: {} ms", ITERATIONS, EVENTS, javaMillis, binaryMillis, deflateMillis);
+    }
+
+    private static void assertEventEquals(ProvenanceEventRecordDTO expected, ProvenanceEventRecordDTO actual) {
+        Assert.assertEquals(expected.getEventId(), actual.getEventId());
+        Assert.assertEquals(expected.getEventTime(), actual.getEventTime());
+        Assert.assertEquals(expected.getStartTime(), actual.getStartTime());
+        Assert.assertEquals(expected.getEventDuration(), actual.getEventDuration());
+        Assert.assertEquals(expected.getFileSizeBytes(), actual.getFileSizeBytes());
+        Assert.assertEquals(expected.getInputContentClaimFileSizeBytes(), actual.getInputContentClaimFileSizeBytes());
+        Assert.assertEquals(expected.getOutputContentClaimFileSizeBytes(), actual.getOutputContentClaimFileSizeBytes());
+        Assert.assertEquals(expected.isStartOfJob(), actual.isStartOfJob());
+        Assert.assertEquals(expected.isFinalJobEvent(), actual.isFinalJobEvent());
+        Assert.assertEquals(expected.isFailure(), actual.isFailure());
+        Assert.assertEquals(expected.isStream(), actual.isStream());
+        Assert.assertEquals(expected.getEventType(), actual.getEventType());
+        Assert.assertEquals(expected.getFlowFileUuid(), actual.getFlowFileUuid());
+        Assert.assertEquals(expected.getFileSize(), actual.getFileSize());
+        Assert.assertEquals(expected.getClusterNodeId(), actual.getClusterNodeId());
+        Assert.assertEquals(expected.getClusterNodeAddress(), actual.getClusterNodeAddress());
+        Assert.assertEquals(expected.getGroupId(), actual.getGroupId());
+        Assert.assertEquals(expected.getComponentId(), actual.getComponentId());
+        Assert.assertEquals(expected.getComponentType(), actual.getComponentType());
+        Assert.assertEquals(expected.getComponentName(), actual.getComponentName());
+        Assert.assertEquals(expected.getDetails(), actual.getDetails());
+        Assert.assertEquals(expected.getSourceConnectionIdentifier(), actual.getSourceConnectionIdentifier());
+        Assert.assertEquals(expected.getInputContentClaimFileSize(), actual.getInputContentClaimFileSize());
+        Assert.assertEquals(expected.getOutputContentClaimFileSize(), actual.getOutputContentClaimFileSize());
+        Assert.assertEquals(expected.getJobFlowFileId(), actual.getJobFlowFileId());
+        Assert.assertEquals(expected.getRelationship(), actual.getRelationship());
+        Assert.assertEquals(expected.getFirstEventProcessorId(), actual.getFirstEventProcessorId());
+        Assert.assertEquals(expected.getFeedName(), actual.getFeedName());
+        Assert.assertEquals(expected.getFeedProcessGroupId(), actual.getFeedProcessGroupId());
+        Assert.assertEquals(expected.getProcessorType(), actual.getProcessorType());
+        Assert.assertEquals(expected.getParentUuids(), actual.getParentUuids());
+        Assert.assertEquals(expected.getChildUuids(), actual.getChildUuids());
+        Assert.assertEquals(expected.getUpdatedAttributes(), actual.getUpdatedAttributes());
+        Assert.assertEquals(expected.getPreviousAttributes(), actual.getPreviousAttributes());
+        Assert.assertEquals(expected.getAttributeMap(), actual.getAttributeMap());
+        Assert.assertEquals(expected.getAdditionalProperties(), actual.getAdditionalProperties());
+    }
+
+    /**
+     * Build events resembling a batch sent from NiFi, where a handful of feeds and processors produce many flow files
+     */
+    private static List<ProvenanceEventRecordDTO> events(int count) {
+        String[] feeds = {"users.customers", "users.orders", "sales.transactions", "sales.returns"};
+        String[] processorGroups = new String[feeds.length];
+        String[][] processors = new String[feeds.length][6];
+        for (int f = 0; f < feeds.length; f++) {
+            processorGroups[f] = UUID.randomUUID().toString();
+            for (int p = 0; p < processors[f].length; p++) {
+                processors[f][p] = UUID.randomUUID().toString();
+            }
+        }
+        String[] processorNames = {"GetFile", "UpdateAttribute", "ExecuteSparkJob", "PutHDFS", "MergeTable", "RegisterFeedTables"};
+        String[] jobFlowFiles = new String[count / 6 + 1];
+        for (int i = 0; i < jobFlowFiles.length; i++) {
+            jobFlowFiles[i] = UUID.randomUUID().toString();
+        }
+
+        List<ProvenanceEventRecordDTO> events = new ArrayList<>(count);
+        long eventTime = 1500000000000L;
+        for (int i = 0; i < count; i++) {
+            int feed = i % feeds.length;
+            int processor = (i / feeds.length) % processorNames.length;
+            eventTime += i % 7;
+
+            ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+            event.setEventId(1000000L + i);
+            event.setEventTime(eventTime);
+            event.setStartTime(eventTime - 250L);
+            event.setEventDuration((long) (i % 400));
+            event.setEventType(processor == 0 ? "CREATE" : "ATTRIBUTES_MODIFIED");
+            event.setFlowFileUuid(UUID.randomUUID().toString());
+            event.setJobFlowFileId(jobFlowFiles[i / 6]);
+            event.setFileSize("1.2 KB");
+            event.setFileSizeBytes(1228L + i);
+            event.setClusterNodeId(i % 2 == 0 ? "node-1" : "node-2");
+            event.setClusterNodeAddress(i % 2 == 0 ? "nifi-1.example.com:8080" : "nifi-2.example.com:8080");
+            event.setGroupId(processorGroups[feed]);
+            event.setFeedProcessGroupId(processorGroups[feed]);
+            event.setComponentId(processors[feed][processor]);
+            event.setFirstEventProcessorId(processors[feed][0]);
+            event.setComponentType(processorNames[processor]);
+            event.setComponentName(processorNames[processor]);
+            event.setFeedName(feeds[feed]);
+            event.setSourceConnectionIdentifier(UUID.randomUUID().toString());
+            event.setRelationship(i % 50 == 0 ? "failure" : "success");
+            event.setIsStartOfJob(processor == 0);
+            event.setIsFinalJobEvent(processor == processorNames.length - 1);
+            event.setIsFailure(i % 50 == 0);
+            event.setProcessorType(KyloProcessorFlowType.NORMAL_FLOW);
+            event.setParentUuids(new ArrayList<>(Arrays.asList(event.getJobFlowFileId())));
+            if (processor == 0) {
+                event.setDetails("Received file from " + feeds[feed]);
+            }
+
+            Map<String, String> updated = new HashMap<>();
+            updated.put("feed", feeds[feed]);
+            updated.put("category", feeds[feed].substring(0, feeds[feed].indexOf('.')));
+            updated.put("filename", "file-" + i + ".csv");
+            event.setUpdatedAttributes(updated);
+            Map<String, String> previous = new HashMap<>();
+            previous.put("filename", "file-" + i + ".csv");
+            previous.put("path", "/var/dropzone/" + feeds[feed]);
+            event.setPreviousAttributes(previous);
+            Map<String, String> attributes = new HashMap<>(previous);
+            attributes.putAll(updated);
+            attributes.put("uuid", event.getFlowFileUuid());
+            event.setAttributeMap(attributes);
+            event.setAdditionalProperties(new HashMap<>());
+            event.setAdditionalProperty("retries", i % 3);
+            event.setAdditionalProperty("ratio", i / 3.0d);
+            event.setAdditionalProperty("stream", i % 2 == 0);
+            event.setAdditionalProperty("size", 1024L * i);
+            event.setAdditionalProperty("owner", "kylo");
+            event.setAdditionalProperty("none", null);
+            events.add(event);
+        }
+        return events;
+    }
+
+    private static AggregatedFeedProcessorStatisticsHolderV3 statistics(int feeds, int processorsPerFeed) {
+        String collectionId = UUID.randomUUID().toString();
+        List<AggregatedFeedProcessorStatistics> feedStatistics = new ArrayList<>();
+        Map<String, Long> runningFlows = new HashMap<>();
+        for (int f = 0; f < feeds; f++) {
+            String startingProcessorId = UUID.randomUUID().toString();
+            AggregatedFeedProcessorStatisticsV2 stats = new AggregatedFeedProcessorStatisticsV2(startingProcessorId, collectionId, 3000L, "category.feed" + f);
+            stats.setProcessGroup(UUID.randomUUID().toString());
+            stats.setTotalEvents(100L + f);
+            stats.setMaxEventId(5000L + f);
+            for (int p = 0; p < processorsPerFeed; p++) {
+                String processorId = p == 0 ? startingProcessorId : UUID.randomUUID().toString();
+                AggregatedProcessorStatisticsV2 processorStats = new AggregatedProcessorStatisticsV2(processorId, "Processor " + p, collectionId);
+                GroupedStatsV2 groupedStats = (GroupedStatsV2) processorStats.getStats(GroupedStats.DEFAULT_SOURCE_CONNECTION_ID);
+                groupedStats.setTime(1500000000000L + p);
+                groupedStats.setMinTime(1500000000000L);
+                groupedStats.setMaxTime(1500000003000L);
+                groupedStats.setBytesIn(1024L * p);
+                groupedStats.setJobsFinished(p);
+                groupedStats.setJobDuration(25000L * p);
+                groupedStats.setMaxEventId(5000L + p);
+                groupedStats.setClusterNodeId("node-1");
+                groupedStats.setLatestFlowFileId(UUID.randomUUID().toString());
+                groupedStats.getAdditionalProperties().put("count", (long) p);
+                stats.getProcessorStats().put(processorId, processorStats);
+            }
+            feedStatistics.add(stats);
+            runningFlows.put(startingProcessorId, (long) f);
+        }
+        AggregatedFeedProcessorStatisticsHolderV3 holder = new AggregatedFeedProcessorStatisticsHolderV3();
+        holder.setCollectionId(collectionId);
+        holder.setProcessorIdRunningFlows(runningFlows);
+        holder.setFeedStatistics(feedStatistics);
+        return holder;
+    }
+
+    private static byte[] javaSerialize(Serializable object) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object javaDeserialize(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
@@ -38,6 +38,7 @@ public class ProfilerConfiguration implements Serializable {
     private String outputTableName = "profilestats";
     private String outputTablePartitionColumnName = "processing_dttm";
     private String sqlDialect = "hiveql";  // Hive supported HQL
+    private boolean approximateProfiling = false;
 
     /**
      * Number of decimals to print out in console<br>
@@ -129,4 +130,16 @@ public class ProfilerConfiguration implements Serializable {
     public void setSqlDialect(String sqlDialect) {
         this.sqlDialect = sqlDialect;
     }
+
+    /**
+     * Estimate the unique count and top-N values using mergeable sketches instead of shuffling the distinct values of every column.<br>
+     * Also estimates the quartiles of numeric columns.
+     */
+    public boolean isApproximateProfiling() {
+        return approximateProfiling;
+    }
+
+    public void setApproximateProfiling(boolean approximateProfiling) {
+        this.approximateProfiling = approximateProfiling;
+    }
 }
@@ -81,14 +81,20 @@ public class Profiler {
         this.sqlContext = sqlContext;
     }
 
-    public void run(String[] args) {
+    /**
+     * Profiles the table or query specified by the command-line arguments.
+     *
+     * @param args the command-line arguments
+     * @return {@code true} if the profile was generated, or {@code false} if the arguments are invalid
+     */
+    public boolean run(String[] args) {
         /* Variables */
         DataSet resultDF;
         String queryString;
 
         /* Check command line arguments and get query to run. */
         if ((queryString = checkCommandLineArgs(args)) == null) {
-            return;
+            return false;
         }
 
         /* Run query and get result */
@@ -106,6 +112,7 @@ public class Profiler {
 
         /* Wrap up */
         log.info("[PROFILER-INFO] Profiling finished.");
+        return true;
     }
 
     /**
@@ -25,6 +25,7 @@ import com.thinkbiganalytics.spark.dataprofiler.StatisticsModel;
 import com.thinkbiganalytics.spark.dataprofiler.columns.BigDecimalColumnStatistics;
 import com.thinkbiganalytics.spark.dataprofiler.columns.BooleanColumnStatistics;
 import com.thinkbiganalytics.spark.dataprofiler.columns.ByteColumnStatistics;
+import com.thinkbiganalytics.spark.dataprofiler.columns.ColumnSketches;
 import com.thinkbiganalytics.spark.dataprofiler.columns.DateColumnStatistics;
 import com.thinkbiganalytics.spark.dataprofiler.columns.DoubleColumnStatistics;
 import com.thinkbiganalytics.spark.dataprofiler.columns.FloatColumnStatistics;
@@ -44,6 +45,7 @@ import org.apache.spark.SparkConf;
 import org.apache.spark.SparkContext;
 import org.apache.spark.sql.SQLContext;
 import org.apache.spark.sql.hive.HiveContext;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -55,12 +57,21 @@ import javax.annotation.Nonnull;
 @Configuration
 public class ProfilerApp {
 
+    /**
+     * Approximate profiling is enabled with {@code --conf spark.kylo.profiler.approximate=true}
+     */
     @Bean
     public ProfilerConfiguration profilerConfiguration() {
-        return new ProfilerConfiguration();
+        final ProfilerConfiguration profilerConfiguration = new ProfilerConfiguration();
+        profilerConfiguration.setApproximateProfiling(new SparkConf().getBoolean("spark.kylo.profiler.approximate", false));
+        return profilerConfiguration;
     }
 
+    /**
+     * Creates a new Hive context, unless one has already been provided by a shared Spark context.
+     */
     @Bean
+    @ConditionalOnMissingBean(SQLContext.class)
     public SQLContext sqlContext(final ProfilerConfiguration profilerConfiguration) {
         SparkConf conf = new SparkConf();
         conf = configureEfficientSerialization(conf);
@@ -94,6 +105,7 @@ public class ProfilerApp {
         serializeClassesList.add(StringColumnStatistics.class);
         serializeClassesList.add(TimestampColumnStatistics.class);
         serializeClassesList.add(UnsupportedColumnStatistics.class);
+        serializeClassesList.add(ColumnSketches.class);
         serializeClassesList.add(StatisticsModel.class);
         serializeClassesList.add(TopNDataItem.class);
         serializeClassesList.add(TopNDataList.class);
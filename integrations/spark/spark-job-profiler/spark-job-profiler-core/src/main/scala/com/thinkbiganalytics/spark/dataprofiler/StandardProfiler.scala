@@ -1,6 +1,6 @@
 package com.thinkbiganalytics.spark.dataprofiler
 
-import com.thinkbiganalytics.spark.dataprofiler.function.PartitionLevelModels
+import com.thinkbiganalytics.spark.dataprofiler.function.{PartitionLevelApproximateModels, PartitionLevelModels}
 import com.thinkbiganalytics.spark.{DataSet, SparkContextService}
 import org.apache.spark.sql.SQLContext
 import org.apache.spark.sql.types.StructField
@@ -35,13 +35,18 @@ class StandardProfiler(val sqlContext: SQLContext, val sparkContextService: Spar
       * @return the statistics model
       */
     private def profileStatistics(dataset: DataSet, schemaMap: Map[Int, StructField], profilerConfiguration: ProfilerConfiguration): Option[StatisticsModel] = {
-        // Get ((column index, column value), count)
-        val columnValueCounts = dataset.rdd
-            .flatMap((row) => row.toSeq.zipWithIndex.map((tuple) => ((tuple._2, tuple._1), 1)))
-            .reduceByKey((a, b) => a + b)
-
         // Generate the profile model
-        val partitionLevelModels = columnValueCounts.mapPartitions(new PartitionLevelModels(schemaMap, profilerConfiguration))
+        val partitionLevelModels = if (profilerConfiguration.isApproximateProfiling) {
+            // Sketch each partition and merge the sketches
+            dataset.rdd.mapPartitions(new PartitionLevelApproximateModels(schemaMap, profilerConfiguration))
+        } else {
+            // Get ((column index, column value), count)
+            val columnValueCounts = dataset.rdd
+                .flatMap((row) => row.toSeq.zipWithIndex.map((tuple) => ((tuple._2, tuple._1), 1)))
+                .reduceByKey((a, b) => a + b)
+
+            columnValueCounts.mapPartitions(new PartitionLevelModels(schemaMap, profilerConfiguration))
+        }
         if (!partitionLevelModels.isEmpty) {
             Option(partitionLevelModels.reduce((a, b) => {
                 a.combine(b)
@@ -0,0 +1,53 @@
+package com.thinkbiganalytics.spark.dataprofiler.function
+
+import com.thinkbiganalytics.spark.dataprofiler.ProfilerConfiguration
+import com.thinkbiganalytics.spark.dataprofiler.model.StandardStatisticsModel
+import org.apache.spark.sql.Row
+import org.apache.spark.sql.types.StructField
+
+import scala.collection.mutable
+
+/** Creates an approximate statistics model from the rows of a partition without shuffling the column values.
+  *
+  * Values are counted in a bounded buffer before being added to the model so repeated values are accommodated once per flush.
+  *
+  * @param schemaMap the schema map
+  */
+class PartitionLevelApproximateModels(val schemaMap: Map[Int, StructField], val profilerConfiguration: ProfilerConfiguration) extends (Iterator[Row] => Iterator[StandardStatisticsModel])
+    with Serializable {
+
+    override def apply(iter: Iterator[Row]): Iterator[StandardStatisticsModel] = {
+        if (!iter.hasNext) {
+            return Iterator.empty
+        }
+
+        val statisticsModel = new StandardStatisticsModel(profilerConfiguration)
+        val valueCounts = mutable.HashMap[(Int, Any), Long]()
+
+        for (row <- iter) {
+            for (columnIndex <- 0 until row.length) {
+                val key = (columnIndex, row.get(columnIndex))
+                valueCounts.update(key, valueCounts.getOrElse(key, 0L) + 1L)
+            }
+            if (valueCounts.size >= PartitionLevelApproximateModels.MaxBufferedValues) {
+                flush(valueCounts, statisticsModel)
+            }
+        }
+        flush(valueCounts, statisticsModel)
+
+        Iterator.apply(statisticsModel)
+    }
+
+    private def flush(valueCounts: mutable.HashMap[(Int, Any), Long], statisticsModel: StandardStatisticsModel): Unit = {
+        for ((k, v) <- valueCounts) {
+            statisticsModel.add(k._1, k._2, v, schemaMap(k._1))
+        }
+        valueCounts.clear()
+    }
+}
+
+object PartitionLevelApproximateModels {
+
+    /** Maximum number of (column, value) counts buffered before they are added to the model */
+    val MaxBufferedValues = 100000
+}
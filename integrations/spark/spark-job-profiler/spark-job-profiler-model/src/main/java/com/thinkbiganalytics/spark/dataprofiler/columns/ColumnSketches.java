@@ -0,0 +1,190 @@
+package com.thinkbiganalytics.spark.dataprofiler.columns;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.clearspring.analytics.stream.Counter;
+import com.clearspring.analytics.stream.StreamSummary;
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+import com.clearspring.analytics.stream.quantile.TDigest;
+import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataList;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * Mergeable sketches used by approximate profiling in place of the exact unique count and top-N values of a column<br>
+ * Unique values are counted with HyperLogLog++, top-N values are tracked with a Space-Saving heavy hitters summary, and quantiles of numeric values are estimated with a t-digest.
+ */
+@SuppressWarnings("serial")
+public class ColumnSketches implements Serializable {
+
+    /**
+     * Precision of the unique count. Gives a relative error of about 0.8%
+     */
+    private static final int UNIQUE_PRECISION = 14;
+
+    /**
+     * Precision of the unique count while the column has few unique values
+     */
+    private static final int UNIQUE_SPARSE_PRECISION = 25;
+
+    /**
+     * Number of candidate values tracked for each of the top-N values
+     */
+    private static final int CANDIDATES_PER_TOP_N_VALUE = 100;
+
+    private static final double QUANTILE_COMPRESSION = 100;
+
+    /**
+     * Stands in for null values which the sketches cannot hold
+     */
+    private static final String NULL_VALUE = "\u0000null";
+
+    private int numberOfTopNValues;
+    private HyperLogLogPlus uniqueValues;
+    private StreamSummary<Object> heavyHitters;
+    private TDigest quantiles;
+
+    /**
+     * @param numberOfTopNValues N in top-N
+     */
+    public ColumnSketches(int numberOfTopNValues) {
+        this.numberOfTopNValues = (numberOfTopNValues > 0) ? numberOfTopNValues : 3;
+        uniqueValues = new HyperLogLogPlus(UNIQUE_PRECISION, UNIQUE_SPARSE_PRECISION);
+        heavyHitters = new StreamSummary<>(this.numberOfTopNValues * CANDIDATES_PER_TOP_N_VALUE);
+        quantiles = new TDigest(QUANTILE_COMPRESSION);
+    }
+
+    /**
+     * Include a value in the sketches
+     *
+     * @param columnValue value
+     * @param columnCount frequency/count
+     */
+    public void add(Object columnValue, long columnCount) {
+        Object value = (columnValue != null) ? columnValue : NULL_VALUE;
+        uniqueValues.offer(value);
+        heavyHitters.offer(value, toInt(columnCount));
+        if (columnValue instanceof Number) {
+            quantiles.add(((Number) columnValue).doubleValue(), toInt(columnCount));
+        }
+    }
+
+    /**
+     * Merge the sketches of another partition
+     *
+     * @param other sketches to merge
+     */
+    public void combine(ColumnSketches other) {
+        try {
+            uniqueValues.addAll(other.uniqueValues);
+        } catch (CardinalityMergeException e) {
+            throw new IllegalStateException("Unable to merge unique value counts", e);
+        }
+        for (Counter<Object> counter : other.heavyHitters.topK(other.heavyHitters.size())) {
+            heavyHitters.offer(counter.getItem(), toInt(counter.getCount()));
+        }
+        if (other.quantiles.size() > 0) {
+            quantiles.add(other.quantiles);
+        }
+    }
+
+    /**
+     * Get estimated unique count
+     *
+     * @return unique count
+     */
+    public long getUniqueCount() {
+        return uniqueValues.cardinality();
+    }
+
+    /**
+     * Get estimated top-N values
+     *
+     * @return top-N values and their estimated counts
+     */
+    public TopNDataList getTopNValues() {
+        TopNDataList topNValues = new TopNDataList(numberOfTopNValues);
+        for (Counter<Object> counter : heavyHitters.topK(numberOfTopNValues)) {
+            Object value = counter.getItem();
+            topNValues.add(NULL_VALUE.equals(value) ? null : value, counter.getCount());
+        }
+        return topNValues;
+    }
+
+    /**
+     * Check if any numeric values were included
+     */
+    public boolean hasQuantiles() {
+        return quantiles.size() > 0;
+    }
+
+    /**
+     * Get estimated quantile of numeric values
+     *
+     * @param quantile quantile between 0 and 1
+     * @return estimated value at the quantile
+     */
+    public double getQuantile(double quantile) {
+        return quantiles.quantile(quantile);
+    }
+
+    private static int toInt(long count) {
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    /*
+     * The t-digest is not serializable so it is written in its byte encoding, which is unavailable while it is empty.
+     * Kryo serializes the fields directly.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.writeInt(numberOfTopNValues);
+        out.writeObject(uniqueValues);
+        out.writeObject(heavyHitters);
+        if (hasQuantiles()) {
+            ByteBuffer buffer = ByteBuffer.allocate(quantiles.byteSize());
+            quantiles.asBytes(buffer);
+            out.writeInt(buffer.position());
+            out.write(buffer.array(), 0, buffer.position());
+        } else {
+            out.writeInt(0);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        numberOfTopNValues = in.readInt();
+        uniqueValues = (HyperLogLogPlus) in.readObject();
+        heavyHitters = (StreamSummary<Object>) in.readObject();
+        int length = in.readInt();
+        if (length > 0) {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            quantiles = TDigest.fromBytes(ByteBuffer.wrap(bytes));
+        } else {
+            quantiles = new TDigest(QUANTILE_COMPRESSION);
+        }
+    }
+}
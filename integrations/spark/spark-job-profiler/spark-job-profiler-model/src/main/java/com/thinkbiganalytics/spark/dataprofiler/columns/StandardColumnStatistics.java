@@ -45,7 +45,9 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
     final StructField columnField;
     /* Other variables */
     final DecimalFormat df;
-    private final TopNDataList topNValues;
+    private TopNDataList topNValues;
+    /* Sketches replacing the exact unique count and top-N values (approximate profiling only) */
+    private final ColumnSketches sketches;
     /* Common metrics for all data types */
     long nullCount;
     long totalCount;
@@ -71,6 +73,7 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
         percDuplicateValues = 0.0d;
         this.profilerConfiguration = profilerConfiguration;
         topNValues = new TopNDataList(profilerConfiguration.getNumberOfTopNValues());
+        sketches = profilerConfiguration.isApproximateProfiling() ? new ColumnSketches(profilerConfiguration.getNumberOfTopNValues()) : null;
         df = new DecimalFormat(getDecimalFormatPattern());
     }
 
@@ -84,12 +87,19 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
     void accomodateCommon(Object columnValue, Long columnCount) {
 
         totalCount += columnCount;
-        uniqueCount += 1;
 
         if (columnValue == null) {
             nullCount += columnCount;
         }
 
+        /* The same value may be accommodated more than once. Percentages are calculated from the sketches when the statistics are read. */
+        if (sketches != null) {
+            sketches.add(columnValue, columnCount);
+            return;
+        }
+
+        uniqueCount += 1;
+
         doPercentageCalculationsCommon();
 
         topNValues.add(columnValue, columnCount);
@@ -103,6 +113,13 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
      */
     void combineCommon(StandardColumnStatistics v_columnStatistics) {
 
+        if (sketches != null) {
+            totalCount += v_columnStatistics.totalCount;
+            nullCount += v_columnStatistics.nullCount;
+            sketches.combine(v_columnStatistics.sketches);
+            return;
+        }
+
         totalCount += v_columnStatistics.totalCount;
         uniqueCount += v_columnStatistics.uniqueCount;
         nullCount += v_columnStatistics.nullCount;
@@ -150,6 +167,18 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
     }
 
 
+    /**
+     * Write estimated quartiles of numeric values for output result table
+     */
+    private void writeQuantileInformation(@Nonnull final List<OutputRow> rows) {
+        if (sketches != null && sketches.hasQuantiles()) {
+            rows.add(new OutputRow(columnField.name(), String.valueOf(MetricType.PERCENTILE_25), df.format(sketches.getQuantile(0.25))));
+            rows.add(new OutputRow(columnField.name(), String.valueOf(MetricType.MEDIAN), df.format(sketches.getQuantile(0.5))));
+            rows.add(new OutputRow(columnField.name(), String.valueOf(MetricType.PERCENTILE_75), df.format(sketches.getQuantile(0.75))));
+        }
+    }
+
+
     /**
      * Print top n rows in column to console
      *
@@ -168,6 +197,7 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
      */
     void writeStatisticsCommon(@Nonnull final List<OutputRow> rows) {
 
+        summarizeSketches();
         writeColumnSchemaInformation(rows);
 
         rows.add(new OutputRow(columnField.name(), String.valueOf(MetricType.NULL_COUNT), String.valueOf(nullCount)));
@@ -178,6 +208,7 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
         rows.add(new OutputRow(columnField.name(), String.valueOf(MetricType.PERC_DUPLICATE_VALUES), df.format(percDuplicateValues)));
 
         writeTopNInformation(rows);
+        writeQuantileInformation(rows);
     }
 
 
@@ -188,6 +219,7 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
      */
     String getVerboseStatisticsCommon() {
 
+        summarizeSketches();
         return getVerboseColumnSchemaInformation()
                + "\n"
                + "CommonStatistics ["
@@ -203,6 +235,19 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
     }
 
 
+    /*
+     * Replace the unique count and top-N values with the estimates from the sketches (approximate profiling only)
+     */
+    private void summarizeSketches() {
+
+        if (sketches != null) {
+            uniqueCount = Math.min(sketches.getUniqueCount(), totalCount);
+            doPercentageCalculationsCommon();
+            topNValues = sketches.getTopNValues();
+        }
+    }
+
+
     /*
      * Do percentage calculations for common metrics
      */
@@ -256,6 +301,7 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
      * @return unique count
      */
     public long getUniqueCount() {
+        summarizeSketches();
         return uniqueCount;
     }
 
@@ -266,6 +312,7 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
      * @return percentage of null values
      */
     public double getPercNullValues() {
+        summarizeSketches();
         return percNullValues;
     }
 
@@ -276,6 +323,7 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
      * @return percentage of unique values
      */
     public double getPercUniqueValues() {
+        summarizeSketches();
         return percUniqueValues;
     }
 
@@ -286,6 +334,7 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
      * @return percentage of duplicate values
      */
     public double getPercDuplicateValues() {
+        summarizeSketches();
         return percDuplicateValues;
     }
 
@@ -296,6 +345,7 @@ public abstract class StandardColumnStatistics implements ColumnStatistics, Seri
      * @return top n values
      */
     public TopNDataList getTopNValues() {
+        summarizeSketches();
         return topNValues;
     }
 
@@ -216,6 +216,24 @@ public enum MetricType {
     /**
      * Max string (Lexical ordering) (Case-insensitive)
      */
-    MAX_STRING_ICASE
+    MAX_STRING_ICASE,
+
+
+    /**
+     * 25th percentile of numeric values (approximate profiling only)
+     */
+    PERCENTILE_25,
+
+
+    /**
+     * Median of numeric values (approximate profiling only)
+     */
+    MEDIAN,
+
+
+    /**
+     * 75th percentile of numeric values (approximate profiling only)
+     */
+    PERCENTILE_75
 
 }
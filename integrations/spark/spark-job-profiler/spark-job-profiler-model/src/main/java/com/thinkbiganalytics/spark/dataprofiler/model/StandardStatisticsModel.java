@@ -75,6 +75,24 @@ public class StandardStatisticsModel implements Serializable, StatisticsModel {
      */
     public void add(Integer columnIndex, Object columnValue, Long columnCount, StructField columnField) {
 
+        StandardColumnStatistics currentColumnStatistics = columnStatisticsMap.get(columnIndex);
+        if (currentColumnStatistics == null) {
+            currentColumnStatistics = newColumnStatistics(columnField);
+            columnStatisticsMap.put(columnIndex, currentColumnStatistics);
+        }
+
+        currentColumnStatistics.accomodate(columnValue, columnCount);
+    }
+
+
+    /**
+     * Create the column statistics for the data type of the column
+     *
+     * @param columnField schema information of the column
+     * @return column statistics
+     */
+    private StandardColumnStatistics newColumnStatistics(StructField columnField) {
+
         StandardColumnStatistics newColumnStatistics;
         DataType columnDataType = columnField.dataType();
 
@@ -221,12 +239,7 @@ public class StandardStatisticsModel implements Serializable, StatisticsModel {
                 }
         }
 
-        if (!columnStatisticsMap.containsKey(columnIndex)) {
-            columnStatisticsMap.put(columnIndex, newColumnStatistics);
-        }
-
-        StandardColumnStatistics currentColumnStatistics = columnStatisticsMap.get(columnIndex);
-        currentColumnStatistics.accomodate(columnValue, columnCount);
+        return newColumnStatistics;
     }
 
 
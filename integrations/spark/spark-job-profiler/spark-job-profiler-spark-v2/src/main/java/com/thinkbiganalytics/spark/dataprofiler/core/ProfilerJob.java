@@ -0,0 +1,99 @@
+package com.thinkbiganalytics.spark.dataprofiler.core;
+
+/*-
+ * #%L
+ * kylo-spark-job-profiler-spark-v2
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.thinkbiganalytics.spark.SparkContextService;
+import com.thinkbiganalytics.spark.dataprofiler.ProfilerConfiguration;
+import com.thinkbiganalytics.spark.policy.FieldPolicyLoader;
+import com.typesafe.config.Config;
+
+import org.apache.spark.sql.hive.HiveContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import spark.jobserver.api.JobEnvironment;
+import spark.jobserver.japi.JHiveJob;
+
+/**
+ * Runs the {@link Profiler} as a job within a long-lived Spark Jobserver context.
+ *
+ * <p>The context should be created with the {@code JAVA_HIVE_CONTEXT} type. The job configuration must contain an {@code args} list with the same arguments accepted by
+ * {@link Profiler#main(String[])}, for example: {@code args = ["table", "db.table", "10", "db.table_profile", "/path/to/policy.json", "1"]}</p>
+ *
+ * <p>Each job runs in its own Hive session and Spring context so settings made by one job are not seen by the next.</p>
+ */
+public class ProfilerJob implements JHiveJob<Boolean> {
+
+    private static final long serialVersionUID = 4120436542939582167L;
+
+    /**
+     * Name of the configuration property containing the command-line arguments
+     */
+    static final String ARGS = "args";
+
+    @Override
+    public Boolean run(@Nonnull final HiveContext hiveContext, @Nonnull final JobEnvironment runtime, @Nonnull final Config config) {
+        final HiveContext session = hiveContext.newSession();
+        final AnnotationConfigApplicationContext ctx = createApplicationContext(session);
+        try {
+            // The profiler updates its configuration from the arguments
+            final ProfilerConfiguration profilerConfiguration = new ProfilerConfiguration();
+            profilerConfiguration.setApproximateProfiling(session.sparkContext().getConf().getBoolean("spark.kylo.profiler.approximate", false));
+
+            final Profiler profiler = new Profiler(ctx.getBean(FieldPolicyLoader.class), ctx.getBean(com.thinkbiganalytics.spark.dataprofiler.Profiler.class), profilerConfiguration,
+                                                   ctx.getBean(SparkContextService.class), session);
+            final List<String> args = config.getStringList(ARGS);
+            if (!profiler.run(args.toArray(new String[args.size()]))) {
+                throw new IllegalArgumentException("Invalid profiler arguments: " + args);
+            }
+            return true;
+        } finally {
+            ctx.close();
+        }
+    }
+
+    @Nonnull
+    @Override
+    public Config verify(@Nonnull final HiveContext hiveContext, @Nonnull final JobEnvironment runtime, @Nonnull final Config config) {
+        if (!config.hasPath(ARGS)) {
+            throw new IllegalArgumentException("Missing required job configuration: " + ARGS);
+        }
+        return config;
+    }
+
+    /**
+     * Creates a Spring application context for a job with the specified Hive session as the {@code SQLContext} bean.
+     */
+    @Nonnull
+    private static AnnotationConfigApplicationContext createApplicationContext(@Nonnull final HiveContext session) {
+        session.setConf("spark.sql.dialect", new ProfilerConfiguration().getSqlDialect());
+
+        final AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
+        ctx.getBeanFactory().registerSingleton("sqlContext", session);
+        ctx.scan("com.thinkbiganalytics.spark");
+        ctx.refresh();
+        return ctx;
+    }
+}
@@ -0,0 +1,80 @@
+package com.thinkbiganalytics.spark.dataprofiler.core;
+
+/*-
+ * #%L
+ * kylo-spark-job-profiler-spark-v2
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+
+import org.apache.spark.SparkConf;
+import org.apache.spark.SparkContext;
+import org.apache.spark.sql.hive.HiveContext;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+
+import spark.jobserver.api.JobEnvironment;
+
+public class ProfilerJobTest {
+
+    /**
+     * Verify a job configuration with arguments is accepted.
+     */
+    @Test
+    public void verify() {
+        final Config config = ConfigFactory.empty().withValue(ProfilerJob.ARGS, ConfigValueFactory.fromIterable(Arrays.asList("table", "db.table", "10", "db.table_profile", "/policy.json")));
+        Assert.assertSame(config, new ProfilerJob().verify(Mockito.mock(HiveContext.class), Mockito.mock(JobEnvironment.class), config));
+    }
+
+    /**
+     * Verify a job configuration without arguments is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyWithoutArgs() {
+        new ProfilerJob().verify(Mockito.mock(HiveContext.class), Mockito.mock(JobEnvironment.class), ConfigFactory.empty());
+    }
+
+    /**
+     * Verify the job fails when the arguments are invalid, configuring only its own Hive session.
+     */
+    @Test
+    public void runWithInvalidArgs() {
+        final SparkContext sparkContext = Mockito.mock(SparkContext.class);
+        Mockito.when(sparkContext.getConf()).thenReturn(new SparkConf());
+        final HiveContext session = Mockito.mock(HiveContext.class);
+        Mockito.when(session.sparkContext()).thenReturn(sparkContext);
+        final HiveContext hiveContext = Mockito.mock(HiveContext.class);
+        Mockito.when(hiveContext.newSession()).thenReturn(session);
+        final Config config = ConfigFactory.empty().withValue(ProfilerJob.ARGS, ConfigValueFactory.fromIterable(Arrays.asList("table", "db.table")));
+
+        try {
+            new ProfilerJob().run(hiveContext, Mockito.mock(JobEnvironment.class), config);
+            Assert.fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            Assert.assertEquals("Invalid profiler arguments: [table, db.table]", e.getMessage());
+        }
+
+        Mockito.verify(session).setConf(Mockito.eq("spark.sql.dialect"), Mockito.anyString());
+        Mockito.verify(hiveContext, Mockito.never()).setConf(Mockito.anyString(), Mockito.anyString());
+    }
+}
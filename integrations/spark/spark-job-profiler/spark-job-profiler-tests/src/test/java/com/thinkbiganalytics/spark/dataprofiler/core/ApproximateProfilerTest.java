@@ -0,0 +1,150 @@
+package com.thinkbiganalytics.spark.dataprofiler.core;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.DataSet;
+import com.thinkbiganalytics.spark.SparkContextService;
+import com.thinkbiganalytics.spark.dataprofiler.Profiler;
+import com.thinkbiganalytics.spark.dataprofiler.ProfilerConfiguration;
+import com.thinkbiganalytics.spark.dataprofiler.StatisticsModel;
+import com.thinkbiganalytics.spark.dataprofiler.columns.StandardColumnStatistics;
+import com.thinkbiganalytics.spark.dataprofiler.config.ProfilerConfig;
+import com.thinkbiganalytics.spark.dataprofiler.model.MetricType;
+import com.thinkbiganalytics.spark.dataprofiler.output.OutputRow;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.apache.spark.SparkConf;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.serializer.KryoSerializer;
+import org.apache.spark.serializer.SerializerInstance;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SQLContext;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import scala.reflect.ClassTag$;
+
+/**
+ * Profiles a data set with approximate profiling enabled and compares the estimates with the exact values.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ComponentScan(basePackages = {"com.thinkbiganalytics"})
+@ContextConfiguration(classes = {ProfilerConfig.class, SpringTestConfigV1.class, SpringTestConfigV2.class})
+@ActiveProfiles("spark-v1")
+public class ApproximateProfilerTest {
+
+    private static final int ROWS = 1000;
+
+    @Inject
+    private Profiler profiler;
+
+    @Inject
+    private SparkContextService scs;
+
+    @Inject
+    private SQLContext sqlContext;
+
+    private StatisticsModel statsModel;
+
+    @Before
+    public void setUp() {
+        StructType schema = DataTypes.createStructType(new StructField[]{
+            DataTypes.createStructField("id", DataTypes.IntegerType, true),
+            DataTypes.createStructField("name", DataTypes.StringType, true)
+        });
+
+        // every tenth name is null and half of the names are "common"
+        List<Row> rows = new ArrayList<>();
+        for (int i = 1; i <= ROWS; i++) {
+            String name = (i % 10 == 0) ? null : (i % 2 == 0) ? "common" : "name" + i;
+            rows.add(RowFactory.create(i, name));
+        }
+
+        final JavaSparkContext javaSparkContext = JavaSparkContext.fromSparkContext(sqlContext.sparkContext());
+        DataSet dataDF = scs.toDataSet(sqlContext.createDataFrame(javaSparkContext.parallelize(rows, 4), schema));
+
+        ProfilerConfiguration profilerConfiguration = new ProfilerConfiguration();
+        profilerConfiguration.setApproximateProfiling(true);
+        statsModel = profiler.profile(dataDF, profilerConfiguration);
+    }
+
+    @Test
+    public void testApproximateStatistics() {
+        StandardColumnStatistics id = (StandardColumnStatistics) statsModel.getColumnStatisticsMap().get(0);
+        Assert.assertEquals(ROWS, id.getTotalCount());
+        Assert.assertEquals(0, id.getNullCount());
+        Assert.assertEquals(ROWS, id.getUniqueCount(), ROWS * 0.05);
+        Assert.assertEquals(ROWS / 2, Double.parseDouble(getMetricValue(id, MetricType.MEDIAN)), ROWS * 0.05);
+
+        StandardColumnStatistics name = (StandardColumnStatistics) statsModel.getColumnStatisticsMap().get(1);
+        Assert.assertEquals(ROWS, name.getTotalCount());
+        Assert.assertEquals(ROWS / 10, name.getNullCount());
+        Assert.assertEquals(ROWS / 2 + 2, name.getUniqueCount(), ROWS * 0.05);
+        Assert.assertEquals("common", name.getTopNValues().getTopNDataItemsForColumn().last().getValue());
+        Assert.assertNull(getMetricValue(name, MetricType.MEDIAN));
+    }
+
+    @Test
+    public void testSerialization() {
+        StatisticsModel javaCopy = (StatisticsModel) SerializationUtils.clone((Serializable) statsModel);
+        assertSameStatistics(statsModel, javaCopy);
+
+        SerializerInstance kryo = new KryoSerializer(new SparkConf()).newInstance();
+        StatisticsModel kryoCopy = kryo.deserialize(kryo.serialize(statsModel, ClassTag$.MODULE$.<StatisticsModel>apply(StatisticsModel.class)),
+                                                    ClassTag$.MODULE$.<StatisticsModel>apply(StatisticsModel.class));
+        assertSameStatistics(statsModel, kryoCopy);
+    }
+
+    private void assertSameStatistics(StatisticsModel expected, StatisticsModel actual) {
+        for (Integer column : expected.getColumnStatisticsMap().keySet()) {
+            StandardColumnStatistics expectedColumn = (StandardColumnStatistics) expected.getColumnStatisticsMap().get(column);
+            StandardColumnStatistics actualColumn = (StandardColumnStatistics) actual.getColumnStatisticsMap().get(column);
+            Assert.assertEquals(expectedColumn.getUniqueCount(), actualColumn.getUniqueCount());
+            Assert.assertEquals(expectedColumn.getTopNValues().printTopNItems(), actualColumn.getTopNValues().printTopNItems());
+            Assert.assertEquals(getMetricValue(expectedColumn, MetricType.MEDIAN), getMetricValue(actualColumn, MetricType.MEDIAN));
+        }
+    }
+
+    private String getMetricValue(StandardColumnStatistics columnStatistics, MetricType metricType) {
+        for (OutputRow row : columnStatistics.getStatistics()) {
+            if (metricType.name().equals(row.getMetricType())) {
+                return row.getMetricValue();
+            }
+        }
+        return null;
+    }
+}
@@ -26,11 +26,13 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.FluentIterable;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.thinkbiganalytics.security.core.SecurityCoreConfig;
 import com.thinkbiganalytics.spark.dataprofiler.Profiler;
 import com.thinkbiganalytics.spark.datavalidator.DataValidator;
 import com.thinkbiganalytics.spark.metadata.TransformScript;
 import com.thinkbiganalytics.spark.repl.SparkScriptEngine;
+import com.thinkbiganalytics.spark.service.DataSetCache;
 import com.thinkbiganalytics.spark.service.IdleMonitorService;
 import com.thinkbiganalytics.spark.service.JobTrackerService;
 import com.thinkbiganalytics.spark.service.SparkListenerService;
@@ -135,6 +137,17 @@ public class SparkShellApp {
         return FileSystem.get(new Configuration());
     }
 
+    /**
+     * Creates the cache of transformation results, which is released when this app becomes idle.
+     */
+    @Bean
+    public DataSetCache dataSetCache(final SQLContext sqlContext, final IdleMonitorService idleMonitorService, @Value("${spark.shell.cache.max-entries}") final int maxEntries,
+                                     @Value("${spark.shell.cache.max-memory-fraction}") final double maxMemoryFraction, @Value("${spark.shell.cache.idle-timeout}") final long idleTimeout) {
+        final DataSetCache cache = new DataSetCache(sqlContext, maxEntries, maxMemoryFraction, idleTimeout, TimeUnit.SECONDS);
+        idleMonitorService.addListener(cache, MoreExecutors.directExecutor());
+        return cache;
+    }
+
     /**
      * Creates a service to stop this app after a period of inactivity.
      */
@@ -345,8 +358,9 @@ public class SparkShellApp {
     @Bean
     public TransformService transformService(final Class<? extends TransformScript> transformScriptClass, final SparkScriptEngine engine, final SparkContextService sparkContextService,
                                              final JobTrackerService tracker, final DatasourceProviderFactory datasourceProviderFactory, final Profiler profiler, final DataValidator validator,
-                                             final FileSystem fileSystem) {
+                                             final FileSystem fileSystem, final DataSetCache dataSetCache) {
         final TransformService service = new TransformService(transformScriptClass, engine, sparkContextService, tracker);
+        service.setDataSetCache(dataSetCache);
         service.setDatasourceProviderFactory(datasourceProviderFactory);
         service.setFileSystem(fileSystem);
         service.setProfiler(profiler);
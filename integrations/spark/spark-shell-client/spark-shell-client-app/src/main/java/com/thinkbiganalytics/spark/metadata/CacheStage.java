@@ -0,0 +1,63 @@
+package com.thinkbiganalytics.spark.metadata;
+
+/*-
+ * #%L
+ * kylo-spark-shell-client-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.thinkbiganalytics.spark.model.TransformResult;
+import com.thinkbiganalytics.spark.service.DataSetCache;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Caches the results of a transformation so they can be used as the parent of the next transformation.
+ */
+public class CacheStage implements Function<TransformResult, TransformResult> {
+
+    /**
+     * Cache of transformation results.
+     */
+    @Nonnull
+    private final DataSetCache cache;
+
+    /**
+     * Destination table name.
+     */
+    @Nonnull
+    private final String table;
+
+    /**
+     * Constructs a {@code CacheStage}.
+     */
+    public CacheStage(@Nonnull final String table, @Nonnull final DataSetCache cache) {
+        this.table = table;
+        this.cache = cache;
+    }
+
+    @Nonnull
+    @Override
+    public TransformResult apply(@Nullable final TransformResult result) {
+        Preconditions.checkNotNull(result);
+        cache.put(table, result.getDataSet());
+        return result;
+    }
+}
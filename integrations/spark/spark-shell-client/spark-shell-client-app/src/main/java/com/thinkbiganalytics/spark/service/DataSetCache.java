@@ -0,0 +1,264 @@
+package com.thinkbiganalytics.spark.service;
+
+/*-
+ * #%L
+ * thinkbig-spark-shell-client-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.Service;
+import com.thinkbiganalytics.spark.DataSet;
+
+import org.apache.spark.sql.SQLContext;
+import org.joda.time.DateTimeUtils;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import scala.Tuple2;
+import scala.collection.JavaConversions;
+
+/**
+ * Keeps the results of recent transformations in memory and registered as temporary tables.
+ *
+ * <p>A transformation of a wrangler session reads the results of its parent transformation from the table, so only the
+ * new step is evaluated instead of the whole chain of transformations from the source.</p>
+ *
+ * <p>Results are evicted in least-recently-used order when there are too many results, when the storage memory used by
+ * Spark exceeds the maximum fraction, or when the results have not been used for the idle timeout. All results are
+ * released when the Spark Shell becomes idle.</p>
+ */
+public class DataSetCache extends Service.Listener {
+
+    private static final XLogger log = XLoggerFactory.getXLogger(DataSetCache.class);
+
+    /**
+     * Cached results by table name, in least-recently-used order
+     */
+    @Nonnull
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Time in milliseconds after the last use of a result to release it
+     */
+    private final long idleTimeoutMillis;
+
+    /**
+     * Maximum number of results
+     */
+    private final int maxEntries;
+
+    /**
+     * Maximum fraction of the Spark storage memory that may be used before evicting results
+     */
+    private final double maxMemoryFraction;
+
+    /**
+     * Spark SQL context for registering tables
+     */
+    @Nonnull
+    private final SQLContext sqlContext;
+
+    /**
+     * Constructs a {@code DataSetCache}.
+     *
+     * @param sqlContext        the Spark SQL context
+     * @param maxEntries        the maximum number of results
+     * @param maxMemoryFraction the maximum fraction of the Spark storage memory to use
+     * @param idleTimeout       the time after the last use of a result to release it
+     * @param unit              the time unit
+     */
+    public DataSetCache(@Nonnull final SQLContext sqlContext, final int maxEntries, final double maxMemoryFraction, final long idleTimeout, @Nonnull final TimeUnit unit) {
+        this.sqlContext = sqlContext;
+        this.maxEntries = maxEntries;
+        this.maxMemoryFraction = maxMemoryFraction;
+        this.idleTimeoutMillis = unit.toMillis(idleTimeout);
+    }
+
+    /**
+     * Gets the results stored in the specified table, and marks them as recently used.
+     *
+     * @param table the table name
+     * @return the results, if cached
+     */
+    @Nonnull
+    public synchronized Optional<DataSet> get(@Nonnull final String table) {
+        evictIdle();
+
+        final Entry entry = entries.get(table);
+        if (entry != null) {
+            entry.lastAccess = DateTimeUtils.currentTimeMillis();
+            return Optional.of(entry.dataSet);
+        } else {
+            return Optional.absent();
+        }
+    }
+
+    /**
+     * Caches the specified results and registers them as the specified table.
+     *
+     * <p>The results should already be persisted.</p>
+     *
+     * @param table   the table name
+     * @param dataSet the results
+     */
+    public synchronized void put(@Nonnull final String table, @Nonnull final DataSet dataSet) {
+        log.entry(table, dataSet);
+
+        dataSet.registerTempTable(table);
+        final Entry previous = entries.put(table, new Entry(dataSet));
+        if (previous != null && previous.dataSet != dataSet) {
+            previous.dataSet.unpersist(false);
+        }
+
+        evictIdle();
+        evict();
+        log.exit();
+    }
+
+    /**
+     * Releases all cached results.
+     */
+    public synchronized void invalidateAll() {
+        final Iterator<Map.Entry<String, Entry>> iter = entries.entrySet().iterator();
+        while (iter.hasNext()) {
+            final Map.Entry<String, Entry> entry = iter.next();
+            iter.remove();
+            release(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Gets the number of cached results.
+     *
+     * @return the number of results
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Releases all cached results when the Spark Shell becomes idle.
+     */
+    @Override
+    public void terminated(@Nonnull final Service.State from) {
+        log.debug("Releasing {} cached results after idle timeout", size());
+        invalidateAll();
+    }
+
+    /**
+     * Gets the fraction of the Spark storage memory that is in use.
+     *
+     * @return the used fraction of the storage memory
+     */
+    @VisibleForTesting
+    protected double getMemoryFraction() {
+        long maxMemory = 0;
+        long remainingMemory = 0;
+
+        for (final Tuple2<Object, Object> status : JavaConversions.mapAsJavaMap(sqlContext.sparkContext().getExecutorMemoryStatus()).values()) {
+            maxMemory += (Long) status._1();
+            remainingMemory += (Long) status._2();
+        }
+
+        return (maxMemory > 0) ? 1.0 - (double) remainingMemory / maxMemory : 0.0;
+    }
+
+    /**
+     * Evicts the least-recently-used results until the number of results is within the limit, plus one more result if
+     * the storage memory is over the limit. The most recent result is always kept.
+     *
+     * <p>Only one result is evicted for memory because the memory status is not updated until the result has been
+     * removed from the executors.</p>
+     */
+    private void evict() {
+        int evictCount = Math.max(entries.size() - maxEntries, 0);
+        if (evictCount == 0 && entries.size() > 1 && getMemoryFraction() > maxMemoryFraction) {
+            evictCount = 1;
+        }
+
+        final Iterator<Map.Entry<String, Entry>> iter = entries.entrySet().iterator();
+        for (int i = 0; i < evictCount && entries.size() > 1; ++i) {
+            final Map.Entry<String, Entry> eldest = iter.next();
+            iter.remove();
+            log.debug("Evicting cached results for table {}", eldest.getKey());
+            release(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    /**
+     * Releases the results that have not been used for the idle timeout.
+     */
+    private void evictIdle() {
+        if (idleTimeoutMillis <= 0) {
+            return;
+        }
+
+        final long expireTime = DateTimeUtils.currentTimeMillis() - idleTimeoutMillis;
+        final Iterator<Map.Entry<String, Entry>> iter = entries.entrySet().iterator();
+
+        while (iter.hasNext()) {
+            final Map.Entry<String, Entry> entry = iter.next();
+            if (entry.getValue().lastAccess <= expireTime) {
+                iter.remove();
+                log.debug("Releasing idle cached results for table {}", entry.getKey());
+                release(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Drops the table and removes the results from memory.
+     */
+    private void release(@Nonnull final String table, @Nonnull final Entry entry) {
+        try {
+            sqlContext.dropTempTable(table);
+        } catch (final Exception e) {
+            log.debug("Unable to drop temporary table: {}", table, e);
+        }
+        entry.dataSet.unpersist(false);
+    }
+
+    /**
+     * A cached result.
+     */
+    private static class Entry {
+
+        /**
+         * The persisted results
+         */
+        @Nonnull
+        final DataSet dataSet;
+
+        /**
+         * Time of the last use in milliseconds
+         */
+        long lastAccess = DateTimeUtils.currentTimeMillis();
+
+        Entry(@Nonnull final DataSet dataSet) {
+            this.dataSet = dataSet;
+        }
+    }
+}
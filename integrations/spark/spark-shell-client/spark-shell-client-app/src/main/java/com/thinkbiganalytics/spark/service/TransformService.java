@@ -34,6 +34,7 @@ import com.thinkbiganalytics.spark.DataSet;
 import com.thinkbiganalytics.spark.SparkContextService;
 import com.thinkbiganalytics.spark.dataprofiler.Profiler;
 import com.thinkbiganalytics.spark.datavalidator.DataValidator;
+import com.thinkbiganalytics.spark.metadata.CacheStage;
 import com.thinkbiganalytics.spark.metadata.ProfileStage;
 import com.thinkbiganalytics.spark.metadata.QueryResultRowTransform;
 import com.thinkbiganalytics.spark.metadata.ResponseStage;
@@ -57,7 +58,6 @@ import com.thinkbiganalytics.spark.rest.model.TransformResponse;
 import com.thinkbiganalytics.spark.shell.DatasourceProvider;
 import com.thinkbiganalytics.spark.shell.DatasourceProviderFactory;
 
-import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.spark.sql.types.StructType;
 import org.slf4j.ext.XLogger;
@@ -87,6 +87,12 @@ public class TransformService {
 
     private static final XLogger log = XLoggerFactory.getXLogger(TransformService.class);
 
+    /**
+     * Cache of transformation results for use by child transformations
+     */
+    @Nullable
+    private DataSetCache dataSetCache;
+
     /**
      * Data source provider factory
      */
@@ -160,6 +166,27 @@ public class TransformService {
         this.tracker = tracker;
     }
 
+    /**
+     * Gets the cache of transformation results.
+     *
+     * @return the transformation results cache
+     */
+    @Nullable
+    @SuppressWarnings("unused")
+    public DataSetCache getDataSetCache() {
+        return dataSetCache;
+    }
+
+    /**
+     * Sets the cache of transformation results. When set, the results of each transformation are registered as a table
+     * that child transformations read instead of re-evaluating the parent script.
+     *
+     * @param dataSetCache the transformation results cache
+     */
+    public void setDataSetCache(@Nullable final DataSetCache dataSetCache) {
+        this.dataSetCache = dataSetCache;
+    }
+
     /**
      * Gets the data source provider factory.
      *
@@ -197,10 +224,22 @@ public class TransformService {
             return cacheTransform(request);
         }
 
+        // Mark the parent results as recently used
+        if (dataSetCache != null && request.getParent() != null && request.getParent().getTable() != null) {
+            dataSetCache.get(request.getParent().getTable());
+        }
+
         // Execute script
         final DataSet dataSet = createShellTask(request);
         final StructType schema = dataSet.schema();
-        TransformResponse response = submitTransformJob(new ShellTransformStage(dataSet), getPolicies(request));
+        final String table = newTableName();
+
+        Supplier<TransformResult> task = new ShellTransformStage(dataSet);
+        if (dataSetCache != null) {
+            task = Suppliers.compose(new CacheStage(table, dataSetCache), task);
+        }
+
+        TransformResponse response = submitTransformJob(table, task, getPolicies(request));
 
         // Build response
         if (response.getStatus() != TransformResponse.Status.SUCCESS) {
@@ -373,6 +412,9 @@ public class TransformService {
     /**
      * Converts the specified transformation request to a Scala script that can be executed by the script engine.
      *
+     * <p>The parent table is provided by the {@code parentTableName} binding so that the script, and its compiled
+     * class, stays the same for every request with the same transformation.</p>
+     *
      * @param request the transformation request
      * @return the Scala script
      */
@@ -392,9 +434,7 @@ public class TransformService {
             script.append("override def parentDataFrame: org.apache.spark.sql.DataFrame = {");
             script.append(request.getParent().getScript());
             script.append("}\n");
-            script.append("override def parentTable: String = {\"");
-            script.append(StringEscapeUtils.escapeJava(request.getParent().getTable()));
-            script.append("\"}\n");
+            script.append("override def parentTable: String = {parentTableName}\n");
         }
 
         script.append("}\n");
@@ -446,6 +486,10 @@ public class TransformService {
             }
         }
 
+        if (request.getParent() != null) {
+            bindings.add(new NamedParamClass("parentTableName", String.class.getName(), request.getParent().getTable()));
+        }
+
         // Execute script
         final Object result;
         try {
@@ -540,7 +584,15 @@ public class TransformService {
      */
     @Nonnull
     private TransformResponse submitTransformJob(@Nonnull final Supplier<TransformResult> task, @Nullable final FieldPolicy[] policies) throws ScriptException {
-        log.entry(task, policies);
+        return submitTransformJob(newTableName(), task, policies);
+    }
+
+    /**
+     * Submits the specified task to be executed and returns the result.
+     */
+    @Nonnull
+    private TransformResponse submitTransformJob(@Nonnull final String table, @Nonnull final Supplier<TransformResult> task, @Nullable final FieldPolicy[] policies) throws ScriptException {
+        log.entry(table, task, policies);
 
         // Prepare script
         Supplier<TransformResult> result = task;
@@ -553,7 +605,6 @@ public class TransformService {
         }
 
         // Execute script
-        final String table = newTableName();
         final TransformJob job = new TransformJob(table, Suppliers.compose(new ResponseStage(table), result), engine.getSparkContext());
         tracker.submitJob(job);
 
@@ -0,0 +1,153 @@
+package com.thinkbiganalytics.spark.service;
+
+/*-
+ * #%L
+ * thinkbig-spark-shell-client-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.util.concurrent.Service;
+import com.thinkbiganalytics.spark.DataSet;
+
+import org.apache.spark.sql.SQLContext;
+import org.joda.time.DateTimeUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+public class DataSetCacheTest {
+
+    /**
+     * Mock Spark SQL context
+     */
+    private final SQLContext sqlContext = Mockito.mock(SQLContext.class);
+
+    /**
+     * Fraction of the storage memory in use
+     */
+    private double memoryFraction = 0.0;
+
+    /**
+     * Reset the current time.
+     */
+    @After
+    public void tearDown() {
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    /**
+     * Verify registering and evicting results in least-recently-used order.
+     */
+    @Test
+    public void evictLeastRecentlyUsed() {
+        final DataSetCache cache = newCache(2, 0);
+        final DataSet first = Mockito.mock(DataSet.class);
+        final DataSet second = Mockito.mock(DataSet.class);
+        final DataSet third = Mockito.mock(DataSet.class);
+
+        cache.put("first", first);
+        cache.put("second", second);
+        Mockito.verify(first).registerTempTable("first");
+
+        // Using the first result makes the second result the least recently used
+        Assert.assertSame(first, cache.get("first").get());
+        cache.put("third", third);
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertFalse(cache.get("second").isPresent());
+        Mockito.verify(sqlContext).dropTempTable("second");
+        Mockito.verify(second).unpersist(false);
+        Mockito.verify(first, Mockito.never()).unpersist(Mockito.anyBoolean());
+    }
+
+    /**
+     * Verify evicting results when the storage memory is full.
+     */
+    @Test
+    public void evictForMemory() {
+        final DataSetCache cache = newCache(10, 0);
+        final DataSet first = Mockito.mock(DataSet.class);
+        final DataSet second = Mockito.mock(DataSet.class);
+
+        cache.put("first", first);
+        memoryFraction = 0.9;
+        cache.put("second", second);
+
+        Assert.assertEquals(1, cache.size());
+        Assert.assertTrue(cache.get("second").isPresent());
+        Mockito.verify(first).unpersist(false);
+
+        // The most recent result is always kept
+        final DataSet third = Mockito.mock(DataSet.class);
+        cache.put("third", third);
+        cache.put("third", third);
+        Assert.assertEquals(1, cache.size());
+        Mockito.verify(third, Mockito.never()).unpersist(Mockito.anyBoolean());
+    }
+
+    /**
+     * Verify releasing results that have not been used for the idle timeout.
+     */
+    @Test
+    public void evictIdle() {
+        final DataSetCache cache = newCache(10, 60);
+        final DataSet dataSet = Mockito.mock(DataSet.class);
+
+        DateTimeUtils.setCurrentMillisFixed(0);
+        cache.put("table", dataSet);
+
+        DateTimeUtils.setCurrentMillisFixed(TimeUnit.SECONDS.toMillis(30));
+        Assert.assertTrue(cache.get("table").isPresent());
+
+        DateTimeUtils.setCurrentMillisFixed(TimeUnit.SECONDS.toMillis(90));
+        Assert.assertFalse(cache.get("table").isPresent());
+        Mockito.verify(dataSet).unpersist(false);
+    }
+
+    /**
+     * Verify releasing all results when the app becomes idle.
+     */
+    @Test
+    public void terminated() {
+        final DataSetCache cache = newCache(10, 0);
+        final DataSet dataSet = Mockito.mock(DataSet.class);
+        cache.put("table", dataSet);
+
+        cache.terminated(Service.State.RUNNING);
+        Assert.assertEquals(0, cache.size());
+        Mockito.verify(sqlContext).dropTempTable("table");
+        Mockito.verify(dataSet).unpersist(false);
+    }
+
+    /**
+     * Creates a cache that uses the test memory fraction.
+     */
+    @Nonnull
+    private DataSetCache newCache(final int maxEntries, final long idleTimeout) {
+        return new DataSetCache(sqlContext, maxEntries, 0.8, idleTimeout, TimeUnit.SECONDS) {
+            @Override
+            protected double getMemoryFraction() {
+                return memoryFraction;
+            }
+        };
+    }
+}
@@ -161,6 +161,54 @@ public class TransformServiceTest {
         Assert.assertEquals(datasourceProvider, bindings.get(1).value());
     }
 
+    /**
+     * Verify executing a transformation request with a parent passes the parent table as a binding.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void executeWithParent() throws Exception {
+        // Mock data set
+        final DataSet dataSet = Mockito.mock(DataSet.class);
+        Mockito.when(dataSet.persist(Mockito.any(StorageLevel.class))).thenReturn(dataSet);
+        Mockito.when(dataSet.schema()).thenReturn(new StructType());
+
+        // Mock Spark context service
+        final SparkContextService sparkContextService = Mockito.mock(SparkContextService.class);
+
+        // Mock Spark script engine
+        final SparkScriptEngine engine = Mockito.mock(SparkScriptEngine.class);
+        Mockito.when(engine.eval(Mockito.anyString(), Mockito.anyListOf(NamedParam.class))).thenReturn(dataSet);
+        Mockito.when(engine.getSparkContext()).thenReturn(Mockito.mock(SparkContext.class));
+
+        // Test executing a request
+        final TransformRequest.Parent parent = new TransformRequest.Parent();
+        parent.setScript("sqlContext.range(1,10)");
+        parent.setTable("parent_table");
+
+        final TransformRequest request = new TransformRequest();
+        request.setParent(parent);
+        request.setScript("parent.withColumn(functions.expr(\"id+1\")");
+
+        final TransformService service = new TransformService(TransformScript.class, engine, sparkContextService, new MockJobTrackerService());
+        final TransformResponse response = service.execute(request);
+        Assert.assertEquals(TransformResponse.Status.PENDING, response.getStatus());
+
+        // Test eval arguments
+        final ArgumentCaptor<String> evalScript = ArgumentCaptor.forClass(String.class);
+        final ArgumentCaptor<List> evalBindings = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(engine).eval(evalScript.capture(), evalBindings.capture());
+
+        final String expectedScript = IOUtils.toString(getClass().getResourceAsStream("transform-service-script2.scala"), "UTF-8");
+        Assert.assertEquals(expectedScript, evalScript.getValue());
+
+        final List<NamedParam> bindings = evalBindings.getValue();
+        Assert.assertEquals(2, bindings.size());
+
+        Assert.assertEquals("parentTableName", bindings.get(1).name());
+        Assert.assertEquals("java.lang.String", bindings.get(1).tpe());
+        Assert.assertEquals("parent_table", bindings.get(1).value());
+    }
+
     /**
      * Verify converting a transformation request to a Scala script.
      */
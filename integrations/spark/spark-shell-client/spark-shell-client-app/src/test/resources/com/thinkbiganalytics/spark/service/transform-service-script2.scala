@@ -1,6 +1,6 @@
 class Transform (sqlContext: org.apache.spark.sql.SQLContext, sparkContextService: com.thinkbiganalytics.spark.SparkContextService) extends com.thinkbiganalytics.spark.metadata.TransformScript(sqlContext, sparkContextService) {
 override def dataFrame: org.apache.spark.sql.DataFrame = {parent.withColumn(functions.expr("id+1")}
 override def parentDataFrame: org.apache.spark.sql.DataFrame = {sqlContext.range(1,10)}
-override def parentTable: String = {"parent_table"}
+override def parentTable: String = {parentTableName}
 }
 new Transform(sqlContext, sparkContextService).run()
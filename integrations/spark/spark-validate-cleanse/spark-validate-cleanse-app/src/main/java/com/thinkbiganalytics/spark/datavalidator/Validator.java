@@ -56,7 +56,25 @@ public class Validator {
         }
     }
 
+    /**
+     * Validates the table specified by the command-line arguments using a new Spring and Hive context.
+     */
     private int run(@Nonnull final PrintStream out, @Nonnull final String... args) {
+        return run(new AnnotationConfigApplicationContext("com.thinkbiganalytics.spark"), new HiveContext(SparkContext.getOrCreate()), out, args);
+    }
+
+    /**
+     * Validates the table specified by the command-line arguments using the specified Spring and Hive context.
+     *
+     * <p>The Hive context may be shared with other jobs so any persisted results are released before returning.</p>
+     *
+     * @param ctx         the Spring application context
+     * @param hiveContext the Hive context
+     * @param out         the stream for usage messages
+     * @param args        the command-line arguments
+     * @return the exit code
+     */
+    int run(@Nonnull final ApplicationContext ctx, @Nonnull final HiveContext hiveContext, @Nonnull final PrintStream out, @Nonnull final String... args) {
         // Check how many arguments were passed in
         if (args.length < 4) {
             out.println("Proper Usage is: <targetDatabase> <entity> <partition> <path-to-policy-file>");
@@ -68,20 +86,15 @@ public class Validator {
         }
 
         final ValidatorConfiguration params = new ValidatorConfiguration(args);
-
-        // Initialize Spring context
-        final ApplicationContext ctx = new AnnotationConfigApplicationContext("com.thinkbiganalytics.spark");
         final DataValidator app = ctx.getBean(DataValidator.class);
 
         // Prepare Hive context
-        final HiveContext hiveContext = new HiveContext(SparkContext.getOrCreate());
-
         for (final Param param : params.getHiveParams()) {
             log.info("Adding Hive parameter {}={}", param.getName(), param.getValue());
             hiveContext.setConf(param.getName(), param.getValue());
         }
 
-        log.info("Deployment Mode - {}", hiveContext.sparkContext().getConf().get("spark.submit.deployMode"));
+        log.info("Deployment Mode - {}", hiveContext.sparkContext().getConf().get("spark.submit.deployMode", "client"));
         Map<String, FieldPolicy> policyMap = ctx.getBean(FieldPolicyLoader.class).loadFieldPolicy(params.getFieldPolicyJsonPath());
 
         // Run validation
@@ -91,10 +104,13 @@ public class Validator {
         log.info("Persistence level: {}", params.getStorageLevel());
         results.persist(StorageLevel.fromString(params.getStorageLevel()));
 
-        app.saveInvalidToTable(params.getTargetDatabase(), params.getInvalidTableName(), results, hiveContext);
-        app.saveValidToTable(params.getTargetDatabase(), params.getFeedTableName(), params.getValidTableName(), results, hiveContext);
-        app.saveProfileToTable(params.getTargetDatabase(), params.getProfileTableName(), params.getPartition(), results, hiveContext);
-        results.unpersist();
+        try {
+            app.saveInvalidToTable(params.getTargetDatabase(), params.getInvalidTableName(), results, hiveContext);
+            app.saveValidToTable(params.getTargetDatabase(), params.getFeedTableName(), params.getValidTableName(), results, hiveContext);
+            app.saveProfileToTable(params.getTargetDatabase(), params.getProfileTableName(), params.getPartition(), results, hiveContext);
+        } finally {
+            results.unpersist();
+        }
 
         return 0;
     }
@@ -23,16 +23,10 @@ package com.thinkbiganalytics.spark.datavalidator.functions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.Iterables;
-import com.thinkbiganalytics.policy.BaseFieldPolicy;
 import com.thinkbiganalytics.policy.FieldPolicy;
-import com.thinkbiganalytics.policy.standardization.AcceptsEmptyValues;
-import com.thinkbiganalytics.policy.standardization.StandardizationPolicy;
-import com.thinkbiganalytics.policy.validation.NotNullValidator;
-import com.thinkbiganalytics.policy.validation.ValidationPolicy;
 import com.thinkbiganalytics.policy.validation.ValidationResult;
 import com.thinkbiganalytics.spark.datavalidator.CleansedRowResult;
 import com.thinkbiganalytics.spark.datavalidator.StandardizationAndValidationResult;
-import com.thinkbiganalytics.spark.util.InvalidFormatException;
 import com.thinkbiganalytics.spark.validation.HCatDataType;
 
 import org.apache.commons.lang.StringUtils;
@@ -46,19 +40,13 @@ import org.apache.spark.sql.types.StructType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Vector;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import static com.thinkbiganalytics.spark.datavalidator.StandardDataValidator.VALID_RESULT;
-
 /**
  * Spark function to perform both cleansing and validation of a data row based on data policies and the target datatype
  */
@@ -97,6 +85,12 @@ public class CleanseAndValidateRow implements Function<Row, CleansedRowResult> {
     @Nonnull
     private final StructType schema;
 
+    /**
+     * Field policies compiled for the target data types
+     */
+    @Nullable
+    private transient CompiledFieldPolicy[] compiledPolicies;
+
     public CleanseAndValidateRow(@Nonnull final FieldPolicy[] policies, @Nonnull final StructField[] fields) {
         this.policies = policies;
         hasProcessingDttm = Iterables.any(Arrays.asList(fields), new Predicate<StructField>() {
@@ -112,10 +106,7 @@ public class CleanseAndValidateRow implements Function<Row, CleansedRowResult> {
 
     @Override
     public CleansedRowResult call(@Nonnull final Row row) throws Exception {
-        /*
-    Cache for performance. Validators accept different parameters (numeric,string, etc) so we need to resolve the type using reflection
-     */
-        Map<Class, Class> validatorParamType = new HashMap<>();
+        final CompiledFieldPolicy[] compiledPolicies = getCompiledPolicies();
 
         int nulls = hasProcessingDttm ? 1 : 0;
 
@@ -126,36 +117,32 @@ public class CleanseAndValidateRow implements Function<Row, CleansedRowResult> {
         List<ValidationResult> results = null;
         boolean[] columnsValid = new boolean[dataTypes.length];
 
-        Map<Integer, Object> originalValues = new HashMap<>();
-
         // Iterate through columns to cleanse and validate
         for (int idx = 0; idx < dataTypes.length; idx++) {
             ValidationResult result;
-            FieldPolicy fieldPolicy = policies[idx];
+            CompiledFieldPolicy compiledPolicy = compiledPolicies[idx];
             HCatDataType dataType = dataTypes[idx];
             boolean columnValid = true;
-            boolean isBinaryType = dataType.getConvertibleType().equals(byte[].class);
 
             // Extract the value (allowing for null or missing field for odd-ball data)
-            Object val = (idx == row.length() || row.isNullAt(idx) ? null : row.get(idx));
+            Object val = getValue(row, idx);
             // Handle complex types by passing them through
 
-            if (dataType.isUnchecked()) {
+            if (compiledPolicy == null) {
                 if (val == null) {
                     nulls++;
                 }
                 newValues[idx] = val;
-                originalValues.put(idx, val);
             } else {
                 Object fieldValue = (val);
                 boolean isEmpty;
+                boolean isBinaryType = compiledPolicy.isBinaryType();
 
                 if (fieldValue == null) {
                     nulls++;
                 }
-                originalValues.put(idx, fieldValue);
 
-                StandardizationAndValidationResult standardizationAndValidationResult = standardizeAndValidateField(fieldPolicy, fieldValue, dataType, validatorParamType);
+                StandardizationAndValidationResult standardizationAndValidationResult = compiledPolicy.standardizeAndValidate(fieldValue);
                 result = standardizationAndValidationResult.getFinalValidationResult();
 
                 //only apply the standardized result value if the routine is valid
@@ -177,7 +164,7 @@ public class CleanseAndValidateRow implements Function<Row, CleansedRowResult> {
 
                 if (!result.isValid()) {
                     rowValid = false;
-                    results = (results == null ? new Vector<ValidationResult>() : results);
+                    results = (results == null ? new ArrayList<ValidationResult>() : results);
                     results.addAll(standardizationAndValidationResult.getValidationResults());
                     columnValid = false;
                 }
@@ -190,7 +177,7 @@ public class CleanseAndValidateRow implements Function<Row, CleansedRowResult> {
         // Return success unless all values were null.  That would indicate a blank line in the file.
         if (nulls >= dataTypes.length) {
             rowValid = false;
-            results = (results == null ? new Vector<ValidationResult>() : results);
+            results = (results == null ? new ArrayList<ValidationResult>() : results);
             results.add(ValidationResult.failRow("empty", "Row is empty"));
         }
 
@@ -198,8 +185,9 @@ public class CleanseAndValidateRow implements Function<Row, CleansedRowResult> {
             for (int idx = 0; idx < dataTypes.length; idx++) {
                 //if the value is not able to match the invalid dataTypes and the datatype has changed then replace with original value
                 //the _invalid table dataTypes matches the source, not the destination
-                if (newValues[idx] == null || originalValues.get(idx) == null || newValues[idx].getClass() != originalValues.get(idx).getClass()) {
-                    newValues[idx] = originalValues.get(idx);
+                Object originalValue = getValue(row, idx);
+                if (newValues[idx] == null || originalValue == null || newValues[idx].getClass() != originalValue.getClass()) {
+                    newValues[idx] = originalValue;
                 }
                 //otherwise the data has changed, but its still the same data type so we can keep the newly changed value
 
@@ -228,102 +216,38 @@ public class CleanseAndValidateRow implements Function<Row, CleansedRowResult> {
         return schema;
     }
 
-    StandardizationAndValidationResult standardizeAndValidateField(FieldPolicy fieldPolicy, Object value, HCatDataType dataType, Map<Class, Class> validatorParamType) {
-        StandardizationAndValidationResult result = new StandardizationAndValidationResult(value);
-
-        List<BaseFieldPolicy> fieldPolicies = fieldPolicy.getAllPolicies();
-
-        int standardizerCount = 0;
-        for (BaseFieldPolicy p : fieldPolicies) {
-            if (p instanceof StandardizationPolicy) {
-                standardizerCount++;
-            }
-        }
-        boolean validateNullValues = false;
-        int processedStandardizers = 0;
-        for (BaseFieldPolicy p : fieldPolicies) {
-            boolean isEmpty = ((result.getFieldValue() == null) || (StringUtils.isEmpty(result.getFieldValue().toString())));
-            if (p instanceof StandardizationPolicy) {
-                processedStandardizers++;
-                StandardizationPolicy standardizationPolicy = (StandardizationPolicy) p;
-                boolean shouldStandardize = true;
-                if (isEmpty && !(standardizationPolicy instanceof AcceptsEmptyValues)) {
-                    shouldStandardize = false;
-                }
-
-                if (!standardizationPolicy.accepts(result.getFieldValue())) {
-                    shouldStandardize = false;
-                }
-
-                if (shouldStandardize) {
-                    Object newValue = standardizationPolicy.convertRawValue(result.getFieldValue());
-
-                    //If this is the last standardizer for this field and the standardized value is returned as a String, and target column is not String, then validate and convert it to correct type
-                    if (newValue != null && dataType.getConvertibleType() != newValue.getClass() && standardizerCount == processedStandardizers) {
-                        try {
-                            //Date and timestamp fields can be valid as strings
-                            boolean isValueOk = dataType.isStringValueValidForHiveType(newValue.toString());
-                            if (!isValueOk) {
-                                //if the current string is not in a correct format attempt to convert it
-                                try {
-                                    newValue = dataType.toNativeValue(newValue.toString());
-                                } catch (RuntimeException e) {
-                                    result.addValidationResult(ValidationResult
-                                                                   .failField("incompatible", dataType.getName(),
-                                                                              "Not convertible to " + dataType.getNativeType()));
-                                }
-                            }
-                        } catch (InvalidFormatException e) {
-                            log.warn("Could not convert value {} to correct type {}", newValue.toString(), dataType.getConvertibleType().getName());
-                        }
-                    }
-                    result.setFieldValue(newValue);
-                }
-            }
+    /**
+     * Standardizes and validates a single value against the specified field policy.
+     */
+    StandardizationAndValidationResult standardizeAndValidateField(FieldPolicy fieldPolicy, Object value, HCatDataType dataType) {
+        return new CompiledFieldPolicy(fieldPolicy, dataType).standardizeAndValidate(value);
+    }
 
-            if (p instanceof ValidationPolicy) {
-                ValidationPolicy validationPolicy = (ValidationPolicy) p;
-                //run through the validator if the value is not null, or if we are allowed to validate nulls based upon a previous
-                //not null validator
-                if (!isEmpty || validateNullValues || validationPolicy instanceof NotNullValidator) {
-                    ValidationResult validationResult = validateValue(validationPolicy, dataType, result.getFieldValue(), validatorParamType);
-                    if (isEmpty && validationPolicy instanceof NotNullValidator) {
-                        validateNullValues = validationPolicy != VALID_RESULT;
-                    }
-                    //only need to add those that are invalid
-                    if (validationResult != VALID_RESULT) {
-                        result.addValidationResult(validationResult);
-                        break; //exit out of processing if invalid records found.
-                    }
-                }
-                //reset the failOnEmpty flag back to false
-                if (!(validationPolicy instanceof NotNullValidator)) {
-                    validateNullValues = false;
+    /**
+     * Gets the field policies compiled for the target data types, or {@code null} for unchecked columns.
+     *
+     * <p>The policies are compiled on first use after this function is deserialized, which is once per partition.</p>
+     */
+    @Nonnull
+    private CompiledFieldPolicy[] getCompiledPolicies() {
+        if (compiledPolicies == null) {
+            final CompiledFieldPolicy[] compiled = new CompiledFieldPolicy[dataTypes.length];
+            for (int idx = 0; idx < dataTypes.length; idx++) {
+                if (!dataTypes[idx].isUnchecked()) {
+                    compiled[idx] = new CompiledFieldPolicy(policies[idx], dataTypes[idx]);
                 }
             }
-
+            compiledPolicies = compiled;
         }
-        ValidationResult finalValidationCheck = finalValidationCheck(fieldPolicy, dataType, result.getFieldValue());
-        if (finalValidationCheck != VALID_RESULT) {
-            result.addValidationResult(finalValidationCheck);
-        }
-
-        return result;
+        return compiledPolicies;
     }
 
     /**
-     * Perform validation using both dataTypes validation the validation policies
+     * Extracts the value at the specified index, allowing for null or missing fields.
      */
-    private ValidationResult finalValidationCheck(FieldPolicy fieldPolicy, HCatDataType fieldDataType, Object fieldValue) {
-
-        boolean isEmpty = ((fieldValue instanceof String && StringUtils.isEmpty((String) fieldValue)) || fieldValue == null);
-        if (!isEmpty && !fieldPolicy.shouldSkipSchemaValidation() && !fieldDataType.isValueConvertibleToType(fieldValue)) {
-            return ValidationResult
-                .failField("incompatible", fieldDataType.getName(),
-                           "Not convertible to " + fieldDataType.getNativeType());
-        }
-
-        return VALID_RESULT;
+    @Nullable
+    private static Object getValue(@Nonnull final Row row, final int idx) {
+        return (idx == row.length() || row.isNullAt(idx) ? null : row.get(idx));
     }
 
     /**
@@ -394,24 +318,6 @@ public class CleanseAndValidateRow implements Function<Row, CleansedRowResult> {
         return cols.toArray(new HCatDataType[0]);
     }
 
-    /* Resolve the type of param required by the validator. A cache is used to avoid cost of reflection */
-    private Class resolveValidatorParamType(ValidationPolicy validator, Map<Class, Class> validatorParamType) {
-        Class expectedParamClazz = validatorParamType.get(validator.getClass());
-        if (expectedParamClazz == null) {
-            // Cache for future references
-
-            Object t = validator.getClass().getGenericInterfaces()[0];
-            if (t instanceof ParameterizedType) {
-                ParameterizedType type = (ParameterizedType) t;
-                expectedParamClazz = (Class) type.getActualTypeArguments()[0];
-            } else {
-                expectedParamClazz = String.class;
-            }
-            validatorParamType.put(validator.getClass(), expectedParamClazz);
-        }
-        return expectedParamClazz;
-    }
-
     private String toJSONArray(List<ValidationResult> results) {
         // Convert to reject reasons to JSON
         StringBuilder sb = null;
@@ -429,29 +335,4 @@ public class CleanseAndValidateRow implements Function<Row, CleansedRowResult> {
         }
         return (sb == null ? "" : sb.toString());
     }
-
-    private ValidationResult validateValue(ValidationPolicy validator, HCatDataType fieldDataType, Object fieldValue, Map<Class, Class> validatorParamType) {
-        try {
-            // Resolve the type of parameter required by the validator. A cache is used to avoid cost of reflection.
-            Class expectedParamClazz = resolveValidatorParamType(validator, validatorParamType);
-            Object nativeValue = fieldValue;
-            if (expectedParamClazz != String.class && fieldValue instanceof String) {
-                nativeValue = fieldDataType.toNativeValue(fieldValue.toString());
-            }
-            if (!validator.validate(nativeValue)) {
-
-                //get any fields in this validator annotated with PolicyProperty
-
-                return ValidationResult
-                    .failFieldRule("rule", fieldDataType.getName(), validator.getClass().getSimpleName(),
-                                   "Rule violation");
-            }
-            return VALID_RESULT;
-        } catch (InvalidFormatException | ClassCastException e) {
-            return ValidationResult
-                .failField("incompatible", fieldDataType.getName(),
-                           "Not convertible to " + fieldDataType.getNativeType());
-        }
-
-    }
 }
@@ -0,0 +1,247 @@
+package com.thinkbiganalytics.spark.datavalidator.functions;
+
+/*-
+ * #%L
+ * kylo-spark-validate-cleanse-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.policy.BaseFieldPolicy;
+import com.thinkbiganalytics.policy.FieldPolicy;
+import com.thinkbiganalytics.policy.standardization.AcceptsEmptyValues;
+import com.thinkbiganalytics.policy.standardization.StandardizationPolicy;
+import com.thinkbiganalytics.policy.validation.NotNullValidator;
+import com.thinkbiganalytics.policy.validation.ValidationPolicy;
+import com.thinkbiganalytics.policy.validation.ValidationResult;
+import com.thinkbiganalytics.spark.datavalidator.StandardizationAndValidationResult;
+import com.thinkbiganalytics.spark.util.InvalidFormatException;
+import com.thinkbiganalytics.spark.validation.HCatDataType;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import static com.thinkbiganalytics.spark.datavalidator.StandardDataValidator.VALID_RESULT;
+
+/**
+ * The standardizers and validators of a field policy, resolved once for a target data type so that cleansing and validating a value requires no reflection.
+ *
+ * <p>Instances reuse their result buffer and are not thread-safe.</p>
+ */
+class CompiledFieldPolicy {
+
+    private static final Logger log = LoggerFactory.getLogger(CompiledFieldPolicy.class);
+
+    /**
+     * Target data type
+     */
+    @Nonnull
+    private final HCatDataType dataType;
+
+    /**
+     * Indicates if the target data type is binary
+     */
+    private final boolean binaryType;
+
+    /**
+     * Indicates if the schema validation is skipped for the field
+     */
+    private final boolean skipSchemaValidation;
+
+    /**
+     * Standardizers and validators in the order they are applied
+     */
+    @Nonnull
+    private final Step[] steps;
+
+    /**
+     * Result of the last value, reused for each value
+     */
+    @Nonnull
+    private final StandardizationAndValidationResult result = new StandardizationAndValidationResult(null);
+
+    CompiledFieldPolicy(@Nonnull final FieldPolicy fieldPolicy, @Nonnull final HCatDataType dataType) {
+        this.dataType = dataType;
+        this.binaryType = dataType.getConvertibleType().equals(byte[].class);
+        this.skipSchemaValidation = fieldPolicy.shouldSkipSchemaValidation();
+
+        final List<BaseFieldPolicy> fieldPolicies = fieldPolicy.getAllPolicies();
+        int lastStandardizer = -1;
+        for (int i = 0; i < fieldPolicies.size(); i++) {
+            if (fieldPolicies.get(i) instanceof StandardizationPolicy) {
+                lastStandardizer = i;
+            }
+        }
+
+        steps = new Step[fieldPolicies.size()];
+        for (int i = 0; i < steps.length; i++) {
+            steps[i] = new Step(fieldPolicies.get(i), i == lastStandardizer);
+        }
+    }
+
+    /**
+     * Indicates if the target data type is binary.
+     */
+    boolean isBinaryType() {
+        return binaryType;
+    }
+
+    /**
+     * Standardizes and validates the specified value.
+     *
+     * @param value the field value
+     * @return the result, which is only valid until the next call
+     */
+    @Nonnull
+    StandardizationAndValidationResult standardizeAndValidate(final Object value) {
+        result.reset(value);
+
+        boolean validateNullValues = false;
+        for (final Step step : steps) {
+            boolean isEmpty = ((result.getFieldValue() == null) || (StringUtils.isEmpty(result.getFieldValue().toString())));
+            if (step.standardizer != null) {
+                boolean shouldStandardize = !(isEmpty && !step.acceptsEmptyValues) && step.standardizer.accepts(result.getFieldValue());
+
+                if (shouldStandardize) {
+                    Object newValue = step.standardizer.convertRawValue(result.getFieldValue());
+
+                    //If this is the last standardizer for this field and the standardized value is returned as a String, and target column is not String, then validate and convert it to correct type
+                    if (newValue != null && dataType.getConvertibleType() != newValue.getClass() && step.lastStandardizer) {
+                        try {
+                            //Date and timestamp fields can be valid as strings
+                            boolean isValueOk = dataType.isStringValueValidForHiveType(newValue.toString());
+                            if (!isValueOk) {
+                                //if the current string is not in a correct format attempt to convert it
+                                try {
+                                    newValue = dataType.toNativeValue(newValue.toString());
+                                } catch (RuntimeException e) {
+                                    result.addValidationResult(ValidationResult
+                                                                   .failField("incompatible", dataType.getName(),
+                                                                              "Not convertible to " + dataType.getNativeType()));
+                                }
+                            }
+                        } catch (InvalidFormatException e) {
+                            log.warn("Could not convert value {} to correct type {}", newValue.toString(), dataType.getConvertibleType().getName());
+                        }
+                    }
+                    result.setFieldValue(newValue);
+                }
+            }
+
+            if (step.validator != null) {
+                //run through the validator if the value is not null, or if we are allowed to validate nulls based upon a previous
+                //not null validator
+                if (!isEmpty || validateNullValues || step.notNullValidator) {
+                    ValidationResult validationResult = validateValue(step, result.getFieldValue());
+                    if (isEmpty && step.notNullValidator) {
+                        validateNullValues = true;
+                    }
+                    //only need to add those that are invalid
+                    if (validationResult != VALID_RESULT) {
+                        result.addValidationResult(validationResult);
+                        break; //exit out of processing if invalid records found.
+                    }
+                }
+                //reset the failOnEmpty flag back to false
+                if (!step.notNullValidator) {
+                    validateNullValues = false;
+                }
+            }
+        }
+
+        ValidationResult finalValidationCheck = finalValidationCheck(result.getFieldValue());
+        if (finalValidationCheck != VALID_RESULT) {
+            result.addValidationResult(finalValidationCheck);
+        }
+        return result;
+    }
+
+    /**
+     * Perform validation using both dataTypes validation the validation policies
+     */
+    private ValidationResult finalValidationCheck(Object fieldValue) {
+        boolean isEmpty = ((fieldValue instanceof String && StringUtils.isEmpty((String) fieldValue)) || fieldValue == null);
+        if (!isEmpty && !skipSchemaValidation && !dataType.isValueConvertibleToType(fieldValue)) {
+            return ValidationResult
+                .failField("incompatible", dataType.getName(),
+                           "Not convertible to " + dataType.getNativeType());
+        }
+        return VALID_RESULT;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ValidationResult validateValue(Step step, Object fieldValue) {
+        try {
+            Object nativeValue = fieldValue;
+            if (step.validatorParamType != String.class && fieldValue instanceof String) {
+                nativeValue = dataType.toNativeValue(fieldValue.toString());
+            }
+            if (!step.validator.validate(nativeValue)) {
+                return ValidationResult
+                    .failFieldRule("rule", dataType.getName(), step.validator.getClass().getSimpleName(),
+                                   "Rule violation");
+            }
+            return VALID_RESULT;
+        } catch (InvalidFormatException | ClassCastException e) {
+            return ValidationResult
+                .failField("incompatible", dataType.getName(),
+                           "Not convertible to " + dataType.getNativeType());
+        }
+    }
+
+    /**
+     * A policy of the field with its type checks and validator parameter type resolved.
+     */
+    private static class Step {
+
+        final StandardizationPolicy standardizer;
+        final boolean acceptsEmptyValues;
+        final boolean lastStandardizer;
+
+        final ValidationPolicy validator;
+        final boolean notNullValidator;
+        final Class validatorParamType;
+
+        Step(BaseFieldPolicy policy, boolean lastStandardizer) {
+            this.standardizer = (policy instanceof StandardizationPolicy) ? (StandardizationPolicy) policy : null;
+            this.acceptsEmptyValues = policy instanceof AcceptsEmptyValues;
+            this.lastStandardizer = lastStandardizer;
+
+            this.validator = (policy instanceof ValidationPolicy) ? (ValidationPolicy) policy : null;
+            this.notNullValidator = policy instanceof NotNullValidator;
+            this.validatorParamType = (validator != null) ? resolveValidatorParamType(validator) : null;
+        }
+
+        /* Resolve the type of param required by the validator */
+        private static Class resolveValidatorParamType(ValidationPolicy validator) {
+            Type[] interfaces = validator.getClass().getGenericInterfaces();
+            if (interfaces.length > 0 && interfaces[0] instanceof ParameterizedType) {
+                Type paramType = ((ParameterizedType) interfaces[0]).getActualTypeArguments()[0];
+                if (paramType instanceof Class) {
+                    return (Class) paramType;
+                }
+            }
+            return String.class;
+        }
+    }
+}
@@ -32,25 +32,39 @@ import com.thinkbiganalytics.policy.validation.LookupValidator;
 import com.thinkbiganalytics.policy.validation.NotNullValidator;
 import com.thinkbiganalytics.policy.validation.RangeValidator;
 import com.thinkbiganalytics.policy.validation.ValidationResult;
+import com.thinkbiganalytics.spark.datavalidator.CleansedRowResult;
 import com.thinkbiganalytics.spark.datavalidator.StandardDataValidator;
 import com.thinkbiganalytics.spark.datavalidator.StandardizationAndValidationResult;
 import com.thinkbiganalytics.spark.validation.HCatDataType;
 
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.StructField;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class CleanseAndValidateRowTest {
 
+    private static final Logger log = LoggerFactory.getLogger(CleanseAndValidateRowTest.class);
+
+    /**
+     * Number of rows processed by the benchmark
+     */
+    private static final int BENCHMARK_ROWS = 200000;
+
     @SuppressWarnings("serial")
     private static final StandardizationPolicy ADD_ONE_STANDARDISATION_POLICY = new StandardizationPolicy() {
 
@@ -97,7 +111,7 @@ public class CleanseAndValidateRowTest {
         policies.add(validatorPolicy);
 
         FieldPolicy fieldPolicy = FieldPolicyBuilder.newBuilder().addPolicies(policies).tableName("emp").fieldName("field1").feedFieldName("field1").addPolicies(policies).build();
-        StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, value, HCatDataType.createFromDataType("field1", dataType), new HashMap<Class, Class>());
+        StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, value, HCatDataType.createFromDataType("field1", dataType));
         return result.getFinalValidationResult();
     }
 
@@ -110,13 +124,13 @@ public class CleanseAndValidateRowTest {
         FieldPolicy fieldPolicy = FieldPolicyBuilder.newBuilder().addPolicies(policies).tableName("emp").fieldName(fieldName).feedFieldName(fieldName).build();
 
         HCatDataType fieldDataType = HCatDataType.createFromDataType(fieldName, "string");
-        StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, "aafooaa", fieldDataType, new HashMap<Class, Class>());
+        StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, "aafooaa", fieldDataType);
         assertEquals(result.getFieldValue(), "aabaraa");
 
-        result = validator.standardizeAndValidateField(fieldPolicy, null, fieldDataType, new HashMap<Class, Class>());
+        result = validator.standardizeAndValidateField(fieldPolicy, null, fieldDataType);
         assertNull(result.getFieldValue());
 
-        result = validator.standardizeAndValidateField(fieldPolicy, "", fieldDataType, new HashMap<Class, Class>());
+        result = validator.standardizeAndValidateField(fieldPolicy, "", fieldDataType);
         assertEquals(result.getFieldValue(), "");
     }
 
@@ -133,7 +147,7 @@ public class CleanseAndValidateRowTest {
         FieldPolicy fieldPolicy = FieldPolicyBuilder.newBuilder().addPolicies(policies).tableName("emp").fieldName(fieldName).feedFieldName(fieldName).build();
 
         HCatDataType fieldDataType = HCatDataType.createFromDataType(fieldName, "string");
-        StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, "aafooaa", fieldDataType, new HashMap<Class, Class>());
+        StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, "aafooaa", fieldDataType);
         assertEquals(result.getFieldValue(), "aatestaa");
         assertEquals(StandardDataValidator.VALID_RESULT, result.getFinalValidationResult());
     }
@@ -150,7 +164,7 @@ public class CleanseAndValidateRowTest {
         FieldPolicy fieldPolicy = FieldPolicyBuilder.newBuilder().addPolicies(policies).tableName("emp").fieldName(fieldName).feedFieldName(fieldName).build();
 
         HCatDataType fieldDataType = HCatDataType.createFromDataType(fieldName, "string");
-        StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, "aafooaa", fieldDataType, new HashMap<Class, Class>());
+        StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, "aafooaa", fieldDataType);
         assertEquals("aabaraa", result.getFieldValue());
         assertNotEquals(StandardDataValidator.VALID_RESULT, result.getFinalValidationResult());
     }
@@ -167,7 +181,7 @@ public class CleanseAndValidateRowTest {
         FieldPolicy fieldPolicy = FieldPolicyBuilder.newBuilder().addPolicies(policies).tableName("emp").fieldName(fieldName).feedFieldName(fieldName).build();
 
         HCatDataType fieldDataType = HCatDataType.createFromDataType(fieldName, "string");
-        StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, null, fieldDataType, new HashMap<Class, Class>());
+        StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, null, fieldDataType);
         assertEquals(StandardDataValidator.VALID_RESULT, result.getFinalValidationResult());
 
     }
@@ -190,7 +204,7 @@ public class CleanseAndValidateRowTest {
         FieldPolicy fieldPolicy = FieldPolicyBuilder.newBuilder().addPolicies(policies).tableName("emp").fieldName(fieldName).feedFieldName(fieldName).build();
 
         HCatDataType fieldDataType = HCatDataType.createFromDataType(fieldName, "string");
-        StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, fieldValue, fieldDataType, new HashMap<Class, Class>());
+        StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, fieldValue, fieldDataType);
         assertEquals(StandardDataValidator.VALID_RESULT, result.getFinalValidationResult());
         assertEquals("test_field", result.getFieldValue());
 
@@ -209,7 +223,7 @@ public class CleanseAndValidateRowTest {
         policies.add(validatorPolicy);
         FieldPolicy fieldPolicy = FieldPolicyBuilder.newBuilder().addPolicies(policies).tableName("emp").fieldName("field1").feedFieldName("field1").build();
 
-        StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, value, HCatDataType.createFromDataType("field1", dataType), new HashMap<Class, Class>());
+        StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, value, HCatDataType.createFromDataType("field1", dataType));
         return result.getFinalValidationResult();
     }
 
@@ -224,9 +238,90 @@ public class CleanseAndValidateRowTest {
         FieldPolicy fieldPolicy = FieldPolicyBuilder.newBuilder().addPolicies(policies).tableName("temp").fieldName(fieldName).feedFieldName(fieldName).build();
 
         HCatDataType fieldDataType = HCatDataType.createFromDataType(fieldName, "int");
-        StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, 0, fieldDataType, new HashMap<Class, Class>());
+        StandardizationAndValidationResult result = validator.standardizeAndValidateField(fieldPolicy, 0, fieldDataType);
         assertEquals(2, result.getFieldValue());
         assertEquals(StandardDataValidator.VALID_RESULT, result.getFinalValidationResult());
     }
 
+
+    @Test
+    public void cleanseAndValidateRows() throws Exception {
+        CleanseAndValidateRow function = newRepresentativeFunction();
+
+        CleansedRowResult valid = function.call(RowFactory.create(" Foo ", "42", "ABC", "2017-01-01"));
+        assertTrue(valid.isRowValid());
+        assertEquals("foo", valid.getRow().get(0));
+        assertEquals("42", valid.getRow().get(1));
+        assertEquals("", valid.getRow().get(3));
+        assertEquals("2017-01-01", valid.getRow().get(4));
+
+        CleansedRowResult invalid = function.call(RowFactory.create(null, "500", "abc", "2017-01-01"));
+        assertFalse(invalid.isRowValid());
+        assertFalse(invalid.isColumnValid(0));
+        assertFalse(invalid.isColumnValid(1));
+        assertTrue(invalid.isColumnValid(3));
+        assertEquals("500", invalid.getRow().get(1));
+        assertTrue(invalid.getRow().getString(3).startsWith("["));
+
+        CleansedRowResult empty = function.call(RowFactory.create(null, null, null, null));
+        assertFalse(empty.isRowValid());
+    }
+
+    /**
+     * Rows/sec of cleansing and validating rows with representative policies. The field policies are compiled once and no reflection is done per row.
+     * Ignored as it is a benchmark rather than a unit test, remove the {@link Ignore} to run it.
+     */
+    @Test
+    @Ignore("benchmark, run by hand")
+    public void benchmarkRowsPerSecond() throws Exception {
+        CleanseAndValidateRow function = newRepresentativeFunction();
+        Row[] rows = new Row[]{
+            RowFactory.create(" Foo ", "42", "ABC", "2017-01-01"),
+            RowFactory.create("bar", "7", "abc", "2017-02-01"),
+            RowFactory.create(null, "500", "DEF", "2017-03-01")
+        };
+
+        // warm up
+        for (int i = 0; i < BENCHMARK_ROWS / 10; i++) {
+            function.call(rows[i % rows.length]);
+        }
+
+        long validRows = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_ROWS; i++) {
+            if (function.call(rows[i % rows.length]).isRowValid()) {
+                validRows++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        log.info("cleansed and validated {} rows/sec", (long) (BENCHMARK_ROWS / (elapsed / 1e9)));
+        assertEquals(BENCHMARK_ROWS / rows.length + (BENCHMARK_ROWS % rows.length > 0 ? 1 : 0), validRows);
+    }
+
+    private CleanseAndValidateRow newRepresentativeFunction() {
+        List<BaseFieldPolicy> namePolicies = new ArrayList<>();
+        namePolicies.add(new NotNullValidator(false, true));
+        namePolicies.add(new SimpleRegexReplacer("\\s+", ""));
+        namePolicies.add(LowercaseStandardizer.instance());
+
+        List<BaseFieldPolicy> quantityPolicies = new ArrayList<>();
+        quantityPolicies.add(new RangeValidator(1, 100));
+
+        List<BaseFieldPolicy> codePolicies = new ArrayList<>();
+        codePolicies.add(new CharacterValidator("UPPERCASE"));
+
+        FieldPolicy[] policies = new FieldPolicy[]{
+            FieldPolicyBuilder.newBuilder().addPolicies(namePolicies).tableName("emp").fieldName("name").feedFieldName("name").build(),
+            FieldPolicyBuilder.newBuilder().addPolicies(quantityPolicies).tableName("emp").fieldName("quantity").feedFieldName("quantity").build(),
+            FieldPolicyBuilder.newBuilder().addPolicies(codePolicies).tableName("emp").fieldName("code").feedFieldName("code").build(),
+            FieldPolicyBuilder.newBuilder().tableName("emp").fieldName(CleanseAndValidateRow.PROCESSING_DTTM_COL).feedFieldName(CleanseAndValidateRow.PROCESSING_DTTM_COL).build()
+        };
+        StructField[] fields = new StructField[]{
+            DataTypes.createStructField("name", DataTypes.StringType, true),
+            DataTypes.createStructField("quantity", DataTypes.IntegerType, true),
+            DataTypes.createStructField("code", DataTypes.StringType, true),
+            DataTypes.createStructField(CleanseAndValidateRow.PROCESSING_DTTM_COL, DataTypes.StringType, true)
+        };
+        return new CleanseAndValidateRow(policies, fields);
+    }
 }
@@ -0,0 +1,83 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * kylo-spark-validate-cleanse-spark-v2
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.typesafe.config.Config;
+
+import org.apache.spark.sql.hive.HiveContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import spark.jobserver.api.JobEnvironment;
+import spark.jobserver.japi.JHiveJob;
+
+/**
+ * Runs the {@link Validator} as a job within a long-lived Spark Jobserver context.
+ *
+ * <p>The context should be created with the {@code JAVA_HIVE_CONTEXT} type. The job configuration must contain an {@code args} list with the same arguments accepted by
+ * {@link Validator#main(String[])}, for example: {@code args = ["db", "table", "1", "/path/to/policy.json"]}</p>
+ *
+ * <p>Each job runs in its own Hive session and Spring context so {@code --hiveConf} settings of one job are not seen by the next.</p>
+ */
+public class ValidatorJob implements JHiveJob<Integer> {
+
+    private static final long serialVersionUID = -8165453196584236632L;
+
+    /**
+     * Name of the configuration property containing the command-line arguments
+     */
+    static final String ARGS = "args";
+
+    @Override
+    public Integer run(@Nonnull final HiveContext hiveContext, @Nonnull final JobEnvironment runtime, @Nonnull final Config config) {
+        final List<String> args = config.getStringList(ARGS);
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final PrintStream out = new PrintStream(buffer, true);
+
+        final AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext("com.thinkbiganalytics.spark");
+        final int result;
+        try {
+            result = new Validator().run(ctx, hiveContext.newSession(), out, args.toArray(new String[args.size()]));
+        } finally {
+            ctx.close();
+        }
+        if (result != 0) {
+            throw new IllegalArgumentException(new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+
+    @Nonnull
+    @Override
+    public Config verify(@Nonnull final HiveContext hiveContext, @Nonnull final JobEnvironment runtime, @Nonnull final Config config) {
+        if (!config.hasPath(ARGS)) {
+            throw new IllegalArgumentException("Missing required job configuration: " + ARGS);
+        }
+        return config;
+    }
+}
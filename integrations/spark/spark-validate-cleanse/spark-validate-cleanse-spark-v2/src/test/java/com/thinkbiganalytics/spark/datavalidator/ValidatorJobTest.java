@@ -0,0 +1,76 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * kylo-spark-validate-cleanse-spark-v2
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+
+import org.apache.spark.sql.hive.HiveContext;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+
+import spark.jobserver.api.JobEnvironment;
+
+public class ValidatorJobTest {
+
+    /**
+     * Verify a job configuration with arguments is accepted.
+     */
+    @Test
+    public void verify() {
+        final Config config = ConfigFactory.empty().withValue(ValidatorJob.ARGS, ConfigValueFactory.fromIterable(Arrays.asList("db", "table", "1", "/policy.json")));
+        Assert.assertSame(config, new ValidatorJob().verify(Mockito.mock(HiveContext.class), Mockito.mock(JobEnvironment.class), config));
+    }
+
+    /**
+     * Verify a job configuration without arguments is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyWithoutArgs() {
+        new ValidatorJob().verify(Mockito.mock(HiveContext.class), Mockito.mock(JobEnvironment.class), ConfigFactory.empty());
+    }
+
+    /**
+     * Verify the job fails with the usage message when the arguments are invalid, without changing the shared Hive context.
+     */
+    @Test
+    public void runWithInvalidArgs() {
+        final HiveContext hiveContext = Mockito.mock(HiveContext.class);
+        final HiveContext session = Mockito.mock(HiveContext.class);
+        Mockito.when(hiveContext.newSession()).thenReturn(session);
+        final Config config = ConfigFactory.empty().withValue(ValidatorJob.ARGS, ConfigValueFactory.fromIterable(Arrays.asList("db", "table")));
+
+        try {
+            new ValidatorJob().run(hiveContext, Mockito.mock(JobEnvironment.class), config);
+            Assert.fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("Proper Usage is: <targetDatabase> <entity> <partition> <path-to-policy-file>"));
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("You provided 2 args"));
+        }
+
+        Mockito.verify(hiveContext).newSession();
+        Mockito.verify(hiveContext, Mockito.never()).setConf(Mockito.anyString(), Mockito.anyString());
+    }
+}
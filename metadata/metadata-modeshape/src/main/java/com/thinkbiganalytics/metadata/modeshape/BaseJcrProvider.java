@@ -31,6 +31,8 @@ import com.thinkbiganalytics.metadata.modeshape.support.JcrUtil;
 
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang3.reflect.ConstructorUtils;
+import org.joda.time.DateTime;
+import org.joda.time.format.ISODateTimeFormat;
 import org.modeshape.jcr.api.JcrTools;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,10 +43,14 @@ import org.springframework.data.domain.Sort;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.StreamSupport;
 
@@ -69,6 +75,11 @@ public abstract class BaseJcrProvider<T, PK extends Serializable> implements Bas
     protected Class<T> entityClass;
     protected Class<? extends JcrEntity> jcrEntityClass;
 
+    /**
+     * Factories that construct entities from their nodes without reflection, keyed by entity class
+     */
+    private final Map<Class<?>, Function<Node, ?>> entityFactories = new ConcurrentHashMap<>();
+
     protected String getEntityQueryStartingPath() {
         return null;
     }
@@ -78,6 +89,17 @@ public abstract class BaseJcrProvider<T, PK extends Serializable> implements Bas
         this.jcrEntityClass = getJcrEntityClass();
     }
 
+    /**
+     * Registers a factory used to construct entities of the given type from their nodes.  Types without a
+     * registered factory are constructed reflectively using their {@code (Node)} constructor.
+     *
+     * @param type    the entity class
+     * @param factory creates an entity from its node
+     */
+    protected <E> void registerEntityFactory(Class<E> type, Function<Node, ? extends E> factory) {
+        this.entityFactories.put(type, factory);
+    }
+
     protected Session getSession() {
         return JcrMetadataAccess.getActiveSession();
     }
@@ -218,7 +240,13 @@ public abstract class BaseJcrProvider<T, PK extends Serializable> implements Bas
     }
 
     protected <T extends JcrObject> T constructEntity(Node node, Class<T> entityClass) {
-        return JcrUtil.createJcrObject(node, entityClass);
+        Function<Node, ?> factory = this.entityFactories.get(entityClass);
+
+        if (factory != null) {
+            return entityClass.cast(factory.apply(node));
+        } else {
+            return JcrUtil.createJcrObject(node, entityClass);
+        }
     }
 
     public List<T> findWithExplainPlan(String queryExpression) {
@@ -274,6 +302,13 @@ public abstract class BaseJcrProvider<T, PK extends Serializable> implements Bas
 
             if (result != null) {
                 RowIterator rowItr = result.getRows();
+                long size = rowItr.getSize();
+
+                // ModeShape reports the size when it is known from the indexes; only walk the rows when it is not.
+                // Either way rows the session cannot read must not be counted (see JcrFeedAllowedActionsTest#testCountOnlyOwnFeeds).
+                if (size >= 0) {
+                    return (int) size;
+                }
 
                 while (rowItr.hasNext()) {
                     rowItr.nextRow();
@@ -291,9 +326,11 @@ public abstract class BaseJcrProvider<T, PK extends Serializable> implements Bas
         return () -> {
             return StreamSupport.stream(findIterableNodes(query).spliterator(), false)
                 .map(node -> {
+                    Function<Node, ?> factory = this.entityFactories.get(resultClass);
+
                     try {
                         @SuppressWarnings("unchecked")
-                        D entity = (D) ConstructorUtils.invokeConstructor(resultClass, node);
+                        D entity = (D) (factory != null ? factory.apply(node) : ConstructorUtils.invokeConstructor(resultClass, node));
                         return entity;
                     } catch (Exception e) {
                         throw new MetadataRepositoryException("Failed to create entity: " + resultClass, e);
@@ -387,25 +424,74 @@ public abstract class BaseJcrProvider<T, PK extends Serializable> implements Bas
         return find(getFindAllQuery().toString());
     }
 
+    /**
+     * Finds a page of entities.  The page is queried first; the total is only counted when it cannot be
+     * derived from the page itself, i.e. when the page is full or lies past the end of the results.
+     */
     @Override
     public Page<T> findPage(Pageable pageable, String filter) {
-        int count = findCount(filter);
+        StringBuilder bldr = startBaseQuery();
+        appendJoins(bldr, pageable, filter);
+        appendFilter(bldr, filter);
+        appendSort(bldr, pageable);
+        appendOffset(bldr, pageable);
 
-        if (count > 0) {
-            StringBuilder bldr = startBaseQuery();
-            appendJoins(bldr, pageable, filter);
-            appendFilter(bldr, filter);
-            appendSort(bldr, pageable);
-            appendOffset(bldr, pageable);
+        String query = bldr.toString();
+        List<T> list = find(query);
 
-            String query = bldr.toString();
-            List<T> list = find(query);
-            return new PageImpl<>(list, pageable, count);
-        } else {
+        if (!list.isEmpty() && list.size() < pageable.getPageSize()) {
+            return new PageImpl<>(list, pageable, pageable.getOffset() + list.size());
+        } else if (list.isEmpty() && pageable.getOffset() == 0) {
             return new PageImpl<T>(Collections.emptyList());
+        } else {
+            int count = findCount(filter);
+            return count > 0 ? new PageImpl<>(list, pageable, count) : new PageImpl<T>(Collections.emptyList());
         }
     }
 
+    /**
+     * Finds the entities that follow the given position in the sort order of the pageable, using keyset (seek)
+     * paging rather than an offset.  The values are those of the sort properties of the last entity of the
+     * previous page, in the order of the sort.  The page number of the pageable is ignored; only its size
+     * and sort are used.  The sort should end in a property that is unique across the entities, otherwise
+     * entities sharing the last sort value of a page will be skipped.
+     * <p>
+     * This is for callers that walk the pages in order.  The feeds listing keeps using {@link #findPage(Pageable, String)}
+     * as its REST API and table are addressed by page number and may jump to any page, for which the sort values
+     * of the previous page are not known without reading it; its cost is instead bounded by only counting the
+     * total when needed.
+     *
+     * @param pageable    the page size and sort
+     * @param filter      the filter to apply, if any
+     * @param afterValues the sort property values of the last entity of the previous page
+     * @return the entities following the position
+     */
+    public List<T> findAfter(Pageable pageable, String filter, List<?> afterValues) {
+        List<Sort.Order> orders = pageable.getSort() != null ? Lists.newArrayList(pageable.getSort()) : Collections.emptyList();
+
+        if (orders.isEmpty()) {
+            throw new IllegalArgumentException("Keyset paging requires a sort");
+        } else if (afterValues.size() != orders.size()) {
+            throw new IllegalArgumentException("Expected " + orders.size() + " sort values but found: " + afterValues);
+        }
+
+        StringBuilder filterBldr = new StringBuilder();
+        appendFilter(filterBldr, filter);
+        String filterExpr = filterBldr.toString().trim().replaceFirst("(?i)^WHERE\\s+", "");
+
+        StringBuilder bldr = startBaseQuery();
+        appendJoins(bldr, pageable, filter);
+        bldr.append("WHERE ");
+        if (!filterExpr.isEmpty()) {
+            bldr.append("(").append(filterExpr).append(") AND ");
+        }
+        appendKeyset(bldr, orders, afterValues);
+        appendSort(bldr, pageable);
+        bldr.append(" LIMIT ").append(pageable.getPageSize());
+
+        return find(bldr.toString());
+    }
+
     @Override
     public T create(T t) {
         try {
@@ -514,8 +600,8 @@ public abstract class BaseJcrProvider<T, PK extends Serializable> implements Bas
             for (Sort.Order order : pageable.getSort()) {
                 if (!first) {
                     bldr.append(", ");
-                    first = false;
                 }
+                first = false;
 
                 String jcrPropName = deriveJcrPropertyName(order.getProperty());
                 bldr.append(jcrPropName).append(" ").append(order.getDirection()).append(" NULLS LAST ");
@@ -523,6 +609,51 @@ public abstract class BaseJcrProvider<T, PK extends Serializable> implements Bas
         }
     }
 
+    /**
+     * Appends the condition selecting the rows that sort after the given values, i.e.
+     * {@code (p1 > v1) OR (p1 = v1 AND p2 > v2) OR ...}, so that the sort properties' indexes can seek to the
+     * position rather than skipping over an offset.
+     */
+    protected void appendKeyset(StringBuilder bldr, List<Sort.Order> orders, List<?> afterValues) {
+        bldr.append("(");
+        for (int i = 0; i < orders.size(); i++) {
+            if (i > 0) {
+                bldr.append(" OR ");
+            }
+            bldr.append("(");
+            for (int j = 0; j < i; j++) {
+                bldr.append(deriveJcrPropertyName(orders.get(j).getProperty())).append(" = ").append(toQueryLiteral(afterValues.get(j))).append(" AND ");
+            }
+
+            Sort.Order order = orders.get(i);
+            bldr.append(deriveJcrPropertyName(order.getProperty()))
+                .append(order.isAscending() ? " > " : " < ")
+                .append(toQueryLiteral(afterValues.get(i)))
+                .append(")");
+        }
+        bldr.append(") ");
+    }
+
+    /**
+     * Converts a value to a JCR-SQL2 literal that can be compared against a property.
+     */
+    protected String toQueryLiteral(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Keyset paging does not support null sort values");
+        } else if (value instanceof Long || value instanceof Integer) {
+            return "CAST('" + value + "' AS LONG)";
+        } else if (value instanceof Number) {
+            return "CAST('" + value + "' AS DOUBLE)";
+        } else if (value instanceof Boolean) {
+            return "CAST('" + value + "' AS BOOLEAN)";
+        } else if (value instanceof DateTime || value instanceof Date || value instanceof Calendar) {
+            DateTime time = value instanceof Calendar ? new DateTime(((Calendar) value).getTimeInMillis()) : new DateTime(value);
+            return "CAST('" + ISODateTimeFormat.dateTime().print(time) + "' AS DATE)";
+        } else {
+            return "'" + value.toString().replace("'", "''") + "'";
+        }
+    }
+
     /**
      * Derives what actual JCR node property name corresponds to the given property name.
      * Subclasses should override this to return the appropriate JCR property name associated
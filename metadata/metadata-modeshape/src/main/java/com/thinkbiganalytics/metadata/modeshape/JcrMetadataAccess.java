@@ -49,6 +49,7 @@ import java.security.Principal;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -113,6 +114,9 @@ public class JcrMetadataAccess implements MetadataAccess {
     @Inject
     private TransactionManagerLookup txnLookup;
 
+    @Inject
+    private Optional<JcrSessionPool> sessionPool = Optional.empty();
+
 
     public static boolean hasActiveSession() {
         return activeSession.get() != null;
@@ -128,6 +132,15 @@ public class JcrMetadataAccess implements MetadataAccess {
         }
     }
     
+    /**
+     * Indicates whether the active session was started by {@link #read(Credentials, MetadataCommand)}.
+     * Read-only sessions are never saved so they do not track checked out nodes or post-transaction actions.
+     */
+    public static boolean isActiveSessionReadOnly() {
+        ActiveSession active = activeSession.get();
+        return active != null && active.readOnly;
+    }
+
     public static UsernamePrincipal getActiveUser() {
         ActiveSession active = activeSession.get();
 
@@ -152,6 +165,14 @@ public class JcrMetadataAccess implements MetadataAccess {
      */
     public static void ensureCheckoutNode(Node n) {
         try {
+            if (isActiveSessionReadOnly()) {
+                // Any change is discarded at the end of a read so the node never needs to be checked back in
+                if (!n.isCheckedOut()) {
+                    JcrVersionUtil.checkout(n);
+                }
+                return;
+            }
+
             if (!n.isCheckedOut() || (n.isNew() && !checkedOutNodes.get().contains(n))) {
                 log.debug("***** checking out node: {}", n);
             }
@@ -179,7 +200,15 @@ public class JcrMetadataAccess implements MetadataAccess {
     }
 
     public static void addPostTransactionAction(Consumer<Boolean> action) {
-        postTransactionActions.get().add(action);
+        if (isActiveSessionReadOnly()) {
+            log.debug("Ignoring post-transaction action added within a read-only session: {}", action);
+        } else {
+            postTransactionActions.get().add(action);
+        }
+    }
+
+    public void setSessionPool(JcrSessionPool sessionPool) {
+        this.sessionPool = Optional.ofNullable(sessionPool);
     }
 
     /* (non-Javadoc)
@@ -231,9 +260,10 @@ public class JcrMetadataAccess implements MetadataAccess {
 
         if (active == null) {
             try {
-                activeSession.set(new ActiveSession(this.repository.login(creds)));
+                activeSession.set(openSession(creds, false));
 
                 TransactionManager txnMgr = this.txnLookup.getTransactionManager();
+                boolean committed = false;
 
                 try {
                     txnMgr.begin();
@@ -243,6 +273,7 @@ public class JcrMetadataAccess implements MetadataAccess {
                     activeSession.get().session.save();
                     checkinNodes();
                     txnMgr.commit();
+                    committed = true;
                     performPostTransactionActions(true);
                     return result;
                 } catch (Exception e) {
@@ -267,7 +298,8 @@ public class JcrMetadataAccess implements MetadataAccess {
 
                     throw e;
                 } finally {
-                    activeSession.get().session.logout();
+                    // A session whose transaction failed is not reused
+                    closeSession(activeSession.get(), committed);
                     activeSession.remove();
                     postTransactionActions.remove();
                     checkedOutNodes.remove();
@@ -320,7 +352,7 @@ public class JcrMetadataAccess implements MetadataAccess {
 
         if (session == null) {
             try {
-                activeSession.set(new ActiveSession(this.repository.login(creds)));
+                activeSession.set(openSession(creds, true));
 
                 TransactionManager txnMgr = this.txnLookup.getTransactionManager();
 
@@ -335,8 +367,8 @@ public class JcrMetadataAccess implements MetadataAccess {
                         log.error("Failed to rollback transaction", e);
                     }
 
-                    activeSession.get().session.refresh(false);
-                    activeSession.get().session.logout();
+                    // Closing the session discards anything changed during the read
+                    closeSession(activeSession.get(), true);
                     activeSession.remove();
                 }
             } catch (SystemException | NotSupportedException | RepositoryException e) {
@@ -380,6 +412,31 @@ public class JcrMetadataAccess implements MetadataAccess {
         }
     }
 
+    /**
+     * Borrows a session from the pool, if one is configured, otherwise logs in a new session.
+     */
+    private ActiveSession openSession(Credentials creds, boolean readOnly) throws RepositoryException {
+        if (this.sessionPool.isPresent()) {
+            JcrSessionPool pool = this.sessionPool.get();
+            return new ActiveSession(pool, pool.borrow(this.repository, creds), readOnly);
+        } else {
+            return new ActiveSession(this.repository.login(creds), readOnly);
+        }
+    }
+
+    /**
+     * Returns the session to the pool or logs it out.
+     *
+     * @param reusable false if the session should not be returned to the pool
+     */
+    private void closeSession(ActiveSession active, boolean reusable) {
+        if (active.pool != null) {
+            active.pool.release(active.pooled, reusable);
+        } else {
+            active.session.logout();
+        }
+    }
+
     /**
      * Invokes all of the post-commit consumers; passing the transaction success flag to each.
      *
@@ -411,10 +468,24 @@ public class JcrMetadataAccess implements MetadataAccess {
     private static class ActiveSession {
         private final Session session;
         private final UsernamePrincipal userPrincipal;
+        private final JcrSessionPool pool;
+        private final JcrSessionPool.PooledSession pooled;
+        private final boolean readOnly;
         
-        public ActiveSession(Session sess) {
+        public ActiveSession(Session sess, boolean readOnly) {
             this.session = sess;
             this.userPrincipal = new UsernamePrincipal(sess.getUserID());
+            this.pool = null;
+            this.pooled = null;
+            this.readOnly = readOnly;
+        }
+
+        public ActiveSession(JcrSessionPool pool, JcrSessionPool.PooledSession pooled, boolean readOnly) {
+            this.session = pooled.getSession();
+            this.userPrincipal = new UsernamePrincipal(this.session.getUserID());
+            this.pool = pool;
+            this.pooled = pooled;
+            this.readOnly = readOnly;
         }
     }
 
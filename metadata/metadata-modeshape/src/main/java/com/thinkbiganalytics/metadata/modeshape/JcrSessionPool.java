@@ -0,0 +1,323 @@
+/**
+ *
+ */
+package com.thinkbiganalytics.metadata.modeshape;
+
+/*-
+ * #%L
+ * thinkbig-metadata-modeshape
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.modeshape.security.OverrideCredentials;
+import com.thinkbiganalytics.metadata.modeshape.security.SpringAuthenticationCredentials;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.jaas.JaasGrantedAuthority;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jcr.Credentials;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+/**
+ * Keeps idle JCR sessions so that {@link JcrMetadataAccess} does not need to log in to the repository for every transaction.
+ *
+ * Sessions are pooled by the set of principals they were logged in with, so a session is only ever reused for credentials
+ * that would have produced the same security context.  A session is reset with {@code refresh(false)} before it is returned
+ * to the pool and is discarded instead if it still has pending changes or lock tokens, or if the transaction using it failed.
+ * Credentials whose principals cannot be determined are never pooled.
+ */
+public class JcrSessionPool {
+
+    private static final Logger log = LoggerFactory.getLogger(JcrSessionPool.class);
+
+    private final int maxIdlePerKey;
+    private final int maxIdle;
+    private final long idleTimeoutMillis;
+
+    private final Map<Set<Object>, Deque<IdleSession>> idleSessions = new ConcurrentHashMap<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicLong lastEviction = new AtomicLong(System.currentTimeMillis());
+
+    private final AtomicLong logins = new AtomicLong();
+    private final AtomicLong reuses = new AtomicLong();
+    private final AtomicLong discards = new AtomicLong();
+
+    /**
+     * @param maxIdlePerKey     the maximum idle sessions kept for a single set of principals
+     * @param maxIdle           the maximum idle sessions kept in total; 0 disables pooling
+     * @param idleTimeoutMillis how long a session may stay idle before it is logged out
+     */
+    public JcrSessionPool(int maxIdlePerKey, int maxIdle, long idleTimeoutMillis) {
+        this.maxIdlePerKey = Math.max(0, maxIdlePerKey);
+        this.maxIdle = Math.max(0, maxIdle);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Returns an idle session logged in with the same principals as the credentials, or logs in a new one.
+     */
+    public PooledSession borrow(Repository repository, Credentials creds) throws RepositoryException {
+        Set<Object> key = this.maxIdle > 0 ? keyOf(creds) : null;
+
+        if (key != null) {
+            Deque<IdleSession> deque = this.idleSessions.get(key);
+            IdleSession idle = deque != null ? deque.pollFirst() : null;
+
+            while (idle != null) {
+                this.idleCount.decrementAndGet();
+
+                if (!idle.isExpired(System.currentTimeMillis()) && idle.session.isLive()) {
+                    this.reuses.incrementAndGet();
+                    return new PooledSession(idle.session, key);
+                }
+
+                logout(idle.session);
+                idle = deque.pollFirst();
+            }
+        }
+
+        this.logins.incrementAndGet();
+        return new PooledSession(repository.login(creds), key);
+    }
+
+    /**
+     * Returns the session to the pool, or logs it out if it cannot be reused.
+     *
+     * @param pooled   the session being released
+     * @param reusable false if the transaction using the session failed, in which case the session is always logged out
+     */
+    public void release(PooledSession pooled, boolean reusable) {
+        Session session = pooled.getSession();
+
+        if (reusable && pooled.key != null && reset(session)) {
+            IdleSession idle = new IdleSession(session);
+            boolean[] added = {false};
+
+            this.idleSessions.compute(pooled.key, (key, deque) -> {
+                Deque<IdleSession> sessions = deque != null ? deque : new ConcurrentLinkedDeque<>();
+
+                if (sessions.size() < this.maxIdlePerKey) {
+                    if (this.idleCount.incrementAndGet() <= this.maxIdle) {
+                        sessions.offerFirst(idle);
+                        added[0] = true;
+                    } else {
+                        this.idleCount.decrementAndGet();
+                    }
+                }
+
+                return sessions.isEmpty() ? null : sessions;
+            });
+
+            if (!added[0]) {
+                logout(session);
+            }
+        } else {
+            this.discards.incrementAndGet();
+            logout(session);
+        }
+
+        evictExpired();
+    }
+
+    /**
+     * Logs out all of the idle sessions.
+     */
+    public void close() {
+        for (Set<Object> key : this.idleSessions.keySet()) {
+            this.idleSessions.computeIfPresent(key, (k, deque) -> {
+                for (IdleSession idle = deque.pollFirst(); idle != null; idle = deque.pollFirst()) {
+                    this.idleCount.decrementAndGet();
+                    logout(idle.session);
+                }
+                return null;
+            });
+        }
+    }
+
+    public int getIdleCount() {
+        return this.idleCount.get();
+    }
+
+    public long getLoginCount() {
+        return this.logins.get();
+    }
+
+    public long getReuseCount() {
+        return this.reuses.get();
+    }
+
+    public long getDiscardCount() {
+        return this.discards.get();
+    }
+
+    @Override
+    public String toString() {
+        return "JcrSessionPool[idle=" + getIdleCount() + ", logins=" + getLoginCount() + ", reuses=" + getReuseCount() + ", discards=" + getDiscardCount() + "]";
+    }
+
+    /**
+     * The principals the credentials log in with, or null if the session should not be pooled.
+     */
+    protected Set<Object> keyOf(Credentials creds) {
+        Set<Object> key = new HashSet<>();
+
+        if (creds instanceof OverrideCredentials) {
+            OverrideCredentials override = (OverrideCredentials) creds;
+            key.add(override.getUserPrincipal());
+            key.addAll(override.getRolePrincipals());
+            return key;
+        } else if (creds instanceof SpringAuthenticationCredentials) {
+            SpringAuthenticationCredentials spring = (SpringAuthenticationCredentials) creds;
+            Authentication auth = spring.getAuthentication();
+
+            if (auth == null || auth.getName() == null) {
+                return null;
+            }
+
+            // The user name is kept distinct from the granted authorities, which could share a name
+            key.add(new UserKey(auth.getName()));
+            for (GrantedAuthority grant : auth.getAuthorities()) {
+                key.add(grant instanceof JaasGrantedAuthority ? ((JaasGrantedAuthority) grant).getPrincipal() : grant.getAuthority());
+            }
+            if (spring.getPrincipals() != null) {
+                key.addAll(spring.getPrincipals());
+            }
+            return key;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Discards any changes and cached state in the session so that it can be handed to the next transaction.
+     *
+     * @return true if the session is clean and can be reused
+     */
+    private boolean reset(Session session) {
+        try {
+            if (!session.isLive()) {
+                return false;
+            }
+
+            session.refresh(false);
+            return !session.hasPendingChanges() && session.getWorkspace().getLockManager().getLockTokens().length == 0;
+        } catch (RepositoryException | RuntimeException e) {
+            log.debug("Unable to reset the JCR session for reuse", e);
+            return false;
+        }
+    }
+
+    /**
+     * Logs out the sessions that have been idle longer than the timeout.  This is done at most twice per timeout period.
+     */
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        long last = this.lastEviction.get();
+
+        if (now - last < this.idleTimeoutMillis / 2 || !this.lastEviction.compareAndSet(last, now)) {
+            return;
+        }
+
+        for (Set<Object> key : this.idleSessions.keySet()) {
+            this.idleSessions.computeIfPresent(key, (k, deque) -> {
+                for (Iterator<IdleSession> itr = deque.descendingIterator(); itr.hasNext(); ) {
+                    IdleSession idle = itr.next();
+
+                    if (idle.isExpired(now) && deque.removeLastOccurrence(idle)) {
+                        this.idleCount.decrementAndGet();
+                        logout(idle.session);
+                    }
+                }
+                return deque.isEmpty() ? null : deque;
+            });
+        }
+    }
+
+    private void logout(Session session) {
+        try {
+            session.logout();
+        } catch (RuntimeException e) {
+            log.debug("Failed to log out the JCR session", e);
+        }
+    }
+
+    /**
+     * A session borrowed from the pool along with the principals it was logged in with.
+     */
+    public static class PooledSession {
+
+        private final Session session;
+        private final Set<Object> key;
+
+        private PooledSession(Session session, Set<Object> key) {
+            this.session = session;
+            this.key = key;
+        }
+
+        public Session getSession() {
+            return session;
+        }
+    }
+
+    private class IdleSession {
+
+        private final Session session;
+        private final long idleSince = System.currentTimeMillis();
+
+        private IdleSession(Session session) {
+            this.session = session;
+        }
+
+        private boolean isExpired(long now) {
+            return idleTimeoutMillis > 0 && now - this.idleSince > idleTimeoutMillis;
+        }
+    }
+
+    private static class UserKey {
+
+        private final String name;
+
+        private UserKey(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof UserKey && this.name.equals(((UserKey) obj).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.name.hashCode();
+        }
+    }
+}
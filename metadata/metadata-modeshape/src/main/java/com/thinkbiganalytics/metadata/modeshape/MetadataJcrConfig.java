@@ -56,9 +56,12 @@ import com.thinkbiganalytics.search.api.Search;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import javax.inject.Inject;
 import javax.jcr.Repository;
 import javax.jcr.RepositoryException;
 import javax.jcr.observation.Event;
@@ -70,6 +73,9 @@ import javax.jcr.observation.ObservationManager;
 @Configuration
 public class MetadataJcrConfig {
 
+    @Inject
+    private Environment environment;
+
     @Bean
     public UserProvider userProvider() {
         // TODO consider moving this to its own configuration, and perhaps the whole user management 
@@ -152,6 +158,14 @@ public class MetadataJcrConfig {
         return new JcrMetadataAccess();
     }
 
+    @Bean(destroyMethod = "close")
+    public JcrSessionPool jcrSessionPool() {
+        int maxIdle = environment.getProperty("modeshape.session.pool.max-idle", Integer.class, 64);
+        int maxIdlePerPrincipals = environment.getProperty("modeshape.session.pool.max-idle-per-principals", Integer.class, 8);
+        long idleTimeoutSec = environment.getProperty("modeshape.session.pool.idle-timeout-sec", Long.class, 300L);
+        return new JcrSessionPool(maxIdlePerPrincipals, maxIdle, TimeUnit.SECONDS.toMillis(idleTimeoutSec));
+    }
+
     @Bean(initMethod = "configure")
     public MetadataJcrConfigurator jcrConfigurator(List<PostMetadataConfigAction> postConfigActions) {
         return new MetadataJcrConfigurator(postConfigActions);
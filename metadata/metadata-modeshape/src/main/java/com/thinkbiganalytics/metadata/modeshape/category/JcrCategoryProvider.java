@@ -33,7 +33,6 @@ import com.thinkbiganalytics.metadata.modeshape.BaseJcrProvider;
 import com.thinkbiganalytics.metadata.modeshape.JcrMetadataAccess;
 import com.thinkbiganalytics.metadata.modeshape.common.EntityUtil;
 import com.thinkbiganalytics.metadata.modeshape.common.JcrEntity;
-import com.thinkbiganalytics.metadata.modeshape.common.JcrObject;
 import com.thinkbiganalytics.metadata.modeshape.extension.ExtensionsConstants;
 import com.thinkbiganalytics.metadata.modeshape.security.action.JcrAllowedActions;
 import com.thinkbiganalytics.metadata.modeshape.security.action.JcrAllowedEntityActionsProvider;
@@ -86,9 +85,8 @@ public class JcrCategoryProvider extends BaseJcrProvider<Category, Category.ID>
     @Inject
     MetadataAccess metadataAccess;
 
-    @Override
-    protected <T extends JcrObject> T constructEntity(Node node, Class<T> entityClass) {
-        return JcrUtil.createJcrObject(node, entityClass, this.opsAccessProvider);
+    public JcrCategoryProvider() {
+        registerEntityFactory(JcrCategory.class, node -> new JcrCategory(node, this.opsAccessProvider));
     }
 
 
@@ -168,6 +168,10 @@ public class JcrFeedProvider extends BaseJcrProvider<Feed, Feed.ID> implements F
     @Inject
     private MetadataEventService metadataEventService;
 
+    public JcrFeedProvider() {
+        registerEntityFactory(JcrFeed.class, JcrFeed::new);
+    }
+
     @Override
     public String getNodeType(Class<? extends JcrEntity> jcrEntityType) {
         return JcrFeed.NODE_TYPE;
@@ -58,6 +58,11 @@ public class JcrUserProvider extends BaseJcrProvider<Object, Serializable> imple
     @Inject
     private AllowedEntityActionsProvider actionsProvider;
 
+    public JcrUserProvider() {
+        registerEntityFactory(JcrUser.class, JcrUser::new);
+        registerEntityFactory(JcrUserGroup.class, JcrUserGroup::new);
+    }
+
     @Nonnull
     @Override
     public User ensureUser(@Nonnull final String systemName) {
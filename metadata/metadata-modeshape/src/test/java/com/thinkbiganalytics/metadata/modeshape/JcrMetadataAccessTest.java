@@ -0,0 +1,208 @@
+package com.thinkbiganalytics.metadata.modeshape;
+
+/*-
+ * #%L
+ * thinkbig-metadata-modeshape
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.MetadataAction;
+import com.thinkbiganalytics.metadata.api.category.Category;
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.MetadataAction;
+import com.thinkbiganalytics.metadata.api.user.UserProvider;
+import com.thinkbiganalytics.security.GroupPrincipal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.StreamSupport;
+
+import javax.inject.Inject;
+import javax.jcr.Session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Tests the session pooling and read-only sessions of the {@link JcrMetadataAccess}, and compares the latency of concurrent reads with and without the pool.
+ *
+ * The latency comparison is a benchmark and is disabled in the build. The number of reads per thread in the benchmark defaults to 200 and can be changed using the system property {@code kylo.metadata.benchmark.reads}
+ */
+@SpringApplicationConfiguration(classes = {ModeShapeEngineConfig.class, JcrTestConfig.class})
+public class JcrMetadataAccessTest extends AbstractTestNGSpringContextTests {
+
+    private static final Logger log = LoggerFactory.getLogger(JcrMetadataAccessTest.class);
+
+    private static final int READS = Integer.getInteger("kylo.metadata.benchmark.reads", 200);
+
+    private static final int THREADS = 8;
+
+    @Inject
+    private JcrMetadataAccess metadata;
+
+    @Inject
+    private JcrSessionPool sessionPool;
+
+    @Inject
+    private UserProvider userProvider;
+
+    @Test
+    public void testReadReusesSession() {
+        Session first = metadata.read(JcrMetadataAccess::getActiveSession, MetadataAccess.SERVICE);
+        Session second = metadata.read(JcrMetadataAccess::getActiveSession, MetadataAccess.SERVICE);
+        Session other = metadata.read(JcrMetadataAccess::getActiveSession, MetadataAccess.SERVICE, new GroupPrincipal("other"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(second.isLive()).isTrue();
+        assertThat(other).isNotSameAs(first);
+    }
+
+    @Test
+    public void testFailedCommitDiscardsSession() {
+        List<Session> failed = new ArrayList<>();
+
+        try {
+            metadata.commit((MetadataAction) () -> {
+                failed.add(JcrMetadataAccess.getActiveSession());
+                throw new IllegalStateException("Expected failure");
+            }, MetadataAccess.SERVICE);
+            fail("Expected the commit to fail");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        Session next = metadata.commit(JcrMetadataAccess::getActiveSession, MetadataAccess.SERVICE);
+
+        assertThat(failed).hasSize(1);
+        assertThat(failed.get(0).isLive()).isFalse();
+        assertThat(next).isNotSameAs(failed.get(0));
+    }
+
+    @Test
+    public void testReadOnlySession() {
+        AtomicBoolean actionPerformed = new AtomicBoolean(false);
+
+        metadata.read(() -> {
+            assertThat(JcrMetadataAccess.isActiveSessionReadOnly()).isTrue();
+            JcrMetadataAccess.addPostTransactionAction(success -> actionPerformed.set(true));
+        }, MetadataAccess.SERVICE);
+
+        metadata.commit(() -> {
+            assertThat(JcrMetadataAccess.isActiveSessionReadOnly()).isFalse();
+            assertThat(JcrMetadataAccess.getCheckedoutNodes()).isEmpty();
+        }, MetadataAccess.SERVICE);
+
+        assertThat(actionPerformed.get()).isFalse();
+    }
+
+    /**
+     * Concurrent read() calls, as they would be made by REST requests, reuse the pooled sessions
+     */
+    @Test
+    public void testConcurrentReadsReuseSessions() throws Exception {
+        ensureUsers();
+        long reuseCount = sessionPool.getReuseCount();
+
+        readLatencies(10);
+
+        assertThat(sessionPool.getReuseCount()).isGreaterThan(reuseCount);
+    }
+
+    /**
+     * Compares the latency of read() calls made concurrently, as they would be by REST requests, with and without the session pool
+     */
+    @Test(enabled = false, description = "benchmark, run by hand")
+    public void benchmarkConcurrentReadLatency() throws Exception {
+        ensureUsers();
+
+        try {
+            metadata.setSessionPool(new JcrSessionPool(0, 0, 0L));
+            long[] unpooled = readLatencies(READS);
+
+            metadata.setSessionPool(sessionPool);
+            long[] pooled = readLatencies(READS);
+
+            log.info("{} threads x {} reads. Without pool: {}", THREADS, READS, summary(unpooled));
+            log.info("{} threads x {} reads. With pool: {} {}", THREADS, READS, summary(pooled), sessionPool);
+        } finally {
+            metadata.setSessionPool(sessionPool);
+        }
+    }
+
+    private void ensureUsers() {
+        metadata.commit(() -> {
+            for (int i = 0; i < 10; i++) {
+                userProvider.ensureUser("benchmark-user-" + i);
+            }
+        }, MetadataAccess.SERVICE);
+    }
+
+    private long[] readLatencies(int reads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] latencies = new long[reads];
+                    for (int i = 0; i < reads; i++) {
+                        long start = System.nanoTime();
+                        long count = metadata.read(() -> StreamSupport.stream(userProvider.findUsers().spliterator(), false).count(), MetadataAccess.SERVICE);
+                        latencies[i] = System.nanoTime() - start;
+                        assertThat(count).isGreaterThanOrEqualTo(10L);
+                    }
+                    return latencies;
+                }));
+            }
+
+            long[] all = new long[THREADS * reads];
+            for (int t = 0; t < THREADS; t++) {
+                System.arraycopy(futures.get(t).get(), 0, all, t * reads, reads);
+            }
+            Arrays.sort(all);
+            return all;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String summary(long[] sortedLatencies) {
+        long total = Arrays.stream(sortedLatencies).sum();
+        return String.format("avg=%.2fms p50=%.2fms p95=%.2fms p99=%.2fms",
+                             toMillis(total / sortedLatencies.length),
+                             toMillis(sortedLatencies[sortedLatencies.length / 2]),
+                             toMillis(sortedLatencies[(int) (sortedLatencies.length * 0.95)]),
+                             toMillis(sortedLatencies[(int) (sortedLatencies.length * 0.99)]));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -41,13 +41,19 @@ import org.junit.runner.RunWith;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.testng.Assert;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -157,6 +163,42 @@ public class FeedManagerFeedTest {
 
     }
 
+    @Test
+    public void testFindPage() {
+        String categorySystemName = "paging_category";
+        String templateName = "my_template";
+        Sort sort = new Sort(Sort.Direction.ASC, "feedName");
+
+        metadata.commit(() -> {
+            FeedManagerTemplate template = feedTestUtil.findOrCreateTemplate(templateName);
+            Category category = feedTestUtil.findOrCreateCategory(categorySystemName);
+            for (int i = 0; i < 5; i++) {
+                feedTestUtil.findOrCreateFeed(category, "paging_feed_" + i, template);
+            }
+        }, MetadataAccess.SERVICE);
+
+        metadata.read(() -> {
+            Page<Feed> first = feedProvider.findPage(new PageRequest(0, 2, sort), "paging_feed");
+            Assert.assertEquals(first.getTotalElements(), 5L);
+            Assert.assertEquals(names(first.getContent()), Arrays.asList("paging_feed_0", "paging_feed_1"));
+
+            // A partial last page is counted from its own contents
+            Page<Feed> last = feedProvider.findPage(new PageRequest(2, 2, sort), "paging_feed");
+            Assert.assertEquals(last.getTotalElements(), 5L);
+            Assert.assertEquals(names(last.getContent()), Collections.singletonList("paging_feed_4"));
+
+            Page<Feed> none = feedProvider.findPage(new PageRequest(0, 2, sort), "no_such_feed");
+            Assert.assertEquals(none.getTotalElements(), 0L);
+
+            List<Feed> next = ((JcrFeedProvider) feedProvider).findAfter(new PageRequest(0, 2, sort), "paging_feed", Collections.singletonList("paging_feed_1"));
+            Assert.assertEquals(names(next), Arrays.asList("paging_feed_2", "paging_feed_3"));
+        }, MetadataAccess.SERVICE);
+    }
+
+    private List<String> names(List<Feed> feeds) {
+        return feeds.stream().map(Feed::getName).collect(Collectors.toList());
+    }
+
     @Test
     public void testFeedDatasource() {
         String categorySystemName = "my_category";
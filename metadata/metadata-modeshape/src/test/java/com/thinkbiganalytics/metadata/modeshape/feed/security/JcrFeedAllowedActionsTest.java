@@ -30,6 +30,7 @@ import com.thinkbiganalytics.metadata.api.feed.security.FeedAccessControl;
 import com.thinkbiganalytics.metadata.modeshape.JcrMetadataAccess;
 import com.thinkbiganalytics.metadata.modeshape.JcrTestConfig;
 import com.thinkbiganalytics.metadata.modeshape.ModeShapeEngineConfig;
+import com.thinkbiganalytics.metadata.modeshape.feed.JcrFeedProvider;
 import com.thinkbiganalytics.metadata.modeshape.security.ModeShapeAuthConfig;
 import com.thinkbiganalytics.security.UsernamePrincipal;
 import com.thinkbiganalytics.security.action.AllowedActions;
@@ -40,6 +41,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.util.List;
@@ -131,6 +133,24 @@ public class JcrFeedAllowedActionsTest {
         assertThat(feedCnt2).isEqualTo(2);
     }
 
+    @Test
+    public void testCountOnlyOwnFeeds() {
+        JcrFeedProvider jcrFeedProvider = (JcrFeedProvider) this.feedProvider;
+
+        int feedCnt1 = metadata.read(() -> jcrFeedProvider.findCount(), TEST_USER1);
+
+        assertThat(feedCnt1).isEqualTo(1);
+
+        int feedCnt2 = metadata.read(() -> jcrFeedProvider.findCount(), TEST_USER2);
+
+        assertThat(feedCnt2).isEqualTo(2);
+
+        // A full first page requires the total to be counted
+        long total = metadata.read(() -> this.feedProvider.findPage(new PageRequest(0, 1), null).getTotalElements(), TEST_USER2);
+
+        assertThat(total).isEqualTo(2);
+    }
+
     @Test
     public void testSeeOwnFeedContentOnly() {
         metadata.read(() -> {
@@ -44,6 +44,11 @@ public class FeedFailureMetricAssessor implements MetricAssessor<FeedFailedMetri
         return metric instanceof FeedFailedMetric;
     }
 
+    @Override
+    public Serializable getInputState(FeedFailedMetric metric) {
+        return feedFailureService.getLastJobState(metric.getFeedName());
+    }
+
     @Override
     public void assess(FeedFailedMetric metric, MetricAssessmentBuilder<Serializable> builder) {
         builder.metric(metric);
@@ -27,14 +27,15 @@ import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
 import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecutionProvider;
 import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStatisticsProvider;
 import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStats;
+import com.thinkbiganalytics.metadata.sla.spi.core.AssessmentDataCache;
 
 import org.joda.time.DateTime;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 
@@ -64,9 +65,16 @@ public class FeedFailureService {
     /**
      * Map with the Latest recorded failure that has been assessed by the FeedFailureMetricAssessor
      */
-    private Map<String, LastFeedJob> lastAssessedFeedFailureMap = new HashMap<>();
+    private Map<String, LastFeedJob> lastAssessedFeedFailureMap = new ConcurrentHashMap<>();
 
+    /**
+     * Finds the last job of the feed.  During an SLA check the job is looked up once and shared by all of the metrics on the feed.
+     */
     public LastFeedJob findLastJob(String feedName){
+        return AssessmentDataCache.get("lastFeedJob", feedName, () -> queryLastJob(feedName));
+    }
+
+    private LastFeedJob queryLastJob(String feedName){
      return metadataAccess.read(() -> {
 
          OpsManagerFeed feed = feedProvider.findByNameWithoutAcl(feedName);
@@ -94,19 +102,20 @@ public class FeedFailureService {
 
     }
 
+    /**
+     * Records the failed job as the last assessed failure of its feed.  The map is updated atomically as the SLAs
+     * of the same feed may be assessed concurrently.
+     *
+     * @return true if a failure of the feed had already been assessed
+     */
     boolean isExistingFailure(LastFeedJob job) {
         if(job.isFailure()){
-            String feedName = job.getFeedName();
-            LastFeedJob lastAssessedFailure = lastAssessedFeedFailureMap.get(feedName);
+            LastFeedJob lastAssessedFailure = lastAssessedFeedFailureMap.putIfAbsent(job.getFeedName(), job);
             if (lastAssessedFailure == null) {
-                lastAssessedFeedFailureMap.put(feedName, job);
                 return false;
-            } else if (job.isAfter(lastAssessedFailure.getDateTime())) {
-                //reassign it as the lastAssessedFailure
-                lastAssessedFeedFailureMap.put(feedName, job);
-                return true;
             } else {
-                //last job is before or equals to last assessed job, nothing to do, we already cached a new one
+                //reassign it as the lastAssessedFailure only if it is after the one already cached
+                lastAssessedFeedFailureMap.merge(job.getFeedName(), job, (assessed, latest) -> latest.isAfter(assessed.getDateTime()) ? latest : assessed);
                 return true;
             }
         }
@@ -115,6 +124,21 @@ public class FeedFailureService {
     }
 
 
+    /**
+     * @return a value identifying the last job of the feed, used to detect when the feed has not run since it was last assessed
+     */
+    public String getLastJobState(String feedName) {
+        LastFeedJob job = findLastJob(feedName);
+
+        if (job == null) {
+            return feedName + ":missing";
+        } else if (job == EMPTY_JOB) {
+            return feedName + ":empty";
+        } else {
+            return feedName + ":" + (job.getDateTime() != null ? job.getDateTime().getMillis() : null) + ":" + job.isFailure();
+        }
+    }
+
     public static class LastFeedJob {
 
         private String feedName;
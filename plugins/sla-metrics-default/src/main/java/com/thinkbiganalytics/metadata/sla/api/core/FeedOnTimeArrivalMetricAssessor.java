@@ -32,6 +32,7 @@ import com.thinkbiganalytics.metadata.sla.api.AssessmentResult;
 import com.thinkbiganalytics.metadata.sla.api.Metric;
 import com.thinkbiganalytics.metadata.sla.spi.MetricAssessmentBuilder;
 import com.thinkbiganalytics.metadata.sla.spi.MetricAssessor;
+import com.thinkbiganalytics.metadata.sla.spi.core.AssessmentDataCache;
 import com.thinkbiganalytics.scheduler.util.CronExpressionUtil;
 
 import org.joda.time.DateTime;
@@ -77,7 +78,7 @@ public class FeedOnTimeArrivalMetricAssessor implements MetricAssessor<FeedOnTim
         builder.metric(metric);
 
         String feedName = metric.getFeedName();
-        DateTime lastFeedTime = feedProvider.getLastActiveTimeStamp(feedName);
+        DateTime lastFeedTime = AssessmentDataCache.get("lastActiveTimeStamp", feedName, () -> feedProvider.getLastActiveTimeStamp(feedName));
 
         Long nowDiff = 0L;
         Period nowDiffPeriod = new Period(nowDiff.longValue());
@@ -166,6 +166,24 @@ public class AlertsController {
         return alertsModel.groupAlertSummaries(alerts);
     }
 
+    @GET
+    @Path("/dispatch-statistics")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation("Gets the counters describing the load on the alert dispatch queue.")
+    @ApiResponses({
+                      @ApiResponse(code = 200, message = "Returns the dispatch statistics.", response = AggregatingAlertProvider.DispatchStatistics.class),
+                      @ApiResponse(code = 404, message = "The alert provider does not dispatch alerts.", response = RestResponseStatus.class)
+                  })
+    public AggregatingAlertProvider.DispatchStatistics getDispatchStatistics() {
+        this.accessController.checkPermission(AccessController.SERVICES, OperationsAccessControl.ADMIN_OPS);
+
+        if (provider instanceof AggregatingAlertProvider) {
+            return ((AggregatingAlertProvider) provider).getDispatchStatistics();
+        } else {
+            throw new WebApplicationException("The alert provider does not dispatch alerts", Status.NOT_FOUND);
+        }
+    }
+
     @GET
     @Path("{id}")
     @Produces(MediaType.APPLICATION_JSON)
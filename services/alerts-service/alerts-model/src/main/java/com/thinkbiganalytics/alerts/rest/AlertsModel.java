@@ -34,7 +34,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.lang.reflect.Proxy;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -106,17 +105,8 @@ public class AlertsModel {
 
     public com.thinkbiganalytics.alerts.rest.model.Alert toModel(com.thinkbiganalytics.alerts.api.Alert alert) {
         com.thinkbiganalytics.alerts.api.Alert baseAlert = alert;
-        try {
-            if (Proxy.isProxyClass(alert.getClass())) {
-                SourceAlert sourceAlert = (SourceAlert) Proxy.getInvocationHandler(alert);
-                if (sourceAlert != null) {
-                    baseAlert = sourceAlert.getWrappedAlert();
-                }
-            }
-        }catch (Exception e){
-            //unable to get base alert from proxy.  log the exception but continue
-            log.error("Unable to get base alert from wrapped proxy for : {}, {} ",alert,e.getMessage(),e);
-
+        if (alert instanceof SourceAlert) {
+            baseAlert = ((SourceAlert) alert).getWrappedAlert();
         }
         com.thinkbiganalytics.alerts.rest.model.Alert result = new com.thinkbiganalytics.alerts.rest.model.Alert();
         result.setId(alert.getId().toString());
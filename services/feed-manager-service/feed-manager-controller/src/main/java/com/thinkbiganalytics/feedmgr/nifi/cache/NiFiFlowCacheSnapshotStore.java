@@ -0,0 +1,297 @@
+package com.thinkbiganalytics.feedmgr.nifi.cache;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thinkbiganalytics.metadata.rest.model.nifi.NiFiFlowCacheConnectionData;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores the process group entries of the NiFi flow cache in a local gzipped JSON file so that the cache can be available immediately after Kylo restarts.
+ *
+ * The stored entries are only a starting point, the cache is refreshed from NiFi after they are loaded.
+ */
+public class NiFiFlowCacheSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(NiFiFlowCacheSnapshotStore.class);
+
+    /**
+     * Version of the file format. Files with a different version are ignored.
+     */
+    static final int FORMAT_VERSION = 1;
+
+    private final File file;
+
+    private final ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    public NiFiFlowCacheSnapshotStore(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Writes the process group entries to the file, replacing any previous snapshot.
+     *
+     * @param entries                        the process group entries by process group id
+     * @param reusableTemplateProcessGroupId the id of the reusable templates process group
+     * @param lastUpdated                    the time the cache was last updated
+     * @param lastFullRefresh                the time every process group was last inspected, or 0 if they have not been
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Map<String, ProcessGroupFlowCacheEntry> entries, String reusableTemplateProcessGroupId, long lastUpdated, long lastFullRefresh) throws IOException {
+        Snapshot snapshot = new Snapshot();
+        snapshot.setKey(NifiFlowCacheImpl.ITEM_LAST_MODIFIED_KEY);
+        snapshot.setVersion(FORMAT_VERSION);
+        snapshot.setLastUpdated(lastUpdated);
+        snapshot.setLastFullRefresh(lastFullRefresh);
+        snapshot.setReusableTemplateProcessGroupId(reusableTemplateProcessGroupId);
+        List<StoredEntry> storedEntries = new ArrayList<>(entries.size());
+        entries.values().forEach(entry -> storedEntries.add(new StoredEntry(entry)));
+        snapshot.setEntries(storedEntries);
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create the directory " + parent);
+        }
+
+        // write to a temporary file and move it so that a partial snapshot is never loaded
+        File tmpFile = new File(file.getAbsolutePath() + ".tmp");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmpFile.toPath()))) {
+            mapper.writeValue(out, snapshot);
+        }
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the snapshot from the file.
+     *
+     * @return the snapshot, or empty if there is no file or it is not a readable snapshot
+     */
+    public Optional<Snapshot> load() {
+        if (!file.isFile()) {
+            return Optional.empty();
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+            Snapshot snapshot = mapper.readValue(in, Snapshot.class);
+            if (!NifiFlowCacheImpl.ITEM_LAST_MODIFIED_KEY.equals(snapshot.getKey()) || snapshot.getVersion() != FORMAT_VERSION || snapshot.getEntries() == null) {
+                log.info("Ignoring NiFi Flow Cache snapshot {} with key {} and version {}", file, snapshot.getKey(), snapshot.getVersion());
+                return Optional.empty();
+            }
+            return Optional.of(snapshot);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to read the NiFi Flow Cache snapshot {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The contents of a snapshot file
+     */
+    public static class Snapshot {
+
+        private String key;
+        private int version;
+        private long lastUpdated;
+        private long lastFullRefresh;
+        private String reusableTemplateProcessGroupId;
+        private List<StoredEntry> entries;
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public void setVersion(int version) {
+            this.version = version;
+        }
+
+        public long getLastUpdated() {
+            return lastUpdated;
+        }
+
+        public void setLastUpdated(long lastUpdated) {
+            this.lastUpdated = lastUpdated;
+        }
+
+        /**
+         * Gets the time every process group was last inspected, or 0 if they have not been or the snapshot was written before this was stored.
+         */
+        public long getLastFullRefresh() {
+            return lastFullRefresh;
+        }
+
+        public void setLastFullRefresh(long lastFullRefresh) {
+            this.lastFullRefresh = lastFullRefresh;
+        }
+
+        public String getReusableTemplateProcessGroupId() {
+            return reusableTemplateProcessGroupId;
+        }
+
+        public void setReusableTemplateProcessGroupId(String reusableTemplateProcessGroupId) {
+            this.reusableTemplateProcessGroupId = reusableTemplateProcessGroupId;
+        }
+
+        public List<StoredEntry> getEntries() {
+            return entries;
+        }
+
+        public void setEntries(List<StoredEntry> entries) {
+            this.entries = entries;
+        }
+
+        /**
+         * Gets the stored process group entries by process group id.
+         */
+        public Map<String, ProcessGroupFlowCacheEntry> toProcessGroupEntries() {
+            Map<String, ProcessGroupFlowCacheEntry> processGroupEntries = new HashMap<>();
+            entries.forEach(stored -> processGroupEntries.put(stored.getProcessGroupId(), stored.toEntry()));
+            return processGroupEntries;
+        }
+    }
+
+    /**
+     * A process group entry as it is stored in the file
+     */
+    public static class StoredEntry {
+
+        private String processGroupId;
+        private String parentGroupId;
+        private String signature;
+        private String feedName;
+        private boolean reusableTemplate;
+        private Map<String, String> processors;
+        private Map<String, String> connectionNames;
+        private Map<String, NiFiFlowCacheConnectionData> connections;
+
+        public StoredEntry() {
+
+        }
+
+        StoredEntry(ProcessGroupFlowCacheEntry entry) {
+            this.processGroupId = entry.getProcessGroupId();
+            this.parentGroupId = entry.getParentGroupId();
+            this.signature = entry.getSignature();
+            this.feedName = entry.getFeedName();
+            this.reusableTemplate = entry.isReusableTemplate();
+            this.processors = entry.getProcessorIdToProcessorName();
+            this.connectionNames = entry.getConnectionIdToConnectionName();
+            this.connections = entry.getConnectionIdToConnection();
+        }
+
+        ProcessGroupFlowCacheEntry toEntry() {
+            ProcessGroupFlowCacheEntry entry = new ProcessGroupFlowCacheEntry(processGroupId, parentGroupId, signature, feedName, reusableTemplate);
+            entry.restore(processors, connectionNames, connections);
+            return entry;
+        }
+
+        public String getProcessGroupId() {
+            return processGroupId;
+        }
+
+        public void setProcessGroupId(String processGroupId) {
+            this.processGroupId = processGroupId;
+        }
+
+        public String getParentGroupId() {
+            return parentGroupId;
+        }
+
+        public void setParentGroupId(String parentGroupId) {
+            this.parentGroupId = parentGroupId;
+        }
+
+        public String getSignature() {
+            return signature;
+        }
+
+        public void setSignature(String signature) {
+            this.signature = signature;
+        }
+
+        public String getFeedName() {
+            return feedName;
+        }
+
+        public void setFeedName(String feedName) {
+            this.feedName = feedName;
+        }
+
+        public boolean isReusableTemplate() {
+            return reusableTemplate;
+        }
+
+        public void setReusableTemplate(boolean reusableTemplate) {
+            this.reusableTemplate = reusableTemplate;
+        }
+
+        public Map<String, String> getProcessors() {
+            return processors;
+        }
+
+        public void setProcessors(Map<String, String> processors) {
+            this.processors = processors;
+        }
+
+        public Map<String, String> getConnectionNames() {
+            return connectionNames;
+        }
+
+        public void setConnectionNames(Map<String, String> connectionNames) {
+            this.connectionNames = connectionNames;
+        }
+
+        public Map<String, NiFiFlowCacheConnectionData> getConnections() {
+            return connections;
+        }
+
+        public void setConnections(Map<String, NiFiFlowCacheConnectionData> connections) {
+            this.connections = connections;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.thinkbiganalytics.feedmgr.nifi.cache;
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.thinkbiganalytics.nifi.feedmgr.TemplateCreationHelper;
+import com.thinkbiganalytics.nifi.rest.client.NiFiRestClient;
+import com.thinkbiganalytics.support.FeedNameUtil;
+
+import org.apache.nifi.web.api.dto.ConnectionDTO;
+import org.apache.nifi.web.api.dto.flow.FlowDTO;
+import org.apache.nifi.web.api.entity.ProcessGroupEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.Collectors;
+
+/**
+ * Inspect NiFi for changes since the last inspection, re-inspecting only the feed and reusable template process groups that were added or changed.
+ *
+ * The root and category process groups are few so they are always inspected. Each feed process group listed in a category is compared with the
+ * last inspection using its revision and component counts, and only the new or changed ones have their flow inspected. A process group that fails
+ * inspection keeps its last entry and is inspected again on the next sync.
+ *
+ * The listing does not change when only a connection, or a processor's configuration, changes within a feed process group, so callers should
+ * periodically do a full inspection that inspects every process group regardless of its listing.
+ */
+public class NiFiFlowIncrementalInspector {
+
+    private static final Logger log = LoggerFactory.getLogger(NiFiFlowIncrementalInspector.class);
+
+    private static final int ROOT_LEVEL = 1;
+    private static final int CATEGORY_LEVEL = 2;
+    private static final int FEED_LEVEL = 3;
+
+    private final NiFiRestClient restClient;
+
+    private final int threadCount;
+
+    private ThreadFactory flowInspectionThreadFactory = new ThreadFactoryBuilder()
+        .setNameFormat("NiFi-Flow-Incremental-Inspection-%d").build();
+
+    public NiFiFlowIncrementalInspector(NiFiRestClient restClient, int threadCount) {
+        this.restClient = restClient;
+        this.threadCount = threadCount > 0 ? threadCount : 1;
+    }
+
+    /**
+     * Inspects NiFi for changes since the previous inspection.
+     *
+     * @param previous the entries of the previous inspection by process group id, or an empty map to inspect all process groups
+     * @return the result with an entry for each process group
+     * @throws NiFiFlowCacheException if the root process group cannot be inspected
+     */
+    public Result inspect(Map<String, ProcessGroupFlowCacheEntry> previous) {
+        return inspect(previous, false);
+    }
+
+    /**
+     * Inspects NiFi for changes since the previous inspection.
+     *
+     * @param previous the entries of the previous inspection by process group id, or an empty map to inspect all process groups
+     * @param full     {@code true} to inspect every process group even if its listing is unchanged, the previous entries are still kept for those that fail
+     * @return the result with an entry for each process group
+     * @throws NiFiFlowCacheException if the root process group cannot be inspected
+     */
+    public Result inspect(Map<String, ProcessGroupFlowCacheEntry> previous, boolean full) {
+        long start = System.currentTimeMillis();
+        Result result = new Result();
+
+        NiFiFlowInspection root = new NiFiFlowInspector("root", ROOT_LEVEL, null, restClient).inspect();
+        if (!root.isComplete()) {
+            throw new NiFiFlowCacheException("Unable to inspect the root NiFi process group");
+        }
+        String rootProcessGroupId = root.getProcessGroupFlow().getId();
+        result.rootConnections = root.getProcessGroupFlow().getFlow().getConnections().stream().map(e -> e.getComponent()).collect(Collectors.toSet());
+        result.entries.put(rootProcessGroupId, toEntry(rootProcessGroupId, null, null, null, false, Collections.singletonList(root.getProcessGroupFlow().getFlow())));
+
+        // Inspect the categories and collect the feed process groups that changed
+        List<ChangedGroup> changedGroups = new ArrayList<>();
+        for (ProcessGroupEntity category : root.getProcessGroupFlow().getFlow().getProcessGroups()) {
+            NiFiFlowInspection inspection = new NiFiFlowInspector(category.getId(), CATEGORY_LEVEL, null, restClient).inspect();
+            if (!inspection.isComplete()) {
+                keepPrevious(category.getId(), previous, result);
+                continue;
+            }
+
+            String categoryName = inspection.getProcessGroupName();
+            boolean reusableTemplates = TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME.equalsIgnoreCase(categoryName);
+            if (reusableTemplates) {
+                result.reusableTemplateProcessGroupId = category.getId();
+            }
+            result.entries.put(category.getId(), toEntry(category.getId(), rootProcessGroupId, null, null, false, Collections.singletonList(inspection.getProcessGroupFlow().getFlow())));
+
+            for (ProcessGroupEntity group : inspection.getProcessGroupFlow().getFlow().getProcessGroups()) {
+                String signature = signature(categoryName, group);
+                ProcessGroupFlowCacheEntry previousEntry = previous.get(group.getId());
+                if (!full && previousEntry != null && signature.equals(previousEntry.getSignature())) {
+                    result.entries.put(group.getId(), previousEntry);
+                    result.unchangedCount++;
+                } else {
+                    String feedName = reusableTemplates ? null : FeedNameUtil.fullName(categoryName, group.getComponent() != null ? group.getComponent().getName() : null);
+                    changedGroups.add(new ChangedGroup(group.getId(), category.getId(), signature, feedName, reusableTemplates));
+                }
+            }
+        }
+
+        // Inspect the flows of the changed feed process groups
+        if (!changedGroups.isEmpty()) {
+            ExecutorService executorService = Executors.newFixedThreadPool(Math.min(threadCount, changedGroups.size()), flowInspectionThreadFactory);
+            try {
+                List<CompletableFuture<ProcessGroupFlowCacheEntry>> futures = changedGroups.stream()
+                    .map(group -> CompletableFuture.supplyAsync(() -> inspectGroup(group), executorService))
+                    .collect(Collectors.toList());
+                for (int i = 0; i < changedGroups.size(); i++) {
+                    ProcessGroupFlowCacheEntry entry = futures.get(i).join();
+                    String processGroupId = changedGroups.get(i).processGroupId;
+                    if (entry != null) {
+                        result.entries.put(processGroupId, entry);
+                        result.inspectedCount++;
+                    } else {
+                        keepPrevious(processGroupId, previous, result);
+                    }
+                }
+            } finally {
+                executorService.shutdown();
+            }
+        }
+
+        result.totalTime = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    /**
+     * Inspects the flow of a feed or reusable template process group and all of its child process groups.
+     *
+     * @return the entry for the process group, or {@code null} if any process group could not be inspected
+     */
+    private ProcessGroupFlowCacheEntry inspectGroup(ChangedGroup group) {
+        List<FlowDTO> flows = new ArrayList<>();
+        Deque<String> groupsToInspect = new ArrayDeque<>();
+        Deque<Integer> levels = new ArrayDeque<>();
+        groupsToInspect.add(group.processGroupId);
+        levels.add(FEED_LEVEL);
+
+        while (!groupsToInspect.isEmpty()) {
+            int level = levels.remove();
+            NiFiFlowInspection inspection = new NiFiFlowInspector(groupsToInspect.remove(), level, null, restClient).inspect();
+            if (!inspection.isComplete()) {
+                return null;
+            }
+            flows.add(inspection.getProcessGroupFlow().getFlow());
+            for (String childGroupId : inspection.getGroupsToInspect()) {
+                groupsToInspect.add(childGroupId);
+                levels.add(level + 1);
+            }
+        }
+        return toEntry(group.processGroupId, group.parentGroupId, group.signature, group.feedName, group.reusableTemplate, flows);
+    }
+
+    /**
+     * Keeps the previous entry of a process group that could not be inspected, along with the entries of its children.
+     * A kept feed process group still has the signature of its last inspection so it will be seen as changed and inspected again on the next sync.
+     */
+    private void keepPrevious(String processGroupId, Map<String, ProcessGroupFlowCacheEntry> previous, Result result) {
+        log.warn("Unable to inspect NiFi process group {}. The last inspection will be kept in the NiFi Flow Cache until it can be inspected.", processGroupId);
+        result.failedProcessGroupIds.add(processGroupId);
+
+        ProcessGroupFlowCacheEntry previousEntry = previous.get(processGroupId);
+        if (previousEntry != null) {
+            result.entries.put(processGroupId, previousEntry);
+        }
+        previous.values().stream()
+            .filter(entry -> processGroupId.equals(entry.getParentGroupId()))
+            .forEach(entry -> result.entries.put(entry.getProcessGroupId(), entry));
+    }
+
+    private ProcessGroupFlowCacheEntry toEntry(String processGroupId, String parentGroupId, String signature, String feedName, boolean reusableTemplate, List<FlowDTO> flows) {
+        ProcessGroupFlowCacheEntry entry = new ProcessGroupFlowCacheEntry(processGroupId, parentGroupId, signature, feedName, reusableTemplate);
+        for (FlowDTO flow : flows) {
+            flow.getProcessors().stream().map(e -> e.getComponent()).forEach(entry::addProcessor);
+            flow.getConnections().stream().map(e -> e.getComponent()).forEach(entry::addConnection);
+        }
+        return entry;
+    }
+
+    /**
+     * Identifies the version of a process group from its listing in the parent process group.
+     * NiFi updates the component counts of a process group when any processor or port within it is added, removed or changes state.
+     */
+    static String signature(String parentName, ProcessGroupEntity group) {
+        return new StringBuilder()
+            .append(parentName).append('|')
+            .append(group.getComponent() != null ? group.getComponent().getName() : null).append('|')
+            .append(group.getRevision() != null ? group.getRevision().getVersion() : null).append('|')
+            .append(group.getRunningCount()).append('|')
+            .append(group.getStoppedCount()).append('|')
+            .append(group.getInvalidCount()).append('|')
+            .append(group.getDisabledCount()).append('|')
+            .append(group.getInputPortCount()).append('|')
+            .append(group.getOutputPortCount()).append('|')
+            .append(group.getActiveRemotePortCount()).append('|')
+            .append(group.getInactiveRemotePortCount())
+            .toString();
+    }
+
+    private static class ChangedGroup {
+
+        final String processGroupId;
+        final String parentGroupId;
+        final String signature;
+        final String feedName;
+        final boolean reusableTemplate;
+
+        ChangedGroup(String processGroupId, String parentGroupId, String signature, String feedName, boolean reusableTemplate) {
+            this.processGroupId = processGroupId;
+            this.parentGroupId = parentGroupId;
+            this.signature = signature;
+            this.feedName = feedName;
+            this.reusableTemplate = reusableTemplate;
+        }
+    }
+
+    /**
+     * The result of an incremental inspection
+     */
+    public static class Result {
+
+        private Map<String, ProcessGroupFlowCacheEntry> entries = new ConcurrentHashMap<>();
+        private Set<String> failedProcessGroupIds = new HashSet<>();
+        private Set<ConnectionDTO> rootConnections = new HashSet<>();
+        private String reusableTemplateProcessGroupId;
+        private int inspectedCount;
+        private int unchangedCount;
+        private long totalTime;
+
+        /**
+         * Gets the entry of each process group in NiFi, by process group id.
+         */
+        public Map<String, ProcessGroupFlowCacheEntry> getEntries() {
+            return entries;
+        }
+
+        public Set<String> getFailedProcessGroupIds() {
+            return failedProcessGroupIds;
+        }
+
+        public boolean hasErrors() {
+            return !failedProcessGroupIds.isEmpty();
+        }
+
+        public Set<ConnectionDTO> getRootConnections() {
+            return rootConnections;
+        }
+
+        public String getReusableTemplateProcessGroupId() {
+            return reusableTemplateProcessGroupId;
+        }
+
+        /**
+         * Gets the number of feed and reusable template process groups that were inspected because they were new or changed.
+         */
+        public int getInspectedCount() {
+            return inspectedCount;
+        }
+
+        /**
+         * Gets the number of feed and reusable template process groups that were unchanged since the previous inspection.
+         */
+        public int getUnchangedCount() {
+            return unchangedCount;
+        }
+
+        public long getTotalTime() {
+            return totalTime;
+        }
+    }
+}
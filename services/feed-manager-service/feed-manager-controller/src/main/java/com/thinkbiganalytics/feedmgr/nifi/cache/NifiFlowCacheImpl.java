@@ -22,6 +22,7 @@ package com.thinkbiganalytics.feedmgr.nifi.cache;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.Uninterruptibles;
 import com.thinkbiganalytics.app.ServicesApplicationStartup;
 import com.thinkbiganalytics.app.ServicesApplicationStartupListener;
@@ -54,6 +55,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -63,6 +65,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -72,6 +75,7 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
 /**
@@ -116,6 +120,26 @@ public class NifiFlowCacheImpl implements ServicesApplicationStartupListener, Ni
     @Value("${nifi.flow.retry.wait.time.seconds:5}")
     private Integer nifiFlowWaitTime = 5;
 
+    /**
+     * Minutes between refreshes that inspect every NiFi process group, rather than only those whose listing changed. Every refresh is a full refresh if 0.
+     */
+    @Value("${nifi.flow.cache.full.refresh.interval.minutes:60}")
+    private Integer nifiFlowFullRefreshIntervalMinutes = 60;
+
+    /**
+     * Local file to store the cache in so it is available right after a restart. No snapshot is kept if blank.
+     */
+    @Value("${nifi.flow.cache.snapshot.file:}")
+    private String nifiFlowCacheSnapshotFile;
+
+    private NiFiFlowCacheSnapshotStore snapshotStore;
+
+    /**
+     * Refreshes the cache from NiFi in the background after it is loaded from the snapshot
+     */
+    private ExecutorService snapshotValidationExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                                                                                            .setNameFormat("NiFi-Flow-Cache-Snapshot-Validation-%d").build());
+
     @Deprecated
     private Map<String, Map<String, List<NifiFlowProcessor>>> feedProcessorIdProcessorMap = new ConcurrentHashMap<>();
 
@@ -140,12 +164,17 @@ public class NifiFlowCacheImpl implements ServicesApplicationStartupListener, Ni
     /**
      * Flag to mark if the cache is loaded or not This is used to determine if the cache is ready to be used
      */
-    private boolean loaded = false;
+    private volatile boolean loaded = false;
+
+    /**
+     * Flag to indicate the cache was loaded from the local snapshot and has not yet been refreshed from NiFi
+     */
+    private volatile boolean loadedFromSnapshot = false;
 
     /**
      * Flag to indicate we are connected to NiFi
      */
-    private boolean nifiConnected = false;
+    private volatile boolean nifiConnected = false;
 
     private AtomicBoolean rebuildWithRetryInProgress = new AtomicBoolean(false);
 
@@ -182,15 +211,35 @@ public class NifiFlowCacheImpl implements ServicesApplicationStartupListener, Ni
 
     private DateTime lastUpdated = null;
 
+    /**
+     * The last time every NiFi process group was inspected, or null if they have not been.
+     * Restored from the snapshot so the refresh after a restart is incremental unless a full refresh is due.
+     */
+    private DateTime lastFullRefresh = null;
+
+    /**
+     * The last inspection of each NiFi process group, by process group id.
+     * Used to detect the process groups that changed so only those are inspected when the cache is refreshed.
+     */
+    private volatile Map<String, ProcessGroupFlowCacheEntry> processGroupEntries = new ConcurrentHashMap<>();
+
     @PostConstruct
     private void init() {
         nifiConnectionService.subscribeConnectionListener(this);
         startup.subscribe(this);
         initExpireTimerThread();
         initializeLatestSnapshot();
+        if (StringUtils.isNotBlank(nifiFlowCacheSnapshotFile)) {
+            snapshotStore = new NiFiFlowCacheSnapshotStore(new File(nifiFlowCacheSnapshotFile));
+        }
     }
 
 
+    @PreDestroy
+    private void destroy() {
+        snapshotValidationExecutor.shutdownNow();
+    }
+
     @Override
     public void onStartup(DateTime startTime) {
         checkAndInitializeCache();
@@ -225,14 +274,65 @@ public class NifiFlowCacheImpl implements ServicesApplicationStartupListener, Ni
             return kyloVersionProvider.isUpToDate();
         }, MetadataAccess.SERVICE);
 
-        if (!loaded && rebuildWithRetryInProgress.get() == false) {
+        if ((!loaded || loadedFromSnapshot) && rebuildWithRetryInProgress.get() == false) {
             log.info("Check and Initialize NiFi Flow Cache. Kylo up to date:{}, NiFi Connected:{}, Cache needs loading:{} ", isLatest, nifiConnected, !loaded);
-            if (isLatest && nifiConnected && !loaded) {
+            if (isLatest && !loaded && reloadCount.get() == 0 && loadSnapshot()) {
+                //the snapshot is validated against NiFi in the background so events can be processed right away
+                if (nifiConnected) {
+                    snapshotValidationExecutor.execute(() -> rebuildCacheWithRetry(nifiFlowMaxRetries, nifiFlowWaitTime));
+                }
+            } else if (isLatest && nifiConnected) {
                 rebuildCacheWithRetry(nifiFlowMaxRetries, nifiFlowWaitTime);
             }
         }
     }
 
+    /**
+     * Load the cache from the local snapshot, if there is one
+     *
+     * @return {@code true} if the cache was loaded, {@code false} otherwise
+     */
+    private boolean loadSnapshot() {
+        if (snapshotStore == null) {
+            return false;
+        }
+        NiFiFlowCacheSnapshotStore.Snapshot snapshot = snapshotStore.load().orElse(null);
+        if (snapshot == null) {
+            return false;
+        }
+
+        Map<String, ProcessGroupFlowCacheEntry> entries = snapshot.toProcessGroupEntries();
+        applyProcessGroupChanges(Collections.emptyMap(), entries);
+        processGroupEntries = new ConcurrentHashMap<>(entries);
+        reusableTemplateProcessGroupId = snapshot.getReusableTemplateProcessGroupId();
+        lastFullRefresh = snapshot.getLastFullRefresh() > 0 ? new DateTime(snapshot.getLastFullRefresh()) : null;
+        if (reusableTemplateProcessGroupId != null) {
+            niFiObjectCache.setReusableTemplateProcessGroupId(reusableTemplateProcessGroupId);
+        }
+        log.info("Loaded the NiFi Flow Cache snapshot {} from {} with {} processors and {} connections. The cache will be refreshed from NiFi.", snapshotStore.getFile(),
+                 new DateTime(snapshot.getLastUpdated()), processorIdToProcessorName.size(), connectionIdCacheNameMap.size());
+
+        lastUpdated = DateTime.now();
+        loaded = true;
+        loadedFromSnapshot = true;
+        reloadCount.incrementAndGet();
+        notifyCacheAvailable();
+        return true;
+    }
+
+    /**
+     * Save the cache to the local snapshot
+     */
+    private void saveSnapshot() {
+        if (snapshotStore != null) {
+            try {
+                snapshotStore.save(processGroupEntries, reusableTemplateProcessGroupId, lastUpdated.getMillis(), lastFullRefresh != null ? lastFullRefresh.getMillis() : 0L);
+            } catch (Exception e) {
+                log.warn("Unable to save the NiFi Flow Cache snapshot {}: {}", snapshotStore.getFile(), e.getMessage());
+            }
+        }
+    }
+
     /**
      * rebuild a given cache resetting the cache with the given sync id to the latest data in the cache
      *
@@ -314,61 +414,124 @@ public class NifiFlowCacheImpl implements ServicesApplicationStartupListener, Ni
     }
 
     /**
-     * Rebuild the base cache that others will update from.
+     * Refresh the base cache that others will update from.
+     * Every NiFi process group is inspected, as this is used to manually reset the cache.
      */
     @Override
     public boolean rebuildAll() {
         if (rebuildWithRetryInProgress.get() == false) {
-            return rebuildCacheWithRetry(1, 5);
+            return rebuildCacheWithRetry(1, 5, true);
         }
         return false;
     }
 
 
-    private void rebuildAllCache() {
-        log.info("Rebuilding the NiFi Flow Cache. Starting NiFi Flow Inspection with {} threads ...", nififlowInspectorThreads);
+    /**
+     * Inspect NiFi and update the cache.
+     *
+     * @param forceFullRefresh {@code true} to inspect every process group, {@code false} to only inspect the process groups that changed unless a full refresh is due
+     */
+    private void rebuildAllCache(boolean forceFullRefresh) {
+        log.info("Refreshing the NiFi Flow Cache. Starting NiFi Flow Inspection with {} threads ...", nififlowInspectorThreads);
         boolean notify = reloadCount.get() == 0;
-        loaded = false;
-
-        DefaultNiFiFlowCompletionCallback completionCallback = new DefaultNiFiFlowCompletionCallback();
-        NiFiFlowInspectorManager flowInspectorManager = new NiFiFlowInspectorManager.NiFiFlowInspectorManagerBuilder(nifiRestClient.getNiFiRestClient())
-            .startingProcessGroupId("root")
-            .completionCallback(completionCallback)
-            .threads(nififlowInspectorThreads)
-            .waitUntilComplete(true)
-            .buildAndInspect();
-
-        connectionIdCacheNameMap.putAll(completionCallback.getConnectionIdCacheNameMap());
-        connectionIdToConnectionMap.putAll(completionCallback.getConnectionIdToConnectionMap());
-        processorIdToFeedProcessGroupId.putAll(completionCallback.getProcessorIdToFeedProcessGroupId());
-        processorIdToFeedNameMap.putAll(completionCallback.getProcessorIdToFeedNameMap());
-        processorIdToProcessorName.putAll(completionCallback.getProcessorIdToProcessorName());
-        reuseableTemplateProcessorIds.addAll(completionCallback.getReusableTemplateProcessorIds());
-        reusableTemplateProcessGroupId = completionCallback.getReusableTemplateProcessGroupId();
-
-        if (!flowInspectorManager.hasErrors()) {
-            log.info("NiFi Flow Inspection took {} ms with {} threads for {} feeds, {} processors and {} connections ", flowInspectorManager.getTotalTime(), flowInspectorManager.getThreadCount(),
-                     completionCallback.getFeedNames().size(), processorIdToProcessorName.size(), connectionIdCacheNameMap.size());
-            if (completionCallback.getRootConnections() != null) {
-                log.info("Adding {} Root Connections to the niFiObjectCache ", completionCallback.getRootConnections().size());
-                niFiObjectCache.addProcessGroupConnections(completionCallback.getRootConnections());
+
+        // changes within a feed process group that do not change its listing are only picked up by a full refresh
+        boolean fullRefresh = forceFullRefresh || lastFullRefresh == null || !lastFullRefresh.plusMinutes(nifiFlowFullRefreshIntervalMinutes).isAfterNow();
+        NiFiFlowIncrementalInspector.Result result = new NiFiFlowIncrementalInspector(nifiRestClient.getNiFiRestClient(), nififlowInspectorThreads).inspect(processGroupEntries, fullRefresh);
+        applyProcessGroupChanges(processGroupEntries, result.getEntries());
+        processGroupEntries = result.getEntries();
+        if (result.getReusableTemplateProcessGroupId() != null) {
+            reusableTemplateProcessGroupId = result.getReusableTemplateProcessGroupId();
+        }
+
+        log.info("NiFi {} Flow Inspection took {} ms with {} threads. Inspected {} changed and skipped {} unchanged feed process groups. Cache has {} feeds, {} processors and {} connections ",
+                 fullRefresh ? "full" : "incremental", result.getTotalTime(), nififlowInspectorThreads, result.getInspectedCount(), result.getUnchangedCount(),
+                 processGroupEntries.values().stream().filter(ProcessGroupFlowCacheEntry::isFeed).count(), processorIdToProcessorName.size(), connectionIdCacheNameMap.size());
+
+        //once loaded the cache stays available, any process groups that failed keep their last inspection and are inspected again on the next refresh
+        if (!result.hasErrors() || (loaded && !loadedFromSnapshot)) {
+            if (result.hasErrors()) {
+                log.warn("Unable to inspect {} NiFi process groups: {}. They will be inspected again on the next refresh of the NiFi Flow Cache.", result.getFailedProcessGroupIds().size(),
+                         result.getFailedProcessGroupIds());
             }
-            if (completionCallback.getReusableTemplateProcessGroupId() != null) {
-                niFiObjectCache.setReusableTemplateProcessGroupId(completionCallback.getReusableTemplateProcessGroupId());
+            if (result.getRootConnections() != null) {
+                log.info("Adding {} Root Connections to the niFiObjectCache ", result.getRootConnections().size());
+                niFiObjectCache.addProcessGroupConnections(result.getRootConnections());
+            }
+            if (result.getReusableTemplateProcessGroupId() != null) {
+                niFiObjectCache.setReusableTemplateProcessGroupId(result.getReusableTemplateProcessGroupId());
             }
             lastUpdated = DateTime.now();
+            if (fullRefresh && !result.hasErrors()) {
+                lastFullRefresh = lastUpdated;
+            }
             loaded = true;
+            loadedFromSnapshot = false;
             reloadCount.incrementAndGet();
             log.info("Successfully built NiFi Flow Cache");
             if (notify) {
                 notifyCacheAvailable();
             }
+            saveSnapshot();
         } else {
-            throw new NiFiFlowCacheException("Error inspecting and building the NiFi flow cache.");
+            throw new NiFiFlowCacheException("Error inspecting and building the NiFi flow cache. Unable to inspect NiFi process groups " + result.getFailedProcessGroupIds());
         }
 
     }
 
+    /**
+     * Applies the differences between two inspections of the NiFi process groups to the cache.
+     * Only the process groups whose entries were replaced are updated.
+     *
+     * @param previous the entries of the previous inspection
+     * @param current  the entries of the current inspection
+     */
+    private void applyProcessGroupChanges(Map<String, ProcessGroupFlowCacheEntry> previous, Map<String, ProcessGroupFlowCacheEntry> current) {
+        Set<String> removedProcessorIds = new HashSet<>();
+        Set<String> removedConnectionIds = new HashSet<>();
+        previous.values().stream()
+            .filter(entry -> current.get(entry.getProcessGroupId()) != entry)
+            .forEach(entry -> {
+                removedProcessorIds.addAll(entry.getProcessorIdToProcessorName().keySet());
+                removedConnectionIds.addAll(entry.getConnectionIdToConnection().keySet());
+                removedConnectionIds.addAll(entry.getConnectionIdToConnectionName().keySet());
+            });
+
+        current.values().stream()
+            .filter(entry -> previous.get(entry.getProcessGroupId()) != entry)
+            .forEach(entry -> {
+                Set<String> processorIds = entry.getProcessorIdToProcessorName().keySet();
+                removedProcessorIds.removeAll(processorIds);
+                removedConnectionIds.removeAll(entry.getConnectionIdToConnection().keySet());
+                removedConnectionIds.removeAll(entry.getConnectionIdToConnectionName().keySet());
+
+                processorIdToProcessorName.putAll(entry.getProcessorIdToProcessorName());
+                connectionIdToConnectionMap.putAll(entry.getConnectionIdToConnection());
+                connectionIdCacheNameMap.putAll(entry.getConnectionIdToConnectionName());
+                if (entry.isFeed()) {
+                    processorIds.stream().forEach(processorId -> {
+                        processorIdToFeedNameMap.put(processorId, entry.getFeedName());
+                        processorIdToFeedProcessGroupId.put(processorId, entry.getProcessGroupId());
+                    });
+                } else {
+                    processorIdToFeedNameMap.keySet().removeAll(processorIds);
+                    processorIdToFeedProcessGroupId.keySet().removeAll(processorIds);
+                }
+                if (entry.isReusableTemplate()) {
+                    reuseableTemplateProcessorIds.addAll(processorIds);
+                } else {
+                    reuseableTemplateProcessorIds.removeAll(processorIds);
+                }
+            });
+
+        processorIdToProcessorName.keySet().removeAll(removedProcessorIds);
+        processorIdToFeedNameMap.keySet().removeAll(removedProcessorIds);
+        processorIdToFeedProcessGroupId.keySet().removeAll(removedProcessorIds);
+        reuseableTemplateProcessorIds.removeAll(removedProcessorIds);
+        connectionIdToConnectionMap.keySet().removeAll(removedConnectionIds);
+        connectionIdCacheNameMap.keySet().removeAll(removedConnectionIds);
+    }
+
     private void notifyCacheAvailable() {
         this.listeners.stream().forEach(listener -> {
             try {
@@ -395,6 +558,15 @@ public class NifiFlowCacheImpl implements ServicesApplicationStartupListener, Ni
      * If an exception occurs during the rebuild it will attempt to retry to build it up to 10 times before aborting
      */
     public boolean rebuildCacheWithRetry(int retries, int waitTime) {
+        return rebuildCacheWithRetry(retries, waitTime, false);
+    }
+
+    /**
+     * Rebuilds the cache, retrying if an exception occurs.
+     *
+     * @param forceFullRefresh {@code true} to inspect every process group, {@code false} to only inspect the process groups that changed unless a full refresh is due
+     */
+    private boolean rebuildCacheWithRetry(int retries, int waitTime, boolean forceFullRefresh) {
         boolean updated = false;
         if (rebuildWithRetryInProgress.compareAndSet(false, true)) {
             Exception lastError = null;
@@ -402,7 +574,7 @@ public class NifiFlowCacheImpl implements ServicesApplicationStartupListener, Ni
             for (int count = 1; count <= retries; ++count) {
                 try {
                     log.info("Attempting to build the NiFiFlowCache");
-                    rebuildAllCache();
+                    rebuildAllCache(forceFullRefresh);
                     if (loaded) {
                         log.info("Successfully built the NiFiFlowCache");
                         updated = true;
@@ -416,7 +588,7 @@ public class NifiFlowCacheImpl implements ServicesApplicationStartupListener, Ni
                     Uninterruptibles.sleepUninterruptibly(waitTime, TimeUnit.SECONDS);
                 }
             }
-            if (!loaded) {
+            if (!updated) {
                 log.error(
                     "Unable to build the NiFi Flow Cache!  You will need to manually rebuild the cache using the following url:  http://KYLO_HOST:PORT/proxy/v1/metadata/nifi-provenance/nifi-flow-cache/reset-cache ",
                     lastError);
@@ -0,0 +1,137 @@
+package com.thinkbiganalytics.feedmgr.nifi.cache;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.rest.model.nifi.NiFiFlowCacheConnectionData;
+import com.thinkbiganalytics.nifi.rest.model.flow.NiFiFlowConnectionConverter;
+import com.thinkbiganalytics.nifi.rest.model.flow.NifiFlowConnection;
+
+import org.apache.nifi.web.api.dto.ConnectionDTO;
+import org.apache.nifi.web.api.dto.ProcessorDTO;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The processors and connections that a process group contributes to the NiFi flow cache, as of its last inspection.
+ *
+ * Root and category process groups contribute only their own processors and connections.
+ * Feed and reusable template process groups contribute those of all their child process groups.
+ */
+public class ProcessGroupFlowCacheEntry {
+
+    private final String processGroupId;
+
+    private final String parentGroupId;
+
+    /**
+     * Identifies the version of the process group that was inspected
+     */
+    private final String signature;
+
+    /**
+     * The category.feed name if this is a feed process group
+     */
+    private final String feedName;
+
+    private final boolean reusableTemplate;
+
+    private final Map<String, String> processorIdToProcessorName = new HashMap<>();
+
+    private final Map<String, String> connectionIdToConnectionName = new HashMap<>();
+
+    private final Map<String, NiFiFlowCacheConnectionData> connectionIdToConnection = new HashMap<>();
+
+    public ProcessGroupFlowCacheEntry(String processGroupId, String parentGroupId, String signature, String feedName, boolean reusableTemplate) {
+        this.processGroupId = processGroupId;
+        this.parentGroupId = parentGroupId;
+        this.signature = signature;
+        this.feedName = feedName;
+        this.reusableTemplate = reusableTemplate;
+    }
+
+    public void addProcessor(ProcessorDTO processor) {
+        processorIdToProcessorName.put(processor.getId(), processor.getName());
+    }
+
+    public void addConnection(ConnectionDTO connection) {
+        NifiFlowConnection conn = NiFiFlowConnectionConverter.toNiFiFlowConnection(connection);
+        if (conn != null) {
+            connectionIdToConnection.put(conn.getConnectionIdentifier(),
+                                         new NiFiFlowCacheConnectionData(conn.getConnectionIdentifier(), conn.getName(), conn.getSourceIdentifier(), conn.getDestinationIdentifier()));
+        }
+        if (connection.getName() != null) {
+            connectionIdToConnectionName.put(connection.getId(), connection.getName());
+        }
+    }
+
+    /**
+     * Restores the processors and connections of an entry that was stored in a snapshot.
+     */
+    void restore(Map<String, String> processorIdToProcessorName, Map<String, String> connectionIdToConnectionName, Map<String, NiFiFlowCacheConnectionData> connectionIdToConnection) {
+        if (processorIdToProcessorName != null) {
+            this.processorIdToProcessorName.putAll(processorIdToProcessorName);
+        }
+        if (connectionIdToConnectionName != null) {
+            this.connectionIdToConnectionName.putAll(connectionIdToConnectionName);
+        }
+        if (connectionIdToConnection != null) {
+            this.connectionIdToConnection.putAll(connectionIdToConnection);
+        }
+    }
+
+    public String getProcessGroupId() {
+        return processGroupId;
+    }
+
+    public String getParentGroupId() {
+        return parentGroupId;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    public String getFeedName() {
+        return feedName;
+    }
+
+    public boolean isFeed() {
+        return feedName != null;
+    }
+
+    public boolean isReusableTemplate() {
+        return reusableTemplate;
+    }
+
+    public Map<String, String> getProcessorIdToProcessorName() {
+        return Collections.unmodifiableMap(processorIdToProcessorName);
+    }
+
+    public Map<String, String> getConnectionIdToConnectionName() {
+        return Collections.unmodifiableMap(connectionIdToConnectionName);
+    }
+
+    public Map<String, NiFiFlowCacheConnectionData> getConnectionIdToConnection() {
+        return Collections.unmodifiableMap(connectionIdToConnection);
+    }
+}
@@ -94,6 +94,8 @@ public class DefaultJobService implements JobService {
 
             BatchJobExecution execution = this.jobExecutionProvider.findByJobExecutionId(executionId);
             if (execution != null && !execution.isFailed()) {
+                //a completed or stopped job is already counted with its previous status
+                BatchJobExecution.JobStatus previousStatus = execution.isFinished() && execution.getStartTime() != null ? execution.getStatus() : null;
                 Set<BatchStepExecution> steps = execution.getStepExecutions();
                 if (steps != null) {
                     for (BatchStepExecution step : steps) {
@@ -119,7 +121,7 @@ public class DefaultJobService implements JobService {
                 execution.setExitMessage(msg);
                 OpsManagerFeed feed = execution.getJobInstance().getFeed();
                 this.jobExecutionProvider.save(execution);
-                this.jobExecutionProvider.notifyFailure(execution,feed,false,"Job manually failed @ " + DateTimeUtil.getNowFormattedWithTimeZone());
+                this.jobExecutionProvider.notifyFailure(execution, feed, false, "Job manually failed @ " + DateTimeUtil.getNowFormattedWithTimeZone(), previousStatus);
 
             }
             return execution;
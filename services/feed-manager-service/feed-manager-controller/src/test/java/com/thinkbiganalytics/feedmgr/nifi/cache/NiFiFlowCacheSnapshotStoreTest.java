@@ -0,0 +1,101 @@
+package com.thinkbiganalytics.feedmgr.nifi.cache;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.nifi.web.api.dto.ConnectableDTO;
+import org.apache.nifi.web.api.dto.ConnectionDTO;
+import org.apache.nifi.web.api.dto.ProcessorDTO;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class NiFiFlowCacheSnapshotStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verify process group entries are restored from a saved snapshot.
+     */
+    @Test
+    public void saveAndLoad() throws Exception {
+        ProcessorDTO processor = new ProcessorDTO();
+        processor.setId("p1");
+        processor.setName("Processor 1");
+
+        ConnectionDTO connection = new ConnectionDTO();
+        connection.setId("c1");
+        connection.setName("success");
+        connection.setSource(connectable("p1"));
+        connection.setDestination(connectable("p2"));
+        connection.setSelectedRelationships(Collections.singleton("success"));
+
+        ProcessGroupFlowCacheEntry entry = new ProcessGroupFlowCacheEntry("feed1", "category", "signature", "category.feed1", false);
+        entry.addProcessor(processor);
+        entry.addConnection(connection);
+        Map<String, ProcessGroupFlowCacheEntry> entries = new HashMap<>();
+        entries.put(entry.getProcessGroupId(), entry);
+
+        NiFiFlowCacheSnapshotStore store = new NiFiFlowCacheSnapshotStore(new File(folder.getRoot(), "data/nifi-flow-cache.json.gz"));
+        store.save(entries, "reusable", 100L, 50L);
+
+        NiFiFlowCacheSnapshotStore.Snapshot snapshot = store.load().orElse(null);
+        Assert.assertNotNull(snapshot);
+        Assert.assertEquals(100L, snapshot.getLastUpdated());
+        Assert.assertEquals(50L, snapshot.getLastFullRefresh());
+        Assert.assertEquals("reusable", snapshot.getReusableTemplateProcessGroupId());
+
+        ProcessGroupFlowCacheEntry restored = snapshot.toProcessGroupEntries().get("feed1");
+        Assert.assertEquals("category", restored.getParentGroupId());
+        Assert.assertEquals("signature", restored.getSignature());
+        Assert.assertEquals("category.feed1", restored.getFeedName());
+        Assert.assertEquals(entry.getProcessorIdToProcessorName(), restored.getProcessorIdToProcessorName());
+        Assert.assertEquals(entry.getConnectionIdToConnectionName(), restored.getConnectionIdToConnectionName());
+        Assert.assertEquals(entry.getConnectionIdToConnection(), restored.getConnectionIdToConnection());
+    }
+
+    /**
+     * Verify a missing or unreadable snapshot is ignored.
+     */
+    @Test
+    public void loadInvalid() throws Exception {
+        File file = new File(folder.getRoot(), "nifi-flow-cache.json.gz");
+        NiFiFlowCacheSnapshotStore store = new NiFiFlowCacheSnapshotStore(file);
+        Assert.assertFalse(store.load().isPresent());
+
+        Files.write(file.toPath(), "not a snapshot".getBytes("UTF-8"));
+        Assert.assertFalse(store.load().isPresent());
+    }
+
+    private ConnectableDTO connectable(String id) {
+        ConnectableDTO connectable = new ConnectableDTO();
+        connectable.setId(id);
+        connectable.setType("PROCESSOR");
+        return connectable;
+    }
+}
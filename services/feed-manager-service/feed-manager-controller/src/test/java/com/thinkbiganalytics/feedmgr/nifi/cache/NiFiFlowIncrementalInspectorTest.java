@@ -0,0 +1,180 @@
+package com.thinkbiganalytics.feedmgr.nifi.cache;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.rest.client.NiFiProcessGroupsRestClient;
+import com.thinkbiganalytics.nifi.rest.client.NiFiRestClient;
+
+import org.apache.nifi.web.api.dto.ProcessGroupDTO;
+import org.apache.nifi.web.api.dto.ProcessorDTO;
+import org.apache.nifi.web.api.dto.RevisionDTO;
+import org.apache.nifi.web.api.dto.flow.FlowBreadcrumbDTO;
+import org.apache.nifi.web.api.dto.flow.FlowDTO;
+import org.apache.nifi.web.api.dto.flow.ProcessGroupFlowDTO;
+import org.apache.nifi.web.api.entity.FlowBreadcrumbEntity;
+import org.apache.nifi.web.api.entity.ProcessGroupEntity;
+import org.apache.nifi.web.api.entity.ProcessorEntity;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+public class NiFiFlowIncrementalInspectorTest {
+
+    private NiFiProcessGroupsRestClient processGroups;
+
+    private NiFiFlowIncrementalInspector inspector;
+
+    @Before
+    public void setUp() {
+        processGroups = Mockito.mock(NiFiProcessGroupsRestClient.class);
+        NiFiRestClient restClient = Mockito.mock(NiFiRestClient.class);
+        Mockito.when(restClient.processGroups()).thenReturn(processGroups);
+        inspector = new NiFiFlowIncrementalInspector(restClient, 2);
+
+        // root -> category -> feed1, feed2
+        Mockito.when(processGroups.flow("root")).thenReturn(flow("root-id", "root", Collections.singletonList(group("category", "category", 1, 0))));
+        Mockito.when(processGroups.flow("category")).thenReturn(flow("category", "category", Arrays.asList(group("feed1", "feed1", 1, 1), group("feed2", "feed2", 1, 1))));
+        Mockito.when(processGroups.flow("feed1")).thenReturn(flow("feed1", "feed1", Collections.emptyList(), "p1"));
+        Mockito.when(processGroups.flow("feed2")).thenReturn(flow("feed2", "feed2", Collections.emptyList(), "p2"));
+    }
+
+    /**
+     * Verify only the new and changed feed process groups are inspected.
+     */
+    @Test
+    public void inspectChangedGroups() {
+        NiFiFlowIncrementalInspector.Result first = inspector.inspect(Collections.emptyMap());
+        Assert.assertFalse(first.hasErrors());
+        Assert.assertEquals(2, first.getInspectedCount());
+        Assert.assertEquals("category.feed1", first.getEntries().get("feed1").getFeedName());
+        Assert.assertEquals(Collections.singleton("p1"), first.getEntries().get("feed1").getProcessorIdToProcessorName().keySet());
+
+        // feed2 has a new processor and feed1 is unchanged
+        Mockito.when(processGroups.flow("category")).thenReturn(flow("category", "category", Arrays.asList(group("feed1", "feed1", 1, 1), group("feed2", "feed2", 1, 2))));
+        Mockito.when(processGroups.flow("feed2")).thenReturn(flow("feed2", "feed2", Collections.emptyList(), "p2", "p3"));
+
+        NiFiFlowIncrementalInspector.Result second = inspector.inspect(first.getEntries());
+        Assert.assertEquals(1, second.getInspectedCount());
+        Assert.assertEquals(1, second.getUnchangedCount());
+        Assert.assertSame(first.getEntries().get("feed1"), second.getEntries().get("feed1"));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("p2", "p3")), second.getEntries().get("feed2").getProcessorIdToProcessorName().keySet());
+        Mockito.verify(processGroups, Mockito.times(1)).flow("feed1");
+    }
+
+    /**
+     * Verify a full inspection inspects a feed process group whose listing is unchanged, picking up changes such as new connections that do not change the listing.
+     */
+    @Test
+    public void fullInspection() {
+        NiFiFlowIncrementalInspector.Result first = inspector.inspect(Collections.emptyMap());
+
+        Mockito.when(processGroups.flow("feed1")).thenReturn(flow("feed1", "feed1", Collections.emptyList(), "p1", "p4"));
+
+        NiFiFlowIncrementalInspector.Result incremental = inspector.inspect(first.getEntries());
+        Assert.assertEquals(0, incremental.getInspectedCount());
+        Assert.assertEquals(Collections.singleton("p1"), incremental.getEntries().get("feed1").getProcessorIdToProcessorName().keySet());
+
+        NiFiFlowIncrementalInspector.Result full = inspector.inspect(incremental.getEntries(), true);
+        Assert.assertEquals(2, full.getInspectedCount());
+        Assert.assertEquals(0, full.getUnchangedCount());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("p1", "p4")), full.getEntries().get("feed1").getProcessorIdToProcessorName().keySet());
+    }
+
+    /**
+     * Verify a process group that cannot be inspected keeps its previous entry.
+     */
+    @Test
+    public void keepPreviousOnFailure() {
+        NiFiFlowIncrementalInspector.Result first = inspector.inspect(Collections.emptyMap());
+
+        Mockito.when(processGroups.flow("category")).thenReturn(flow("category", "category", Arrays.asList(group("feed1", "feed1", 2, 1), group("feed2", "feed2", 1, 1))));
+        Mockito.when(processGroups.flow("feed1")).thenThrow(new IllegalStateException("NiFi is unavailable"));
+
+        NiFiFlowIncrementalInspector.Result second = inspector.inspect(first.getEntries());
+        Assert.assertTrue(second.hasErrors());
+        Assert.assertEquals(Collections.singleton("feed1"), second.getFailedProcessGroupIds());
+        Assert.assertSame(first.getEntries().get("feed1"), second.getEntries().get("feed1"));
+    }
+
+    /**
+     * Verify a removed feed process group has no entry.
+     */
+    @Test
+    public void removedGroup() {
+        NiFiFlowIncrementalInspector.Result first = inspector.inspect(Collections.emptyMap());
+
+        Mockito.when(processGroups.flow("category")).thenReturn(flow("category", "category", Collections.singletonList(group("feed1", "feed1", 1, 1))));
+
+        NiFiFlowIncrementalInspector.Result second = inspector.inspect(first.getEntries());
+        Assert.assertFalse(second.hasErrors());
+        Assert.assertTrue(second.getEntries().containsKey("feed1"));
+        Assert.assertFalse(second.getEntries().containsKey("feed2"));
+    }
+
+    private ProcessGroupFlowDTO flow(String id, String name, List<ProcessGroupEntity> groups, String... processorIds) {
+        FlowBreadcrumbDTO breadcrumb = new FlowBreadcrumbDTO();
+        breadcrumb.setId(id);
+        breadcrumb.setName(name);
+        FlowBreadcrumbEntity breadcrumbEntity = new FlowBreadcrumbEntity();
+        breadcrumbEntity.setBreadcrumb(breadcrumb);
+
+        FlowDTO flow = new FlowDTO();
+        flow.setProcessGroups(new HashSet<>(groups));
+        flow.setConnections(Collections.emptySet());
+        flow.setProcessors(new HashSet<>());
+        for (String processorId : processorIds) {
+            ProcessorDTO processor = new ProcessorDTO();
+            processor.setId(processorId);
+            processor.setName(processorId);
+            ProcessorEntity entity = new ProcessorEntity();
+            entity.setId(processorId);
+            entity.setComponent(processor);
+            flow.getProcessors().add(entity);
+        }
+
+        ProcessGroupFlowDTO processGroupFlow = new ProcessGroupFlowDTO();
+        processGroupFlow.setId(id);
+        processGroupFlow.setBreadcrumb(breadcrumbEntity);
+        processGroupFlow.setFlow(flow);
+        return processGroupFlow;
+    }
+
+    private ProcessGroupEntity group(String id, String name, long version, int stoppedCount) {
+        ProcessGroupDTO component = new ProcessGroupDTO();
+        component.setId(id);
+        component.setName(name);
+        RevisionDTO revision = new RevisionDTO();
+        revision.setVersion(version);
+
+        ProcessGroupEntity entity = new ProcessGroupEntity();
+        entity.setId(id);
+        entity.setComponent(component);
+        entity.setRevision(revision);
+        entity.setStoppedCount(stoppedCount);
+        return entity;
+    }
+}
@@ -21,6 +21,7 @@ package com.thinkbiganalytics.jms;
  */
 
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
@@ -32,6 +33,7 @@ import org.springframework.jms.annotation.EnableJms;
 import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
 import org.springframework.jms.config.JmsListenerContainerFactory;
 import org.springframework.jms.core.JmsMessagingTemplate;
+import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.jms.support.converter.SimpleMessageConverter;
 import org.springframework.util.StringUtils;
 
@@ -56,6 +58,10 @@ public class JmsConfig {
     @Inject
     private JmsService jmsService;
 
+    @Autowired(required = false)
+    @Qualifier(JmsConstants.JMS_LISTENER_MESSAGE_CONVERTER)
+    private MessageConverter listenerMessageConverter;
+
 
     @Bean
     public ObjectMapperSerializer objectMapperSerializer() {
@@ -82,7 +88,7 @@ public class JmsConfig {
             concurrency = "1-1";
         }
         factory.setConcurrency(concurrency);
-        factory.setMessageConverter(new SimpleMessageConverter());
+        factory.setMessageConverter(listenerMessageConverter != null ? listenerMessageConverter : new SimpleMessageConverter());
 
         jmsService.configureContainerFactory(factory);
 
@@ -27,4 +27,9 @@ public interface JmsConstants {
 
     String JMS_CONTAINER_FACTORY = "jmsContainerFactory";
 
+    /**
+     * Name of an optional MessageConverter bean used by the {@link #JMS_CONTAINER_FACTORY} in place of the SimpleMessageConverter
+     */
+    String JMS_LISTENER_MESSAGE_CONVERTER = "jmsListenerMessageConverter";
+
 }
@@ -140,7 +140,8 @@ public class DataConfidenceJobsCache implements TimeBasedCache<CheckDataJob> {
     }
 
     public List<CheckDataJob> getUserDataConfidenceJobs(Long time, RoleSetExposingSecurityExpressionRoot userContext) {
-        return getDataConfidenceSummary(time).stream().filter(checkDataJob -> feedAclCache.hasAccess(userContext, checkDataJob.getFeedId())).collect(Collectors.toList());
+        FeedAclCache.FeedAccess feedAccess = feedAclCache.getFeedAccess(userContext);
+        return getDataConfidenceSummary(time).stream().filter(checkDataJob -> feedAccess.hasAccess(checkDataJob.getFeedId())).collect(Collectors.toList());
     }
 
 
@@ -327,9 +327,10 @@ public class FeedHealthSummaryCache implements TimeBasedCache<FeedSummary> {
     }
 
     private Predicate<FeedSummary> filter(FeedSummaryFilter filter, RoleSetExposingSecurityExpressionRoot userContext) {
+        FeedAclCache.FeedAccess feedAccess = feedAclCache.getFeedAccess(userContext);
         return s -> {
             try {
-                return feedAclCache.hasAccess(userContext, s.getFeedId().toString()) && fixedFilter(s, filter) && (filter.containsFeed(s.getFeedName()) && filter
+                return feedAccess.hasAccess(s.getFeedId().toString()) && fixedFilter(s, filter) && (filter.containsFeed(s.getFeedName()) && filter
                     .containsState(s.getRunStatus().name().toLowerCase()));
             } catch (Exception e) {
                 return false;
@@ -84,7 +84,8 @@ public class RunningJobsCache implements TimeBasedCache<JobStatusCount> {
 
     public List<JobStatusCount> getUserRunningJobs(Long time) {
         RoleSetExposingSecurityExpressionRoot userContext = feedAclCache.userContext();
-        return getRunningJobs(time).stream().filter(f -> feedAclCache.hasAccess(userContext, f.getFeedId())).collect(Collectors.toList());
+        FeedAclCache.FeedAccess feedAccess = feedAclCache.getFeedAccess(userContext);
+        return getRunningJobs(time).stream().filter(f -> feedAccess.hasAccess(f.getFeedId())).collect(Collectors.toList());
     }
 
     public List<JobStatusCount> getUserRunningJobs() {
@@ -21,6 +21,7 @@ package com.thinkbiganalytics.metadata.config;
  */
 
 import com.thinkbiganalytics.alerts.api.AlertProvider;
+import com.thinkbiganalytics.jms.JmsConstants;
 import com.thinkbiganalytics.metadata.cache.AlertsCache;
 import com.thinkbiganalytics.metadata.cache.CacheService;
 import com.thinkbiganalytics.metadata.cache.CategoryFeedService;
@@ -28,11 +29,13 @@ import com.thinkbiganalytics.metadata.cache.DataConfidenceJobsCache;
 import com.thinkbiganalytics.metadata.cache.FeedHealthSummaryCache;
 import com.thinkbiganalytics.metadata.cache.RunningJobsCache;
 import com.thinkbiganalytics.metadata.cache.ServiceStatusCache;
+import com.thinkbiganalytics.metadata.jobrepo.JobStatusSummaryReconciliationScheduler;
 import com.thinkbiganalytics.metadata.jobrepo.StreamingFeedService;
 import com.thinkbiganalytics.metadata.jobrepo.nifi.provenance.NifiBulletinExceptionExtractor;
 import com.thinkbiganalytics.metadata.jobrepo.nifi.provenance.NifiStatsJmsReceiver;
 import com.thinkbiganalytics.metadata.jobrepo.nifi.provenance.ProvenanceEventFeedUtil;
 import com.thinkbiganalytics.metadata.jobrepo.nifi.provenance.ProvenanceEventReceiver;
+import com.thinkbiganalytics.metadata.jobrepo.nifi.provenance.ProvenanceMessageConverter;
 import com.thinkbiganalytics.metadata.jobrepo.nifi.provenance.RetryProvenanceEventWithDelay;
 import com.thinkbiganalytics.metadata.sla.DefaultServiceLevelAgreementScheduler;
 import com.thinkbiganalytics.metadata.sla.JpaJcrServiceLevelAgreementChecker;
@@ -41,6 +44,7 @@ import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementChecker;
 import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementScheduler;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -59,8 +63,12 @@ public class OperationalMetadataServiceSpringConfiguration {
     }
 
     @Bean
-    public ServiceLevelAgreementChecker serviceLevelAgreementChecker() {
-        return new JpaJcrServiceLevelAgreementChecker();
+    public ServiceLevelAgreementChecker serviceLevelAgreementChecker(@Value("${sla.checker.threads:4}") int threads,
+                                                                     @Value("${sla.checker.skip-unchanged:true}") boolean skipUnchanged) {
+        JpaJcrServiceLevelAgreementChecker checker = new JpaJcrServiceLevelAgreementChecker();
+        checker.setWorkerThreads(threads);
+        checker.setSkipUnchanged(skipUnchanged);
+        return checker;
     }
 
     @Bean(name = "slaActionAlertResponder")
@@ -93,6 +101,17 @@ public class OperationalMetadataServiceSpringConfiguration {
         return new NifiStatsJmsReceiver();
     }
 
+    @Bean(name = JmsConstants.JMS_LISTENER_MESSAGE_CONVERTER)
+    public ProvenanceMessageConverter provenanceMessageConverter() {
+        return new ProvenanceMessageConverter();
+    }
+
+    @Bean
+    @Profile("!kyloUpgrade")
+    public JobStatusSummaryReconciliationScheduler jobStatusSummaryReconciliationScheduler() {
+        return new JobStatusSummaryReconciliationScheduler();
+    }
+
     @Bean
     public NifiBulletinExceptionExtractor nifiBulletinExceptionExtractor(){
         return new NifiBulletinExceptionExtractor();
@@ -0,0 +1,57 @@
+package com.thinkbiganalytics.metadata.jobrepo;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecutionProvider;
+
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+import javax.inject.Inject;
+
+/**
+ * Quartz Scheduled Job Bean that will recompute the recent days of the job status summary to repair any drift from the job executions.
+ * If the {@link #FULL} job data is true, or the number of days is negative, the entire summary is rebuilt.
+ */
+public class JobStatusSummaryReconciliationQuartzJobBean extends QuartzJobBean {
+
+    /**
+     * Job data indicating the entire summary should be rebuilt
+     */
+    public static final String FULL = "full";
+
+    @Inject
+    private BatchJobExecutionProvider batchJobExecutionProvider;
+
+    /**
+     * Number of days before today to recompute
+     */
+    @Value("${kylo.ops.mgr.job-status-summary.reconcile.days:2}")
+    private Integer days = 2;
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) throws JobExecutionException {
+        boolean full = context.getMergedJobDataMap().containsKey(FULL) && context.getMergedJobDataMap().getBoolean(FULL);
+        batchJobExecutionProvider.reconcileJobStatusSummary(full || days == null || days < 0 ? null : days);
+    }
+}
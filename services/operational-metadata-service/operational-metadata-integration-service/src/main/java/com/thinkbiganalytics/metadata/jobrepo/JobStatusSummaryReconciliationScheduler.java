@@ -0,0 +1,89 @@
+package com.thinkbiganalytics.metadata.jobrepo;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.scheduler.JobIdentifier;
+import com.thinkbiganalytics.scheduler.JobScheduler;
+import com.thinkbiganalytics.scheduler.QuartzScheduler;
+import com.thinkbiganalytics.scheduler.TriggerIdentifier;
+import com.thinkbiganalytics.scheduler.model.DefaultJobIdentifier;
+import com.thinkbiganalytics.scheduler.model.DefaultTriggerIdentifier;
+
+import org.apache.commons.lang3.StringUtils;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+/**
+ * Schedules the {@link JobStatusSummaryReconciliationQuartzJobBean} in Quartz if the properties have this enabled with a Cron Expression
+ */
+public class JobStatusSummaryReconciliationScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(JobStatusSummaryReconciliationScheduler.class);
+
+    @Inject
+    private JobScheduler jobScheduler;
+
+    @Value("${kylo.ops.mgr.job-status-summary.enabled:true}")
+    private boolean jobStatusSummaryEnabled;
+
+    @Value("${kylo.ops.mgr.job-status-summary.reconcile.cron:0 0/30 * 1/1 * ? *}")
+    private String reconcileCronSchedule;
+
+    /**
+     * Schedule for rebuilding the entire summary, which repairs changes to jobs older than the reconciled days
+     */
+    @Value("${kylo.ops.mgr.job-status-summary.rebuild.cron:0 0 2 ? * SUN *}")
+    private String rebuildCronSchedule;
+
+    @PostConstruct
+    private void init() {
+        if (jobStatusSummaryEnabled) {
+            schedule("Reconcile Job Status Summary", reconcileCronSchedule, false);
+            schedule("Rebuild Job Status Summary", rebuildCronSchedule, true);
+        }
+    }
+
+    private void schedule(String jobName, String cronSchedule, boolean full) {
+        if (StringUtils.isNotBlank(cronSchedule)) {
+            QuartzScheduler scheduler = (QuartzScheduler) jobScheduler;
+            JobIdentifier jobIdentifier = new DefaultJobIdentifier(jobName, "KYLO");
+            TriggerIdentifier triggerIdentifier = new DefaultTriggerIdentifier(jobIdentifier.getName(), jobIdentifier.getGroup());
+            Map<String, Object> jobData = new HashMap<>();
+            jobData.put(JobStatusSummaryReconciliationQuartzJobBean.FULL, full);
+            try {
+                scheduler.scheduleJob(jobIdentifier, triggerIdentifier, JobStatusSummaryReconciliationQuartzJobBean.class, cronSchedule, jobData);
+            } catch (ObjectAlreadyExistsException e) {
+                log.info("Unable to schedule the job to {}.  It already exists.  Most likely another Kylo node has already scheduled this job.", jobName.toLowerCase());
+            } catch (SchedulerException e) {
+                throw new RuntimeException("Error scheduling job: " + jobName, e);
+            }
+        }
+    }
+}
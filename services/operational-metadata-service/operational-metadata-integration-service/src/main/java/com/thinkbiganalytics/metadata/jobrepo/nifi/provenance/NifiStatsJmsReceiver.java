@@ -55,6 +55,8 @@ import com.thinkbiganalytics.scheduler.model.DefaultTriggerIdentifier;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.nifi.web.api.dto.BulletinDTO;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.LockAcquisitionException;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.quartz.ObjectAlreadyExistsException;
@@ -62,6 +64,8 @@ import org.quartz.SchedulerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jms.annotation.JmsListener;
 
 import java.util.ArrayList;
@@ -111,6 +115,17 @@ public class NifiStatsJmsReceiver implements ClusterServiceMessageReceiver {
     @Value("${kylo.ops.mgr.stats.compact.enabled:true}")
     private boolean compactStatsEnabled;
 
+    @Value("${kylo.ops.mgr.stats.rollup.purge.cron:0 30 0 1/1 * ? *}")
+    private String purgeRollupsCronSchedule;
+
+    @Value("${kylo.ops.mgr.stats.rollup.purge.enabled:true}")
+    private boolean purgeRollupsEnabled;
+
+    /**
+     * The amount of times the rollup of a batch of stats is retried if another transaction created one of its rollups first, or it fails to acquire a lock
+     */
+    private static final int ROLLUP_RETRY_ATTEMPTS = 4;
+
     public static final String NIFI_FEED_PROCESSOR_ERROR_CLUSTER_TYPE = "NIFI_FEED_PROCESSOR_ERROR";
 
     @Inject
@@ -142,6 +157,7 @@ public class NifiStatsJmsReceiver implements ClusterServiceMessageReceiver {
     private void init() {
         retryProvenanceEventWithDelay.setStatsJmsReceiver(this);
         scheduleStatsCompaction();
+        scheduleRollupPurge();
     }
 
     /**
@@ -171,6 +187,24 @@ public class NifiStatsJmsReceiver implements ClusterServiceMessageReceiver {
         }
     }
 
+    /**
+     * Schedule the job to purge the expired stats rollups in Quartz if the properties have this enabled with a Cron Expression
+     */
+    private void scheduleRollupPurge() {
+        if (purgeRollupsEnabled && StringUtils.isNotBlank(purgeRollupsCronSchedule)) {
+            QuartzScheduler scheduler = (QuartzScheduler) jobScheduler;
+            JobIdentifier jobIdentifier = new DefaultJobIdentifier("Purge NiFi Processor Stats Rollups", "KYLO");
+            TriggerIdentifier triggerIdentifier = new DefaultTriggerIdentifier(jobIdentifier.getName(), jobIdentifier.getGroup());
+            try {
+                scheduler.scheduleJob(jobIdentifier, triggerIdentifier, NiFiStatsRollupPurgeQuartzJobBean.class, purgeRollupsCronSchedule, null);
+            } catch (ObjectAlreadyExistsException e) {
+                log.info("Unable to schedule the job to purge the NiFi processor stats rollups.  It already exists.  Most likely another Kylo node has already scheduled this job. ");
+            } catch (SchedulerException e) {
+                throw new RuntimeException("Error scheduling job: Purge NiFi Processor Stats Rollups", e);
+            }
+        }
+    }
+
     /**
      * get Errors in memory for a feed
      *
@@ -246,7 +280,7 @@ public class NifiStatsJmsReceiver implements ClusterServiceMessageReceiver {
 
             if (ensureValidRetryAttempt(stats)) {
                 final List<AggregatedFeedProcessorStatistics> unregisteredEvents = new ArrayList<>();
-                metadataAccess.commit(() -> {
+                List<NifiFeedProcessorStats> savedStats = metadataAccess.commit(() -> {
                     List<NifiFeedProcessorStats> summaryStats = createSummaryStats(stats, unregisteredEvents);
 
                     List<JpaNifiFeedProcessorStats> failedStatsWithFlowFiles = new ArrayList<>();
@@ -266,6 +300,9 @@ public class NifiStatsJmsReceiver implements ClusterServiceMessageReceiver {
                     return summaryStats;
                 }, MetadataAccess.SERVICE);
 
+                //the rollups are updated in their own transaction so a conflict with another consumer does not roll back the stats
+                rollup(savedStats, 0);
+
                 if (clusterService.isClustered() && !unregisteredEvents.isEmpty()) {
                     //reprocess with delay
                     if (retryProvenanceEventWithDelay != null) {
@@ -285,6 +322,60 @@ public class NifiStatsJmsReceiver implements ClusterServiceMessageReceiver {
     }
 
 
+    /**
+     * Add the saved stats to the rollups.
+     * If another consumer, or node, created one of the rollups first, or there is a lock error, the rollup is retried until it hits the {@link #ROLLUP_RETRY_ATTEMPTS}.
+     * After that the stats are marked so their rollups are rebuilt later.
+     *
+     * @param stats        the saved stats
+     * @param retryAttempt the retry number
+     */
+    private void rollup(List<NifiFeedProcessorStats> stats, int retryAttempt) {
+        if (stats == null || stats.isEmpty()) {
+            return;
+        }
+        try {
+            metadataAccess.commit(() -> nifiEventStatisticsProvider.rollup(stats), MetadataAccess.SERVICE);
+        } catch (Exception e) {
+            if (isRollupConflict(e) && retryAttempt < ROLLUP_RETRY_ATTEMPTS) {
+                retryAttempt++;
+                log.warn("Unable to rollup {} stats as another transaction updated the same rollups.  Retry attempt # {} ", stats.size(), retryAttempt);
+                rollup(stats, retryAttempt);
+            } else {
+                log.error("Unable to rollup {} stats.  The rollups will be rebuilt from the saved stats by the rollup purge job. ", stats.size(), e);
+                markRollupFailed(stats);
+            }
+        }
+    }
+
+    /**
+     * Record the stats that could not be added to the rollups so the purge job can rebuild their rollups
+     *
+     * @param stats the saved stats
+     */
+    private void markRollupFailed(List<NifiFeedProcessorStats> stats) {
+        try {
+            metadataAccess.commit(() -> nifiEventStatisticsProvider.markRollupFailed(stats), MetadataAccess.SERVICE);
+        } catch (Exception e) {
+            log.error("Unable to record the failed rollup of {} stats.  The stats are saved but queries over longer time frames will not include them. ", stats.size(), e);
+        }
+    }
+
+    /**
+     * @param e the exception thrown updating the rollups
+     * @return true if the exception is a lock error or a constraint violation raised inserting a rollup that another transaction already inserted
+     */
+    private boolean isRollupConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof LockAcquisitionException || cause instanceof ConcurrencyFailureException
+                || cause instanceof ConstraintViolationException || cause instanceof DataIntegrityViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
     private void assignNiFiBulletinErrors(List<JpaNifiFeedProcessorStats> stats) {
 
         //might need to query with the 'after' parameter
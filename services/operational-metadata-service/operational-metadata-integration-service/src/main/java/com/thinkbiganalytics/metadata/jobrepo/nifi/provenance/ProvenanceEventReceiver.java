@@ -40,6 +40,7 @@ import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolde
 import com.thinkbiganalytics.nifi.rest.client.LegacyNifiRestClient;
 
 import org.apache.nifi.web.api.dto.BulletinDTO;
+import org.hibernate.exception.ConstraintViolationException;
 import org.hibernate.exception.LockAcquisitionException;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
@@ -50,6 +51,7 @@ import org.springframework.jms.annotation.JmsListener;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
@@ -62,6 +64,16 @@ public class ProvenanceEventReceiver implements FailedStepExecutionListener {
 
     private static final Logger log = LoggerFactory.getLogger(ProvenanceEventReceiver.class);
 
+    /**
+     * Matches the statement that inserts the job execution of a flow file
+     */
+    private static final Pattern JOB_FLOW_FILE_INSERT = Pattern.compile("\\binsert\\s+into\\s+BATCH_NIFI_JOB\\b", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Matches the names MySQL, PostgreSQL and SQL Server give to the unnamed primary key of the BATCH_NIFI_JOB table
+     */
+    private static final Pattern JOB_FLOW_FILE_PRIMARY_KEY = Pattern.compile("PRIMARY|batch_nifi_job_pkey|PK__BATCH_NI.*", Pattern.CASE_INSENSITIVE);
+
     @Inject
     OpsManagerFeedProvider opsManagerFeedProvider;
     @Inject
@@ -88,6 +100,14 @@ public class ProvenanceEventReceiver implements FailedStepExecutionListener {
     @Value("${kylo.ops.mgr.stream.finished.notification.wait-time-sec:5}")
     private Integer streamJobFinishedNotificationWaitTime = 5;
 
+    /**
+     * Should ops manager persist all the events in a batch using a single transaction.
+     * When true the events are processed in the order they were received and the jobs and steps for the entire batch are written in one commit,
+     * otherwise each event is processed in its own transaction(s)
+     */
+    @Value("${kylo.ops.mgr.provenance.batch-persistence.enabled:false}")
+    private boolean batchPersistence;
+
     @Inject
     private NifiEventProvider nifiEventProvider;
     @Inject
@@ -185,16 +205,25 @@ public class ProvenanceEventReceiver implements FailedStepExecutionListener {
 
             if (ensureValidRetryAttempt(events)) {
                 List<ProvenanceEventRecordDTO> unregisteredEvents = new ArrayList<>();
+                List<ProvenanceEventRecordDTO> registeredEvents = new ArrayList<>();
 
                 events.getEvents().stream().map(event -> provenanceEventFeedUtil.enrichEventWithFeedInformation(event)).forEach(event -> {
 
                     if (provenanceEventFeedUtil.isRegisteredWithFeedManager(event)) {
-                        processEvent(event, 0);
+                        if (batchPersistence) {
+                            registeredEvents.add(event);
+                        } else {
+                            processEvent(event, 0);
+                        }
                     } else {
                         unregisteredEvents.add(event);
                     }
                 });
 
+                if (!registeredEvents.isEmpty()) {
+                    processEvents(registeredEvents, 0);
+                }
+
                 if (clusterService.isClustered() && !unregisteredEvents.isEmpty()) {
                     //reprocess with delay
                     if (retryProvenanceEventWithDelay != null) {
@@ -251,18 +280,109 @@ public class ProvenanceEventReceiver implements FailedStepExecutionListener {
                 try {
                     Thread.sleep(300L);
                 } catch (InterruptedException var10) {
-
+                    Thread.currentThread().interrupt();
                 }
                 processEvent(event, retryAttempt);
             } else {
                 log.error("LockAcquisitionException found.  Unsuccessful after retrying {} times.  This event {} will not be processed. ", retryAttempt, event, lae);
             }
         } catch (Exception e) {
-            log.error("Error processing Event ", event, e);
+            if (isDuplicateJobExecution(e) && retryAttempt < lockAcquisitionRetryAmount) {
+                //another thread or node committed the job for this flow file first.  Retry to pick up its job execution
+                retryAttempt++;
+                log.warn("The job execution for Event: {} was created by another transaction.  Retry attempt # {} ", event, retryAttempt);
+                processEvent(event, retryAttempt);
+            } else {
+                log.error("Error processing Event ", event, e);
+            }
         }
 
     }
 
+    /**
+     * The job flow file id is the primary key of the BATCH_NIFI_JOB table so two transactions creating a job execution for the same flow file cannot both commit.
+     *
+     * @param e the exception thrown processing an event
+     * Any other constraint violation is a genuine error and is not retried.
+     *
+     * @return true if the exception is a violation of the BATCH_NIFI_JOB primary key raised creating a job execution that another transaction already created
+     */
+    private boolean isDuplicateJobExecution(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                ConstraintViolationException violation = (ConstraintViolationException) cause;
+                String constraintName = violation.getConstraintName();
+                return violation.getSQL() != null && JOB_FLOW_FILE_INSERT.matcher(violation.getSQL()).find()
+                       && (constraintName == null || JOB_FLOW_FILE_PRIMARY_KEY.matcher(constraintName).matches());
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Process a batch of events in a single transaction.
+     * The events are processed in the order they were received so the steps of each job, and the jobs of each feed, are created in event order.
+     * If there is a lock error, or another transaction created one of the job executions first, the whole batch will retry until it hits the {@link #lockAcquisitionRetryAmount}.
+     * Any other error will roll back the batch and fall back to processing each event individually using {@link #processEvent(ProvenanceEventRecordDTO, int)}.
+     * The job execution provider discards any cached job state written by a batch that is rolled back so a retry starts from what was committed.
+     *
+     * @param events       the provenance events registered with the feed manager
+     * @param retryAttempt the retry number
+     */
+    private void processEvents(List<ProvenanceEventRecordDTO> events, int retryAttempt) {
+        try {
+            log.debug("Process {} events in a single transaction", events.size());
+
+            List<FinishedJobEvent> finishedJobs = metadataAccess.commit(() -> {
+                List<FinishedJobEvent> finished = new ArrayList<>();
+                List<OpsManagerFeed> feeds = events.stream().map(event -> provenanceEventFeedUtil.getFeed(event)).collect(Collectors.toList());
+                //lock the feeds up front in a consistent order so concurrent batches sharing feeds do not deadlock
+                batchJobExecutionProvider.lockFeedsForJobCreation(feeds);
+                for (int i = 0; i < events.size(); i++) {
+                    ProvenanceEventRecordDTO event = events.get(i);
+                    OpsManagerFeed feed = feeds.get(i);
+                    BatchJobExecution jobExecution = batchJobExecutionProvider.getOrCreateJobExecution(event, feed);
+                    if (jobExecution != null) {
+                        batchJobExecutionProvider.updateFeedJobStartTime(jobExecution, feed);
+                        if (!event.isStream()) {
+                            //the job execution is already attached to this transaction so there is no need to query it again
+                            batchJobExecutionProvider.save(jobExecution, event);
+                        }
+                        if (event.isFinalJobEvent()) {
+                            finished.add(new FinishedJobEvent(jobExecution, event));
+                        }
+                    }
+                }
+                return finished;
+            }, MetadataAccess.SERVICE);
+
+            finishedJobs.forEach(finishedJob -> notifyJobFinished(finishedJob.jobExecution, finishedJob.event));
+        } catch (LockAcquisitionException lae) {
+            if (retryAttempt < lockAcquisitionRetryAmount) {
+                retryAttempt++;
+                log.error("LockAcquisitionException found trying to process a batch of {} events.  Retry attempt # {} ", events.size(), retryAttempt, lae);
+                try {
+                    Thread.sleep(300L);
+                } catch (InterruptedException var10) {
+                    Thread.currentThread().interrupt();
+                }
+                processEvents(events, retryAttempt);
+            } else {
+                log.error("LockAcquisitionException found.  Unsuccessful after retrying {} times.  Processing the {} events individually. ", retryAttempt, events.size(), lae);
+                events.forEach(event -> processEvent(event, 0));
+            }
+        } catch (Exception e) {
+            if (isDuplicateJobExecution(e) && retryAttempt < lockAcquisitionRetryAmount) {
+                retryAttempt++;
+                log.warn("A job execution in the batch of {} events was created by another transaction.  Retry attempt # {} ", events.size(), retryAttempt);
+                processEvents(events, retryAttempt);
+            } else {
+                log.error("Error processing a batch of {} events.  Processing the events individually. ", events.size(), e);
+                events.forEach(event -> processEvent(event, 0));
+            }
+        }
+    }
 
     /**
      * Process this record and record the Job and steps
@@ -423,5 +543,18 @@ public class ProvenanceEventReceiver implements FailedStepExecutionListener {
         nifiBulletinExceptionExtractor.addErrorMessagesToStep(stepExecution, flowFileId, componentId);
     }
 
+    /**
+     * A job execution along with the final event that finished it
+     */
+    private static class FinishedJobEvent {
+
+        private final BatchJobExecution jobExecution;
+        private final ProvenanceEventRecordDTO event;
+
+        FinishedJobEvent(BatchJobExecution jobExecution, ProvenanceEventRecordDTO event) {
+            this.jobExecution = jobExecution;
+            this.event = event;
+        }
+    }
 
 }
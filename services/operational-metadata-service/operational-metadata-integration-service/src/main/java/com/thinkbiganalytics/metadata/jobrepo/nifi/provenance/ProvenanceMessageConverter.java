@@ -0,0 +1,53 @@
+package com.thinkbiganalytics.metadata.jobrepo.nifi.provenance;
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.codec.ProvenanceMessageCodec;
+
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.SimpleMessageConverter;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * Converts the JMS messages received from NiFi.
+ * Messages written with the binary {@link ProvenanceMessageCodec} are decoded back into the provenance event and statistics holders, everything else is handled by the {@link SimpleMessageConverter}
+ * so java serialized messages from NiFi instances that have not enabled the binary format continue to work.
+ */
+public class ProvenanceMessageConverter extends SimpleMessageConverter {
+
+    @Override
+    public Object fromMessage(Message message) throws JMSException, MessageConversionException {
+        if (message instanceof BytesMessage) {
+            byte[] bytes = extractByteArrayFromMessage((BytesMessage) message);
+            if (ProvenanceMessageCodec.isEncoded(bytes)) {
+                try {
+                    return ProvenanceMessageCodec.decode(bytes);
+                } catch (IllegalArgumentException e) {
+                    throw new MessageConversionException("Unable to decode the provenance message " + message.getJMSMessageID(), e);
+                }
+            }
+            return bytes;
+        }
+        return super.fromMessage(message);
+    }
+}
@@ -21,6 +21,7 @@ package com.thinkbiganalytics.metadata.sla;
  */
 
 
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
 import com.thinkbiganalytics.metadata.modeshape.JcrMetadataAccess;
 import com.thinkbiganalytics.metadata.sla.api.AssessmentResult;
 import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreement;
@@ -43,6 +44,14 @@ public class JpaJcrServiceLevelAgreementChecker extends DefaultServiceLevelAgree
     @Inject
     JcrMetadataAccess jcrMetadataAccess;
 
+    /**
+     * Each worker assesses its SLA in its own transaction as the caller's session is bound to the caller's thread.
+     */
+    @Override
+    protected void executeInWorker(Runnable task) {
+        jcrMetadataAccess.commit(() -> task.run(), MetadataAccess.SERVICE);
+    }
+
     /**
      * Runs the assessment provider on the provided agreement and acts accordingly.
      *
@@ -0,0 +1,177 @@
+package com.thinkbiganalytics.metadata.jobrepo.nifi.provenance;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.cluster.ClusterService;
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.MetadataCommand;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecutionProvider;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.LockAcquisitionException;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Matchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.security.Principal;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Tests the batch persistence mode of the {@link ProvenanceEventReceiver}
+ */
+public class ProvenanceEventReceiverTest {
+
+    @Mock
+    private ProvenanceEventFeedUtil provenanceEventFeedUtil;
+
+    @Mock
+    private BatchJobExecutionProvider batchJobExecutionProvider;
+
+    @Mock
+    private MetadataAccess metadataAccess;
+
+    @Mock
+    private ClusterService clusterService;
+
+    @Mock
+    private OpsManagerFeed feed;
+
+    @Mock
+    private BatchJobExecution jobExecution;
+
+    @InjectMocks
+    private ProvenanceEventReceiver receiver;
+
+    @BeforeMethod
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(receiver, "batchPersistence", true);
+
+        Mockito.when(provenanceEventFeedUtil.isNifiFlowCacheAvailable()).thenReturn(true);
+        Mockito.when(provenanceEventFeedUtil.enrichEventWithFeedInformation(Matchers.any(ProvenanceEventRecordDTO.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+        Mockito.when(provenanceEventFeedUtil.isRegisteredWithFeedManager(Matchers.any(ProvenanceEventRecordDTO.class))).thenReturn(true);
+        Mockito.when(provenanceEventFeedUtil.getFeed(Matchers.any(ProvenanceEventRecordDTO.class))).thenReturn(feed);
+        Mockito.when(batchJobExecutionProvider.getOrCreateJobExecution(Matchers.any(ProvenanceEventRecordDTO.class), Matchers.any(OpsManagerFeed.class))).thenReturn(jobExecution);
+    }
+
+    /**
+     * Events for different jobs are interleaved in a batch. They should be processed in the order they were received.
+     */
+    @Test
+    public void testBatchPreservesEventOrder() throws Exception {
+        mockCommit();
+        ProvenanceEventRecordDTO event1 = newEvent(1L, "job-a");
+        ProvenanceEventRecordDTO event2 = newEvent(2L, "job-b");
+        ProvenanceEventRecordDTO event3 = newEvent(3L, "job-a");
+
+        receiver.receiveEvents(newHolder(event1, event2, event3));
+
+        InOrder inOrder = Mockito.inOrder(batchJobExecutionProvider);
+        inOrder.verify(batchJobExecutionProvider).save(jobExecution, event1);
+        inOrder.verify(batchJobExecutionProvider).save(jobExecution, event2);
+        inOrder.verify(batchJobExecutionProvider).save(jobExecution, event3);
+    }
+
+    /**
+     * A lock error rolls back the batch and the whole batch is run again in a new transaction
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBatchRetriedAfterLockError() throws Exception {
+        Mockito.when(metadataAccess.commit(Matchers.any(MetadataCommand.class), Matchers.<Principal>anyVararg()))
+            .thenThrow(new LockAcquisitionException("deadlock", new SQLException("deadlock")))
+            .thenAnswer(invocation -> ((MetadataCommand<?>) invocation.getArguments()[0]).execute());
+        ProvenanceEventRecordDTO event1 = newEvent(1L, "job-a");
+        ProvenanceEventRecordDTO event2 = newEvent(2L, "job-b");
+
+        receiver.receiveEvents(newHolder(event1, event2));
+
+        Mockito.verify(metadataAccess, Mockito.times(2)).commit(Matchers.any(MetadataCommand.class), Matchers.<Principal>anyVararg());
+        Mockito.verify(batchJobExecutionProvider, Mockito.times(1)).save(jobExecution, event1);
+        Mockito.verify(batchJobExecutionProvider, Mockito.times(1)).save(jobExecution, event2);
+    }
+
+    /**
+     * Another transaction created the job execution for the same flow file first. The batch is run again to pick up that job execution
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBatchRetriedAfterDuplicateJobExecution() throws Exception {
+        Mockito.when(metadataAccess.commit(Matchers.any(MetadataCommand.class), Matchers.<Principal>anyVararg()))
+            .thenThrow(new ConstraintViolationException("duplicate", new SQLException("duplicate"), "insert into BATCH_NIFI_JOB (FLOW_FILE_ID) values (?)", "PRIMARY"))
+            .thenAnswer(invocation -> ((MetadataCommand<?>) invocation.getArguments()[0]).execute());
+        ProvenanceEventRecordDTO event1 = newEvent(1L, "job-a");
+
+        receiver.receiveEvents(newHolder(event1));
+
+        Mockito.verify(metadataAccess, Mockito.times(2)).commit(Matchers.any(MetadataCommand.class), Matchers.<Principal>anyVararg());
+        Mockito.verify(batchJobExecutionProvider, Mockito.times(1)).save(jobExecution, event1);
+    }
+
+    /**
+     * Any other constraint violation is not mistaken for a duplicate job execution, so the batch is not retried and the events are processed individually
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBatchNotRetriedAfterOtherConstraintViolation() throws Exception {
+        Mockito.when(metadataAccess.commit(Matchers.any(MetadataCommand.class), Matchers.<Principal>anyVararg()))
+            .thenThrow(new ConstraintViolationException("fk", new SQLException("fk"), "insert into BATCH_STEP_EXECUTION (STEP_EXECUTION_ID) values (?)", "FK_STEP_JOB"))
+            .thenAnswer(invocation -> ((MetadataCommand<?>) invocation.getArguments()[0]).execute());
+        ProvenanceEventRecordDTO event1 = newEvent(1L, "job-a");
+
+        receiver.receiveEvents(newHolder(event1));
+
+        Mockito.verify(batchJobExecutionProvider, Mockito.never()).lockFeedsForJobCreation(Matchers.anyListOf(OpsManagerFeed.class));
+        Mockito.verify(batchJobExecutionProvider, Mockito.times(1)).getOrCreateJobExecution(event1, feed);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockCommit() throws Exception {
+        Mockito.when(metadataAccess.commit(Matchers.any(MetadataCommand.class), Matchers.<Principal>anyVararg()))
+            .thenAnswer(invocation -> ((MetadataCommand<?>) invocation.getArguments()[0]).execute());
+    }
+
+    private ProvenanceEventRecordDTO newEvent(Long eventId, String jobFlowFileId) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventId);
+        event.setJobFlowFileId(jobFlowFileId);
+        event.setFlowFileUuid(jobFlowFileId);
+        event.setFeedName("category.feed");
+        return event;
+    }
+
+    private ProvenanceEventRecordDTOHolder newHolder(ProvenanceEventRecordDTO... events) {
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        holder.setEvents(Arrays.asList(events));
+        return holder;
+    }
+}
@@ -25,6 +25,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.thinkbiganalytics.discovery.schema.DatabaseMetadata;
 import com.thinkbiganalytics.discovery.schema.QueryResult;
 import com.thinkbiganalytics.discovery.schema.TableSchema;
+import com.thinkbiganalytics.hive.rest.io.QueryResultStreamingOutput;
 import com.thinkbiganalytics.hive.service.HiveMetastoreService;
 import com.thinkbiganalytics.hive.service.HiveService;
 import com.thinkbiganalytics.rest.model.RestResponseStatus;
@@ -38,6 +39,7 @@ import org.springframework.dao.DataAccessException;
 import java.security.AccessControlException;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
@@ -47,6 +49,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -136,6 +139,21 @@ public class HiveRestController {
     }
 
 
+    @GET
+    @Path("/browse/{schema}/{table}/stream")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Queries the specified table and streams the result.",
+                  notes = "Rows are written as arrays of values as they are fetched from Hive. The stream ends with truncated=true if the byte limit is reached.")
+    @ApiResponses({
+                      @ApiResponse(code = 200, message = "Returns the result as columnar JSON."),
+                      @ApiResponse(code = 500, message = "Hive is unavailable.", response = RestResponseStatus.class)
+                  })
+    public Response streamTable(@PathParam("schema") String schema, @PathParam("table") String table, @QueryParam("where") String where, @QueryParam("limit") @DefaultValue("20") Integer limit,
+                                @QueryParam("fetchSize") @DefaultValue("1000") int fetchSize, @QueryParam("maxBytes") @DefaultValue("0") long maxBytes) {
+        final String query = hiveService.getBrowseQuery(schema, table, where, limit);
+        return Response.ok(streamQuery(query, fetchSize, 0, maxBytes)).build();
+    }
+
     @GET
     @Path("/query")
     @Produces(MediaType.APPLICATION_JSON)
@@ -169,7 +187,7 @@ public class HiveRestController {
         try {
             list = hiveService.query(query);
         } catch (DataAccessException e) {
-            if (e.getCause().getMessage().contains("HiveAccessControlException Permission denied")) {
+            if (isPermissionDenied(e)) {
                 throw new AccessControlException("You do not have permission to execute this hive query");
             } else {
                 log.error("Error Querying Hive for query: " + query);
@@ -181,6 +199,47 @@ public class HiveRestController {
     }
 
 
+    @GET
+    @Path("/query-result/stream")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Executes a Hive query and streams the result.",
+                  notes = "Rows are written as arrays of values as they are fetched from Hive. The stream ends with truncated=true if the row or byte limit is reached.")
+    @ApiResponses({
+                      @ApiResponse(code = 200, message = "Returns the result as columnar JSON."),
+                      @ApiResponse(code = 500, message = "Hive is unavailable.", response = RestResponseStatus.class)
+                  })
+    public Response streamQueryResult(@QueryParam("query") String query, @QueryParam("fetchSize") @DefaultValue("1000") int fetchSize, @QueryParam("maxRows") @DefaultValue("0") long maxRows,
+                                      @QueryParam("maxBytes") @DefaultValue("0") long maxBytes) {
+        return Response.ok(streamQuery(query, fetchSize, maxRows, maxBytes)).build();
+    }
+
+    /**
+     * Streams the result of the query, failing with an {@link AccessControlException} if Hive denies permission to execute it.
+     */
+    private StreamingOutput streamQuery(final String query, final int fetchSize, final long maxRows, final long maxBytes) {
+        final StreamingOutput result = new QueryResultStreamingOutput(hiveService, query, fetchSize, maxRows, maxBytes);
+        return output -> {
+            try {
+                result.write(output);
+            } catch (DataAccessException e) {
+                if (isPermissionDenied(e)) {
+                    throw new AccessControlException("You do not have permission to execute this hive query");
+                } else {
+                    log.error("Error Querying Hive for query: " + query);
+                    throw e;
+                }
+            }
+        };
+    }
+
+    /**
+     * Indicates if Hive denied permission to execute a query.
+     */
+    private boolean isPermissionDenied(DataAccessException e) {
+        return e.getCause() != null && e.getCause().getMessage() != null && e.getCause().getMessage().contains("HiveAccessControlException Permission denied");
+    }
+
+
     @GET
     @Path("/schemas/{schema}/tables/{table}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -232,19 +291,23 @@ public class HiveRestController {
     @GET
     @Path("/tables")
     @Produces(MediaType.APPLICATION_JSON)
-    @ApiOperation("Lists every table in Hive.")
+    @ApiOperation(value = "Lists every table in Hive.", notes = "If a filter is given then only tables whose name contains the filter are returned, up to the limit.")
     @ApiResponses({
                       @ApiResponse(code = 200, message = "Returns the table names.", response = String.class, responseContainer = "List"),
                       @ApiResponse(code = 500, message = "Hive is unavailable.", response = RestResponseStatus.class)
                   })
-    public Response getTables() {
+    public Response getTables(@QueryParam("filter") String filter, @QueryParam("limit") @DefaultValue("1000") int limit) {
         List<String> tables;
         boolean userImpersonationEnabled = Boolean.valueOf(env.getProperty("hive.userImpersonation.enabled"));
         if (userImpersonationEnabled) {
             tables = hiveService.getAllTablesForImpersonatedUser();
+            if (filter != null) {
+                final String search = filter.toLowerCase();
+                tables = tables.stream().filter(table -> table.toLowerCase().contains(search)).limit(limit).collect(Collectors.toList());
+            }
         } else {
             try {
-                tables = hiveMetadataService.getAllTables();
+                tables = (filter != null) ? hiveMetadataService.searchTables(filter, limit) : hiveMetadataService.getAllTables();
             } catch (DataAccessException e) {
                 log.error("Error listing Hive Tables from the metastore ", e);
                 throw e;
@@ -0,0 +1,193 @@
+package com.thinkbiganalytics.hive.rest.io;
+
+/*-
+ * #%L
+ * thinkbig-thrift-proxy-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.CountingOutputStream;
+import com.thinkbiganalytics.discovery.schema.QueryResultColumn;
+import com.thinkbiganalytics.hive.service.HiveService;
+import com.thinkbiganalytics.schema.QueryResultHandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Executes a Hive query and writes the result to an output stream as rows are read.
+ *
+ * <p>The result is written as columnar JSON: the column metadata once, followed by each row as an array of values in column order.</p>
+ * <pre>
+ * {"query": "...", "columns": [...], "rows": [[...], [...]], "rowCount": 2, "truncated": false}
+ * </pre>
+ *
+ * <p>Nothing is written until the query has been executed, so an error executing the query can still be returned as an error response. The stream ends
+ * cleanly with {@code truncated} set to {@code true} when the row or byte limit is reached.</p>
+ */
+public class QueryResultStreamingOutput implements StreamingOutput {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryResultStreamingOutput.class);
+
+    /**
+     * Serializes column metadata and values
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Executes the query
+     */
+    @Nonnull
+    private final HiveService hiveService;
+
+    /**
+     * Query to execute
+     */
+    @Nonnull
+    private final String query;
+
+    /**
+     * Number of rows to fetch from Hive at a time
+     */
+    private final int fetchSize;
+
+    /**
+     * Maximum number of rows to write, or 0 for no limit
+     */
+    private final long maxRows;
+
+    /**
+     * Maximum number of bytes to write, or 0 for no limit
+     */
+    private final long maxBytes;
+
+    /**
+     * Constructs a {@code QueryResultStreamingOutput} for the specified query.
+     *
+     * @param hiveService the Hive service
+     * @param query       the SELECT query
+     * @param fetchSize   the number of rows to fetch from Hive at a time, or 0 for the driver default
+     * @param maxRows     the maximum number of rows to write, or 0 for no limit
+     * @param maxBytes    the maximum number of bytes to write, or 0 for no limit
+     */
+    public QueryResultStreamingOutput(@Nonnull final HiveService hiveService, @Nonnull final String query, final int fetchSize, final long maxRows, final long maxBytes) {
+        this.hiveService = hiveService;
+        this.query = query;
+        this.fetchSize = fetchSize;
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void write(@Nonnull final OutputStream output) throws IOException {
+        final CountingOutputStream counter = new CountingOutputStream(output);
+        final JsonGenerator generator = MAPPER.getFactory().createGenerator(counter);
+        final Writer writer = new Writer(generator, counter);
+
+        try {
+            hiveService.stream(query, fetchSize, writer);
+            if (!writer.started) {
+                writer.onColumns(Collections.<QueryResultColumn>emptyList());
+            }
+            generator.writeEndArray();
+            generator.writeNumberField("rowCount", writer.rows);
+            generator.writeBooleanField("truncated", writer.truncated);
+            generator.writeEndObject();
+            generator.flush();
+        } catch (final UncheckedIOException e) {
+            log.debug("Unable to write query result for query: {}", query, e);
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes each row to the JSON generator until a limit is reached.
+     */
+    private class Writer implements QueryResultHandler {
+
+        @Nonnull
+        private final JsonGenerator generator;
+
+        @Nonnull
+        private final CountingOutputStream counter;
+
+        /**
+         * Indicates the rows array has been started
+         */
+        boolean started;
+
+        /**
+         * Number of rows written
+         */
+        long rows;
+
+        /**
+         * Indicates the result was cut short by a limit
+         */
+        boolean truncated;
+
+        Writer(@Nonnull final JsonGenerator generator, @Nonnull final CountingOutputStream counter) {
+            this.generator = generator;
+            this.counter = counter;
+        }
+
+        @Override
+        public void onColumns(@Nonnull final List<QueryResultColumn> columns) {
+            try {
+                generator.writeStartObject();
+                generator.writeStringField("query", query);
+                generator.writeFieldName("columns");
+                generator.writeObject(columns);
+                generator.writeArrayFieldStart("rows");
+                started = true;
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean onRow(@Nonnull final Object[] row) {
+            if ((maxRows > 0 && rows >= maxRows) || (maxBytes > 0 && counter.getCount() + generator.getOutputBuffered() >= maxBytes)) {
+                truncated = true;
+                return false;
+            }
+
+            try {
+                generator.writeStartArray();
+                for (final Object value : row) {
+                    generator.writeObject(value);
+                }
+                generator.writeEndArray();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            ++rows;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.thinkbiganalytics.hive.service;
+
+/*-
+ * #%L
+ * thinkbig-thrift-proxy-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * An in-memory index of the tables and columns in the Hive metastore.
+ *
+ * <p>The catalog is updated from a listing of every table with its column descriptor id. Columns are only loaded for tables that are new or whose column descriptor
+ * changed, since the metastore creates a new column descriptor whenever the columns of a table are altered. Readers always see a complete, immutable snapshot.</p>
+ */
+public class HiveMetastoreCatalog {
+
+    /**
+     * Current snapshot, or {@code null} if the catalog has not been loaded
+     */
+    @Nullable
+    private volatile Snapshot snapshot;
+
+    /**
+     * Indicates the catalog has been loaded.
+     */
+    public boolean isLoaded() {
+        return snapshot != null;
+    }
+
+    /**
+     * Gets every table ordered by database and table name.
+     */
+    @Nonnull
+    public Collection<Table> getTables() {
+        final Snapshot current = snapshot;
+        return (current != null) ? current.byName.values() : Collections.<Table>emptyList();
+    }
+
+    /**
+     * Gets the table with the specified database and table name.
+     *
+     * @return the table, or {@code null} if not found
+     */
+    @Nullable
+    public Table getTable(@Nonnull final String database, @Nonnull final String table) {
+        final Snapshot current = snapshot;
+        return (current != null) ? current.byName.get(key(database + "." + table)) : null;
+    }
+
+    /**
+     * Finds the tables whose {@code database.table} name contains the specified text, ignoring case.
+     *
+     * <p>Tables whose qualified name or table name starts with the text are listed before other matches.</p>
+     *
+     * @param text  the text to search for
+     * @param limit the maximum number of tables to return
+     * @return the matching tables
+     */
+    @Nonnull
+    public List<Table> search(@Nonnull final String text, final int limit) {
+        final Snapshot current = snapshot;
+        if (current == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        final String search = key(text);
+        final Set<Table> matches = new LinkedHashSet<>();
+
+        // Prefix matches on the qualified name
+        for (final Map.Entry<String, Table> entry : current.byName.tailMap(search, true).entrySet()) {
+            if (matches.size() >= limit || !entry.getKey().startsWith(search)) {
+                break;
+            }
+            matches.add(entry.getValue());
+        }
+
+        // Prefix matches on the table name
+        for (final Map.Entry<String, List<Table>> entry : current.byTableName.tailMap(search, true).entrySet()) {
+            if (matches.size() >= limit || !entry.getKey().startsWith(search)) {
+                break;
+            }
+            for (final Table table : entry.getValue()) {
+                if (matches.size() >= limit) {
+                    break;
+                }
+                matches.add(table);
+            }
+        }
+
+        // Substring matches
+        for (final Map.Entry<String, Table> entry : current.byName.entrySet()) {
+            if (matches.size() >= limit) {
+                break;
+            }
+            if (entry.getKey().contains(search)) {
+                matches.add(entry.getValue());
+            }
+        }
+        return new ArrayList<>(matches);
+    }
+
+    /**
+     * Updates the catalog to match the specified listing of tables.
+     *
+     * @param tables       every table in the metastore, without columns
+     * @param columnLoader loads the columns for a set of column descriptor ids
+     * @return the number of tables whose columns were loaded
+     */
+    public synchronized int update(@Nonnull final List<Table> tables, @Nonnull final Function<Set<Long>, Map<Long, List<Column>>> columnLoader) {
+        final Snapshot previous = snapshot;
+
+        // Find new or altered tables
+        final Set<Long> changedDescriptors = new HashSet<>();
+        for (final Table table : tables) {
+            final Table cached = (previous != null) ? previous.byId.get(table.tableId) : null;
+            if (cached == null || cached.columnDescriptorId != table.columnDescriptorId) {
+                changedDescriptors.add(table.columnDescriptorId);
+            }
+        }
+
+        final Map<Long, List<Column>> loadedColumns = changedDescriptors.isEmpty() ? Collections.<Long, List<Column>>emptyMap() : columnLoader.apply(changedDescriptors);
+
+        // Build the new snapshot
+        final Snapshot next = new Snapshot();
+        int loaded = 0;
+        for (final Table table : tables) {
+            final Table cached = (previous != null) ? previous.byId.get(table.tableId) : null;
+            final List<Column> columns;
+            if (cached != null && cached.columnDescriptorId == table.columnDescriptorId) {
+                columns = cached.columns;
+            } else {
+                final List<Column> loadedList = loadedColumns.get(table.columnDescriptorId);
+                columns = (loadedList != null) ? Collections.unmodifiableList(new ArrayList<>(loadedList)) : Collections.<Column>emptyList();
+                ++loaded;
+            }
+            next.add(new Table(table.tableId, table.database, table.name, table.columnDescriptorId, columns));
+        }
+
+        snapshot = next;
+        return loaded;
+    }
+
+    /**
+     * Gets the index key for the specified name.
+     */
+    @Nonnull
+    private static String key(@Nonnull final String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A table in the Hive metastore.
+     */
+    public static class Table {
+
+        private final long tableId;
+        private final String database;
+        private final String name;
+        private final long columnDescriptorId;
+        private final List<Column> columns;
+
+        /**
+         * Constructs a {@code Table} with no columns, as listed from the metastore.
+         */
+        public Table(final long tableId, @Nonnull final String database, @Nonnull final String name, final long columnDescriptorId) {
+            this(tableId, database, name, columnDescriptorId, Collections.<Column>emptyList());
+        }
+
+        Table(final long tableId, @Nonnull final String database, @Nonnull final String name, final long columnDescriptorId, @Nonnull final List<Column> columns) {
+            this.tableId = tableId;
+            this.database = database;
+            this.name = name;
+            this.columnDescriptorId = columnDescriptorId;
+            this.columns = columns;
+        }
+
+        public long getTableId() {
+            return tableId;
+        }
+
+        @Nonnull
+        public String getDatabase() {
+            return database;
+        }
+
+        @Nonnull
+        public String getName() {
+            return name;
+        }
+
+        @Nonnull
+        public String getQualifiedName() {
+            return database + "." + name;
+        }
+
+        public long getColumnDescriptorId() {
+            return columnDescriptorId;
+        }
+
+        @Nonnull
+        public List<Column> getColumns() {
+            return columns;
+        }
+    }
+
+    /**
+     * A column of a table in the Hive metastore.
+     */
+    public static class Column {
+
+        private final String name;
+        private final String type;
+
+        public Column(@Nonnull final String name, @Nullable final String type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        @Nonnull
+        public String getName() {
+            return name;
+        }
+
+        @Nullable
+        public String getType() {
+            return type;
+        }
+    }
+
+    /**
+     * An immutable view of the catalog.
+     */
+    private static class Snapshot {
+
+        /**
+         * Tables by table id
+         */
+        final Map<Long, Table> byId = new HashMap<>();
+
+        /**
+         * Tables by lower-case {@code database.table} name
+         */
+        final NavigableMap<String, Table> byName = new TreeMap<>();
+
+        /**
+         * Tables by lower-case table name
+         */
+        final NavigableMap<String, List<Table>> byTableName = new TreeMap<>();
+
+        void add(@Nonnull final Table table) {
+            byId.put(table.tableId, table);
+            byName.put(key(table.getQualifiedName()), table);
+            byTableName.computeIfAbsent(key(table.name), name -> new ArrayList<>(1)).add(table);
+        }
+    }
+}
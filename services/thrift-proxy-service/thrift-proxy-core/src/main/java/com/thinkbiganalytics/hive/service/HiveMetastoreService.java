@@ -21,6 +21,8 @@ package com.thinkbiganalytics.hive.service;
  */
 
 
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.thinkbiganalytics.discovery.model.DefaultDatabaseMetadata;
 import com.thinkbiganalytics.discovery.model.DefaultField;
 import com.thinkbiganalytics.discovery.model.DefaultTableSchema;
@@ -32,8 +34,10 @@ import com.thinkbiganalytics.jdbc.util.DatabaseType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.MetaDataAccessException;
 import org.springframework.stereotype.Service;
@@ -41,26 +45,71 @@ import org.springframework.stereotype.Service;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.sql.DataSource;
 
 /**
+ * Lists the tables and columns in the Hive metastore.
+ *
+ * <p>Results are served from a {@link HiveMetastoreCatalog} that is refreshed in the background once it is older than {@code hive.metastore.catalog.refresh-interval-sec}.
+ * Setting the interval to 0 queries the metastore on every call.</p>
  */
 @Service("hiveMetastoreService")
 public class HiveMetastoreService {
 
     private static final Logger log = LoggerFactory.getLogger(HiveMetastoreService.class);
 
+    /**
+     * Maximum number of column descriptor ids in a single IN clause
+     */
+    private static final int COLUMN_BATCH_SIZE = 500;
+
 
     @Inject
     @Qualifier("hiveMetatoreJdbcTemplate")
     private JdbcTemplate hiveMetatoreJdbcTemplate;
     private DatabaseType metastoreDatabaseType = null;
 
+    /**
+     * Seconds between catalog refreshes, or 0 to disable the catalog
+     */
+    @Value("${hive.metastore.catalog.refresh-interval-sec:30}")
+    private long catalogRefreshIntervalSec = 30;
+
+    /**
+     * Cached tables and columns
+     */
+    private final HiveMetastoreCatalog catalog = new HiveMetastoreCatalog();
+
+    /**
+     * Time of the last catalog refresh
+     */
+    private volatile long catalogRefreshTime;
+
+    /**
+     * Indicates a background refresh is in progress
+     */
+    private final AtomicBoolean catalogRefreshing = new AtomicBoolean(false);
+
+    /**
+     * Runs background refreshes of the catalog
+     */
+    private final ExecutorService catalogExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("hive-metastore-catalog-%d").build());
+
     public DataSource getDataSource() {
 
         return hiveMetatoreJdbcTemplate.getDataSource();
@@ -80,7 +129,37 @@ public class HiveMetastoreService {
     }
 
 
+    @PreDestroy
+    public void shutdown() {
+        catalogExecutor.shutdownNow();
+    }
+
+    /**
+     * Lists the columns of every table, optionally limited to the specified {@code database.table} names.
+     */
     public List<DatabaseMetadata> getTableColumns(List<String> tablesFilter) throws DataAccessException {
+        final HiveMetastoreCatalog current = getCatalog();
+        if (current == null) {
+            return queryTableColumns(tablesFilter);
+        }
+
+        final Set<String> filter = (tablesFilter != null) ? new HashSet<>(tablesFilter) : null;
+        final List<DatabaseMetadata> metadata = new ArrayList<>();
+        for (final HiveMetastoreCatalog.Table table : current.getTables()) {
+            if (filter == null || filter.contains(table.getQualifiedName())) {
+                for (final HiveMetastoreCatalog.Column column : table.getColumns()) {
+                    DefaultDatabaseMetadata row = new DefaultDatabaseMetadata();
+                    row.setDatabaseName(table.getDatabase());
+                    row.setColumnName(column.getName());
+                    row.setTableName(table.getName());
+                    metadata.add(row);
+                }
+            }
+        }
+        return metadata;
+    }
+
+    private List<DatabaseMetadata> queryTableColumns(List<String> tablesFilter) throws DataAccessException {
 
         String query = "SELECT d.NAME as \"DATABASE_NAME\", t.TBL_NAME, c.COLUMN_NAME "
                        + "FROM COLUMNS_V2 c "
@@ -115,15 +194,43 @@ public class HiveMetastoreService {
 
     private List<DatabaseMetadata> filterDatabaseMetadata(List<DatabaseMetadata> allTables, List<String> tablesFilter) {
         List<DatabaseMetadata> results = new ArrayList<>();
+        Set<String> filter = new HashSet<>(tablesFilter);
         allTables.forEach(metadata -> {
-            if (tablesFilter.contains(metadata.getDatabaseName() + "." + metadata.getTableName())) {
+            if (filter.contains(metadata.getDatabaseName() + "." + metadata.getTableName())) {
                 results.add(metadata);
             }
         });
         return results;
     }
 
+    /**
+     * Lists every table as {@code database.table}.
+     */
     public List<String> getAllTables() throws DataAccessException {
+        final HiveMetastoreCatalog current = getCatalog();
+        if (current == null) {
+            return queryAllTables();
+        }
+        return current.getTables().stream().map(HiveMetastoreCatalog.Table::getQualifiedName).collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the tables whose {@code database.table} name contains the specified text, ignoring case. Prefix matches are listed first.
+     *
+     * @param text  the text to search for
+     * @param limit the maximum number of tables to return
+     * @return the matching tables as {@code database.table}
+     */
+    public List<String> searchTables(@Nonnull final String text, final int limit) throws DataAccessException {
+        final HiveMetastoreCatalog current = getCatalog();
+        if (current == null) {
+            final String search = text.toLowerCase();
+            return queryAllTables().stream().filter(table -> table.toLowerCase().contains(search)).limit(limit).collect(Collectors.toList());
+        }
+        return current.search(text, limit).stream().map(HiveMetastoreCatalog.Table::getQualifiedName).collect(Collectors.toList());
+    }
+
+    private List<String> queryAllTables() throws DataAccessException {
 
         String query = "SELECT d.NAME as \"DATABASE_NAME\", t.TBL_NAME FROM TBLS t JOIN DBS d on d.DB_ID = t.DB_ID ORDER BY d.NAME, t.TBL_NAME";
         if (DatabaseType.POSTGRES.equals(getMetastoreDatabaseType())) {
@@ -141,9 +248,116 @@ public class HiveMetastoreService {
     }
 
 
+    /**
+     * Gets the schema of every table.
+     */
     public List<TableSchema> getTableSchemas() throws DataAccessException {
+        final HiveMetastoreCatalog current = getCatalog();
+        if (current == null) {
+            return queryTableSchemas();
+        }
+
+        final List<TableSchema> metadata = new ArrayList<>();
+        for (final HiveMetastoreCatalog.Table table : current.getTables()) {
+            DefaultTableSchema schema = new DefaultTableSchema();
+            schema.setName(table.getName());
+            schema.setSchemaName(table.getDatabase());
+            schema.setFields(new ArrayList<Field>(table.getColumns().size()));
+            for (final HiveMetastoreCatalog.Column column : table.getColumns()) {
+                DefaultField field = new DefaultField();
+                field.setName(column.getName());
+                field.setNativeDataType(column.getType());
+                field.setDerivedDataType(column.getType());
+                schema.getFields().add(field);
+            }
+            metadata.add(schema);
+        }
+        return metadata;
+    }
+
+    /**
+     * Reloads the tables and columns that changed since the last refresh of the catalog.
+     *
+     * @throws DataAccessException if the metastore cannot be queried
+     */
+    public void refreshCatalog() throws DataAccessException {
+        synchronized (catalog) {
+            final long start = System.currentTimeMillis();
+            final int loaded = catalog.update(queryCatalogTables(), this::queryCatalogColumns);
+            catalogRefreshTime = System.currentTimeMillis();
+            log.debug("Refreshed Hive metastore catalog in {} ms. Loaded columns for {} tables.", catalogRefreshTime - start, loaded);
+        }
+    }
+
+    /**
+     * Gets the catalog, loading it if needed, or {@code null} if the catalog is disabled.
+     */
+    private HiveMetastoreCatalog getCatalog() {
+        if (catalogRefreshIntervalSec <= 0) {
+            return null;
+        }
+        if (!catalog.isLoaded()) {
+            refreshCatalog();
+        } else if (System.currentTimeMillis() - catalogRefreshTime > TimeUnit.SECONDS.toMillis(catalogRefreshIntervalSec) && catalogRefreshing.compareAndSet(false, true)) {
+            catalogExecutor.submit(() -> {
+                try {
+                    refreshCatalog();
+                } catch (final Exception e) {
+                    log.warn("Unable to refresh Hive metastore catalog: {}", e, e);
+                } finally {
+                    catalogRefreshing.set(false);
+                }
+            });
+        }
+        return catalog;
+    }
+
+    /**
+     * Lists every table with its column descriptor id.
+     */
+    private List<HiveMetastoreCatalog.Table> queryCatalogTables() throws DataAccessException {
+        String query = "SELECT t.TBL_ID, d.NAME as \"DATABASE_NAME\", t.TBL_NAME, s.CD_ID "
+                       + "FROM TBLS t "
+                       + "JOIN  DBS d on d.DB_ID = t.DB_ID "
+                       + "LEFT JOIN  SDS s on s.SD_ID = t.SD_ID";
+        if (DatabaseType.POSTGRES.equals(getMetastoreDatabaseType())) {
+            query = "SELECT t.\"TBL_ID\", d.\"NAME\" as \"DATABASE_NAME\", t.\"TBL_NAME\", s.\"CD_ID\" "
+                    + "FROM \"TBLS\" t "
+                    + "JOIN  \"DBS\" d on d.\"DB_ID\" = t.\"DB_ID\" "
+                    + "LEFT JOIN  \"SDS\" s on s.\"SD_ID\" = t.\"SD_ID\"";
+        }
+        return hiveMetatoreJdbcTemplate.query(query, new RowMapper<HiveMetastoreCatalog.Table>() {
+            @Override
+            public HiveMetastoreCatalog.Table mapRow(ResultSet rs, int i) throws SQLException {
+                return new HiveMetastoreCatalog.Table(rs.getLong("TBL_ID"), rs.getString("DATABASE_NAME"), rs.getString("TBL_NAME"), rs.getLong("CD_ID"));
+            }
+        });
+    }
+
+    /**
+     * Loads the columns for the specified column descriptor ids.
+     */
+    private Map<Long, List<HiveMetastoreCatalog.Column>> queryCatalogColumns(Set<Long> columnDescriptorIds) throws DataAccessException {
+        final Map<Long, List<HiveMetastoreCatalog.Column>> columns = new HashMap<>();
+        for (final List<Long> batch : Iterables.partition(columnDescriptorIds, COLUMN_BATCH_SIZE)) {
+            final String params = String.join(",", Collections.nCopies(batch.size(), "?"));
+            String query = "SELECT c.CD_ID, c.COLUMN_NAME, c.TYPE_NAME FROM COLUMNS_V2 c WHERE c.CD_ID IN (" + params + ") ORDER BY c.CD_ID, c.INTEGER_IDX";
+            if (DatabaseType.POSTGRES.equals(getMetastoreDatabaseType())) {
+                query = "SELECT c.\"CD_ID\", c.\"COLUMN_NAME\", c.\"TYPE_NAME\" FROM \"COLUMNS_V2\" c WHERE c.\"CD_ID\" IN (" + params + ") ORDER BY c.\"CD_ID\", c.\"INTEGER_IDX\"";
+            }
+            hiveMetatoreJdbcTemplate.query(query, batch.toArray(), new RowCallbackHandler() {
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    columns.computeIfAbsent(rs.getLong("CD_ID"), id -> new ArrayList<>()).add(new HiveMetastoreCatalog.Column(rs.getString("COLUMN_NAME"), rs.getString("TYPE_NAME")));
+                }
+            });
+        }
+        return columns;
+    }
+
+    private List<TableSchema> queryTableSchemas() throws DataAccessException {
 
-        String query = "SELECT d.NAME as \"DATABASE_NAME\", t.TBL_NAME, c.COLUMN_NAME c.TYPE_NAME "
+        String query = "SELECT d.NAME as \"DATABASE_NAME\", t.TBL_NAME, c.COLUMN_NAME, c.TYPE_NAME "
                        + "FROM COLUMNS_V2 c "
                        + "JOIN  SDS s on s.CD_ID = c.CD_ID "
                        + "JOIN  TBLS t ON s.SD_ID = t.SD_ID "
@@ -30,6 +30,7 @@ import com.thinkbiganalytics.hive.util.HiveUtils;
 import com.thinkbiganalytics.kerberos.KerberosTicketConfiguration;
 import com.thinkbiganalytics.kerberos.KerberosUtil;
 import com.thinkbiganalytics.schema.DBSchemaParser;
+import com.thinkbiganalytics.schema.QueryResultHandler;
 import com.thinkbiganalytics.schema.QueryRunner;
 
 import org.slf4j.Logger;
@@ -120,12 +121,7 @@ public class HiveService {
     }
 
     public QueryResult browse(String schema, String table, String where, Integer limit) throws DataAccessException {
-
-        if (where == null) {
-            where = "";
-        }
-        String query = "SELECT * from " + HiveUtils.quoteIdentifier(schema, table) + " " + where + " LIMIT " + limit;
-        return browse(query);
+        return browse(getBrowseQuery(schema, table, where, limit));
     }
 
 
@@ -142,6 +138,33 @@ public class HiveService {
         }, kerberosHiveConfiguration);
     }
 
+    /**
+     * Executes the specified query and passes each row to the handler as it is read from Hive.
+     *
+     * @param query     the SELECT query
+     * @param fetchSize the number of rows to fetch from HiveServer2 at a time, or 0 for the driver default
+     * @param handler   receives the columns and rows
+     * @return the number of rows passed to the handler
+     * @throws DataAccessException if there is any problem
+     */
+    public long stream(@Nonnull final String query, final int fetchSize, @Nonnull final QueryResultHandler handler) throws DataAccessException {
+        return KerberosUtil.runWithOrWithoutKerberos(() -> {
+            //  Setting in order to query complex formats like parquet
+            jdbcTemplate.execute("set hive.optimize.index.filter=false");
+            return new QueryRunner(jdbcTemplate).stream(query, fetchSize, handler);
+        }, kerberosHiveConfiguration);
+    }
+
+    /**
+     * Builds the query for browsing the specified table.
+     */
+    public String getBrowseQuery(String schema, String table, String where, Integer limit) {
+        if (where == null) {
+            where = "";
+        }
+        return "SELECT * from " + HiveUtils.quoteIdentifier(schema, table) + " " + where + ((limit != null) ? " LIMIT " + limit : "");
+    }
+
     /**
      * Executes a single SQL update operation (such as insert, update, or delete).
      *
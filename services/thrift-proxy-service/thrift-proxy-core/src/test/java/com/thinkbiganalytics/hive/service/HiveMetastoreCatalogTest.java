@@ -0,0 +1,101 @@
+package com.thinkbiganalytics.hive.service;
+
+/*-
+ * #%L
+ * thinkbig-thrift-proxy-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class HiveMetastoreCatalogTest {
+
+    /**
+     * Verify columns are only loaded for new and altered tables.
+     */
+    @Test
+    public void update() {
+        final HiveMetastoreCatalog catalog = new HiveMetastoreCatalog();
+        final ColumnLoader loader = new ColumnLoader();
+        Assert.assertFalse(catalog.isLoaded());
+
+        // Initial load
+        Assert.assertEquals(2, catalog.update(Arrays.asList(new HiveMetastoreCatalog.Table(1, "sales", "orders", 10), new HiveMetastoreCatalog.Table(2, "sales", "customers", 20)), loader));
+        Assert.assertTrue(catalog.isLoaded());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(10L, 20L)), loader.requested.get(0));
+        Assert.assertEquals(Arrays.asList("sales.customers", "sales.orders"), names(catalog.getTables()));
+        Assert.assertEquals("col10", catalog.getTable("sales", "orders").getColumns().get(0).getName());
+
+        // Unchanged tables are not reloaded
+        Assert.assertEquals(0, catalog.update(Arrays.asList(new HiveMetastoreCatalog.Table(1, "sales", "orders", 10), new HiveMetastoreCatalog.Table(2, "sales", "customers", 20)), loader));
+        Assert.assertEquals(1, loader.requested.size());
+
+        // Altered, added, and dropped tables
+        Assert.assertEquals(2, catalog.update(Arrays.asList(new HiveMetastoreCatalog.Table(1, "sales", "orders", 11), new HiveMetastoreCatalog.Table(3, "hr", "employees", 30)), loader));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(11L, 30L)), loader.requested.get(1));
+        Assert.assertEquals(Arrays.asList("hr.employees", "sales.orders"), names(catalog.getTables()));
+        Assert.assertEquals("col11", catalog.getTable("sales", "orders").getColumns().get(0).getName());
+        Assert.assertNull(catalog.getTable("sales", "customers"));
+    }
+
+    /**
+     * Verify searching lists prefix matches before substring matches.
+     */
+    @Test
+    public void search() {
+        final HiveMetastoreCatalog catalog = new HiveMetastoreCatalog();
+        catalog.update(Arrays.asList(new HiveMetastoreCatalog.Table(1, "sales", "order_items", 10), new HiveMetastoreCatalog.Table(2, "orders", "daily", 20),
+                                     new HiveMetastoreCatalog.Table(3, "hr", "Orders", 30), new HiveMetastoreCatalog.Table(4, "hr", "employees", 40)), new ColumnLoader());
+
+        Assert.assertEquals(Arrays.asList("orders.daily", "sales.order_items", "hr.Orders"), names(catalog.search("ORDER", 10)));
+        Assert.assertEquals(Arrays.asList("orders.daily", "sales.order_items"), names(catalog.search("order", 2)));
+        Assert.assertEquals(Collections.singletonList("hr.employees"), names(catalog.search("ploy", 10)));
+        Assert.assertEquals(Collections.emptyList(), names(catalog.search("missing", 10)));
+    }
+
+    private static List<String> names(final Iterable<HiveMetastoreCatalog.Table> tables) {
+        final List<String> names = new ArrayList<>();
+        tables.forEach(table -> names.add(table.getQualifiedName()));
+        return names;
+    }
+
+    /**
+     * Returns a single column named after the column descriptor id.
+     */
+    private static class ColumnLoader implements Function<Set<Long>, Map<Long, List<HiveMetastoreCatalog.Column>>> {
+
+        final List<Set<Long>> requested = new ArrayList<>();
+
+        @Override
+        public Map<Long, List<HiveMetastoreCatalog.Column>> apply(final Set<Long> ids) {
+            requested.add(new HashSet<>(ids));
+            return ids.stream().collect(Collectors.toMap(id -> id, id -> Collections.singletonList(new HiveMetastoreCatalog.Column("col" + id, "string")), (a, b) -> a, HashMap::new));
+        }
+    }
+}